@@ -59,6 +59,24 @@ public interface CollabActions {
      */
     void sendSnapshot(String vPath, String text);
 
+    /**
+     * 에디터의 증분 편집 연산(삽입/삭제)을 전송한다.
+     *
+     * @param vPath        가상 파일 경로
+     * @param baseVersion  연산을 적용할 기준 문서 버전
+     * @param offset       편집 위치
+     * @param removeLength 삭제한 글자 수
+     * @param insert       삽입한 문자열
+     */
+    void sendEditOp(String vPath, long baseVersion, int offset, int removeLength, String insert);
+
+    /**
+     * 문서 전체 스냅샷을 서버에 요청한다. (문서 버전이 어긋났을 때)
+     *
+     * @param vPath 가상 파일 경로
+     */
+    void requestSync(String vPath);
+
     /**
      * 커서 위치 정보를 전송한다.
      *
@@ -125,6 +143,20 @@ public interface CollabActions {
      */
     java.util.Set<String> getConnectedStudents();
 
+    /**
+     * 참여자 명단 변경 리스너를 등록한다. 입장, 역할 변경, 퇴장이 있을 때 바뀐 사용자에 대해서만 EDT에서 호출된다.
+     *
+     * @param listener 등록할 리스너
+     */
+    void addPresenceListener(UserSessionManager.Listener listener);
+
+    /**
+     * 참여자 명단 변경 리스너를 해제한다.
+     *
+     * @param listener 해제할 리스너
+     */
+    void removePresenceListener(UserSessionManager.Listener listener);
+
     /**
      * 교수자에게 질문을 전송한다 (학생 전용).
      *
@@ -136,4 +168,21 @@ public interface CollabActions {
      * 질문 다이얼로그를 표시한다 (교수자 전용).
      */
     void showQuestionDialog();
+
+    /**
+     * 서버에 보관된 문서를 서버에서 컴파일(하고 실행)하도록 요청한다.
+     * 문서 내용은 다시 보내지 않으므로, 호출 전에 보내지 않은 편집을 전송해 두어야 한다. (EditorTab.flushEdits)
+     * 결과와 프로그램 출력은 콘솔에 표시된다.
+     *
+     * @param vPath 가상 파일 경로
+     * @param run   컴파일에 성공하면 프로그램을 실행할지 여부
+     */
+    void requestCompile(String vPath, boolean run);
+
+    /**
+     * 강의 기록 파일을 열어 다시 보기 창을 표시한다. (서버 접속 없이 사용할 수 있다)
+     *
+     * @param file 서버가 --replay=DIR 폴더에 남긴 .replay 파일
+     */
+    void openReplay(java.io.File file);
 }
@@ -7,6 +7,7 @@ import ide.ui.FileTreeManager;
 import ide.ui.TabManager;
 import ide.ui.ToolBarManager;
 import ide.ui.QuestionDialog;
+import ide.ui.ReplayDialog;
 import ide.domain.Role;
 
 import javax.swing.*;
@@ -37,6 +38,8 @@ public class CollabIDE extends JFrame implements CollabCallbacks, CollabActions
     private final JTextArea console = new JTextArea();
     private final JLabel statusLabel = new JLabel("Offline");
     private final JPanel statusPanel = new JPanel(new BorderLayout());
+    // 서버 대기열에서 기다리는 중인 컴파일/실행 요청의 경로 (수신 스레드에서만 사용)
+    private final Set<String> queuedCompiles = new HashSet<>();
     private QuestionDialog questionDialog;
 
     // 애플리케이션 상태
@@ -62,6 +65,21 @@ public class CollabIDE extends JFrame implements CollabCallbacks, CollabActions
 
         // 3. UI 조정자 초기화
         this.uiCoordinator = new UICoordinator(this, tabManager, toolBarManager, console, statusLabel);
+        // 명단에서 바뀐 사용자만: 자신의 역할이 정해지면 화면을 맞추고, 나간 사용자의 커서를 지운다
+        sessionMgr.addListener(new UserSessionManager.Listener() {
+            @Override
+            public void userJoined(String nickname, Role role) {
+                if (Objects.equals(nickname, connectionMgr.getNickname())) {
+                    uiCoordinator.updateThemeForRole(role);
+                    toolBarManager.updateRoleUI(role == Role.PROFESSOR);
+                }
+            }
+
+            @Override
+            public void userLeft(String nickname) {
+                tabManager.removeRemoteCursor(nickname);
+            }
+        });
 
         // 4. UI 구성
         setupUI();
@@ -141,7 +159,7 @@ public class CollabIDE extends JFrame implements CollabCallbacks, CollabActions
 
     @Override
     public void disconnect() {
-        if (connectionMgr.isConnected()) {
+        if (connectionMgr.isConnected() || connectionMgr.isReconnecting()) {
             connectionMgr.disconnect();
             sessionMgr.clear();
             uiCoordinator.log("서버 연결 해제");
@@ -173,6 +191,16 @@ public class CollabIDE extends JFrame implements CollabCallbacks, CollabActions
         connectionMgr.getClient().sendSnapshot(vPath, text);
     }
 
+    @Override
+    public void sendEditOp(String vPath, long baseVersion, int offset, int removeLength, String insert) {
+        connectionMgr.getClient().sendEditOp(vPath, baseVersion, offset, removeLength, insert);
+    }
+
+    @Override
+    public void requestSync(String vPath) {
+        connectionMgr.getClient().requestSync(vPath);
+    }
+
     @Override
     public void sendCursor(String vPath, int dot, int mark) {
         connectionMgr.getClient().sendCursor(vPath, dot, mark);
@@ -213,6 +241,16 @@ public class CollabIDE extends JFrame implements CollabCallbacks, CollabActions
         return sessionMgr.getConnectedStudents();
     }
 
+    @Override
+    public void addPresenceListener(UserSessionManager.Listener listener) {
+        sessionMgr.addListener(listener);
+    }
+
+    @Override
+    public void removePresenceListener(UserSessionManager.Listener listener) {
+        sessionMgr.removeListener(listener);
+    }
+
     @Override
     public void sendQuestion(String questionText) {
         connectionMgr.getClient().sendQuestion(questionText);
@@ -225,6 +263,25 @@ public class CollabIDE extends JFrame implements CollabCallbacks, CollabActions
         }
     }
 
+    @Override
+    public void openReplay(java.io.File file) {
+        try {
+            new ReplayDialog(this, new ReplayPlayer(file)).setVisible(true);
+        } catch (java.io.IOException e) {
+            uiCoordinator.showError("강의 기록을 열 수 없습니다: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void requestCompile(String vPath, boolean run) {
+        if (!connectionMgr.isConnected()) {
+            uiCoordinator.showError("서버에 연결된 상태에서만 서버 컴파일을 사용할 수 있습니다.");
+            return;
+        }
+        // 공유 문서를 덮어쓰지 않도록 전체 내용은 보내지 않는다: 서버가 가진 현재 버전을 컴파일한다
+        connectionMgr.getClient().requestCompile(vPath, run);
+    }
+
     // --- CollabCallbacks 구현 (Network -> Controller) ---
 
     @Override
@@ -232,6 +289,26 @@ public class CollabIDE extends JFrame implements CollabCallbacks, CollabActions
         tabManager.applyRemoteEdit(path, text);
     }
 
+    @Override
+    public void applyRemoteOp(String path, long baseVersion, int offset, int removeLength, String insert) {
+        tabManager.applyRemoteOp(path, baseVersion, offset, removeLength, insert);
+    }
+
+    @Override
+    public void applyRemoteSnapshot(String path, long version, String text) {
+        tabManager.applyRemoteSnapshot(path, version, text);
+    }
+
+    @Override
+    public void onEditAck(String path, long version) {
+        tabManager.onEditAck(path, version);
+    }
+
+    @Override
+    public void onSnapshotRequested(String path) {
+        tabManager.sendSnapshotOf(path);
+    }
+
     @Override
     public void applyRemoteCursor(String path, String nick, int dot, int mark) {
         Color color = sessionMgr.getColorForNick(nick);
@@ -248,24 +325,36 @@ public class CollabIDE extends JFrame implements CollabCallbacks, CollabActions
         tabManager.applyRemoteLaser(path, x, y);
     }
 
+    @Override
+    public void onRoster(Map<String, String> users) {
+        Map<String, Role> roles = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : users.entrySet())
+            roles.put(e.getKey(), Role.fromString(e.getValue()));
+        SwingUtilities.invokeLater(() -> {
+            sessionMgr.replaceAll(roles);
+            System.out.println("[CollabIDE] Roster received: " + roles.keySet());
+            uiCoordinator.log("[참여자 정보] " + roles.size() + "명 접속 중");
+        });
+    }
+
     @Override
     public void onRoleInfo(String nick, String roleString) {
         SwingUtilities.invokeLater(() -> {
             Role role = Role.fromString(roleString);
-            sessionMgr.addUser(nick, role);
-
             System.out.println("[CollabIDE] ROLE_INFO received: " + nick + " -> " + role);
-            System.out.println("[CollabIDE] Current userRoles: " + sessionMgr.getConnectedUsers());
-
-            if (Objects.equals(nick, connectionMgr.getNickname())) {
-                uiCoordinator.updateThemeForRole(role);
-                toolBarManager.updateRoleUI(role == Role.PROFESSOR);
-            }
-
+            sessionMgr.addUser(nick, role);
             uiCoordinator.log("[참여자 정보] " + nick + " = " + role);
         });
     }
 
+    @Override
+    public void onUserLeft(String nick) {
+        SwingUtilities.invokeLater(() -> {
+            sessionMgr.removeUser(nick);
+            uiCoordinator.log("[퇴장] " + nick);
+        });
+    }
+
     @Override
     public void onQuestion(String studentNick, String questionText) {
         System.out.println("[CollabIDE] Question from " + studentNick + ": " + questionText);
@@ -274,6 +363,65 @@ public class CollabIDE extends JFrame implements CollabCallbacks, CollabActions
         }
     }
 
+    @Override
+    public void onCompileStart(String path, String nick) {
+        queuedCompiles.remove(path);
+        uiCoordinator.log("[컴파일] " + path + " (" + nick + ")");
+    }
+
+    @Override
+    public void onCompileQueued(String path, int position, long etaMs) {
+        String status = "[대기] " + path + " - " + position + "번째, 약 " + Math.max(1, (etaMs + 999) / 1000) + "초";
+        // 콘솔에는 처음 한 번만 남기고, 이후 순번 변화는 상태바에만 표시한다
+        if (queuedCompiles.add(path))
+            uiCoordinator.log(status);
+        uiCoordinator.updateStatusLabel(status);
+    }
+
+    @Override
+    public void onCompileOutput(String path, String text) {
+        queuedCompiles.remove(path);
+        uiCoordinator.append(text); // 프로그램이 출력한 그대로 (줄바꿈은 본문에 들어 있다)
+    }
+
+    @Override
+    public void onCompileEnd(String path, int exitCode) {
+        String result;
+        switch (exitCode) {
+            case 0:
+                result = "성공";
+                break;
+            case 1:
+                result = "컴파일 오류";
+                break;
+            case 3:
+                result = "실행 실패";
+                break;
+            default:
+                result = "처리하지 못함";
+        }
+        queuedCompiles.remove(path);
+        uiCoordinator.log("[종료] " + path + " - " + result);
+        uiCoordinator.updateStatusLabel("[종료] " + path + " - " + result);
+    }
+
+    @Override
+    public void onConnectionLost(boolean reconnecting) {
+        String status = reconnecting ? "서버 연결이 끊겼습니다. 다시 접속하는 중..." : "서버에 다시 접속하지 못했습니다.";
+        uiCoordinator.log(status);
+        uiCoordinator.updateStatusLabel(status);
+    }
+
+    @Override
+    public void onReconnected(boolean resumed) {
+        String status = resumed ? "서버에 다시 접속했습니다 (놓친 변경 사항을 받았습니다)."
+                : "서버에 다시 접속했습니다 (문서 전체를 다시 받았습니다).";
+        uiCoordinator.log(status);
+        uiCoordinator.updateStatusLabel(status);
+        // 끊겨 있는 동안의 편집을 보낸다 (전체를 다시 받는 경우에도 서버가 모르는 문서의 편집은 살아남는다)
+        tabManager.resumeEdits();
+    }
+
     // --- 메인 메소드 ---
 
     /**
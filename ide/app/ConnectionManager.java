@@ -1,6 +1,7 @@
 package ide.app;
 
 import ide.net.CollabClient;
+import ide.net.Protocol;
 
 import javax.swing.*;
 import java.awt.*;
@@ -31,11 +32,12 @@ public class ConnectionManager {
      * @param parent 부모 프레임
      */
     public void promptConnect(Frame parent) {
-        JPanel panel = new JPanel(new GridLayout(4, 2, 5, 5));
+        JPanel panel = new JPanel(new GridLayout(5, 2, 5, 5));
         JTextField hostField = new JTextField("127.0.0.1");
         JTextField portField = new JTextField("6000");
         JTextField nickField = new JTextField("user" + System.currentTimeMillis() % 100);
         JComboBox<String> roleCombo = new JComboBox<>(new String[] { "Student", "Professor" });
+        JTextField roomField = new JTextField(Protocol.DEFAULT_ROOM);
 
         panel.add(new JLabel("Host:"));
         panel.add(hostField);
@@ -45,6 +47,8 @@ public class ConnectionManager {
         panel.add(nickField);
         panel.add(new JLabel("Role:"));
         panel.add(roleCombo);
+        panel.add(new JLabel("Room:"));
+        panel.add(roomField);
 
         int result = JOptionPane.showConfirmDialog(parent, panel, "Connect to Server",
                 JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
@@ -55,8 +59,9 @@ public class ConnectionManager {
                 int port = Integer.parseInt(portField.getText().trim());
                 String nickname = nickField.getText().trim();
                 String role = (String) roleCombo.getSelectedItem();
+                String room = roomField.getText().trim();
 
-                connect(host, port, nickname, role);
+                connect(host, port, nickname, role, room);
             } catch (Exception ex) {
                 JOptionPane.showMessageDialog(parent,
                         "Connection failed: " + ex.getMessage(),
@@ -76,8 +81,22 @@ public class ConnectionManager {
      * @throws IOException 연결 실패 시
      */
     public void connect(String host, int port, String nickname, String roleStr) throws IOException {
+        connect(host, port, nickname, roleStr, null);
+    }
+
+    /**
+     * 지정한 방(강의 채널)으로 서버에 연결한다.
+     *
+     * @param host     서버 호스트
+     * @param port     서버 포트
+     * @param nickname 닉네임
+     * @param roleStr  역할 문자열
+     * @param room     방 이름 (비어 있으면 기본 방)
+     * @throws IOException 연결 실패 시
+     */
+    public void connect(String host, int port, String nickname, String roleStr, String room) throws IOException {
         this.currentNickname = nickname;
-        client.connect(host, port, nickname, roleStr);
+        client.connect(host, port, nickname, roleStr, room);
         this.connected = true;
     }
 
@@ -101,6 +120,15 @@ public class ConnectionManager {
         return connected && client.isConnected();
     }
 
+    /**
+     * 연결이 끊겨 다시 접속을 시도하는 중인지 반환한다.
+     *
+     * @return 재접속 시도 중이면 true
+     */
+    public boolean isReconnecting() {
+        return connected && client.isReconnecting();
+    }
+
     /**
      * 현재 닉네임을 반환한다.
      *
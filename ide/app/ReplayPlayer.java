@@ -0,0 +1,238 @@
+package ide.app;
+
+import ide.net.ReplayFile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 강의 기록 파일을 재생하는 컨트롤러. (다시 보기 창이 사용한다)
+ *
+ * 임의 시각으로 이동(seek)하면 그 시각을 포함하는 블록 하나만 읽어 키프레임에서 시작하고,
+ * 앞으로 재생(advanceTo)할 때는 이미 읽은 블록의 다음 이벤트부터 이어서 적용하므로 파일 전체를 다시 읽지 않는다.
+ * 뒤로 가는 경우에만 다시 이동한다.
+ */
+public class ReplayPlayer implements Closeable {
+    private final ReplayFile.Reader reader;
+    // 현재 시각의 문서 내용 (경로 순)
+    private final Map<String, StringBuilder> docs = new TreeMap<>();
+    private ReplayFile.Block block;
+    private int blockIndex = -1;
+    private int next;
+    private long position = 0;
+    private int revision = 0;
+
+    // 교수자가 마지막으로 다룬 문서와 커서/뷰포트/레이저
+    private String focusPath;
+    private String cursorPath;
+    private int cursorDot;
+    private int cursorMark;
+    private String viewportPath;
+    private int viewportLine;
+    private String laserPath;
+    private int laserX = -1;
+    private int laserY = -1;
+
+    /**
+     * ReplayPlayer 생성자. 파일을 열고 처음 위치로 이동한다.
+     *
+     * @param file 강의 기록 파일
+     * @throws IOException 읽을 수 없거나 기록 파일이 아닌 경우
+     */
+    public ReplayPlayer(File file) throws IOException {
+        this.reader = new ReplayFile.Reader(file.toPath());
+        seek(0);
+    }
+
+    /** @return 기록된 방 이름 */
+    public String getRoom() {
+        return reader.room();
+    }
+
+    /** @return 기록 시작 시각 (epoch ms) */
+    public long getStartEpochMs() {
+        return reader.startEpochMs();
+    }
+
+    /** @return 기록 길이 (ms) */
+    public long getDurationMs() {
+        return reader.durationMs();
+    }
+
+    /** @return 현재 재생 위치 (기록 시작부터의 ms) */
+    public long getPosition() {
+        return position;
+    }
+
+    /** @return 문서 내용이 바뀔 때마다 증가하는 번호 (화면 갱신 여부 판단용) */
+    public int getRevision() {
+        return revision;
+    }
+
+    /**
+     * 임의 시각으로 이동한다. 그 시각을 포함하는 블록의 키프레임에서 시작해 해당 시각까지의 이벤트만 적용한다.
+     *
+     * @param t 기록 시작부터의 ms
+     * @throws IOException 블록을 읽을 수 없는 경우
+     */
+    public void seek(long t) throws IOException {
+        docs.clear();
+        focusPath = cursorPath = viewportPath = laserPath = null;
+        laserX = laserY = -1;
+        revision++;
+        block = null;
+        blockIndex = reader.blockAt(t);
+        next = 0;
+        position = t;
+        if (blockIndex < 0)
+            return;
+        block = reader.block(blockIndex);
+        for (Map.Entry<String, String> e : block.keyframe().entrySet())
+            docs.put(e.getKey(), new StringBuilder(e.getValue()));
+        playUntil(t);
+    }
+
+    /**
+     * 재생 위치를 앞으로 옮기며 그 사이의 이벤트를 적용한다. 뒤로 가는 경우에는 seek(t)와 같다.
+     *
+     * @param t 기록 시작부터의 ms
+     * @throws IOException 블록을 읽을 수 없는 경우
+     */
+    public void advanceTo(long t) throws IOException {
+        if (t < position || block == null) {
+            seek(t);
+            return;
+        }
+        playUntil(t);
+        position = t;
+    }
+
+    // 현재 블록에서 이어서 t까지 적용한다. 블록이 끝나면 다음 블록으로 넘어간다 (다음 블록의 키프레임은 현재 상태와 같다)
+    private void playUntil(long t) throws IOException {
+        while (true) {
+            while (next < block.size() && block.time(next) <= t)
+                apply(next++);
+            if (next < block.size() || blockIndex + 1 >= reader.blockCount() || reader.blockStart(blockIndex + 1) > t)
+                return;
+            block = reader.block(++blockIndex);
+            next = 0;
+        }
+    }
+
+    private void apply(int i) {
+        byte type = block.type(i);
+        String path = block.path(i);
+        if (ReplayFile.apply(docs, type, path, block.a(i), block.b(i), block.text(i)))
+            revision++;
+        switch (type) {
+            case ReplayFile.PUT:
+            case ReplayFile.OP:
+                focusPath = path;
+                break;
+            case ReplayFile.REMOVE:
+                if (focusPath != null && !docs.containsKey(focusPath))
+                    focusPath = null;
+                break;
+            case ReplayFile.RENAME:
+                if (focusPath != null && !docs.containsKey(focusPath))
+                    focusPath = block.text(i) + focusPath.substring(Math.min(path.length(), focusPath.length()));
+                break;
+            case ReplayFile.CURSOR:
+                focusPath = cursorPath = path;
+                cursorDot = block.a(i);
+                cursorMark = block.b(i);
+                break;
+            case ReplayFile.VIEWPORT:
+                focusPath = viewportPath = path;
+                viewportLine = block.a(i);
+                break;
+            case ReplayFile.LASER:
+                laserPath = path;
+                laserX = block.a(i);
+                laserY = block.b(i);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /** @return 현재 시각에 있는 문서 경로 목록 (경로 순) */
+    public List<String> getPaths() {
+        return new ArrayList<>(docs.keySet());
+    }
+
+    /**
+     * @param path 문서 경로
+     * @return 현재 시각의 문서 내용, 없으면 null
+     */
+    public String getText(String path) {
+        StringBuilder doc = docs.get(path);
+        return doc == null ? null : doc.toString();
+    }
+
+    /** @return 교수자가 마지막으로 편집하거나 가리킨 문서 경로 (없으면 null) */
+    public String getFocusPath() {
+        return focusPath != null && docs.containsKey(focusPath) ? focusPath : null;
+    }
+
+    /**
+     * @param path 화면에 표시 중인 문서
+     * @return 그 문서에 있는 교수자 커서 {dot, mark}, 없으면 null
+     */
+    public int[] getCursor(String path) {
+        return path != null && path.equals(cursorPath) ? new int[] { cursorDot, cursorMark } : null;
+    }
+
+    /**
+     * @param path 화면에 표시 중인 문서
+     * @return 그 문서의 교수자 뷰포트 첫 줄 (1부터), 없으면 -1
+     */
+    public int getViewportLine(String path) {
+        return path != null && path.equals(viewportPath) ? viewportLine : -1;
+    }
+
+    /**
+     * @param path 화면에 표시 중인 문서
+     * @return 그 문서의 레이저 포인터 {x, y}, 꺼져 있으면 null
+     */
+    public int[] getLaser(String path) {
+        return path != null && path.equals(laserPath) && laserX >= 0 && laserY >= 0 ? new int[] { laserX, laserY }
+                : null;
+    }
+
+    /**
+     * 현재 시각의 모든 문서를 폴더에 파일로 내보낸다. (그 시점의 코드를 그대로 열어 볼 수 있도록)
+     * 가상 경로는 폴더 기준 상대 경로가 되며, 폴더 밖을 가리키는 경로는 건너뛴다.
+     *
+     * @param dir 내보낼 폴더
+     * @return 내보낸 문서 수
+     * @throws IOException 파일을 쓸 수 없는 경우
+     */
+    public int exportTo(File dir) throws IOException {
+        Path root = dir.toPath().toAbsolutePath().normalize();
+        int count = 0;
+        for (Map.Entry<String, StringBuilder> e : docs.entrySet()) {
+            String relative = e.getKey().replace('\\', '/').replaceFirst("^(/|[A-Za-z]:/)+", "");
+            Path target = root.resolve(relative).normalize();
+            if (relative.isEmpty() || !target.startsWith(root))
+                continue;
+            Files.createDirectories(target.getParent());
+            Files.write(target, e.getValue().toString().getBytes(StandardCharsets.UTF_8));
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -5,6 +5,8 @@ import ide.ui.TabManager;
 import ide.ui.ToolBarManager;
 
 import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import java.awt.*;
 
 /**
@@ -13,9 +15,15 @@ import java.awt.*;
  * 상태바 업데이트, 콘솔 로그 등의 UI 관련 작업을 수행한다.
  */
 public class UICoordinator {
+    // 콘솔에 남길 최대 글자 수 (넘으면 오래된 줄부터 지운다)
+    private static final int MAX_CONSOLE_CHARS = 512 * 1024;
+
     private final JFrame frame;
     private final JTextArea console;
     private final JLabel statusLabel;
+    // EDT에 아직 반영되지 않은 콘솔 출력. 이 객체로 동기화한다
+    private final StringBuilder pendingLog = new StringBuilder();
+    private boolean logScheduled = false;
 
     /**
      * UICoordinator 생성자.
@@ -44,14 +52,47 @@ public class UICoordinator {
 
     /**
      * 콘솔에 로그 메시지를 출력한다.
+     * EDT가 처리하기 전에 들어온 메시지들은 모아서 한 번의 문서 삽입으로 반영한다.
+     * (서버 출력이 몰려도 줄마다 삽입과 화면 갱신을 하지 않는다)
      *
-     * @param message 로그 메시지
+     * @param message 로그 메시지 (여러 줄이어도 된다)
      */
     public void log(String message) {
-        SwingUtilities.invokeLater(() -> {
-            console.append(message + "\n");
-            console.setCaretPosition(console.getDocument().getLength());
-        });
+        append(message + "\n");
+    }
+
+    /**
+     * 콘솔에 텍스트를 받은 그대로 이어 붙인다. 줄바꿈을 덧붙이지 않으므로 줄 중간에서 끝난 출력도 다음 출력과 이어진다.
+     * (서버 컴파일/실행 출력)
+     *
+     * @param text 출력 텍스트
+     */
+    public void append(String text) {
+        synchronized (pendingLog) {
+            pendingLog.append(text);
+            if (logScheduled)
+                return;
+            logScheduled = true;
+        }
+        SwingUtilities.invokeLater(this::flushLog);
+    }
+
+    private void flushLog() {
+        String text;
+        synchronized (pendingLog) {
+            text = pendingLog.toString();
+            pendingLog.setLength(0);
+            logScheduled = false;
+        }
+        Document doc = console.getDocument();
+        try {
+            doc.insertString(doc.getLength(), text, null);
+            int excess = doc.getLength() - MAX_CONSOLE_CHARS;
+            if (excess > 0)
+                doc.remove(0, Math.min(doc.getLength(), console.getLineEndOffset(console.getLineOfOffset(excess))));
+        } catch (BadLocationException ignored) {
+        }
+        console.setCaretPosition(doc.getLength());
     }
 
     /**
@@ -9,11 +9,53 @@ import java.util.*;
  * 사용자 세션 정보를 관리하는 클래스.
  * 
  * 접속한 사용자들의 역할, 상태, 색상 등을 관리한다.
+ * 명단은 서버가 보낸 전체 명단과 입장/퇴장 변경으로 갱신되며, 실제로 바뀐 사용자에 대해서만 리스너에 알린다.
+ * 출석부나 원격 커서처럼 명단을 보여 주는 화면은 전체를 다시 그리지 않고 바뀐 사람만 갱신할 수 있다.
+ * EDT에서만 사용한다.
  */
 public class UserSessionManager {
+    /**
+     * 명단 변경을 받는 리스너. (EDT에서 호출된다)
+     */
+    public interface Listener {
+        /**
+         * 사용자가 들어왔거나 역할이 바뀌었을 때 호출된다.
+         *
+         * @param nickname 사용자 닉네임
+         * @param role     사용자 역할
+         */
+        void userJoined(String nickname, Role role);
+
+        /**
+         * 사용자가 나갔을 때 호출된다.
+         *
+         * @param nickname 사용자 닉네임
+         */
+        void userLeft(String nickname);
+    }
+
     private final Map<String, Role> userRoles = new HashMap<>();
     private final Map<String, Color> userColors = new HashMap<>();
     private final Random colorRandom = new Random();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    /**
+     * 명단 변경 리스너를 등록한다.
+     *
+     * @param listener 등록할 리스너
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 명단 변경 리스너를 해제한다.
+     *
+     * @param listener 해제할 리스너
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
 
     /**
      * 사용자를 추가하거나 업데이트한다.
@@ -22,13 +64,16 @@ public class UserSessionManager {
      * @param role     사용자 역할
      */
     public void addUser(String nickname, Role role) {
-        userRoles.put(nickname, role);
+        Role previous = userRoles.put(nickname, role);
 
         // 색상이 없으면 생성
         if (!userColors.containsKey(nickname)) {
             float hue = colorRandom.nextFloat();
             userColors.put(nickname, Color.getHSBColor(hue, 0.6f, 0.9f));
         }
+        if (previous != role)
+            for (Listener l : new ArrayList<>(listeners))
+                l.userJoined(nickname, role);
     }
 
     /**
@@ -37,8 +82,24 @@ public class UserSessionManager {
      * @param nickname 사용자 닉네임
      */
     public void removeUser(String nickname) {
-        userRoles.remove(nickname);
         userColors.remove(nickname);
+        if (userRoles.remove(nickname) != null)
+            for (Listener l : new ArrayList<>(listeners))
+                l.userLeft(nickname);
+    }
+
+    /**
+     * 명단 전체를 교체한다. (서버가 전체 명단을 보낸 경우)
+     * 없어진 사용자는 제거하고 새로 들어왔거나 역할이 바뀐 사용자만 추가하므로, 리스너는 바뀐 사람에 대해서만 호출된다.
+     *
+     * @param users 닉네임 -> 역할
+     */
+    public void replaceAll(Map<String, Role> users) {
+        for (String nickname : new ArrayList<>(userRoles.keySet()))
+            if (!users.containsKey(nickname))
+                removeUser(nickname);
+        for (Map.Entry<String, Role> e : users.entrySet())
+            addUser(e.getKey(), e.getValue());
     }
 
     /**
@@ -94,7 +155,7 @@ public class UserSessionManager {
      * 연결 해제 시 호출된다.
      */
     public void clear() {
-        userRoles.clear();
+        replaceAll(Map.of());
         userColors.clear();
     }
 }
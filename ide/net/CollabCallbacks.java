@@ -16,6 +16,42 @@ public interface CollabCallbacks {
      */
     void applyRemoteEdit(String path, String text);
 
+    /**
+     * 원격 사용자의 증분 편집 연산을 반영한다.
+     * 로컬 문서 버전이 baseVersion과 다르면 전체 스냅샷을 요청해야 한다.
+     *
+     * @param path         파일 경로
+     * @param baseVersion  연산의 기준 문서 버전
+     * @param offset       편집 위치
+     * @param removeLength 삭제할 글자 수
+     * @param insert       삽입할 문자열
+     */
+    void applyRemoteOp(String path, long baseVersion, int offset, int removeLength, String insert);
+
+    /**
+     * 서버가 보낸 버전이 붙은 문서 전체 스냅샷을 반영한다.
+     *
+     * @param path    파일 경로
+     * @param version 문서 버전
+     * @param text    문서 전체 내용
+     */
+    void applyRemoteSnapshot(String path, long version, String text);
+
+    /**
+     * 내가 보낸 편집이 서버에 반영되었음을 알린다.
+     *
+     * @param path    파일 경로
+     * @param version 반영 후 문서 버전
+     */
+    void onEditAck(String path, long version);
+
+    /**
+     * 서버가 문서 전체 내용을 요청했을 때 호출된다. (서버가 모르는 문서를 편집한 경우)
+     *
+     * @param path 파일 경로
+     */
+    void onSnapshotRequested(String path);
+
     /**
      * 원격 사용자의 커서 이동을 반영한다.
      *
@@ -27,13 +63,28 @@ public interface CollabCallbacks {
     void applyRemoteCursor(String path, String nick, int dot, int mark);
 
     /**
-     * 사용자의 역할 정보를 수신했을 때 호출된다.
+     * 방의 참여자 전체 명단을 수신했을 때 호출된다. (입장할 때, 또는 명단 변경을 놓쳐 다시 받은 경우)
+     * 이후의 변경은 onRoleInfo(입장, 역할 변경)와 onUserLeft(퇴장)로 하나씩 전달된다.
+     *
+     * @param users 닉네임 -> 역할 문자열 (들어온 순, 자신 포함)
+     */
+    void onRoster(java.util.Map<String, String> users);
+
+    /**
+     * 사용자가 방에 들어왔거나 역할 정보를 수신했을 때 호출된다.
      *
      * @param nick 사용자 닉네임
      * @param role 역할 문자열 (PROFESSOR, STUDENT 등)
      */
     void onRoleInfo(String nick, String role);
 
+    /**
+     * 참여자가 방을 나갔을 때 호출된다. (연결이 끊기거나 응답이 없어 서버가 정리한 경우 포함)
+     *
+     * @param nick 나간 사용자의 닉네임
+     */
+    void onUserLeft(String nick);
+
     /**
      * 학생으로부터 질문이 도착했을 때 호출된다 (교수자 전용).
      *
@@ -59,4 +110,51 @@ public interface CollabCallbacks {
      * @param y    Y 좌표
      */
     void applyRemoteLaser(String path, int x, int y);
-}
\ No newline at end of file
+
+    /**
+     * 서버 컴파일이 시작되었을 때 호출된다.
+     *
+     * @param path 컴파일하는 파일 경로
+     * @param nick 컴파일을 요청한 사용자 닉네임
+     */
+    void onCompileStart(String path, String nick);
+
+    /**
+     * 컴파일/실행 요청이 서버 대기열에서 기다리는 중일 때 호출된다. 순번이 바뀔 때마다 다시 호출된다.
+     *
+     * @param path     요청한 파일 경로
+     * @param position 대기 순번 (1부터)
+     * @param etaMs    처리가 시작될 때까지의 예상 시간 (ms)
+     */
+    void onCompileQueued(String path, int position, long etaMs);
+
+    /**
+     * 서버 컴파일의 진단 메시지나 프로그램 출력을 수신했을 때 호출된다.
+     *
+     * @param path 컴파일하는 파일 경로
+     * @param text 진단 메시지 또는 프로그램 출력 (줄바꿈을 포함한 원문, 줄 중간에서 끝날 수 있다)
+     */
+    void onCompileOutput(String path, String text);
+
+    /**
+     * 서버 컴파일(과 실행)이 끝났을 때 호출된다.
+     *
+     * @param path     컴파일한 파일 경로
+     * @param exitCode 0이면 성공, 1이면 컴파일 오류, 2이면 처리하지 못함, 3이면 실행 실패
+     */
+    void onCompileEnd(String path, int exitCode);
+
+    /**
+     * 서버와의 연결이 예기치 않게 끊겼을 때 호출된다.
+     *
+     * @param reconnecting true면 다시 접속을 시도하는 중, false면 시도를 포기함
+     */
+    void onConnectionLost(boolean reconnecting);
+
+    /**
+     * 끊겼던 연결이 다시 이어졌을 때 호출된다.
+     *
+     * @param resumed true면 놓친 메시지만 이어서 받음, false면 서버가 보관하지 않아 문서 전체를 다시 받음
+     */
+    void onReconnected(boolean resumed);
+}
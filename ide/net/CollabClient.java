@@ -1,9 +1,13 @@
 package ide.net;
 
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 클라이언트 측 네트워크 통신을 담당하는 클래스.
@@ -11,16 +15,70 @@ import java.util.Base64;
  * 서버와의 소켓 연결을 관리하고, 메시지 송수신을 처리한다.
  * 수신된 메시지는 CollabCallbacks 인터페이스를 통해 애플리케이션 계층으로 전달된다.
  * 별도의 스레드에서 수신 루프(Read Loop)가 실행된다.
+ * 송신은 큐(SendQueue)에 넣기만 하고 전용 writer 스레드가 모아서 쓰므로, 호출한 UI 스레드는 네트워크를 기다리지 않는다.
+ * 접속과 프로토콜 협상도 객체 락 밖에서 하므로, 재접속 중에 UI 스레드가 다른 메소드를 불러도 멈추지 않는다.
+ * 편집 등 신뢰성 메시지는 커서/레이저/뷰포트보다 먼저 전송된다.
+ * 접속 시 서버가 지원하면 바이너리 프로토콜(WireCodec)로 전환하고, 그렇지 않으면 텍스트 프로토콜을 사용한다.
+ * 방 전체에 오는 메시지에는 순서 번호(SEQ)가 붙으며, 받은 번호를 주기적으로 서버에 확인(ACK)한다.
+ * 연결이 예기치 않게 끊기면 잠시 동안 다시 접속을 시도하고, 마지막으로 받은 번호를 보내
+ * 서버가 아직 보관하고 있으면 놓친 메시지만 받는다. (문서 전체를 다시 받지 않는다)
+ * 서버에서 한동안 아무것도 오지 않으면 PING으로 확인하고, 그래도 응답이 없으면 끊긴 것으로 보고 재접속한다.
+ * (서버가 PING/PONG에 한 번이라도 응답한 뒤에만 끊는다. 생존 확인을 모르는 구버전 서버와의 연결은 유지한다)
  */
 public class CollabClient {
+    // -Dcollab.protocol=text 로 실행하면 바이너리 협상을 하지 않는다 (디버깅용)
+    private static final boolean PREFER_BINARY = !"text".equalsIgnoreCase(System.getProperty("collab.protocol"));
+    private static final int HANDSHAKE_TIMEOUT_MS = 5000;
+    // writer가 한 번의 flush로 모아 쓰는 최대 메시지 수
+    private static final int WRITE_BATCH = 256;
+    // 받은 순서 번호 확인(ACK) 주기: 이만큼 새로 받았거나 이 시간이 지나면 보낸다
+    private static final int ACK_EVERY = 64;
+    private static final long ACK_INTERVAL_NANOS = 1_000_000_000L;
+    // 연결이 끊긴 뒤 다시 접속을 시도하는 시간과 시도 간격 (간격은 두 배씩 늘어난다)
+    private static final long RECONNECT_WINDOW_MS = 30_000;
+    private static final long RECONNECT_MIN_DELAY_MS = 250;
+    private static final long RECONNECT_MAX_DELAY_MS = 4_000;
+    // 서버에서 이 시간 동안 아무것도 오지 않으면 PING을 보내고, SERVER_TIMEOUT이 지나면 연결을 끊는다
+    private static final long PING_INTERVAL_MS = 15_000;
+    private static final long SERVER_TIMEOUT_MS = 45_000;
+    private static final long HEARTBEAT_CHECK_MS = 5_000;
+
     private final CollabCallbacks ui;
     private Socket socket;
-    private BufferedReader in;
-    private BufferedWriter out;
     private Thread readerThread;
+    private Thread writerThread;
+    private SendQueue sendQueue;
     private volatile boolean connected = false;
+    private volatile boolean binary = false;
     private String nickname = "?";
 
+    // 마지막 접속 정보 (재접속에 사용)
+    private String host;
+    private int port;
+    private String role;
+    private String room;
+    // 연결마다 증가한다. 이전 연결의 수신 스레드가 끝나도 새 연결에 영향을 주지 않게 한다
+    private int generation = 0;
+    private volatile boolean userClosed = true;
+    private volatile boolean reconnecting = false;
+    // 방 메시지 흐름: 서버가 알려 준 식별자와 마지막으로 받은 번호 (0이면 아직 모름)
+    private volatile long streamEpoch = 0;
+    private volatile long lastSeq = 0;
+    // 수신 스레드 전용: 바로 앞 SEQ의 번호 (-1이면 없음), 마지막 확인 번호와 시각
+    private long pendingSeq = -1;
+    private long ackedSeq = 0;
+    private long ackedAt = 0;
+    // 서버에서 마지막으로 메시지를 받은 시각 (nanoTime)
+    private volatile long lastHeard = 0;
+    // 서버가 PING 또는 PONG을 보낸 적이 있는지 (생존 확인을 지원하는 서버인지, 세션이 바뀌면 다시 확인한다)
+    private volatile boolean serverHeartbeats = false;
+    // 수신 스레드 전용: 반영한 참여자 명단 버전 (-1이면 전체 명단을 기다리는 중), 재접속 전 연결의 버전
+    private long rosterVersion = -1;
+    private long previousRosterVersion = -1;
+
+    // 메시지 종류 코드별 처리기 (수신 뷰는 연결마다 따로 만든다)
+    private final Handler[] handlers = new Handler[256];
+
     /**
      * CollabClient 생성자.
      *
@@ -28,6 +86,7 @@ public class CollabClient {
      */
     public CollabClient(CollabCallbacks ui) {
         this.ui = ui;
+        registerHandlers();
     }
 
     /**
@@ -48,8 +107,27 @@ public class CollabClient {
         return nickname;
     }
 
+    /**
+     * 바이너리 프로토콜을 사용 중인지 여부를 반환한다.
+     *
+     * @return 서버와 바이너리 프로토콜을 협상했으면 true
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * 연결이 끊겨 다시 접속을 시도하는 중인지 여부를 반환한다.
+     *
+     * @return 재접속 시도 중이면 true
+     */
+    public boolean isReconnecting() {
+        return reconnecting;
+    }
+
     /**
      * 서버에 연결을 시도하고 초기화 메시지(JOIN)를 전송한다.
+     * JOIN에 바이너리 프로토콜 지원 여부를 함께 보내고, 서버의 첫 응답으로 사용할 프로토콜을 결정한다.
      *
      * @param host 서버 호스트 주소
      * @param port 서버 포트 번호
@@ -58,34 +136,170 @@ public class CollabClient {
      * @throws IOException 연결 실패 시 발생
      */
     public void connect(String host, int port, String nick, String role) throws IOException {
+        connect(host, port, nick, role, null);
+    }
+
+    /**
+     * 지정한 방(강의 채널)으로 서버에 연결한다.
+     * 직전 연결과 같은 서버, 닉네임, 방이면 마지막으로 받은 순서 번호로 재접속을 요청한다.
+     *
+     * @param host 서버 호스트 주소
+     * @param port 서버 포트 번호
+     * @param nick 사용자 닉네임
+     * @param role 사용자 역할
+     * @param room 입장할 방 이름 (null 또는 빈 문자열이면 서버의 기본 방)
+     * @throws IOException 연결 실패 시 발생
+     * @throws IllegalArgumentException 방 이름이 올바르지 않은 경우
+     */
+    public void connect(String host, int port, String nick, String role, String room) throws IOException {
+        if (room != null && !room.isEmpty() && !Protocol.isValidRoom(room))
+            throw new IllegalArgumentException("방 이름은 영문, 숫자, '-', '_', '.'만 사용할 수 있습니다: " + room);
+        String roomName = room == null || room.isEmpty() ? Protocol.DEFAULT_ROOM : room;
+        synchronized (this) {
+            if (!(host.equals(this.host) && port == this.port && nick.equals(nickname) && roomName.equals(this.room))) {
+                streamEpoch = 0; // 다른 세션: 처음부터 받는다
+                serverHeartbeats = false;
+            }
+            this.host = host;
+            this.port = port;
+            this.role = role;
+            this.room = roomName;
+            userClosed = false;
+            reconnecting = false;
+        }
+        open(nick, false);
+    }
+
+    /**
+     * 마지막 접속 정보로 연결을 연다. 흐름 식별자를 알고 있으면 재접속(resume)을 요청한다.
+     * 소켓 연결과 프로토콜 협상은 객체 락 밖에서 하고, 끝난 뒤에 락 안에서 새 연결로 바꾼다.
+     * 이전 연결의 수신 스레드가 끝난 뒤에 협상을 시작하므로, 수신 스레드 전용 상태를 두 스레드가 함께 쓰지 않는다.
+     * 협상 중에 사용자가 연결을 끊었거나 다른 연결을 열었으면 이 연결은 버린다.
+     *
+     * @param nick  닉네임
+     * @param retry 재접속 시도이면 true (그 사이에 재접속이 취소되었으면 열지 않는다)
+     */
+    private void open(String nick, boolean retry) throws IOException {
+        int gen;
+        Thread previousReader;
+        String host, role, room;
+        int port;
+        synchronized (this) {
+            if (retry && !reconnecting)
+                throw new IOException("reconnect cancelled");
+            closeSession();
+            gen = ++generation;
+            previousReader = readerThread;
+            readerThread = null;
+            nickname = nick;
+            host = this.host;
+            port = this.port;
+            role = this.role;
+            room = this.room;
+        }
         System.out.println("[CLIENT] Connecting to " + host + ":" + port);
-        System.out.println("[CLIENT] Nickname: " + nick + ", Role: " + role);
+        System.out.println("[CLIENT] Nickname: " + nick + ", Role: " + role + ", Room: " + room);
+        awaitExit(previousReader);
+        pendingSeq = -1;
+        // 재접속이 받아들여지면(RESUME) 이전 버전에서 이어서 명단 변경을 받는다 (실패한 시도는 버전을 지우지 않는다)
+        if (rosterVersion >= 0)
+            previousRosterVersion = rosterVersion;
+        rosterVersion = -1;
 
-        disconnect();
-        socket = new Socket(host, port);
-        socket.setTcpNoDelay(true);
-        in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
-        out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
-        nickname = nick;
+        Socket s = new Socket();
+        WireReader in;
+        OutputStream out;
+        MessageView view = new MessageView();
+        boolean binaryIn = false;
+        try {
+            s.connect(new InetSocketAddress(host, port), HANDSHAKE_TIMEOUT_MS);
+            s.setTcpNoDelay(true);
+            in = new WireReader(s.getInputStream(), 64 * 1024);
+            out = new BufferedOutputStream(s.getOutputStream(), 64 * 1024);
+
+            List<String> options = new ArrayList<>();
+            if (PREFER_BINARY)
+                options.add(Protocol.OPT_BINARY + "=" + Protocol.BINARY_VERSION);
+            options.add(Protocol.OPT_ROOM + "=" + room);
+            options.add(Protocol.OPT_SYNC + "=1");
+            options.add(Protocol.OPT_HEARTBEAT + "=1");
+            options.add(Protocol.OPT_ROSTER + "=1");
+            if (streamEpoch != 0)
+                options.add(Protocol.OPT_RESUME + "=" + streamEpoch + ":" + lastSeq);
+            String joinMsg = Protocol.JOIN + Protocol.SEPARATOR + nick + Protocol.SEPARATOR + role;
+            if (!options.isEmpty())
+                joinMsg += Protocol.SEPARATOR + String.join(",", options);
+            System.out.println("[CLIENT] Sending JOIN: " + joinMsg);
+            out.write(joinMsg.getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+            out.flush();
+            if (PREFER_BINARY)
+                binaryIn = awaitProtocol(s, in, view);
+        } catch (IOException e) {
+            s.close();
+            throw e;
+        }
+
+        synchronized (this) {
+            if (gen != generation) {
+                s.close();
+                throw new IOException("connection attempt superseded");
+            }
+            socket = s;
+            binary = binaryIn;
+            SendQueue queue = new SendQueue();
+            sendQueue = queue;
+            connected = true;
 
-        // 서버와 연결
-        connected = true;
+            OutputStream stream = out;
+            boolean binaryOut = binaryIn;
+            writerThread = new Thread(() -> writeLoop(queue, stream, binaryOut), "collab-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
 
-        String joinMsg = Protocol.JOIN + Protocol.SEPARATOR + nick + Protocol.SEPARATOR + role;
-        System.out.println("[CLIENT] Sending JOIN: " + joinMsg);
-        sendLine(joinMsg);
+            WireReader reader = in;
+            boolean readBinary = binaryIn;
+            readerThread = new Thread(() -> readLoop(reader, view, readBinary, gen), "collab-reader");
+            readerThread.setDaemon(true);
+            readerThread.start();
 
-        readerThread = new Thread(this::readLoop, "collab-reader");
-        readerThread.setDaemon(true);
-        readerThread.start();
+            lastHeard = System.nanoTime();
+            Thread heartbeat = new Thread(() -> heartbeatLoop(s), "collab-heartbeat");
+            heartbeat.setDaemon(true);
+            heartbeat.start();
+        }
         System.out.println("[CLIENT] Connected successfully!");
     }
 
+    // 이전 연결의 수신 스레드가 끝나기를 기다린다 (소켓을 닫았으므로 곧 끝난다)
+    private static void awaitExit(Thread reader) throws IOException {
+        if (reader == null || reader == Thread.currentThread())
+            return;
+        try {
+            reader.join(HANDSHAKE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while closing previous connection");
+        }
+    }
+
     /**
-     * 서버와의 연결을 종료하고 리소스를 정리한다.
+     * 서버와의 연결을 종료하고 리소스를 정리한다. 재접속 시도도 멈춘다.
      */
-    public void disconnect() {
+    public synchronized void disconnect() {
+        userClosed = true;
+        reconnecting = false;
+        generation++;
+        closeSession();
+    }
+
+    private void closeSession() {
         connected = false;
+        if (sendQueue != null) {
+            sendQueue.close();
+            System.out.println("[CLIENT] Send queue latency: reliable " + sendQueue.reliableLatency
+                    + ", ephemeral " + sendQueue.ephemeralLatency + ", coalesced=" + sendQueue.coalescedCount());
+        }
         if (readerThread != null) {
             try {
                 readerThread.interrupt();
@@ -99,75 +313,327 @@ public class CollabClient {
             }
         }
         socket = null;
-        in = null;
-        out = null;
+        sendQueue = null;
+    }
+
+    /**
+     * JOIN에 대한 서버의 첫 응답을 기다린다.
+     * PROTO 승인이 오면 바이너리로 전환하고, 구버전 서버처럼 다른 메시지가 오면 텍스트를 유지한다.
+     *
+     * @return 바이너리 프로토콜로 전환했으면 true
+     */
+    private boolean awaitProtocol(Socket s, WireReader in, MessageView view) throws IOException {
+        s.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+        try {
+            while (true) {
+                int len = in.readLineRaw();
+                if (len < 0)
+                    throw new EOFException("connection closed during handshake");
+                if (!view.wrapText(in.buffer(), len))
+                    continue;
+                if (view.type() == MessageType.PROTO) {
+                    boolean bin = Protocol.MODE_BINARY.equals(view.str(0)) && view.num(1) == Protocol.BINARY_VERSION;
+                    System.out.println("[CLIENT] Protocol: " + (bin ? "binary v" + view.num(1) : "text"));
+                    return bin;
+                }
+                dispatch(view);
+                if (view.type() == MessageType.INFO)
+                    return false; // 승인 없이 환영 메시지가 옴: 텍스트 프로토콜 서버
+            }
+        } finally {
+            s.setSoTimeout(0);
+        }
     }
 
     /**
      * 서버로부터 메시지를 지속적으로 수신하는 루프.
-     * 수신된 메시지를 파싱하여 적절한 콜백 메소드를 호출한다.
+     * 수신 버퍼 위에서 메시지 종류를 한 번만 읽고, 종류별 처리기 표(handlers)로 바로 분기한다.
+     * 필드는 문자열 배열로 잘라내지 않고 MessageView에서 위치로 읽는다. 리더와 뷰는 연결마다 따로 쓴다.
      */
-    private void readLoop() {
+    private void readLoop(WireReader in, MessageView view, boolean binaryIn, int gen) {
         try {
-            String line;
-            while (connected && (line = in.readLine()) != null) {
-                final String msg = line;
-
-                if (msg.startsWith(Protocol.INFO + Protocol.SEPARATOR)) {
-                    // 시스템 정보 메시지 처리 (현재는 무시)
-                } else if (msg.startsWith(Protocol.EDIT + Protocol.SEPARATOR)) {
-                    String[] p = msg.split(Protocol.DELIMITER, 3);
-                    if (p.length == 3) {
-                        String path = p[1];
-                        String text = new String(Base64.getDecoder().decode(p[2]), StandardCharsets.UTF_8);
-                        ui.applyRemoteEdit(path, text);
-                    }
-                } else if (msg.startsWith(Protocol.CURSOR + Protocol.SEPARATOR)) {
-                    String[] p = msg.split(Protocol.DELIMITER, 5);
-                    if (p.length == 5) {
-                        ui.applyRemoteCursor(p[1], p[2], Protocol.safeInt(p[3]), Protocol.safeInt(p[4]));
-                    }
-                } else if (msg.startsWith(Protocol.VIEWPORT + Protocol.SEPARATOR)) {
-                    String[] p = msg.split(Protocol.DELIMITER, 3);
-                    if (p.length == 3) {
-                        ui.applyRemoteViewport(p[1], Protocol.safeInt(p[2]));
-                    }
-                } else if (msg.startsWith(Protocol.LASER + Protocol.SEPARATOR)) {
-                    String[] p = msg.split(Protocol.DELIMITER, 4);
-                    if (p.length == 4) {
-                        ui.applyRemoteLaser(p[1], Protocol.safeInt(p[2]), Protocol.safeInt(p[3]));
-                    }
-                } else if (msg.startsWith(Protocol.ROLE_INFO + Protocol.SEPARATOR)) {
-                    System.out.println("[CLIENT] Received ROLE_INFO: " + msg);
-                    String[] p = msg.split(Protocol.DELIMITER, 3);
-                    if (p.length == 3) {
-                        System.out.println("[CLIENT] Parsing ROLE_INFO: nick=" + p[1] + ", role=" + p[2]);
-                        ui.onRoleInfo(p[1], p[2]);
-                    } else {
-                        System.out.println("[CLIENT] Invalid ROLE_INFO format: " + msg);
-                    }
-                } else if (msg.startsWith(Protocol.QUESTION + Protocol.SEPARATOR)) {
-                    System.out.println("[CLIENT] Received QUESTION: " + msg);
-                    String[] p = msg.split(Protocol.DELIMITER, 3);
-                    if (p.length == 3) {
-                        String studentNick = p[1];
-                        String questionText = new String(
-                                Base64.getDecoder().decode(p[2]), StandardCharsets.UTF_8);
-                        System.out.println("[CLIENT] Question from " + studentNick + ": " + questionText);
-                        ui.onQuestion(studentNick, questionText);
-                    }
-                } else if (msg.startsWith(Protocol.FILE_CREATE + Protocol.SEPARATOR) ||
-                        msg.startsWith(Protocol.FILE_DELETE + Protocol.SEPARATOR) ||
-                        msg.startsWith(Protocol.FILE_RENAME + Protocol.SEPARATOR)) {
-                    System.out.println("[REMOTE FILE EVT] " + msg);
+            while (true) {
+                boolean ok;
+                if (binaryIn) {
+                    int len = in.readFrameRaw();
+                    if (len < 0)
+                        break;
+                    ok = view.wrapBinary(in.buffer(), WireCodec.LENGTH_PREFIX, len - WireCodec.LENGTH_PREFIX);
+                } else {
+                    int len = in.readLineRaw();
+                    if (len < 0)
+                        break;
+                    ok = view.wrapText(in.buffer(), len);
+                }
+                lastHeard = System.nanoTime();
+                if (ok && view.type() == MessageType.SEQ) {
+                    pendingSeq = view.num(0); // 바로 뒤의 메시지를 처리한 뒤에 받은 것으로 친다
+                    continue;
+                }
+                if (ok)
+                    dispatch(view);
+                if (pendingSeq >= 0) {
+                    lastSeq = pendingSeq;
+                    pendingSeq = -1;
+                    acknowledge(false);
                 }
             }
         } catch (IOException ignored) {
         } finally {
-            connected = false;
+            connectionLost(gen);
         }
     }
 
+    /**
+     * 받은 순서 번호를 서버에 확인한다. 새로 받은 메시지가 ACK_EVERY개 이상이거나 ACK_INTERVAL이 지났을 때만 보낸다.
+     */
+    private void acknowledge(boolean force) {
+        long seq = lastSeq;
+        long now = System.nanoTime();
+        if (seq == ackedSeq || !force && seq - ackedSeq < ACK_EVERY && now - ackedAt < ACK_INTERVAL_NANOS)
+            return;
+        ackedSeq = seq;
+        ackedAt = now;
+        send(Message.of(MessageType.ACK, seq));
+    }
+
+    /**
+     * 연결의 생존 여부를 확인하는 루프. 연결(소켓)마다 하나씩 돌고 소켓이 닫히면 끝난다.
+     * 서버에서 PING_INTERVAL 동안 아무것도 오지 않으면 PING을 보내고, 생존 확인을 지원하는 서버인데
+     * SERVER_TIMEOUT이 지나면 소켓을 닫는다.
+     * 소켓을 닫으면 수신 루프가 끝나며 재접속이 시작된다.
+     */
+    private void heartbeatLoop(Socket s) {
+        while (!s.isClosed()) {
+            try {
+                Thread.sleep(HEARTBEAT_CHECK_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long idleMs = (System.nanoTime() - lastHeard) / 1_000_000L;
+            if (s.isClosed())
+                return;
+            if (idleMs >= SERVER_TIMEOUT_MS && serverHeartbeats) {
+                System.out.println("[CLIENT] No data from server for " + idleMs / 1000 + "s, dropping connection");
+                try {
+                    s.close();
+                } catch (IOException ignored) {
+                }
+                return;
+            }
+            if (idleMs >= PING_INTERVAL_MS)
+                send(Message.of(MessageType.PING, System.currentTimeMillis()));
+        }
+    }
+
+    // 수신 스레드가 끝났을 때: 사용자가 끊은 것이 아니면 재접속을 시작한다
+    private void connectionLost(int gen) {
+        synchronized (this) {
+            if (gen != generation)
+                return; // 이미 다른 연결로 바뀌었다
+            if (userClosed || reconnecting) {
+                connected = false;
+                return;
+            }
+            closeSession();
+            reconnecting = true;
+        }
+        System.out.println("[CLIENT] Connection lost, reconnecting (last seq " + lastSeq + ")");
+        ui.onConnectionLost(true);
+        Thread t = new Thread(this::reconnectLoop, "collab-reconnect");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // 간격을 늘려 가며 RECONNECT_WINDOW 동안 다시 접속한다
+    private void reconnectLoop() {
+        long deadline = System.currentTimeMillis() + RECONNECT_WINDOW_MS;
+        long delay = RECONNECT_MIN_DELAY_MS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return;
+            }
+            delay = Math.min(delay * 2, RECONNECT_MAX_DELAY_MS);
+            String nick;
+            synchronized (this) {
+                if (!reconnecting)
+                    return; // 사용자가 끊었거나 직접 다시 접속함
+                nick = nickname;
+            }
+            try {
+                open(nick, true);
+                return; // 결과(재접속 여부)는 서버의 RESUME으로 알린다
+            } catch (IOException e) {
+                System.out.println("[CLIENT] Reconnect failed: " + e.getMessage());
+            }
+        }
+        synchronized (this) {
+            if (!reconnecting)
+                return;
+            reconnecting = false;
+            userClosed = true;
+        }
+        System.out.println("[CLIENT] Giving up reconnecting");
+        ui.onConnectionLost(false);
+    }
+
+    private void dispatch(MessageView m) {
+        Handler h = handlers[m.type().code];
+        if (h != null)
+            h.handle(m);
+    }
+
+    /**
+     * 수신 메시지 처리기. 인자로 받은 뷰는 호출이 끝나면 재사용되므로 보관하지 않는다.
+     */
+    private interface Handler {
+        void handle(MessageView m);
+    }
+
+    /**
+     * 메시지 종류별 처리기 표를 채운다.
+     */
+    private void registerHandlers() {
+        // INFO: 시스템 정보 메시지 처리 (현재는 무시)
+        on(MessageType.RESUME, m -> {
+            if (m.size() != 3)
+                return;
+            boolean resumed = m.num(2) == 1;
+            streamEpoch = m.num(0);
+            lastSeq = ackedSeq = m.num(1);
+            System.out.println("[CLIENT] Room stream " + streamEpoch + " at #" + lastSeq
+                    + (resumed ? " (resumed)" : ""));
+            if (resumed)
+                rosterVersion = previousRosterVersion;
+            if (reconnecting) {
+                reconnecting = false;
+                ui.onReconnected(resumed);
+            }
+        });
+        // PING: 같은 토큰으로 응답한다. PING이나 PONG이 오면 생존 확인을 지원하는 서버로 본다
+        on(MessageType.PING, m -> {
+            serverHeartbeats = true;
+            if (m.size() == 1)
+                send(Message.of(MessageType.PONG, m.num(0)));
+        });
+        on(MessageType.PONG, m -> serverHeartbeats = true);
+        // 참여자 명단: 전체 명단(ROSTER)을 받은 뒤에는 버전이 붙은 변경(ENTER/LEAVE)만 반영한다
+        on(MessageType.ROSTER, m -> {
+            if (m.size() != 2)
+                return;
+            Map<String, String> users = new LinkedHashMap<>();
+            for (String entry : m.text(1).split("\n")) {
+                int tab = entry.indexOf('\t');
+                if (tab > 0)
+                    users.put(entry.substring(0, tab), entry.substring(tab + 1));
+            }
+            rosterVersion = m.num(0);
+            System.out.println("[CLIENT] Roster v" + rosterVersion + ": " + users.size() + " user(s)");
+            ui.onRoster(users);
+        });
+        on(MessageType.ENTER, m -> {
+            if (m.size() == 3 && acceptPresence(m.num(0))) {
+                System.out.println("[CLIENT] " + m.str(1) + " (" + m.str(2) + ") entered the room");
+                ui.onRoleInfo(m.str(1), m.str(2));
+            }
+        });
+        on(MessageType.LEAVE, m -> {
+            if (m.size() == 2 && acceptPresence(m.num(0))) {
+                System.out.println("[CLIENT] " + m.str(1) + " left the room");
+                ui.onUserLeft(m.str(1));
+            }
+        });
+        on(MessageType.EDIT_OP, m -> {
+            if (m.size() == 5)
+                ui.applyRemoteOp(m.str(0), m.num(1), m.integer(2), m.integer(3), m.text(4));
+        });
+        on(MessageType.EDIT_SYNC, m -> {
+            if (m.size() == 3)
+                ui.applyRemoteSnapshot(m.str(0), m.num(1), m.text(2));
+        });
+        on(MessageType.EDIT_ACK, m -> {
+            if (m.size() == 2)
+                ui.onEditAck(m.str(0), m.num(1));
+        });
+        on(MessageType.EDIT_SYNC_REQ, m -> {
+            if (m.size() == 1)
+                ui.onSnapshotRequested(m.str(0));
+        });
+        on(MessageType.EDIT, m -> {
+            if (m.size() == 2)
+                ui.applyRemoteEdit(m.str(0), m.text(1));
+        });
+        on(MessageType.CURSOR, m -> {
+            if (m.size() == 4)
+                ui.applyRemoteCursor(m.str(0), m.str(1), m.integer(2), m.integer(3));
+        });
+        on(MessageType.VIEWPORT, m -> {
+            if (m.size() == 2)
+                ui.applyRemoteViewport(m.str(0), m.integer(1));
+        });
+        on(MessageType.LASER, m -> {
+            if (m.size() == 3)
+                ui.applyRemoteLaser(m.str(0), m.integer(1), m.integer(2));
+        });
+        on(MessageType.ROLE_INFO, m -> {
+            System.out.println("[CLIENT] Received ROLE_INFO: " + m);
+            if (m.size() == 2) {
+                System.out.println("[CLIENT] Parsing ROLE_INFO: nick=" + m.str(0) + ", role=" + m.str(1));
+                ui.onRoleInfo(m.str(0), m.str(1));
+            } else {
+                System.out.println("[CLIENT] Invalid ROLE_INFO format: " + m);
+            }
+        });
+        on(MessageType.QUESTION, m -> {
+            if (m.size() == 2) {
+                String text = m.text(1);
+                System.out.println("[CLIENT] Question from " + m.str(0) + ": " + text);
+                ui.onQuestion(m.str(0), text);
+            }
+        });
+        Handler fileEvent = m -> System.out.println("[REMOTE FILE EVT] " + m);
+        on(MessageType.FILE_CREATE, fileEvent);
+        on(MessageType.FILE_DELETE, fileEvent);
+        on(MessageType.FILE_RENAME, fileEvent);
+        on(MessageType.COMPILE_START, m -> {
+            if (m.size() == 2)
+                ui.onCompileStart(m.str(0), m.str(1));
+        });
+        on(MessageType.COMPILE_QUEUED, m -> {
+            if (m.size() == 3)
+                ui.onCompileQueued(m.str(0), m.integer(1), m.num(2));
+        });
+        on(MessageType.COMPILE_OUT, m -> {
+            if (m.size() == 2)
+                ui.onCompileOutput(m.str(0), m.text(1));
+        });
+        on(MessageType.COMPILE_END, m -> {
+            if (m.size() == 2)
+                ui.onCompileEnd(m.str(0), m.integer(1));
+        });
+    }
+
+    /**
+     * 참여자 명단 변경을 반영할지 결정한다. 전체 명단을 받기 전이거나 이미 반영한 버전이면 버린다.
+     * 버전이 건너뛰었으면 그대로 반영하되 전체 명단을 다시 요청한다. (변경은 추가/제거라 다시 적용해도 안전하다)
+     */
+    private boolean acceptPresence(long version) {
+        if (rosterVersion < 0 || version <= rosterVersion)
+            return false;
+        if (version > rosterVersion + 1) {
+            System.out.println("[CLIENT] Roster gap v" + rosterVersion + " -> v" + version + ", requesting roster");
+            send(Message.of(MessageType.ROSTER, rosterVersion, ""));
+        }
+        rosterVersion = version;
+        return true;
+    }
+
+    private void on(MessageType type, Handler handler) {
+        handlers[type.code] = handler;
+    }
+
     // === 전송 메소드 (Senders) ===
 
     /**
@@ -179,8 +645,33 @@ public class CollabClient {
     public void sendSnapshot(String vpath, String text) {
         if (!connected)
             return;
-        String b64 = Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8));
-        sendLine(Protocol.EDIT + Protocol.SEPARATOR + vpath + Protocol.SEPARATOR + b64);
+        send(Message.of(MessageType.EDIT, vpath, text));
+    }
+
+    /**
+     * 증분 편집 연산을 서버로 전송한다.
+     *
+     * @param vpath        가상 파일 경로
+     * @param baseVersion  연산을 적용할 기준 문서 버전
+     * @param offset       편집 위치
+     * @param removeLength 삭제한 글자 수
+     * @param insert       삽입한 문자열
+     */
+    public void sendEditOp(String vpath, long baseVersion, int offset, int removeLength, String insert) {
+        if (!connected)
+            return;
+        send(Message.of(MessageType.EDIT_OP, vpath, baseVersion, offset, removeLength, insert));
+    }
+
+    /**
+     * 문서 전체 스냅샷을 서버에 요청한다. (버전 불일치 시)
+     *
+     * @param vpath 가상 파일 경로
+     */
+    public void requestSync(String vpath) {
+        if (!connected)
+            return;
+        send(Message.of(MessageType.EDIT_SYNC_REQ, vpath));
     }
 
     /**
@@ -193,8 +684,7 @@ public class CollabClient {
     public void sendCursor(String vpath, int dot, int mark) {
         if (!connected)
             return;
-        sendLine(Protocol.CURSOR + Protocol.SEPARATOR + vpath + Protocol.SEPARATOR + nickname + Protocol.SEPARATOR + dot
-                + Protocol.SEPARATOR + mark);
+        send(Message.of(MessageType.CURSOR, vpath, nickname, dot, mark));
     }
 
     /**
@@ -206,7 +696,7 @@ public class CollabClient {
     public void sendViewport(String vpath, int line) {
         if (!connected)
             return;
-        sendLine(Protocol.VIEWPORT + Protocol.SEPARATOR + vpath + Protocol.SEPARATOR + line);
+        send(Message.of(MessageType.VIEWPORT, vpath, line));
     }
 
     /**
@@ -219,7 +709,7 @@ public class CollabClient {
     public void sendLaser(String vpath, int x, int y) {
         if (!connected)
             return;
-        sendLine(Protocol.LASER + Protocol.SEPARATOR + vpath + Protocol.SEPARATOR + x + Protocol.SEPARATOR + y);
+        send(Message.of(MessageType.LASER, vpath, x, y));
     }
 
     // === 파일 시스템 이벤트 전송 ===
@@ -232,8 +722,7 @@ public class CollabClient {
      */
     public void sendFileCreate(String fpath, boolean isDir) {
         if (connected)
-            sendLine(Protocol.FILE_CREATE + Protocol.SEPARATOR + fpath + Protocol.SEPARATOR + isDir + Protocol.SEPARATOR
-                    + nickname);
+            send(Message.of(MessageType.FILE_CREATE, fpath, isDir, nickname));
     }
 
     /**
@@ -243,7 +732,7 @@ public class CollabClient {
      */
     public void sendFileDelete(String fpath) {
         if (connected)
-            sendLine(Protocol.FILE_DELETE + Protocol.SEPARATOR + fpath + Protocol.SEPARATOR + nickname);
+            send(Message.of(MessageType.FILE_DELETE, fpath, nickname));
     }
 
     /**
@@ -254,8 +743,19 @@ public class CollabClient {
      */
     public void sendFileRename(String oldPath, String newPath) {
         if (connected)
-            sendLine(Protocol.FILE_RENAME + Protocol.SEPARATOR + oldPath + Protocol.SEPARATOR + newPath
-                    + Protocol.SEPARATOR + nickname);
+            send(Message.of(MessageType.FILE_RENAME, oldPath, newPath, nickname));
+    }
+
+    /**
+     * 서버에 보관된 문서를 서버에서 컴파일(하고 실행)하도록 요청한다.
+     * 결과는 COMPILE_START/OUT/END로 비동기 수신된다.
+     *
+     * @param vpath 가상 파일 경로
+     * @param run   컴파일에 성공하면 프로그램을 실행할지 여부
+     */
+    public void requestCompile(String vpath, boolean run) {
+        if (connected)
+            send(Message.of(MessageType.COMPILE_RUN, vpath, run ? 1 : 0));
     }
 
     /**
@@ -266,26 +766,48 @@ public class CollabClient {
     public void sendQuestion(String questionText) {
         if (!connected)
             return;
-        String encoded = Base64.getEncoder().encodeToString(
-                questionText.getBytes(StandardCharsets.UTF_8));
-        sendLine(Protocol.QUESTION + Protocol.SEPARATOR + nickname +
-                Protocol.SEPARATOR + encoded);
+        send(Message.of(MessageType.QUESTION, nickname, questionText));
         System.out.println("[CLIENT] Sent question: " + questionText);
     }
 
     /**
-     * 메시지 한 줄을 서버로 전송한다.
+     * 메시지를 송신 큐에 넣는다. 호출 스레드(주로 EDT)를 블로킹하지 않는다.
      *
-     * @param s 전송할 메시지 문자열
+     * @param m 전송할 메시지
      */
-    private synchronized void sendLine(String s) {
-        if (!connected)
-            return;
+    private void send(Message m) {
+        SendQueue queue = sendQueue;
+        if (connected && queue != null)
+            queue.offer(m);
+    }
+
+    /**
+     * 송신 큐의 메시지를 협상된 프로토콜로 인코딩하여 서버로 전송하는 루프.
+     * 대기 중인 메시지를 한 번에 모아 쓰고 flush는 묶음마다 한 번만 한다.
+     * 연결마다 별도의 큐와 스트림을 받으므로 재접속 시 이전 writer와 섞이지 않는다.
+     */
+    private void writeLoop(SendQueue queue, OutputStream stream, boolean binaryOut) {
+        List<Message> batch = new ArrayList<>(WRITE_BATCH);
         try {
-            out.write(s);
-            out.write('\n');
-            out.flush();
-        } catch (IOException ignored) {
+            while (true) {
+                batch.clear();
+                int n = queue.drainTo(batch, WRITE_BATCH);
+                if (n < 0)
+                    break;
+                for (Message m : batch) {
+                    if (binaryOut) {
+                        stream.write(WireCodec.encodeBinary(m));
+                    } else {
+                        stream.write(WireCodec.encodeText(m).getBytes(StandardCharsets.UTF_8));
+                        stream.write('\n');
+                    }
+                }
+                if (n > 0)
+                    stream.flush();
+            }
+        } catch (IOException e) {
+            // 쓰기 실패: 큐를 닫아 이후 메시지를 버린다. 연결 종료는 수신 루프가 감지한다.
+            queue.close();
         }
     }
 }
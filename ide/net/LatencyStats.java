@@ -0,0 +1,67 @@
+package ide.net;
+
+/**
+ * 송신 큐 대기 시간 통계 (개수, 평균, 최대).
+ *
+ * 송신 큐의 우선순위 등급(신뢰성 메시지/휘발성 메시지)마다 하나씩 두고,
+ * 메시지가 큐에 들어간 뒤 writer가 꺼낼 때까지 걸린 시간을 기록한다.
+ * 주기적으로 다른 통계에 합산(drainTo)하고 초기화하여 구간별 수치를 출력한다.
+ */
+public final class LatencyStats {
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    /**
+     * 대기 시간 하나를 기록한다.
+     *
+     * @param nanos 대기 시간 (나노초)
+     */
+    public synchronized void record(long nanos) {
+        count++;
+        totalNanos += nanos;
+        if (nanos > maxNanos)
+            maxNanos = nanos;
+    }
+
+    /**
+     * 지금까지의 기록을 다른 통계에 합산하고 이 통계는 초기화한다.
+     *
+     * @param target 합산할 통계
+     */
+    public void drainTo(LatencyStats target) {
+        long c, t, m;
+        synchronized (this) {
+            c = count;
+            t = totalNanos;
+            m = maxNanos;
+            count = totalNanos = maxNanos = 0;
+        }
+        synchronized (target) {
+            target.count += c;
+            target.totalNanos += t;
+            if (m > target.maxNanos)
+                target.maxNanos = m;
+        }
+    }
+
+    /** @return 기록된 개수 */
+    public synchronized long count() {
+        return count;
+    }
+
+    /** @return 평균 대기 시간 (마이크로초), 기록이 없으면 0 */
+    public synchronized long meanMicros() {
+        return count == 0 ? 0 : totalNanos / count / 1000;
+    }
+
+    /** @return 최대 대기 시간 (마이크로초) */
+    public synchronized long maxMicros() {
+        return maxNanos / 1000;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "n=" + count + " avg=" + meanMicros() + "us max=" + maxMicros() + "us";
+    }
+}
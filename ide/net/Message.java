@@ -0,0 +1,102 @@
+package ide.net;
+
+/**
+ * 디코딩된 프로토콜 메시지 하나를 나타내는 불변 객체.
+ *
+ * 텍스트/바이너리 어느 쪽으로 수신했든 같은 형태로 다룰 수 있도록, 메시지 종류와 필드 값만 보관한다.
+ * 필드 번호는 메시지 종류를 제외하고 0부터 센다. (예: EDIT_OP의 0번 필드는 경로)
+ * 본문 텍스트(T) 필드는 Base64가 풀린 원문 문자열로 보관된다.
+ */
+public final class Message {
+    private final MessageType type;
+    private final String[] strings;
+    private final long[] numbers;
+
+    Message(MessageType type, String[] strings, long[] numbers) {
+        this.type = type;
+        this.strings = strings;
+        this.numbers = numbers;
+    }
+
+    /**
+     * 필드 값들로 메시지를 만든다.
+     * 정수(N) 필드에는 Number를, 그 밖의 필드에는 문자열(또는 toString 가능한 값)을 넘긴다.
+     *
+     * @param type   메시지 종류
+     * @param fields 필드 값들
+     * @return 메시지
+     */
+    public static Message of(MessageType type, Object... fields) {
+        String[] s = new String[fields.length];
+        long[] n = new long[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            Object f = fields[i];
+            if (type.kind(i) == MessageType.NUMBER)
+                n[i] = f instanceof Number ? ((Number) f).longValue() : Protocol.safeLong(String.valueOf(f));
+            else
+                s[i] = String.valueOf(f);
+        }
+        return new Message(type, s, n);
+    }
+
+    /**
+     * 메시지 종류를 반환한다.
+     *
+     * @return 메시지 종류
+     */
+    public MessageType type() {
+        return type;
+    }
+
+    /**
+     * 실제로 들어 있는 필드 수를 반환한다.
+     *
+     * @return 필드 수
+     */
+    public int size() {
+        return strings.length;
+    }
+
+    /**
+     * i번째 필드를 문자열로 반환한다. 정수 필드는 10진수 문자열로 바꾸어 반환한다.
+     *
+     * @param i 필드 번호
+     * @return 필드 값, 필드가 없으면 null
+     */
+    public String str(int i) {
+        if (i >= strings.length)
+            return null;
+        if (type.kind(i) == MessageType.NUMBER)
+            return Long.toString(numbers[i]);
+        return strings[i];
+    }
+
+    /**
+     * i번째 필드를 정수로 반환한다.
+     *
+     * @param i 필드 번호
+     * @return 필드 값, 필드가 없거나 정수가 아니면 0
+     */
+    public long num(int i) {
+        if (i >= numbers.length)
+            return 0;
+        if (type.kind(i) == MessageType.NUMBER)
+            return numbers[i];
+        return Protocol.safeLong(strings[i]);
+    }
+
+    /**
+     * i번째 필드를 int로 반환한다.
+     *
+     * @param i 필드 번호
+     * @return 필드 값, 필드가 없거나 정수가 아니면 0
+     */
+    public int integer(int i) {
+        return (int) num(i);
+    }
+
+    @Override
+    public String toString() {
+        return WireCodec.encodeText(this);
+    }
+}
@@ -0,0 +1,150 @@
+package ide.net;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 프로토콜 메시지 종류와 각 메시지의 필드 구성(스키마)을 정의하는 열거형.
+ *
+ * 텍스트 프로토콜에서는 이름(Protocol 상수)으로, 바이너리 프로토콜에서는 1바이트 코드로 메시지 종류를 구분한다.
+ * 필드 종류는 문자열(S), 정수(N), 본문 텍스트(T) 세 가지이며,
+ * 본문 텍스트는 텍스트 프로토콜에서만 Base64로 인코딩되고 바이너리 프로토콜에서는 UTF-8 그대로 전송된다.
+ * 스키마보다 많은 필드가 오면 나머지는 문자열로 취급한다.
+ */
+public enum MessageType {
+    JOIN(1, Protocol.JOIN, "SSS"),
+    INFO(2, Protocol.INFO, "S"),
+    ROLE_INFO(3, Protocol.ROLE_INFO, "SS"),
+    QUESTION(4, Protocol.QUESTION, "ST"),
+    EDIT(5, Protocol.EDIT, "ST"),
+    EDIT_OP(6, Protocol.EDIT_OP, "SNNNT"),
+    EDIT_SYNC(7, Protocol.EDIT_SYNC, "SNT"),
+    EDIT_SYNC_REQ(8, Protocol.EDIT_SYNC_REQ, "S"),
+    EDIT_ACK(9, Protocol.EDIT_ACK, "SN"),
+    CURSOR(10, Protocol.CURSOR, "SSNN"),
+    VIEWPORT(11, Protocol.VIEWPORT, "SN"),
+    LASER(12, Protocol.LASER, "SNN"),
+    FILE_CREATE(13, Protocol.FILE_CREATE, "SSS"),
+    FILE_DELETE(14, Protocol.FILE_DELETE, "SS"),
+    FILE_RENAME(15, Protocol.FILE_RENAME, "SSS"),
+    COMPILE_REQ(16, Protocol.COMPILE_REQ, "SS"),
+    COMPILE_GRANTED(17, Protocol.COMPILE_GRANTED, "SS"),
+    COMPILE_DENIED(18, Protocol.COMPILE_DENIED, "SS"),
+    COMPILE_RELEASE(19, Protocol.COMPILE_RELEASE, "SS"),
+    COMPILE_START(20, Protocol.COMPILE_START, "SS"),
+    COMPILE_OUT(21, Protocol.COMPILE_OUT, "ST"),
+    COMPILE_END(22, Protocol.COMPILE_END, "SN"),
+    PROTO(23, Protocol.PROTO, "SN"),
+    COMPILE_RUN(24, Protocol.COMPILE_RUN, "SN"),
+    COMPILE_QUEUED(25, Protocol.COMPILE_QUEUED, "SNN"),
+    SEQ(26, Protocol.SEQ, "N"),
+    ACK(27, Protocol.ACK, "N"),
+    RESUME(28, Protocol.RESUME, "NNN"),
+    LEAVE(29, Protocol.LEAVE, "NS"),
+    PING(30, Protocol.PING, "N"),
+    PONG(31, Protocol.PONG, "N"),
+    ROSTER(32, Protocol.ROSTER, "NT"),
+    ENTER(33, Protocol.ENTER, "NSS");
+
+    /** 필드 종류: 문자열 */
+    public static final char STRING = 'S';
+    /** 필드 종류: 정수 (바이너리에서는 zigzag varint) */
+    public static final char NUMBER = 'N';
+    /** 필드 종류: 본문 텍스트 (텍스트 프로토콜에서는 Base64) */
+    public static final char TEXT = 'T';
+
+    private static final MessageType[] BY_CODE = new MessageType[256];
+    private static final Map<String, MessageType> BY_NAME = new HashMap<>();
+    private static final MessageType[] VALUES = values();
+
+    static {
+        for (MessageType t : values()) {
+            BY_CODE[t.code] = t;
+            BY_NAME.put(t.wireName, t);
+        }
+    }
+
+    /** 바이너리 프로토콜의 메시지 코드 */
+    public final int code;
+    /** 텍스트 프로토콜의 메시지 이름 */
+    public final String wireName;
+    private final String kinds;
+    private final byte[] nameBytes;
+    private final boolean ephemeral;
+
+    MessageType(int code, String wireName, String kinds) {
+        this.code = code;
+        this.wireName = wireName;
+        this.kinds = kinds;
+        this.nameBytes = wireName.getBytes(StandardCharsets.US_ASCII);
+        this.ephemeral = Protocol.CURSOR.equals(wireName) || Protocol.LASER.equals(wireName)
+                || Protocol.VIEWPORT.equals(wireName);
+    }
+
+    /**
+     * i번째 필드의 종류를 반환한다.
+     *
+     * @param i 필드 번호 (0부터, 메시지 종류 제외)
+     * @return STRING, NUMBER, TEXT 중 하나
+     */
+    public char kind(int i) {
+        return i < kinds.length() ? kinds.charAt(i) : STRING;
+    }
+
+    /**
+     * 스키마에 정의된 필드 수를 반환한다.
+     *
+     * @return 필드 수
+     */
+    public int fieldCount() {
+        return kinds.length();
+    }
+
+    /**
+     * 최신 값만 의미가 있는 휘발성 메시지인지 여부를 반환한다. (Protocol.isEphemeral 참고)
+     *
+     * @return 커서, 레이저, 뷰포트 메시지이면 true
+     */
+    public boolean isEphemeral() {
+        return ephemeral;
+    }
+
+    /**
+     * 바이너리 코드로 메시지 종류를 찾는다.
+     *
+     * @param code 메시지 코드
+     * @return 메시지 종류, 없으면 null
+     */
+    public static MessageType fromCode(int code) {
+        return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+    }
+
+    /**
+     * 텍스트 프로토콜의 이름으로 메시지 종류를 찾는다.
+     *
+     * @param name 메시지 이름 (예: "EDIT_OP")
+     * @return 메시지 종류, 없으면 null
+     */
+    public static MessageType fromName(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * 수신 버퍼에 들어 있는 메시지 이름으로 메시지 종류를 찾는다. 문자열을 만들지 않는다.
+     *
+     * @param buf 버퍼
+     * @param off 이름 시작 위치
+     * @param len 이름 길이
+     * @return 메시지 종류, 없으면 null
+     */
+    public static MessageType fromName(byte[] buf, int off, int len) {
+        for (MessageType t : VALUES) {
+            byte[] n = t.nameBytes;
+            if (n.length == len && Arrays.equals(n, 0, len, buf, off, off + len))
+                return t;
+        }
+        return null;
+    }
+}
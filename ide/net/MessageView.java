@@ -0,0 +1,271 @@
+package ide.net;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 수신 버퍼 위의 메시지 하나를 복사 없이 읽는 재사용 뷰.
+ *
+ * Message와 달리 필드를 미리 잘라 문자열 배열로 만들지 않고, 각 필드의 시작/끝 위치만 기록한다.
+ * 정수 필드는 버퍼에서 바로 파싱하고, 경로나 닉네임처럼 반복되는 문자열은 작은 캐시에서 같은 String을 재사용하며,
+ * Base64 본문은 재사용 버퍼에 디코딩한다. 따라서 커서/레이저처럼 자주 오는 메시지는 할당 없이 처리된다.
+ * 뷰는 다음 wrap 호출 전까지만 유효하며, 수신 스레드 하나에서만 사용한다.
+ */
+public final class MessageView {
+    private static final int MAX_FIELDS = 16;
+    private static final int CACHE_SIZE = 256; // 2의 거듭제곱
+    private static final byte[] BASE64 = new byte[256];
+
+    static {
+        Arrays.fill(BASE64, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++)
+            BASE64[alphabet.charAt(i)] = (byte) i;
+    }
+
+    private byte[] buf;
+    private boolean binary;
+    private MessageType type;
+    private int size;
+    private final int[] start = new int[MAX_FIELDS];
+    private final int[] end = new int[MAX_FIELDS];
+    private final long[] numbers = new long[MAX_FIELDS]; // 바이너리 정수 필드 값
+
+    // 반복되는 짧은 문자열(경로, 닉네임) 캐시: 해시 슬롯마다 UTF-8 바이트와 String 한 쌍
+    private final byte[][] cacheBytes = new byte[CACHE_SIZE][];
+    private final String[] cacheStrings = new String[CACHE_SIZE];
+    // Base64 본문 디코딩용 버퍼
+    private byte[] scratch = new byte[1024];
+
+    /**
+     * 텍스트 한 줄을 가리키도록 뷰를 설정한다.
+     *
+     * @param line 줄이 들어 있는 버퍼 (0부터 시작)
+     * @param len  줄 길이 (개행 문자 제외)
+     * @return 알 수 있는 메시지 종류이면 true
+     */
+    public boolean wrapText(byte[] line, int len) {
+        int bar = indexOf(line, 0, len);
+        type = MessageType.fromName(line, 0, bar < 0 ? len : bar);
+        if (type == null)
+            return false;
+        buf = line;
+        binary = false;
+        size = 0;
+        if (bar < 0)
+            return true;
+        int limit = Math.min(type.fieldCount(), MAX_FIELDS);
+        int pos = bar + 1;
+        while (true) {
+            int next = size + 1 < limit ? indexOf(line, pos, len) : -1;
+            start[size] = pos;
+            end[size] = next < 0 ? len : next;
+            size++;
+            if (next < 0)
+                return true;
+            pos = next + 1;
+        }
+    }
+
+    /**
+     * 바이너리 프레임 본문을 가리키도록 뷰를 설정한다.
+     *
+     * @param frame 프레임이 들어 있는 버퍼
+     * @param off   본문 시작 위치 (길이 접두사 이후)
+     * @param len   본문 길이
+     * @return 알 수 있는 메시지 종류이고 형식이 올바르면 true
+     */
+    public boolean wrapBinary(byte[] frame, int off, int len) {
+        int limit = off + len;
+        if (len < 2)
+            return false;
+        type = MessageType.fromCode(frame[off] & 0xFF);
+        if (type == null)
+            return false;
+        buf = frame;
+        binary = true;
+        int pos = off + 1;
+        long count = 0;
+        int shift = 0;
+        // 필드 수 varint
+        while (true) {
+            if (pos >= limit || shift > 28)
+                return false;
+            byte b = frame[pos++];
+            count |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                break;
+            shift += 7;
+        }
+        if (count > MAX_FIELDS)
+            return false;
+        size = (int) count;
+        for (int i = 0; i < size; i++) {
+            long v = 0;
+            shift = 0;
+            while (true) {
+                if (pos >= limit || shift > 63)
+                    return false;
+                byte b = frame[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0)
+                    break;
+                shift += 7;
+            }
+            if (type.kind(i) == MessageType.NUMBER) {
+                numbers[i] = (v >>> 1) ^ -(v & 1);
+                start[i] = end[i] = pos;
+            } else {
+                if (v < 0 || v > limit - pos)
+                    return false;
+                start[i] = pos;
+                end[i] = pos + (int) v;
+                pos = end[i];
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] b, int from, int to) {
+        for (int i = from; i < to; i++)
+            if (b[i] == '|')
+                return i;
+        return -1;
+    }
+
+    /** @return 메시지 종류 */
+    public MessageType type() {
+        return type;
+    }
+
+    /** @return 실제로 들어 있는 필드 수 */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * i번째 필드를 정수로 읽는다. 버퍼에서 바로 파싱하며 할당하지 않는다.
+     *
+     * @param i 필드 번호
+     * @return 필드 값, 필드가 없거나 정수가 아니면 0
+     */
+    public long num(int i) {
+        if (i >= size)
+            return 0;
+        if (binary && type.kind(i) == MessageType.NUMBER)
+            return numbers[i];
+        int p = start[i], e = end[i];
+        if (p == e)
+            return 0;
+        boolean neg = buf[p] == '-';
+        if (neg && ++p == e)
+            return 0;
+        long v = 0;
+        for (; p < e; p++) {
+            int d = buf[p] - '0';
+            if (d < 0 || d > 9)
+                return 0; // Protocol.safeLong과 같이 잘못된 값은 0
+            v = v * 10 + d;
+        }
+        return neg ? -v : v;
+    }
+
+    /**
+     * i번째 필드를 int로 읽는다.
+     *
+     * @param i 필드 번호
+     * @return 필드 값
+     */
+    public int integer(int i) {
+        return (int) num(i);
+    }
+
+    /**
+     * i번째 필드를 문자열로 읽는다. 경로나 닉네임처럼 반복되는 값은 캐시된 String을 돌려준다.
+     *
+     * @param i 필드 번호
+     * @return 필드 값, 필드가 없으면 null
+     */
+    public String str(int i) {
+        if (i >= size)
+            return null;
+        if (binary && type.kind(i) == MessageType.NUMBER)
+            return Long.toString(numbers[i]);
+        int p = start[i], e = end[i];
+        int h = 1;
+        for (int k = p; k < e; k++)
+            h = 31 * h + buf[k];
+        int slot = (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+        byte[] cached = cacheBytes[slot];
+        if (cached != null && Arrays.equals(cached, 0, cached.length, buf, p, e))
+            return cacheStrings[slot];
+        String s = new String(buf, p, e - p, StandardCharsets.UTF_8);
+        cacheBytes[slot] = Arrays.copyOfRange(buf, p, e);
+        cacheStrings[slot] = s;
+        return s;
+    }
+
+    /**
+     * i번째 본문 텍스트(T) 필드를 읽는다. 텍스트 프로토콜이면 재사용 버퍼에 Base64를 풀어서 읽는다.
+     *
+     * @param i 필드 번호
+     * @return 본문 문자열, 필드가 없거나 Base64 형식이 잘못되었으면 null
+     */
+    public String text(int i) {
+        if (i >= size)
+            return null;
+        int p = start[i], e = end[i];
+        if (binary || type.kind(i) != MessageType.TEXT)
+            return new String(buf, p, e - p, StandardCharsets.UTF_8);
+        int n = decodeBase64(p, e);
+        return n < 0 ? null : new String(scratch, 0, n, StandardCharsets.UTF_8);
+    }
+
+    // buf[p, e)의 Base64를 scratch에 푼다. 형식이 잘못되었으면 -1
+    private int decodeBase64(int p, int e) {
+        while (e > p && buf[e - 1] == '=')
+            e--;
+        int need = (e - p) * 3 / 4;
+        if (scratch.length < need)
+            scratch = new byte[Math.max(need, scratch.length * 2)];
+        int n = 0, bits = 0, acc = 0;
+        for (int k = p; k < e; k++) {
+            int v = BASE64[buf[k] & 0xFF];
+            if (v < 0)
+                return -1;
+            acc = (acc << 6) | v;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                scratch[n++] = (byte) (acc >> bits);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 현재 메시지를 독립적인 Message로 복사한다. (로그 출력 등 뷰 밖에서 보관해야 할 때)
+     *
+     * @return 복사된 메시지
+     */
+    public Message toMessage() {
+        String[] s = new String[size];
+        long[] n = new long[size];
+        for (int i = 0; i < size; i++) {
+            char kind = type.kind(i);
+            if (kind == MessageType.NUMBER)
+                n[i] = num(i);
+            else if (kind == MessageType.TEXT)
+                s[i] = Objects.toString(text(i), "");
+            else
+                s[i] = str(i);
+        }
+        return new Message(type, s, n);
+    }
+
+    @Override
+    public String toString() {
+        return type == null ? "" : toMessage().toString();
+    }
+}
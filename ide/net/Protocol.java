@@ -1,10 +1,14 @@
 package ide.net;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 소켓 통신 프로토콜에 사용되는 메시지 상수와 헬퍼 메소드를 정의하는 클래스.
  *
  * 클라이언트와 서버 간의 통신 규약을 상수로 관리하여 오타를 방지하고 가독성을 높인다.
  * 각 메시지는 파이프('|') 문자로 구분된 문자열 형태를 가진다.
+ * JOIN에서 협상하면 같은 메시지를 길이 접두사가 붙은 바이너리 형식(WireCodec)으로 주고받을 수 있다.
  */
 public class Protocol {
     // 메시지 구분자
@@ -14,20 +18,75 @@ public class Protocol {
     // --- 메시지 타입 (Message Types) ---
 
     // 연결 및 인증 (Connection & Auth)
-    /** 클라이언트 -> 서버: 입장 요청 (JOIN|Nickname|Role) */
+    /**
+     * 클라이언트 -> 서버: 입장 요청 (JOIN|Nickname|Role[|Options]).
+     * Options는 "key=value"를 쉼표로 이은 목록이며, 구버전 클라이언트는 생략한다.
+     */
     public static final String JOIN = "JOIN";
+    /**
+     * 서버 -> 클라이언트: 프로토콜 전환 승인 (PROTO|Mode|Version). 항상 텍스트로 전송된다.
+     * JOIN 직후 첫 메시지로 전송되며, 이후 양방향 모두 지정된 형식을 사용한다.
+     */
+    public static final String PROTO = "PROTO";
     /** 서버 -> 클라이언트: 시스템 메시지 (INFO|Message) */
     public static final String INFO = "INFO";
-    /** 서버 <-> 클라이언트: 역할 정보 교환 (ROLE_INFO|Nickname|Role) */
+    /** 서버 <-> 클라이언트: 역할 정보 교환 (ROLE_INFO|Nickname|Role). 명단(roster 옵션)을 협상하지 않은 클라이언트, 이전 서버와의 호환용 */
     public static final String ROLE_INFO = "ROLE_INFO";
 
+    // 참여자 명단 (Presence)
+    /**
+     * 서버 -> 클라이언트: 방의 참여자 전체 명단 (ROSTER|Version|Base64Entries). 입장할 때 한 번 온다.
+     * Entries는 "닉네임\t역할" 줄의 목록이고, Version은 명단이 바뀔 때마다 1씩 증가한다.
+     * 클라이언트 -> 서버: 명단을 다시 요청 (ROSTER|알고 있는 Version|빈 본문). 증분 버전이 건너뛰었을 때 보낸다.
+     */
+    public static final String ROSTER = "ROSTER";
+    /** 서버 -> 클라이언트: 참여자가 들어오거나 역할이 바뀜 (ENTER|Version|Nickname|Role) */
+    public static final String ENTER = "ENTER";
+    /** 서버 -> 클라이언트: 참여자가 방을 나감 (LEAVE|Version|Nickname). 연결이 끊기거나 응답이 없어 정리된 경우 포함 */
+    public static final String LEAVE = "LEAVE";
+
+    // 연결 확인 (Heartbeat)
+    /**
+     * 양방향: 연결 확인 요청 (PING|Token). 받은 쪽은 같은 Token으로 PONG을 보낸다.
+     * 한동안 아무 메시지도 받지 못했을 때만 보내며, Token은 보낸 시각(ms)이다.
+     */
+    public static final String PING = "PING";
+    /** 양방향: 연결 확인 응답 (PONG|Token) */
+    public static final String PONG = "PONG";
+
+    // 순서 번호와 재접속 (Sequence & Resume)
+    /**
+     * 서버 -> 클라이언트: 바로 뒤에 오는 메시지의 방 순서 번호 (SEQ|Number).
+     * 방 전체에 보내는 신뢰성 메시지마다 1씩 증가하며, 같은 방의 모든 인원에게 같은 번호로 전송된다.
+     */
+    public static final String SEQ = "SEQ";
+    /** 클라이언트 -> 서버: 여기까지의 순서 번호를 받았음 (ACK|Number). 주기적으로 보낸다 */
+    public static final String ACK = "ACK";
+    /**
+     * 서버 -> 클라이언트: 방의 메시지 흐름 정보 (RESUME|Epoch|Number|Resumed). JOIN 직후에 온다.
+     * Epoch는 방이 만들어질 때 정해지는 식별자, Number는 이후 메시지가 이어지는 순서 번호이다.
+     * Resumed가 1이면 재접속이 받아들여져 놓친 메시지만 이어서 오고, 0이면 문서 전체 스냅샷부터 새로 받는다.
+     */
+    public static final String RESUME = "RESUME";
+
     // 질문 관련 (Student -> Professor via Server)
     /** 학생 -> 서버 -> 교수자: 질문 전송 (QUESTION|StudentNick|Base64QuestionText) */
     public static final String QUESTION = "QUESTION";
 
     // 에디터 액션 (Editor Actions)
-    /** 양방향: 텍스트 편집 (EDIT|Path|Base64Content) */
+    /** 양방향: 텍스트 편집, 문서 전체 스냅샷 (EDIT|Path|Base64Content) */
     public static final String EDIT = "EDIT";
+    /**
+     * 양방향: 증분 편집 연산 (EDIT_OP|Path|BaseVersion|Offset|RemoveLength|Base64InsertText).
+     * BaseVersion 버전의 문서에서 Offset 위치의 RemoveLength 글자를 지우고 InsertText를 삽입한다.
+     */
+    public static final String EDIT_OP = "EDIT_OP";
+    /** 서버 -> 클라이언트: 버전이 붙은 문서 전체 스냅샷 (EDIT_SYNC|Path|Version|Base64Content) */
+    public static final String EDIT_SYNC = "EDIT_SYNC";
+    /** 양방향: 문서 전체 스냅샷 요청 (EDIT_SYNC_REQ|Path) */
+    public static final String EDIT_SYNC_REQ = "EDIT_SYNC_REQ";
+    /** 서버 -> 편집자: 보낸 편집이 반영된 문서 버전 (EDIT_ACK|Path|Version) */
+    public static final String EDIT_ACK = "EDIT_ACK";
     /** 양방향: 커서 이동 (CURSOR|Path|Nickname|Dot|Mark) */
     public static final String CURSOR = "CURSOR";
     /** 양방향: 뷰포트 스크롤 (VIEWPORT|Path|LineNumber) */
@@ -54,9 +113,73 @@ public class Protocol {
     public static final String COMPILE_RELEASE = "COMPILE_RELEASE";
 
     // 컴파일 출력 스트리밍 (Compilation Output Streaming)
+    /**
+     * 클라이언트 -> 서버: 서버가 보관 중인 문서를 서버에서 컴파일 요청 (COMPILE_RUN|Path|Run).
+     * Run이 1이면 컴파일에 성공한 뒤 프로그램을 실행하고 출력을 COMPILE_OUT으로 보낸다.
+     */
+    public static final String COMPILE_RUN = "COMPILE_RUN";
+    /** 서버 -> 클라이언트: 컴파일 시작 (COMPILE_START|Path|Nickname) */
     public static final String COMPILE_START = "COMPILE_START";
+    /** 서버 -> 클라이언트: 컴파일 진단 메시지나 프로그램 출력, 줄바꿈을 포함한 원문 (COMPILE_OUT|Path|Base64Text) */
     public static final String COMPILE_OUT = "COMPILE_OUT";
+    /** 서버 -> 클라이언트: 컴파일(과 실행) 종료 (COMPILE_END|Path|ExitCode), 0 성공, 1 컴파일 오류, 2 처리 불가, 3 실행 실패 */
     public static final String COMPILE_END = "COMPILE_END";
+    /**
+     * 서버 -> 클라이언트: 요청이 대기열에서 기다리는 중 (COMPILE_QUEUED|Path|Position|EtaMs).
+     * Position은 1부터 세는 순번, EtaMs는 처리가 시작될 때까지의 예상 시간이다. 순번이 바뀔 때마다 다시 온다.
+     */
+    public static final String COMPILE_QUEUED = "COMPILE_QUEUED";
+
+    // JOIN 옵션 및 바이너리 프로토콜
+    /** JOIN 옵션 키: 지원하는 바이너리 프로토콜 버전 (예: bin=1) */
+    public static final String OPT_BINARY = "bin";
+    /** PROTO 메시지의 바이너리 모드 이름 */
+    public static final String MODE_BINARY = "BIN";
+    /** 현재 바이너리 프로토콜 버전 */
+    public static final int BINARY_VERSION = 1;
+    /** JOIN 옵션 키: 입장할 방(강의 채널) 이름 (예: room=cs101). 생략하면 DEFAULT_ROOM */
+    public static final String OPT_ROOM = "room";
+    /** 방 이름을 지정하지 않은 클라이언트가 들어가는 기본 방 */
+    public static final String DEFAULT_ROOM = "default";
+    /**
+     * JOIN 옵션 키: 재접속할 방 흐름과 마지막으로 받은 순서 번호 (예: resume=8123456:42).
+     * 서버가 그 뒤의 메시지를 아직 보관하고 있으면 놓친 메시지만 보낸다.
+     */
+    public static final String OPT_RESUME = "resume";
+    /**
+     * JOIN 옵션 키: 버전이 붙은 편집 동기화(EDIT_OP, EDIT_SYNC)를 지원함 (sync=1).
+     * 이 옵션이 없는 구버전 클라이언트에게는 편집을 문서 전체(EDIT)로 보낸다.
+     */
+    public static final String OPT_SYNC = "sync";
+    /**
+     * JOIN 옵션 키: 생존 확인(PING/PONG)에 응답함 (hb=1).
+     * 이 옵션을 붙인 연결만 서버가 PING을 보내고, 응답이 없으면 정리한다. (구버전 클라이언트는 정리하지 않는다)
+     */
+    public static final String OPT_HEARTBEAT = "hb";
+    /**
+     * JOIN 옵션 키: 참여자 명단(ROSTER)과 버전이 붙은 변경(ENTER/LEAVE)을 지원함 (roster=1).
+     * 이 옵션이 없는 구버전 클라이언트에게는 참여자마다 ROLE_INFO를 보낸다.
+     */
+    public static final String OPT_ROSTER = "roster";
+
+    /**
+     * 방 이름이 올바른지 확인한다. 영문, 숫자, '-', '_', '.'로 이루어진 1~64자만 허용한다.
+     * (JOIN 옵션 구분자 ',', '=', '|'가 들어가지 않도록 한다)
+     *
+     * @param room 방 이름
+     * @return 올바르면 true
+     */
+    public static boolean isValidRoom(String room) {
+        if (room == null || room.isEmpty() || room.length() > 64)
+            return false;
+        for (int i = 0; i < room.length(); i++) {
+            char c = room.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9'
+                    || c == '-' || c == '_' || c == '.'))
+                return false;
+        }
+        return true;
+    }
 
     /**
      * 수신된 메시지 라인을 구분자로 분리한다.
@@ -67,7 +190,55 @@ public class Protocol {
     public static String[] parse(String line) {
         if (line == null)
             return new String[0];
-        return line.split(DELIMITER);
+        return WireCodec.split(line, 0);
+    }
+
+    /**
+     * JOIN 옵션 문자열("key=value,key=value")을 맵으로 변환한다.
+     *
+     * @param options 옵션 문자열 (null 가능)
+     * @return 옵션 맵 (없으면 빈 맵)
+     */
+    public static Map<String, String> parseOptions(String options) {
+        Map<String, String> map = new HashMap<>();
+        if (options == null || options.isEmpty())
+            return map;
+        for (String kv : options.split(",")) {
+            int eq = kv.indexOf('=');
+            if (eq > 0)
+                map.put(kv.substring(0, eq).trim(), kv.substring(eq + 1).trim());
+            else if (!kv.isBlank())
+                map.put(kv.trim(), "");
+        }
+        return map;
+    }
+
+    /**
+     * 최신 값만 의미가 있는 휘발성(presence) 메시지인지 확인한다.
+     * 커서, 레이저, 뷰포트 메시지는 뒤에 오는 메시지가 앞의 것을 대체하므로 유실되어도 무방하다.
+     *
+     * @param line 메시지 문자열
+     * @return 휘발성 메시지이면 true
+     */
+    public static boolean isEphemeral(String line) {
+        return line.startsWith(CURSOR + SEPARATOR)
+                || line.startsWith(LASER + SEPARATOR)
+                || line.startsWith(VIEWPORT + SEPARATOR);
+    }
+
+    /**
+     * 문자열을 long 정수로 안전하게 변환한다.
+     * 변환 실패 시 0을 반환한다.
+     *
+     * @param s 변환할 문자열
+     * @return 변환된 정수 값 또는 0
+     */
+    public static long safeLong(String s) {
+        try {
+            return Long.parseLong(s);
+        } catch (Exception e) {
+            return 0;
+        }
     }
 
     /**
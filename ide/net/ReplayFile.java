@@ -0,0 +1,675 @@
+package ide.net;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 강의 기록(replay) 파일 형식. 서버가 방마다 편집과 교수자의 커서/뷰포트/레이저를 시각과 함께 기록하고,
+ * 클라이언트의 다시 보기 창이 읽는다.
+ *
+ * 파일은 블록의 나열이다. 블록은 시작 시점의 모든 문서 내용(키프레임)과 그 뒤의 이벤트들을 담으며,
+ * 일정 시간(서버의 --replay-keyframe-sec)이나 이벤트 수가 차면 새 블록이 시작된다.
+ * 블록 첫머리에는 그때까지의 마지막 커서/뷰포트/레이저 이벤트를 다시 써 두므로 블록 하나만으로 화면 전체를 복원할 수 있다.
+ * 이벤트는 열(column) 단위로 저장한다: 종류, 시각 차이, 경로 번호, 정수 두 개, 문자열을 각각 따로 모으고
+ * 정수는 가변 길이(zigzag varint)로 쓰므로, 타자 한 글자 편집은 몇 바이트로 줄어든다.
+ * 파일 끝의 색인에는 블록마다 시작 시각과 위치가 있어 임의 시각으로의 이동은
+ * 색인 이진 탐색(O(log n))과 블록 하나의 디코딩으로 끝난다. 서버가 색인을 쓰지 못하고 종료된 파일은
+ * 블록 머리만 건너뛰며 읽어 색인을 다시 만든다.
+ *
+ * <pre>
+ * 파일:   [MAGIC: long][버전: int][시작 시각(epoch ms): long][방 이름: UTF-8 문자열] 블록... [0: int] 색인
+ * 블록:   [길이: int][CRC32: int][본문]
+ * 본문:   [첫 시각][끝 시각][이벤트 수] [키프레임 문서 수] ([경로][내용])... [경로 수] [경로]...
+ *         [열 길이 x6] [종류 열][시각 차이 열][경로 번호 열][정수 A 열][정수 B 열][문자열 열]
+ * 색인:   [블록 수: int] ([첫 시각: long][끝 시각: long][위치: long])... [색인 위치: long][INDEX_MAGIC: long]
+ * </pre>
+ * 본문의 정수는 varint, 문자열은 [varint 길이][UTF-8]이다. 시각은 기록 시작부터의 밀리초이다.
+ */
+public final class ReplayFile {
+    /** 파일 확장자 */
+    public static final String EXTENSION = ".replay";
+
+    /** 이벤트: 문서 전체 교체 (문자열 = 내용) */
+    public static final byte PUT = 1;
+    /** 이벤트: 증분 편집 (A = 시작, B = 끝, 문자열 = 삽입 내용) */
+    public static final byte OP = 2;
+    /** 이벤트: 문서 또는 폴더 삭제 */
+    public static final byte REMOVE = 3;
+    /** 이벤트: 문서 또는 폴더 이름 변경 (문자열 = 새 경로) */
+    public static final byte RENAME = 4;
+    /** 이벤트: 교수자 커서 (A = dot, B = mark, 문자열 = 닉네임) */
+    public static final byte CURSOR = 5;
+    /** 이벤트: 교수자 뷰포트 (A = 줄 번호) */
+    public static final byte VIEWPORT = 6;
+    /** 이벤트: 교수자 레이저 포인터 (A = x, B = y) */
+    public static final byte LASER = 7;
+
+    private static final long MAGIC = 0x534F434F52504C31L; // "SOCORPL1"
+    private static final long INDEX_MAGIC = 0x534F434F52494458L; // "SOCORIDX"
+    private static final int VERSION = 1;
+    private static final int BLOCK_HEADER = 8;
+
+    private ReplayFile() {
+    }
+
+    /**
+     * 문서 이벤트를 문서 모음에 적용한다. (서버의 기록기와 클라이언트의 재생기가 같은 규칙을 쓴다)
+     * 커서/뷰포트/레이저는 문서를 바꾸지 않으므로 무시한다.
+     *
+     * @param docs 경로 -> 내용
+     * @param type 이벤트 종류
+     * @param path 문서 경로
+     * @param a    정수 A
+     * @param b    정수 B
+     * @param text 문자열
+     * @return 문서가 바뀌었으면 true
+     */
+    public static boolean apply(Map<String, StringBuilder> docs, byte type, String path, int a, int b, String text) {
+        switch (type) {
+            case PUT: {
+                StringBuilder doc = docs.get(path);
+                if (doc == null) {
+                    docs.put(path, new StringBuilder(text));
+                } else {
+                    doc.setLength(0);
+                    doc.append(text);
+                }
+                return true;
+            }
+            case OP: {
+                StringBuilder doc = docs.get(path);
+                if (doc == null)
+                    return false;
+                int start = Math.max(0, Math.min(a, doc.length()));
+                doc.replace(start, Math.max(start, Math.min(b, doc.length())), text);
+                return true;
+            }
+            case REMOVE:
+                return docs.keySet().removeIf(p -> isSameOrUnder(p, path));
+            case RENAME: {
+                List<Map.Entry<String, StringBuilder>> moved = new ArrayList<>();
+                for (Iterator<Map.Entry<String, StringBuilder>> it = docs.entrySet().iterator(); it.hasNext();) {
+                    Map.Entry<String, StringBuilder> e = it.next();
+                    if (isSameOrUnder(e.getKey(), path)) {
+                        moved.add(e);
+                        it.remove();
+                    }
+                }
+                for (Map.Entry<String, StringBuilder> e : moved)
+                    docs.put(text + e.getKey().substring(path.length()), e.getValue());
+                return !moved.isEmpty();
+            }
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isSameOrUnder(String path, String base) {
+        return path.equals(base) || path.startsWith(base + "/") || path.startsWith(base + "\\");
+    }
+
+    // === 쓰기 ===
+
+    /**
+     * 기록 파일을 만든다. 파일 입출력은 하지 않고 쓸 바이트만 돌려주므로, 호출하는 쪽이 원하는 스레드에서 쓴다.
+     * 지금까지의 문서 내용을 따라가며 블록을 시작할 때 키프레임으로 담는다. 스레드 안전하지 않다.
+     */
+    public static final class Writer {
+        private final Map<String, StringBuilder> docs = new LinkedHashMap<>();
+        private final List<long[]> index = new ArrayList<>(); // {첫 시각, 끝 시각, 위치}
+        // 종류별 마지막 커서/뷰포트/레이저 이벤트 (일어난 순서)
+        private final Map<Byte, Object[]> pointers = new LinkedHashMap<>();
+        private long offset;
+        // 열린 블록
+        private Map<String, String> keyframe;
+        private final Map<String, Integer> pathIds = new HashMap<>();
+        private final List<String> pathTable = new ArrayList<>();
+        private final Bytes types = new Bytes();
+        private final Bytes times = new Bytes();
+        private final Bytes paths = new Bytes();
+        private final Bytes colA = new Bytes();
+        private final Bytes colB = new Bytes();
+        private final Bytes texts = new Bytes();
+        private int count;
+        private long firstTs;
+        private long lastTs;
+
+        /**
+         * 파일 머리를 반환한다. 다른 바이트보다 먼저 써야 한다.
+         *
+         * @param room         방 이름
+         * @param startEpochMs 기록 시작 시각
+         * @return 파일 머리 바이트
+         */
+        public byte[] header(String room, long startEpochMs) {
+            Bytes h = new Bytes();
+            h.putLong(MAGIC).putInt(VERSION).putLong(startEpochMs).putString(room);
+            offset = h.size;
+            return h.toArray();
+        }
+
+        /**
+         * 이벤트를 열린 블록에 추가한다.
+         *
+         * @param ts   기록 시작부터의 밀리초 (줄어들지 않아야 한다)
+         * @param type 이벤트 종류
+         * @param path 문서 경로
+         * @param a    정수 A (쓰지 않는 종류는 무시)
+         * @param b    정수 B (쓰지 않는 종류는 무시)
+         * @param text 문자열 (쓰지 않는 종류는 무시)
+         */
+        public void append(long ts, byte type, String path, int a, int b, String text) {
+            if (count == 0) {
+                keyframe = new LinkedHashMap<>();
+                for (Map.Entry<String, StringBuilder> e : docs.entrySet())
+                    keyframe.put(e.getKey(), e.getValue().toString());
+                firstTs = ts;
+                lastTs = ts;
+                // 블록만 읽고도 교수자 커서/뷰포트/레이저를 복원할 수 있도록 마지막 상태를 블록 앞에 다시 쓴다
+                for (Map.Entry<Byte, Object[]> e : pointers.entrySet()) {
+                    Object[] v = e.getValue();
+                    add(ts, e.getKey(), (String) v[0], (Integer) v[1], (Integer) v[2], (String) v[3]);
+                }
+            }
+            if (type == CURSOR || type == VIEWPORT || type == LASER) {
+                pointers.remove(type);
+                pointers.put(type, new Object[] { path, a, b, text });
+            }
+            add(ts, type, path, a, b, text);
+        }
+
+        private void add(long ts, byte type, String path, int a, int b, String text) {
+            Integer id = pathIds.get(path);
+            if (id == null) {
+                id = pathTable.size();
+                pathIds.put(path, id);
+                pathTable.add(path);
+            }
+            types.putByte(type);
+            times.putVarLong(Math.max(0, ts - lastTs));
+            paths.putVarLong(id);
+            if (hasA(type))
+                colA.putVarLong(zigzag(a));
+            if (hasB(type))
+                colB.putVarLong(zigzag(b));
+            if (hasText(type))
+                texts.putString(text);
+            lastTs = Math.max(lastTs, ts);
+            count++;
+            apply(docs, type, path, a, b, text);
+        }
+
+        /** @return 열린 블록의 이벤트 수 */
+        public int pending() {
+            return count;
+        }
+
+        /** @return 열린 블록의 첫 이벤트 시각 */
+        public long blockStart() {
+            return firstTs;
+        }
+
+        /**
+         * 열린 블록을 닫아 파일에 쓸 바이트를 반환하고 새 블록을 준비한다.
+         *
+         * @return 블록 바이트, 이벤트가 없으면 null
+         */
+        public byte[] cutBlock() {
+            if (count == 0)
+                return null;
+            Bytes body = new Bytes();
+            body.putVarLong(firstTs).putVarLong(lastTs).putVarLong(count);
+            body.putVarLong(keyframe.size());
+            for (Map.Entry<String, String> e : keyframe.entrySet())
+                body.putString(e.getKey()).putString(e.getValue());
+            body.putVarLong(pathTable.size());
+            for (String p : pathTable)
+                body.putString(p);
+            Bytes[] columns = { types, times, paths, colA, colB, texts };
+            for (Bytes c : columns)
+                body.putVarLong(c.size);
+            for (Bytes c : columns)
+                body.put(c.bytes, 0, c.size);
+            CRC32 crc = new CRC32();
+            crc.update(body.bytes, 0, body.size);
+            Bytes block = new Bytes();
+            block.putInt(body.size).putInt((int) crc.getValue()).put(body.bytes, 0, body.size);
+            index.add(new long[] { firstTs, lastTs, offset });
+            offset += block.size;
+            keyframe = null;
+            pathIds.clear();
+            pathTable.clear();
+            for (Bytes c : columns)
+                c.size = 0;
+            count = 0;
+            return block.toArray();
+        }
+
+        /**
+         * 파일 끝의 색인을 반환한다. 열린 블록을 먼저 cutBlock()으로 닫아야 한다.
+         *
+         * @return 색인 바이트
+         */
+        public byte[] footer() {
+            Bytes f = new Bytes();
+            f.putInt(0).putInt(index.size());
+            for (long[] e : index)
+                f.putLong(e[0]).putLong(e[1]).putLong(e[2]);
+            f.putLong(offset).putLong(INDEX_MAGIC);
+            return f.toArray();
+        }
+    }
+
+    // === 읽기 ===
+
+    /**
+     * 기록 파일을 읽는다. 색인만 메모리에 두고 블록은 요청할 때 읽어 디코딩한다.
+     */
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final String room;
+        private final long startEpochMs;
+        private final long[] firstTs;
+        private final long[] lastTs;
+        private final long[] offsets;
+        private final boolean indexed;
+
+        /**
+         * 기록 파일을 연다.
+         *
+         * @param file 파일 경로
+         * @throws IOException 읽을 수 없거나 기록 파일이 아닌 경우
+         */
+        public Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                Cursor h = new Cursor(read(0, (int) Math.min(channel.size(), 4096)));
+                if (h.remaining() < 20 || h.getLong() != MAGIC)
+                    throw new IOException("강의 기록 파일이 아닙니다: " + file.getFileName());
+                if (h.getInt() != VERSION)
+                    throw new IOException("지원하지 않는 기록 파일 버전입니다: " + file.getFileName());
+                startEpochMs = h.getLong();
+                room = h.getString();
+                long dataStart = h.pos;
+                List<long[]> index = readIndex();
+                indexed = index != null;
+                if (index == null)
+                    index = scan(dataStart);
+                firstTs = new long[index.size()];
+                lastTs = new long[index.size()];
+                offsets = new long[index.size()];
+                for (int i = 0; i < index.size(); i++) {
+                    firstTs[i] = index.get(i)[0];
+                    lastTs[i] = index.get(i)[1];
+                    offsets[i] = index.get(i)[2];
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        // 파일 끝의 색인 (없거나 손상되었으면 null)
+        private List<long[]> readIndex() throws IOException {
+            long size = channel.size();
+            if (size < 16)
+                return null;
+            Cursor tail = new Cursor(read(size - 16, 16));
+            long at = tail.getLong();
+            if (tail.getLong() != INDEX_MAGIC || at < 0 || at > size - 24)
+                return null;
+            Cursor c = new Cursor(read(at, (int) (size - 16 - at)));
+            if (c.getInt() != 0)
+                return null;
+            int n = c.getInt();
+            if (n < 0 || n * 24L != c.remaining())
+                return null;
+            List<long[]> index = new ArrayList<>(n);
+            for (int i = 0; i < n; i++)
+                index.add(new long[] { c.getLong(), c.getLong(), c.getLong() });
+            return index;
+        }
+
+        // 색인이 없는 파일(서버가 비정상 종료됨): 블록 머리만 읽으며 건너뛴다. 쓰다 만 마지막 블록은 버린다
+        private List<long[]> scan(long at) throws IOException {
+            List<long[]> index = new ArrayList<>();
+            long size = channel.size();
+            while (at + BLOCK_HEADER < size) {
+                Cursor c = new Cursor(read(at, (int) Math.min(BLOCK_HEADER + 20, size - at)));
+                int length = c.getInt();
+                if (length <= 0 || at + BLOCK_HEADER + length > size)
+                    break;
+                c.getInt();
+                index.add(new long[] { c.getVarLong(), c.getVarLong(), at });
+                at += BLOCK_HEADER + length;
+            }
+            return index;
+        }
+
+        /** @return 방 이름 */
+        public String room() {
+            return room;
+        }
+
+        /** @return 기록 시작 시각 (epoch ms) */
+        public long startEpochMs() {
+            return startEpochMs;
+        }
+
+        /** @return 마지막 이벤트의 시각 (기록 시작부터의 밀리초) */
+        public long durationMs() {
+            return lastTs.length == 0 ? 0 : lastTs[lastTs.length - 1];
+        }
+
+        /** @return 블록 수 */
+        public int blockCount() {
+            return offsets.length;
+        }
+
+        /**
+         * @param i 블록 번호
+         * @return 블록의 첫 이벤트 시각
+         */
+        public long blockStart(int i) {
+            return firstTs[i];
+        }
+
+        /** @return 파일 끝에 색인이 있었으면 true (없으면 블록을 훑어 만들었다) */
+        public boolean indexed() {
+            return indexed;
+        }
+
+        /**
+         * 시각 t를 포함하는 블록, 즉 첫 시각이 t 이하인 마지막 블록의 번호를 찾는다. (이진 탐색)
+         *
+         * @param t 기록 시작부터의 밀리초
+         * @return 블록 번호, 블록이 없으면 -1
+         */
+        public int blockAt(long t) {
+            int i = Arrays.binarySearch(firstTs, t);
+            if (i < 0)
+                i = -i - 2;
+            else
+                while (i + 1 < firstTs.length && firstTs[i + 1] == t)
+                    i++; // 같은 시각에 시작하는 블록이 여럿이면 마지막 블록 (앞 블록의 이벤트를 모두 포함한다)
+            return Math.max(i, offsets.length == 0 ? -1 : 0);
+        }
+
+        /**
+         * 블록을 읽어 디코딩한다.
+         *
+         * @param i 블록 번호
+         * @return 블록
+         * @throws IOException 읽을 수 없거나 손상된 경우
+         */
+        public Block block(int i) throws IOException {
+            Cursor h = new Cursor(read(offsets[i], BLOCK_HEADER));
+            int length = h.getInt();
+            int crc = h.getInt();
+            byte[] body = read(offsets[i] + BLOCK_HEADER, length);
+            CRC32 check = new CRC32();
+            check.update(body);
+            if ((int) check.getValue() != crc)
+                throw new IOException("손상된 블록입니다: " + i);
+            return new Block(new Cursor(body));
+        }
+
+        private byte[] read(long at, int length) throws IOException {
+            ByteBuffer b = ByteBuffer.allocate(length);
+            while (b.hasRemaining())
+                if (channel.read(b, at + b.position()) < 0)
+                    throw new EOFException();
+            return b.array();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * 디코딩한 블록 하나: 시작 시점의 문서 내용과 시각 순 이벤트.
+     */
+    public static final class Block {
+        private final Map<String, String> keyframe;
+        private final byte[] types;
+        private final long[] times;
+        private final String[] paths;
+        private final int[] a;
+        private final int[] b;
+        private final String[] texts;
+
+        private Block(Cursor c) throws IOException {
+            long ts = c.getVarLong();
+            c.getVarLong(); // 끝 시각 (색인에 있다)
+            int n = (int) c.getVarLong();
+            int docs = (int) c.getVarLong();
+            Map<String, String> kf = new LinkedHashMap<>();
+            for (int i = 0; i < docs; i++)
+                kf.put(c.getString(), c.getString());
+            keyframe = Collections.unmodifiableMap(kf);
+            String[] table = new String[(int) c.getVarLong()];
+            for (int i = 0; i < table.length; i++)
+                table[i] = c.getString();
+            int[] lengths = new int[6];
+            for (int i = 0; i < lengths.length; i++)
+                lengths[i] = (int) c.getVarLong();
+            int at = c.pos;
+            Cursor cTypes = c.slice(at, lengths[0]);
+            Cursor cTimes = c.slice(at += lengths[0], lengths[1]);
+            Cursor cPaths = c.slice(at += lengths[1], lengths[2]);
+            Cursor cA = c.slice(at += lengths[2], lengths[3]);
+            Cursor cB = c.slice(at += lengths[3], lengths[4]);
+            Cursor cTexts = c.slice(at += lengths[4], lengths[5]);
+            types = new byte[n];
+            times = new long[n];
+            paths = new String[n];
+            a = new int[n];
+            b = new int[n];
+            texts = new String[n];
+            for (int i = 0; i < n; i++) {
+                byte type = cTypes.getByte();
+                types[i] = type;
+                ts += cTimes.getVarLong();
+                times[i] = ts;
+                paths[i] = table[(int) cPaths.getVarLong()];
+                if (hasA(type))
+                    a[i] = unzigzag(cA.getVarLong());
+                if (hasB(type))
+                    b[i] = unzigzag(cB.getVarLong());
+                if (hasText(type))
+                    texts[i] = cTexts.getString();
+            }
+        }
+
+        /** @return 블록 시작 시점의 문서 내용 (경로 -> 내용) */
+        public Map<String, String> keyframe() {
+            return keyframe;
+        }
+
+        /** @return 이벤트 수 */
+        public int size() {
+            return types.length;
+        }
+
+        public byte type(int i) {
+            return types[i];
+        }
+
+        public long time(int i) {
+            return times[i];
+        }
+
+        public String path(int i) {
+            return paths[i];
+        }
+
+        public int a(int i) {
+            return a[i];
+        }
+
+        public int b(int i) {
+            return b[i];
+        }
+
+        public String text(int i) {
+            return texts[i];
+        }
+    }
+
+    private static boolean hasA(byte type) {
+        return type == OP || type == CURSOR || type == VIEWPORT || type == LASER;
+    }
+
+    private static boolean hasB(byte type) {
+        return type == OP || type == CURSOR || type == LASER;
+    }
+
+    private static boolean hasText(byte type) {
+        return type == PUT || type == OP || type == RENAME || type == CURSOR;
+    }
+
+    private static long zigzag(int v) {
+        return ((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL;
+    }
+
+    private static int unzigzag(long v) {
+        int n = (int) v;
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    // 늘어나는 바이트 배열 (쓰기용)
+    private static final class Bytes {
+        byte[] bytes = new byte[256];
+        int size;
+
+        Bytes putByte(int v) {
+            ensure(1);
+            bytes[size++] = (byte) v;
+            return this;
+        }
+
+        Bytes putInt(int v) {
+            ensure(4);
+            for (int s = 24; s >= 0; s -= 8)
+                bytes[size++] = (byte) (v >>> s);
+            return this;
+        }
+
+        Bytes putLong(long v) {
+            return putInt((int) (v >>> 32)).putInt((int) v);
+        }
+
+        Bytes putVarLong(long v) {
+            ensure(10);
+            while ((v & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            bytes[size++] = (byte) v;
+            return this;
+        }
+
+        Bytes putString(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            putVarLong(b.length);
+            return put(b, 0, b.length);
+        }
+
+        Bytes put(byte[] b, int off, int len) {
+            ensure(len);
+            System.arraycopy(b, off, bytes, size, len);
+            size += len;
+            return this;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensure(int n) {
+            if (size + n > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + n));
+        }
+    }
+
+    // 바이트 배열 읽기 위치 (읽기용)
+    private static final class Cursor {
+        final byte[] bytes;
+        final int end;
+        int pos;
+
+        Cursor(byte[] bytes) {
+            this(bytes, 0, bytes.length);
+        }
+
+        Cursor(byte[] bytes, int pos, int end) {
+            this.bytes = bytes;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        Cursor slice(int at, int length) throws IOException {
+            if (at < 0 || length < 0 || at + length > end)
+                throw new IOException("손상된 블록입니다");
+            return new Cursor(bytes, at, at + length);
+        }
+
+        int remaining() {
+            return end - pos;
+        }
+
+        byte getByte() throws EOFException {
+            if (pos >= end)
+                throw new EOFException();
+            return bytes[pos++];
+        }
+
+        int getInt() throws EOFException {
+            int v = 0;
+            for (int i = 0; i < 4; i++)
+                v = (v << 8) | (getByte() & 0xFF);
+            return v;
+        }
+
+        long getLong() throws EOFException {
+            return ((long) getInt() << 32) | (getInt() & 0xFFFFFFFFL);
+        }
+
+        long getVarLong() throws EOFException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = getByte();
+                v |= (long) (b & 0x7F) << shift;
+                if (b >= 0)
+                    return v;
+            }
+            return v;
+        }
+
+        String getString() throws EOFException {
+            int n = (int) getVarLong();
+            if (n < 0 || n > remaining())
+                throw new EOFException();
+            String s = new String(bytes, pos, n, StandardCharsets.UTF_8);
+            pos += n;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ide.net;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 클라이언트의 송신 대기 큐.
+ *
+ * UI 스레드(EDT)는 메시지를 넣기만 하고 실제 소켓 쓰기는 전용 writer 스레드가 수행하므로,
+ * 네트워크가 막혀도 편집기가 멈추지 않는다.
+ * 메시지는 두 우선순위 등급(lane)으로 나뉜다. 편집, 파일, 컴파일, 질문 등 신뢰성 메시지는 순서대로 모두 전송되며,
+ * 휘발성 메시지(CURSOR/LASER/VIEWPORT)보다 항상 먼저 나간다.
+ * 휘발성 메시지는 같은 종류, 같은 경로의 것이 아직 전송되지 않았으면 그 자리를 새 것으로 바꾼다(병합).
+ */
+final class SendQueue {
+
+    // 큐의 한 칸. 병합되면 message만 새 것으로 바뀐다.
+    private static final class Slot {
+        Message message;
+        final long enqueuedAt;
+
+        Slot(Message message, long enqueuedAt) {
+            this.message = message;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final ArrayDeque<Slot> reliable = new ArrayDeque<>();
+    private final ArrayDeque<Slot> ephemeral = new ArrayDeque<>();
+    // 아직 전송되지 않은 휘발성 메시지: 종류 -> 경로 -> 칸
+    private final Map<MessageType, Map<String, Slot>> pending = new EnumMap<>(MessageType.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private boolean closed = false;
+    private long coalesced = 0;
+
+    // 등급별 큐 대기 시간
+    final LatencyStats reliableLatency = new LatencyStats();
+    final LatencyStats ephemeralLatency = new LatencyStats();
+
+    /**
+     * 메시지를 큐에 넣는다. 호출 스레드를 블로킹하지 않는다.
+     * 같은 경로의 휘발성 메시지가 대기 중이면 그 메시지를 새 것으로 바꾼다.
+     *
+     * @param m 전송할 메시지
+     */
+    void offer(Message m) {
+        lock.lock();
+        try {
+            if (closed)
+                return;
+            long now = System.nanoTime();
+            if (m.type().isEphemeral()) {
+                Map<String, Slot> byPath = pending.computeIfAbsent(m.type(), t -> new HashMap<>());
+                Slot old = byPath.get(m.str(0));
+                if (old != null) {
+                    old.message = m;
+                    coalesced++;
+                    return;
+                }
+                Slot slot = new Slot(m, now);
+                byPath.put(m.str(0), slot);
+                ephemeral.addLast(slot);
+            } else {
+                reliable.addLast(new Slot(m, now));
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 메시지가 들어올 때까지 기다린 뒤, 대기 중인 메시지를 최대 max개까지 꺼낸다.
+     * 신뢰성 메시지를 모두 꺼낸 뒤에 휘발성 메시지를 꺼낸다.
+     *
+     * @param sink 꺼낸 메시지를 담을 리스트
+     * @param max  최대 개수
+     * @return 꺼낸 개수, 큐가 닫혔으면 -1
+     */
+    int drainTo(List<Message> sink, int max) {
+        lock.lock();
+        try {
+            while (reliable.isEmpty() && ephemeral.isEmpty() && !closed) {
+                try {
+                    notEmpty.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return -1;
+                }
+            }
+            if (closed)
+                return -1;
+            long now = System.nanoTime();
+            int n = 0;
+            Slot slot;
+            while (n < max && (slot = reliable.pollFirst()) != null) {
+                reliableLatency.record(now - slot.enqueuedAt);
+                sink.add(slot.message);
+                n++;
+            }
+            while (n < max && (slot = ephemeral.pollFirst()) != null) {
+                pending.get(slot.message.type()).remove(slot.message.str(0));
+                ephemeralLatency.record(now - slot.enqueuedAt);
+                sink.add(slot.message);
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 큐를 닫고 대기 중인 writer를 깨운다. 남은 메시지는 버려진다.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            reliable.clear();
+            ephemeral.clear();
+            pending.clear();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return 지금까지 병합되어 전송되지 않은 휘발성 메시지 수 */
+    long coalescedCount() {
+        lock.lock();
+        try {
+            return coalesced;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package ide.net;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 메시지(Message)를 텍스트/바이너리 프로토콜 형식으로 변환하는 코덱.
+ *
+ * 텍스트 형식은 기존 파이프('|') 구분 한 줄이며, 본문 텍스트 필드는 Base64로 인코딩된다.
+ * 바이너리 형식(버전 1)은 다음과 같다.
+ * <pre>
+ * [길이: 4바이트 big-endian, 이후 바이트 수][종류: 1바이트][필드 수: varint][필드...]
+ *   문자열/본문 필드: [바이트 수: varint][UTF-8 바이트]
+ *   정수 필드:        [zigzag varint]
+ * </pre>
+ * 정규식 분리와 Base64가 없어 파싱 비용과 전송량이 줄어든다.
+ */
+public final class WireCodec {
+    /** 바이너리 프레임 길이 접두사 크기 */
+    public static final int LENGTH_PREFIX = 4;
+    /** 프레임(또는 한 줄)의 최대 크기. 이를 넘으면 비정상 연결로 본다. */
+    public static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    private WireCodec() {
+    }
+
+    // --- 텍스트 형식 ---
+
+    /**
+     * 구분자('|')로 문자열을 분리한다. 정규식을 사용하지 않는다.
+     * limit 개수에 도달하면 마지막 조각은 나머지 전체를 포함한다.
+     *
+     * @param line  원본 문자열
+     * @param limit 최대 조각 수 (0 이하이면 제한 없음)
+     * @return 분리된 문자열 배열
+     */
+    public static String[] split(String line, int limit) {
+        int count = 1;
+        for (int i = line.indexOf('|'); i >= 0 && (limit <= 0 || count < limit); i = line.indexOf('|', i + 1))
+            count++;
+        String[] parts = new String[count];
+        int start = 0;
+        for (int k = 0; k < count - 1; k++) {
+            int end = line.indexOf('|', start);
+            parts[k] = line.substring(start, end);
+            start = end + 1;
+        }
+        parts[count - 1] = line.substring(start);
+        return parts;
+    }
+
+    /**
+     * 텍스트 한 줄을 메시지로 디코딩한다.
+     *
+     * @param line 수신한 한 줄 (개행 문자 제외)
+     * @return 메시지, 알 수 없는 종류이거나 형식이 잘못되었으면 null
+     */
+    public static Message decodeText(String line) {
+        int bar = line.indexOf('|');
+        MessageType type = MessageType.fromName(bar < 0 ? line : line.substring(0, bar));
+        if (type == null)
+            return null;
+        String[] parts = bar < 0 ? new String[0] : split(line.substring(bar + 1), type.fieldCount());
+        long[] numbers = new long[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                char kind = type.kind(i);
+                if (kind == MessageType.NUMBER) {
+                    numbers[i] = Protocol.safeLong(parts[i]);
+                    parts[i] = null;
+                } else if (kind == MessageType.TEXT) {
+                    parts[i] = new String(Base64.getDecoder().decode(parts[i]), StandardCharsets.UTF_8);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            return null; // 잘못된 Base64
+        }
+        return new Message(type, parts, numbers);
+    }
+
+    /**
+     * 메시지를 텍스트 한 줄로 인코딩한다.
+     *
+     * @param m 메시지
+     * @return 파이프 구분 문자열 (개행 문자 제외)
+     */
+    public static String encodeText(Message m) {
+        MessageType type = m.type();
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(type.wireName);
+        for (int i = 0; i < m.size(); i++) {
+            sb.append('|');
+            char kind = type.kind(i);
+            if (kind == MessageType.NUMBER)
+                sb.append(m.num(i));
+            else if (kind == MessageType.TEXT)
+                sb.append(Base64.getEncoder().encodeToString(m.str(i).getBytes(StandardCharsets.UTF_8)));
+            else
+                sb.append(m.str(i));
+        }
+        return sb.toString();
+    }
+
+    // --- 바이너리 형식 ---
+
+    /**
+     * 메시지를 길이 접두사를 포함한 바이너리 프레임으로 인코딩한다.
+     *
+     * @param m 메시지
+     * @return 프레임 바이트 배열
+     */
+    public static byte[] encodeBinary(Message m) {
+        MessageType type = m.type();
+        byte[] buf = new byte[64];
+        int pos = LENGTH_PREFIX;
+        buf[pos++] = (byte) type.code;
+        pos = putVarint(buf, pos, m.size());
+        for (int i = 0; i < m.size(); i++) {
+            if (type.kind(i) == MessageType.NUMBER) {
+                buf = ensure(buf, pos, 10);
+                long v = m.num(i);
+                pos = putVarint(buf, pos, (v << 1) ^ (v >> 63));
+            } else {
+                byte[] s = m.str(i).getBytes(StandardCharsets.UTF_8);
+                buf = ensure(buf, pos, 5 + s.length);
+                pos = putVarint(buf, pos, s.length);
+                System.arraycopy(s, 0, buf, pos, s.length);
+                pos += s.length;
+            }
+        }
+        int body = pos - LENGTH_PREFIX;
+        buf[0] = (byte) (body >>> 24);
+        buf[1] = (byte) (body >>> 16);
+        buf[2] = (byte) (body >>> 8);
+        buf[3] = (byte) body;
+        return pos == buf.length ? buf : Arrays.copyOf(buf, pos);
+    }
+
+    /**
+     * 바이너리 프레임의 본문(길이 접두사 이후)을 메시지로 디코딩한다.
+     *
+     * @param buf 프레임이 들어 있는 배열
+     * @param off 본문 시작 위치
+     * @param len 본문 길이
+     * @return 메시지, 알 수 없는 종류이거나 형식이 잘못되었으면 null
+     */
+    public static Message decodeBinary(byte[] buf, int off, int len) {
+        int end = off + len;
+        if (len < 2)
+            return null;
+        MessageType type = MessageType.fromCode(buf[off] & 0xFF);
+        if (type == null)
+            return null;
+        int[] cursor = {off + 1};
+        long count = getVarint(buf, cursor, end);
+        if (cursor[0] > end || count > len)
+            return null;
+        String[] strings = new String[(int) count];
+        long[] numbers = new long[(int) count];
+        for (int i = 0; i < count; i++) {
+            long v = getVarint(buf, cursor, end);
+            if (cursor[0] > end)
+                return null;
+            if (type.kind(i) == MessageType.NUMBER) {
+                numbers[i] = (v >>> 1) ^ -(v & 1);
+            } else {
+                if (v < 0 || v > end - cursor[0])
+                    return null;
+                strings[i] = new String(buf, cursor[0], (int) v, StandardCharsets.UTF_8);
+                cursor[0] += (int) v;
+            }
+        }
+        return new Message(type, strings, numbers);
+    }
+
+    /**
+     * 바이너리 프레임 앞의 길이 접두사를 읽는다.
+     *
+     * @param buf 배열
+     * @param off 접두사 시작 위치
+     * @return 본문 길이
+     */
+    public static int readLength(byte[] buf, int off) {
+        return ((buf[off] & 0xFF) << 24) | ((buf[off + 1] & 0xFF) << 16)
+                | ((buf[off + 2] & 0xFF) << 8) | (buf[off + 3] & 0xFF);
+    }
+
+    private static byte[] ensure(byte[] buf, int pos, int extra) {
+        if (pos + extra <= buf.length)
+            return buf;
+        return Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+    }
+
+    // 부호 없는 LEB128 varint
+    private static int putVarint(byte[] buf, int pos, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buf[pos++] = (byte) v;
+        return pos;
+    }
+
+    // 형식 오류(잘림, 10바이트 초과)면 cursor[0]을 end보다 크게 만들어 알린다.
+    private static long getVarint(byte[] buf, int[] cursor, int end) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (cursor[0] >= end)
+                break;
+            byte b = buf[cursor[0]++];
+            v |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return v;
+        }
+        cursor[0] = end + 1;
+        return 0;
+    }
+}
@@ -0,0 +1,141 @@
+package ide.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 스트림에서 텍스트 줄 또는 바이너리 프레임을 읽는 버퍼 리더.
+ *
+ * 연결 도중(JOIN 협상 직후) 텍스트 모드에서 바이너리 모드로 전환할 수 있도록,
+ * 문자 디코더(Reader) 없이 하나의 바이트 버퍼에서 두 형식을 모두 읽는다.
+ * 스레드 안전하지 않으며 수신 스레드 하나에서만 사용한다.
+ */
+public final class WireReader {
+    private final InputStream in;
+    private final byte[] buf;
+    private int pos = 0;
+    private int limit = 0;
+    private byte[] line = new byte[256];
+
+    /**
+     * WireReader 생성자.
+     *
+     * @param in         원본 입력 스트림 (버퍼링은 이 클래스가 담당한다)
+     * @param bufferSize 읽기 버퍼 크기
+     */
+    public WireReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buf = new byte[bufferSize];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0)
+            return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    /**
+     * 개행 문자까지 한 줄을 읽어 UTF-8 문자열로 반환한다.
+     *
+     * @return 한 줄 (개행 문자 제외), 스트림이 끝났으면 null
+     * @throws IOException 읽기 실패 또는 줄이 너무 긴 경우
+     */
+    public String readLine() throws IOException {
+        int len = readLineRaw();
+        return len < 0 ? null : new String(line, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 개행 문자까지 한 줄을 내부 버퍼(buffer())에 읽는다. 문자열을 만들지 않는다.
+     *
+     * @return 줄 길이 (개행 문자와 '\r' 제외), 스트림이 끝났으면 -1
+     * @throws IOException 읽기 실패 또는 줄이 너무 긴 경우
+     */
+    public int readLineRaw() throws IOException {
+        int len = 0;
+        while (true) {
+            if (pos == limit && !fill())
+                return len > 0 ? trimCr(len) : -1;
+            int start = pos;
+            while (pos < limit && buf[pos] != '\n')
+                pos++;
+            int n = pos - start;
+            if (len + n > WireCodec.MAX_FRAME_BYTES)
+                throw new IOException("line too long");
+            ensureLine(len + n);
+            System.arraycopy(buf, start, line, len, n);
+            len += n;
+            if (pos < limit) {
+                pos++; // '\n'
+                return trimCr(len);
+            }
+        }
+    }
+
+    private int trimCr(int len) {
+        return len > 0 && line[len - 1] == '\r' ? len - 1 : len;
+    }
+
+    private void ensureLine(int size) {
+        if (size > line.length)
+            line = Arrays.copyOf(line, Math.max(line.length * 2, size));
+    }
+
+    /**
+     * 길이 접두사가 붙은 바이너리 프레임 하나를 읽는다.
+     *
+     * @return 길이 접두사를 포함한 프레임 전체, 스트림이 끝났으면 null
+     * @throws IOException 읽기 실패, 프레임 중간에서 스트림이 끝나거나 프레임이 너무 큰 경우
+     */
+    public byte[] readFrame() throws IOException {
+        int len = readFrameRaw();
+        return len < 0 ? null : Arrays.copyOf(line, len);
+    }
+
+    /**
+     * 길이 접두사가 붙은 바이너리 프레임 하나를 내부 버퍼(buffer())에 읽는다.
+     *
+     * @return 길이 접두사를 포함한 프레임 크기, 스트림이 끝났으면 -1
+     * @throws IOException 읽기 실패, 프레임 중간에서 스트림이 끝나거나 프레임이 너무 큰 경우
+     */
+    public int readFrameRaw() throws IOException {
+        if (!readFully(line, 0, WireCodec.LENGTH_PREFIX, true))
+            return -1;
+        int len = WireCodec.readLength(line, 0);
+        if (len < 0 || len > WireCodec.MAX_FRAME_BYTES)
+            throw new IOException("invalid frame length: " + len);
+        ensureLine(WireCodec.LENGTH_PREFIX + len);
+        readFully(line, WireCodec.LENGTH_PREFIX, len, false);
+        return WireCodec.LENGTH_PREFIX + len;
+    }
+
+    /**
+     * readLineRaw/readFrameRaw가 채운 내부 버퍼를 반환한다. 다음 읽기 호출 전까지만 유효하다.
+     *
+     * @return 내부 버퍼
+     */
+    public byte[] buffer() {
+        return line;
+    }
+
+    private boolean readFully(byte[] dst, int off, int len, boolean eofAllowed) throws IOException {
+        int done = 0;
+        while (done < len) {
+            if (pos == limit && !fill()) {
+                if (eofAllowed && done == 0)
+                    return false;
+                throw new IOException("stream ended inside a frame");
+            }
+            int n = Math.min(len - done, limit - pos);
+            System.arraycopy(buf, pos, dst, off + done, n);
+            pos += n;
+            done += n;
+        }
+        return true;
+    }
+}
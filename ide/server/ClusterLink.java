@@ -0,0 +1,358 @@
+package ide.server;
+
+import ide.net.Message;
+import ide.net.MessageType;
+import ide.net.WireCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 클러스터 노드 사이의 링크 하나 (TCP 연결 하나에 여러 클라이언트 세션을 다중화한다).
+ *
+ * 방의 주인이 아닌 노드(중계 노드)는 클라이언트의 JOIN을 받으면 주인 노드로 링크를 열고 세션을 만든다.
+ * 이후 클라이언트가 보낸 메시지는 세션을 통해 주인 노드로 전달되고, 주인 노드에서는 세션마다
+ * RemotePeer가 일반 클라이언트처럼 방에 들어가 같은 메시지 처리 로직(CollabServer)을 거친다.
+ * 주인 노드가 RemotePeer에게 보내는 메시지는 링크를 거쳐 중계 노드의 실제 클라이언트 송신 큐로 들어간다.
+ *
+ * 링크 프레임 형식: [길이: 4바이트][종류: 1바이트][세션: 4바이트][내용]
+ * 내용은 HELLO이면 보낸 노드 ID, OPEN/DATA이면 바이너리 프로토콜(WireCodec) 프레임, CLOSE이면 비어 있다.
+ * 클라이언트가 텍스트 프로토콜을 쓰더라도 링크에서는 항상 바이너리 형식을 사용한다.
+ */
+final class ClusterLink {
+    static final byte HELLO = 0;
+    static final byte OPEN = 1;
+    static final byte DATA = 2;
+    static final byte CLOSE = 3;
+    private static final int HEADER = 9;
+    private static final int WRITE_BATCH = 256;
+
+    private final CollabServer server;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final String localNode;
+    private final Runnable onClosed;
+    private volatile String remoteNode = "?";
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    // 중계 쪽: 세션 번호 -> 이 노드에 연결된 실제 클라이언트
+    private final Map<Integer, Peer> locals = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSession = new AtomicInteger();
+    // 주인 쪽: 세션 번호 -> 방에 들어가 있는 대리 클라이언트
+    private final Map<Integer, RemotePeer> remotes = new ConcurrentHashMap<>();
+
+    // writer 스레드가 처리할 일: 미리 인코딩된 링크 프레임(byte[]) 또는 송신 큐가 찬 RemotePeer
+    private final LinkedBlockingQueue<Object> writes = new LinkedBlockingQueue<>();
+
+    /**
+     * ClusterLink 생성자.
+     *
+     * @param server    메시지를 처리할 서버
+     * @param socket    노드 간 연결
+     * @param localNode  이 노드의 ID
+     * @param remoteNode 상대 노드 ID (받아들인 링크이면 null, HELLO를 받으면 채워진다)
+     * @param onClosed   링크가 끊겼을 때 실행할 작업 (null 가능)
+     * @throws IOException 스트림 생성 실패 시
+     */
+    ClusterLink(CollabServer server, Socket socket, String localNode, String remoteNode, Runnable onClosed)
+            throws IOException {
+        this.server = server;
+        this.socket = socket;
+        this.localNode = localNode;
+        if (remoteNode != null)
+            this.remoteNode = remoteNode;
+        this.onClosed = onClosed;
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+    }
+
+    /**
+     * 수신/송신 스레드를 시작하고 상대 노드에 자신을 알린다.
+     */
+    void start() {
+        writes.add(encode(HELLO, 0, localNode.getBytes(StandardCharsets.UTF_8)));
+        Thread reader = new Thread(this::readLoop, "cluster-link-reader");
+        reader.setDaemon(true);
+        reader.start();
+        Thread writer = new Thread(this::writeLoop, "cluster-link-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    // --- 중계 쪽 ---
+
+    /**
+     * 로컬 클라이언트의 세션을 열고 JOIN을 주인 노드로 보낸다.
+     *
+     * @param local 이 노드에 연결된 클라이언트
+     * @param join  주인 노드에 보낼 JOIN 메시지
+     * @return 세션
+     * @throws IOException 링크가 이미 끊어진 경우
+     */
+    Session open(Peer local, Message join) throws IOException {
+        if (closed.get())
+            throw new IOException("link to " + remoteNode + " is closed");
+        int id = nextSession.incrementAndGet();
+        locals.put(id, local);
+        writes.add(encode(OPEN, id, WireCodec.encodeBinary(join)));
+        return new Session(id);
+    }
+
+    /**
+     * 중계 노드에서 로컬 클라이언트 하나와 주인 노드의 RemotePeer를 잇는 세션.
+     */
+    final class Session {
+        private final int id;
+
+        private Session(int id) {
+            this.id = id;
+        }
+
+        /**
+         * 클라이언트가 보낸 메시지를 주인 노드로 전달한다. 호출 스레드를 블로킹하지 않는다.
+         *
+         * @param frame 수신한 메시지
+         */
+        void forward(Frame frame) {
+            byte[] bytes = frame.bytes(true);
+            if (bytes != null && !closed.get())
+                writes.add(encode(DATA, id, bytes));
+        }
+
+        /**
+         * 세션을 닫는다. 주인 노드에서는 해당 RemotePeer가 방에서 나간다.
+         */
+        void close() {
+            if (locals.remove(id) != null && !closed.get())
+                writes.add(encode(CLOSE, id, new byte[0]));
+        }
+
+        /** @return 주인 노드 ID */
+        String node() {
+            return remoteNode;
+        }
+    }
+
+    // --- 주인 쪽 ---
+
+    /**
+     * 주인 노드에서 다른 노드에 연결된 클라이언트를 대신하는 Peer.
+     * 송신 큐(우선순위, 병합, 넘침 정책)는 일반 클라이언트와 같고, 실제 쓰기는 링크의 writer가 담당한다.
+     */
+    final class RemotePeer extends Peer {
+        final int session;
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        RemotePeer(int session) {
+            super(server.config);
+            this.session = session;
+        }
+
+        @Override
+        void onOutboundReady() {
+            if (scheduled.compareAndSet(false, true))
+                writes.add(this);
+        }
+
+        @Override
+        void evict(String reason) {
+            System.out.println("[CLUSTER] Evicting " + nick + " (session " + session + " via " + remoteNode + "): "
+                    + reason);
+            if (remotes.remove(session, this)) {
+                writes.add(encode(CLOSE, session, new byte[0]));
+                server.onDisconnect(this);
+            }
+        }
+
+        @Override
+        void close() {
+            outbound.close();
+        }
+
+        @Override
+        SocketAddress getRemoteAddress() {
+            return socket.getRemoteSocketAddress();
+        }
+    }
+
+    // --- 입출력 ---
+
+    private void readLoop() {
+        try {
+            while (true) {
+                int len = in.readInt();
+                if (len < HEADER - 4 || len > WireCodec.MAX_FRAME_BYTES)
+                    throw new IOException("invalid link frame length: " + len);
+                byte op = in.readByte();
+                int session = in.readInt();
+                byte[] body = new byte[len - (HEADER - 4)];
+                in.readFully(body);
+                dispatch(op, session, body);
+            }
+        } catch (EOFException e) {
+            // 상대 노드가 연결을 닫음
+        } catch (IOException e) {
+            System.out.println("[CLUSTER] Link to " + remoteNode + " failed: " + e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    private void dispatch(byte op, int session, byte[] body) {
+        switch (op) {
+            case HELLO:
+                remoteNode = new String(body, StandardCharsets.UTF_8);
+                System.out.println("[CLUSTER] Link established with node " + remoteNode);
+                break;
+            case OPEN: {
+                RemotePeer r = new RemotePeer(session);
+                remotes.put(session, r);
+                server.onConnect(r);
+                server.onFrame(r, body);
+                break;
+            }
+            case DATA:
+                Peer local = locals.get(session);
+                if (local != null) {
+                    // 주인 노드가 보낸 메시지: 실제 클라이언트의 형식으로 전달
+                    Frame f = relayed(body);
+                    if (f != null)
+                        local.send(f);
+                } else {
+                    RemotePeer r = remotes.get(session);
+                    if (r != null)
+                        server.onFrame(r, body);
+                }
+                break;
+            case CLOSE: {
+                Peer l = locals.remove(session);
+                if (l != null) {
+                    l.evict("session closed by node " + remoteNode);
+                    break;
+                }
+                RemotePeer r = remotes.remove(session);
+                if (r != null)
+                    server.onDisconnect(r);
+                break;
+            }
+            default:
+                System.out.println("[CLUSTER] Unknown link op " + op + " from " + remoteNode);
+        }
+    }
+
+    // 주인 노드가 보낸 바이너리 프레임을 Frame으로 만든다.
+    // 방 순서 번호가 붙은 메시지는 [SEQ 프레임][메시지 프레임]이 이어져 오므로 같은 번호를 붙인 Frame으로 되살린다
+    private static Frame relayed(byte[] body) {
+        int len = WireCodec.readLength(body, 0);
+        Message m = WireCodec.decodeBinary(body, WireCodec.LENGTH_PREFIX, len);
+        if (m == null)
+            return null;
+        int rest = WireCodec.LENGTH_PREFIX + len;
+        if (m.type() != MessageType.SEQ || rest >= body.length)
+            return Frame.received(m, body, null);
+        byte[] frame = Arrays.copyOfRange(body, rest, body.length);
+        Message payload = WireCodec.decodeBinary(frame, WireCodec.LENGTH_PREFIX, frame.length - WireCodec.LENGTH_PREFIX);
+        return payload == null ? null : Frame.sequenced(Frame.received(payload, frame, null), m.num(0));
+    }
+
+    private void writeLoop() {
+        Frame[] polled = new Frame[WRITE_BATCH];
+        try {
+            while (!closed.get()) {
+                Object item = writes.poll();
+                if (item == null) {
+                    out.flush();
+                    item = writes.take();
+                }
+                if (item instanceof byte[]) {
+                    out.write((byte[]) item);
+                    continue;
+                }
+                RemotePeer r = (RemotePeer) item;
+                r.scheduled.set(false);
+                int n = r.outbound.poll(polled, 0, WRITE_BATCH);
+                for (int i = 0; i < n; i++) {
+                    byte[] bytes = polled[i].bytes(true);
+                    polled[i] = null;
+                    if (bytes == null)
+                        continue;
+                    out.writeInt(HEADER - 4 + bytes.length);
+                    out.writeByte(DATA);
+                    out.writeInt(r.session);
+                    out.write(bytes);
+                }
+                if (n == WRITE_BATCH)
+                    r.onOutboundReady(); // 남은 메시지는 다른 세션 다음 차례에
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("[CLUSTER] Write to " + remoteNode + " failed: " + e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    private static byte[] encode(byte op, int session, byte[] body) {
+        byte[] frame = new byte[HEADER + body.length];
+        int len = HEADER - 4 + body.length;
+        frame[0] = (byte) (len >>> 24);
+        frame[1] = (byte) (len >>> 16);
+        frame[2] = (byte) (len >>> 8);
+        frame[3] = (byte) len;
+        frame[4] = op;
+        frame[5] = (byte) (session >>> 24);
+        frame[6] = (byte) (session >>> 16);
+        frame[7] = (byte) (session >>> 8);
+        frame[8] = (byte) session;
+        System.arraycopy(body, 0, frame, HEADER, body.length);
+        return frame;
+    }
+
+    /**
+     * 링크를 닫는다. 중계 중이던 클라이언트는 연결을 끊고, 대리 클라이언트는 방에서 내보낸다.
+     */
+    void close() {
+        if (!closed.compareAndSet(false, true))
+            return;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+        writes.clear();
+        writes.add(new byte[0]); // 대기 중인 writer를 깨운다
+        System.out.println("[CLUSTER] Link to " + remoteNode + " closed (" + locals.size() + " relayed, "
+                + remotes.size() + " hosted sessions)");
+        List<Peer> relayed = new ArrayList<>(locals.values());
+        locals.clear();
+        for (Peer p : relayed)
+            p.evict("node " + remoteNode + " unreachable");
+        List<RemotePeer> hosted = new ArrayList<>(remotes.values());
+        remotes.clear();
+        for (RemotePeer r : hosted)
+            server.onDisconnect(r);
+        if (onClosed != null)
+            onClosed.run();
+    }
+}
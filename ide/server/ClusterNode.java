@@ -0,0 +1,275 @@
+package ide.server;
+
+import ide.net.Message;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 여러 서버 프로세스를 하나의 클러스터로 묶는 클래스.
+ *
+ * 모든 노드는 같은 노드 목록(--cluster)을 가지고 일관된 해싱 링(HashRing)으로 방마다 주인 노드를 정한다.
+ * 방의 인원, 컴파일 락, 공유 문서는 주인 노드에만 존재하므로 노드 사이에 락 상태를 맞출 필요가 없다.
+ * 다른 노드에 연결된 클라이언트는 그 노드가 링크(ClusterLink)를 통해 주인 노드로 중계한다.
+ * 노드 목록은 정적이며, 링크가 끊기면 그 링크로 중계되던 클라이언트의 연결을 끊어 재접속하게 한다.
+ * 링크는 별도 스레드에서 열고, 연결에 실패한 노드는 대기 시간(1초부터 두 배씩, 최대 30초) 동안 다시 시도하지 않는다.
+ */
+final class ClusterNode {
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+    private static final long RETRY_MIN_MS = 1000;
+    private static final long RETRY_MAX_MS = 30_000;
+    private static final int MAX_BACKLOG = 1024; // 링크가 열리기 전에 모아 둘 클라이언트 메시지 수
+
+    private final CollabServer server;
+    private final ServerConfig config;
+    private final HashRing ring;
+    final String selfId;
+    // 이 노드가 여는 링크 (중계용): 노드 ID -> 상태
+    private final Map<String, NodeLink> nodes = new HashMap<>();
+    // 링크 연결은 이벤트 루프나 클라이언트 스레드가 아닌 이 스레드들에서 한다
+    private final ExecutorService connector = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "cluster-connect");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * ClusterNode 생성자.
+     *
+     * @param server 메시지를 처리할 서버
+     * @param config 클러스터 노드 목록과 자신의 노드 ID를 담은 설정
+     */
+    ClusterNode(CollabServer server, ServerConfig config) {
+        this.server = server;
+        this.config = config;
+        this.selfId = config.nodeId;
+        this.ring = new HashRing(config.clusterNodes.keySet());
+    }
+
+    /**
+     * 다른 노드의 링크 연결을 받는 스레드를 시작한다.
+     *
+     * @throws IOException 링크 포트 바인딩 실패 시
+     */
+    void start() throws IOException {
+        int port = config.clusterNodes.get(selfId).getPort();
+        ServerSocket ss = new ServerSocket(port, 50, InetAddress.getByName("0.0.0.0"));
+        System.out.println("[CLUSTER] Node " + selfId + " listening for links on port " + port + " ("
+                + config.clusterNodes.size() + " nodes)");
+        Thread t = new Thread(() -> {
+            try (ss) {
+                while (true) {
+                    Socket s = ss.accept();
+                    new ClusterLink(server, s, selfId, null, null).start();
+                }
+            } catch (IOException e) {
+                System.out.println("[CLUSTER] Link acceptor stopped: " + e.getMessage());
+            }
+        }, "cluster-accept");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * 방의 주인 노드를 반환한다.
+     *
+     * @param room 방 이름
+     * @return 노드 ID
+     */
+    String ownerOf(String room) {
+        return ring.ownerOf(room);
+    }
+
+    /**
+     * 클라이언트를 다른 노드가 주인인 방으로 중계하는 경로를 만든다.
+     * 주인 노드와의 링크는 연결 스레드에서 열고, 이 메서드는 기다리지 않고 바로 돌아온다. (이벤트 루프를 막지 않는다)
+     * 링크가 열리면 JOIN을 보내고, 그동안 경로로 받은 메시지를 순서대로 이어 보낸다.
+     *
+     * @param node      방의 주인 노드 ID
+     * @param local     이 노드에 연결된 클라이언트
+     * @param join      주인 노드에 보낼 JOIN 메시지
+     * @param onOpen    세션이 열렸을 때 호출 (연결 스레드에서 호출될 수 있다)
+     * @param onFailure 주인 노드에 연결할 수 없을 때 호출 (경로가 이미 닫혔으면 호출하지 않는다)
+     * @return 중계 경로
+     */
+    Route open(String node, Peer local, Message join, Runnable onOpen, Consumer<IOException> onFailure) {
+        Route route = new Route(local, node);
+        link(node).whenComplete((link, error) -> {
+            IOException failure = null;
+            ClusterLink.Session session = null;
+            if (error != null) {
+                failure = error instanceof IOException ? (IOException) error : new IOException(error);
+            } else {
+                try {
+                    session = link.open(local, join);
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (session != null) {
+                if (route.attach(session))
+                    onOpen.run();
+                else
+                    session.close(); // 그사이 클라이언트가 다른 방으로 갔거나 연결이 끊겼다
+            } else if (route.fail()) {
+                onFailure.accept(failure);
+            }
+        });
+        return route;
+    }
+
+    // 노드로 가는 링크. 열려 있으면 그대로, 여는 중이면 그 결과를, 최근에 실패했으면 다시 시도할 때까지 실패를 돌려준다
+    private CompletableFuture<ClusterLink> link(String node) {
+        CompletableFuture<ClusterLink> connecting;
+        synchronized (this) {
+            NodeLink state = nodes.computeIfAbsent(node, k -> new NodeLink());
+            if (state.link != null && !state.link.isClosed())
+                return CompletableFuture.completedFuture(state.link);
+            if (state.connecting != null)
+                return state.connecting;
+            long wait = TimeUnit.NANOSECONDS.toMillis(state.retryAt - System.nanoTime());
+            if (wait > 0)
+                return CompletableFuture.failedFuture(new IOException(state.lastError + " (retrying in " + wait + " ms)"));
+            connecting = new CompletableFuture<>();
+            state.connecting = connecting;
+        }
+        connector.execute(() -> connect(node, connecting));
+        return connecting;
+    }
+
+    // 연결 스레드에서 링크를 연다. 모니터를 잡지 않고 연결하며, 결과만 잠깐 잡고 기록한다
+    private void connect(String node, CompletableFuture<ClusterLink> result) {
+        InetSocketAddress addr = config.clusterNodes.get(node);
+        Socket s = new Socket();
+        ClusterLink created;
+        try {
+            s.connect(new InetSocketAddress(addr.getHostString(), addr.getPort()), CONNECT_TIMEOUT_MS);
+            created = new ClusterLink(server, s, selfId, node, () -> forget(node));
+        } catch (IOException e) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+            }
+            long backoff;
+            synchronized (this) {
+                NodeLink state = nodes.get(node);
+                state.connecting = null;
+                state.backoffMs = Math.min(RETRY_MAX_MS, Math.max(RETRY_MIN_MS, state.backoffMs * 2));
+                state.retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(state.backoffMs);
+                state.lastError = "node " + node + " unreachable: " + e.getMessage();
+                backoff = state.backoffMs;
+            }
+            System.out.println("[CLUSTER] Cannot link to node " + node + ": " + e.getMessage() + ", next attempt in "
+                    + backoff + " ms");
+            result.completeExceptionally(e);
+            return;
+        }
+        synchronized (this) {
+            NodeLink state = nodes.get(node);
+            state.connecting = null;
+            state.link = created;
+            state.backoffMs = 0;
+            state.retryAt = 0;
+        }
+        created.start();
+        System.out.println("[CLUSTER] Opened link " + selfId + " -> " + node);
+        result.complete(created);
+    }
+
+    private synchronized void forget(String node) {
+        NodeLink state = nodes.get(node);
+        if (state != null && state.link != null && state.link.isClosed())
+            state.link = null;
+    }
+
+    // 노드 하나로 가는 링크의 상태. ClusterNode의 모니터로 보호된다
+    private static final class NodeLink {
+        ClusterLink link;                         // 열린 링크 (없으면 null)
+        CompletableFuture<ClusterLink> connecting; // 여는 중이면 그 결과
+        long retryAt;                             // 실패한 뒤 다시 시도할 수 있는 시각 (nanoTime)
+        long backoffMs;                           // 마지막 실패 후 기다린 시간 (실패할 때마다 두 배)
+        String lastError;
+    }
+
+    /**
+     * 다른 노드가 주인인 방으로 가는 클라이언트 하나의 중계 경로.
+     * 링크가 열리기 전에 받은 메시지는 모아 두었다가 세션이 열리면 순서대로 보낸다.
+     */
+    static final class Route {
+        private final Peer local;
+        private final String node;
+        private final List<Frame> backlog = new ArrayList<>();
+        private ClusterLink.Session session;
+        private boolean closed;
+
+        private Route(Peer local, String node) {
+            this.local = local;
+            this.node = node;
+        }
+
+        /**
+         * 클라이언트가 보낸 메시지를 주인 노드로 전달한다. 세션이 아직 열리지 않았으면 모아 둔다.
+         * 호출 스레드를 블로킹하지 않는다.
+         *
+         * @param frame 수신한 메시지
+         */
+        void forward(Frame frame) {
+            boolean overflow;
+            synchronized (this) {
+                if (session != null) {
+                    session.forward(frame);
+                    return;
+                }
+                if (closed)
+                    return;
+                overflow = backlog.size() >= MAX_BACKLOG;
+                if (!overflow)
+                    backlog.add(frame);
+            }
+            if (overflow)
+                local.evict("too many messages while linking to node " + node);
+        }
+
+        // 열린 세션을 붙이고 모아 둔 메시지를 보낸다. 이미 닫혔으면 false
+        private synchronized boolean attach(ClusterLink.Session s) {
+            if (closed)
+                return false;
+            for (Frame f : backlog)
+                s.forward(f);
+            backlog.clear();
+            session = s;
+            return true;
+        }
+
+        // 링크를 열지 못해 경로를 닫는다. 이미 닫혔으면 false
+        private synchronized boolean fail() {
+            if (closed)
+                return false;
+            closed = true;
+            backlog.clear();
+            return true;
+        }
+
+        /**
+         * 경로를 닫는다. 세션이 열려 있으면 주인 노드에서 해당 RemotePeer가 방에서 나간다.
+         */
+        synchronized void close() {
+            closed = true;
+            backlog.clear();
+            if (session != null)
+                session.close();
+        }
+    }
+}
@@ -4,23 +4,53 @@ import java.io.*;
 import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import ide.net.Message;
+import ide.net.MessageType;
 import ide.net.Protocol;
+import ide.net.WireCodec;
+import ide.net.WireReader;
 
 /**
  * 교수자 - 학생자 IDE의 서버 사이드 로직을 담당하는 메인 클래스.
  *
  * 다수의 클라이언트 연결을 관리하고, 메시지 브로드캐스팅, 역할 관리,
- * 컴파일 락(Lock) 관리 등의 핵심 기능을 수행한다.
- * 각 클라이언트는 별도의 스레드(Client 클래스)에서 처리된다.
+ * 컴파일 락(Lock) 관리, 공유 문서 보관(DocumentStore) 등의 핵심 기능을 수행한다.
+ * 클라이언트는 JOIN 때 방(Room)을 고르며, 브로드캐스트, 컴파일 락, 공유 문서는 방 단위로 분리된다.
+ * 클러스터로 실행하면(ClusterNode) 방마다 주인 노드가 정해지고, 다른 노드가 주인인 방에 들어온 클라이언트의
+ * 메시지는 주인 노드로 중계된다.
+ * 연결 처리 방식은 엔진으로 분리되어 있다. 기본 엔진은 각 클라이언트를 별도의 스레드(Client 클래스)에서
+ * 처리하고(가상 스레드 모드 선택 가능), NIO 엔진(NioServerEngine)은 소수의 이벤트 루프 스레드로
+ * 다수의 연결을 처리한다. 모든 엔진이 같은 메시지 처리 로직(onLine, onDisconnect)을 사용한다.
+ * JOIN에서 생존 확인을 협상한 연결이 한동안 아무것도 보내지 않으면 PING을 보내고, 끝내 응답이 없으면
+ * 죽은 연결로 보고 정리한다(HeartbeatWheel). PONG을 모르는 구버전 클라이언트는 정리하지 않는다.
  */
 public class CollabServer {
     private final int port;
-    private final Set<Client> clients = Collections.synchronizedSet(new HashSet<>());
+    final ServerConfig config;
+    // 연결된 모든 클라이언트 (JOIN 전 포함, 통계용). 브로드캐스트는 방의 인원 목록을 사용한다.
+    private final Set<Peer> clients = ConcurrentHashMap.newKeySet();
 
-    // 파일별 컴파일 락: absolutePath -> holder nickname
-    private final Map<String, String> compileLocks = Collections.synchronizedMap(new HashMap<>());
+    // 방 이름 -> 방 (인원, 컴파일 락, 공유 문서)
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    // 휘발성 메시지 빈도 제한 (--ephemeral-hz=0 이면 null)
+    private final EphemeralThrottle throttle;
+    // 클러스터 구성 (단독 실행이면 null)
+    private final ClusterNode cluster;
+    // 서버 컴파일 (--compilers=0 이면 null)
+    private final CompileService compiler;
+    // 방 상태의 선행 기록 (--journal을 주지 않으면 null)
+    private final SessionJournal journal;
+    // 연결 생존 확인 (--ping-sec=0 이면 null)
+    private final HeartbeatWheel heartbeat;
+    // 다른 노드가 주인인 방에 들어갈 때 주인 노드에 그대로 전달하는 JOIN 옵션 (방 이름은 따로 넣는다)
+    private static final String[] FORWARDED_OPTIONS = { Protocol.OPT_RESUME, Protocol.OPT_SYNC, Protocol.OPT_ROSTER };
 
     /**
      * CollabServer 생성자.
@@ -28,7 +58,74 @@ public class CollabServer {
      * @param port 서버가 리스닝할 포트 번호
      */
     public CollabServer(int port) {
-        this.port = port;
+        this(defaultConfig(port));
+    }
+
+    /**
+     * 실행 옵션을 지정하는 CollabServer 생성자.
+     *
+     * @param config 서버 설정 (포트, 송신 큐 정책 등)
+     */
+    public CollabServer(ServerConfig config) {
+        this.port = config.port;
+        this.config = config;
+        this.throttle = config.ephemeralRate > 0
+                ? new EphemeralThrottle(config.ephemeralRate, CollabServer::forwardFromSender)
+                : null;
+        this.cluster = config.clusterNodes.isEmpty() ? null : new ClusterNode(this, config);
+        this.compiler = config.compileThreads > 0 ? new CompileService(config,
+                config.runWorkers > 0 ? new RunService(config) : null) : null;
+        this.journal = config.journalDir == null ? null : openJournal(config);
+        if (config.replayDir != null)
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                for (Room room : rooms.values())
+                    if (room.replay != null)
+                        room.replay.close();
+                ReplayRecorder.flushAll();
+            }, "collab-replay-close"));
+        this.heartbeat = config.pingSec > 0 ? new HeartbeatWheel(config.pingSec, config.idleSec,
+                p -> p.send(Frame.of(Message.of(MessageType.PING, System.currentTimeMillis()))),
+                p -> p.evict("no heartbeat for " + config.idleSec + "s")) : null;
+        if (config.compileLeaseSec > 0)
+            startLeaseSweeper();
+        if (config.statsIntervalSec > 0)
+            new ServerStats(clients, config.statsIntervalSec,
+                    () -> throttle == null ? 0 : throttle.throttledCount()).start();
+    }
+
+    // 임대 기간이 지난 컴파일 락을 1초마다 풀고 방의 모든 인원에게 알린다
+    private void startLeaseSweeper() {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "collab-lease");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(() -> {
+            for (Room room : rooms.values()) {
+                for (CompileLockService.Released r : room.compileLocks.expire()) {
+                    System.out.println("[SERVER] Compile lock lease expired: " + r.path + " (" + r.holder + ")");
+                    room.broadcast(Frame.of(Protocol.COMPILE_RELEASE + Protocol.SEPARATOR + r.path
+                            + Protocol.SEPARATOR + r.holder), null);
+                }
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    // 저널을 열고 지난 세션의 방 상태를 되살린다. 복구한 방은 방 수 한도와 관계없이 만든다
+    private SessionJournal openJournal(ServerConfig config) {
+        try {
+            SessionJournal j = new SessionJournal(config, rooms::values);
+            j.recover(name -> rooms.computeIfAbsent(name, n -> new Room(n, config, j)), rooms::remove);
+            return j;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal " + config.journalDir, e);
+        }
+    }
+
+    private static ServerConfig defaultConfig(int port) {
+        ServerConfig cfg = new ServerConfig();
+        cfg.port = port;
+        return cfg;
     }
 
     /**
@@ -39,44 +136,614 @@ public class CollabServer {
      */
     public void start() throws IOException {
         System.out.println("[SERVER] Starting on port " + port);
+        startCluster();
+        acceptLoop(Thread.ofPlatform().name("collab-client-", 0));
+    }
+
+    /**
+     * 서버를 시작하되, 각 클라이언트를 가상 스레드(Virtual Thread)에서 처리한다.
+     * 블로킹 방식의 처리 로직은 그대로 두고 연결당 스레드 비용만 줄인다.
+     *
+     * @throws IOException 소켓 생성 또는 연결 수락 실패 시 발생
+     */
+    public void startVirtual() throws IOException {
+        System.out.println("[SERVER] Starting on port " + port + " (virtual threads)");
+        startCluster();
+        acceptLoop(Thread.ofVirtual().name("collab-vclient-", 0));
+    }
+
+    private void startCluster() throws IOException {
+        if (cluster != null)
+            cluster.start();
+    }
+
+    /**
+     * 연결을 수락하고, 주어진 스레드 빌더로 클라이언트 스레드를 만들어 실행한다.
+     */
+    private void acceptLoop(Thread.Builder threads) throws IOException {
         try (ServerSocket ss = new ServerSocket(port, 50, InetAddress.getByName("0.0.0.0"))) {
             while (true) {
                 Socket s = ss.accept();
                 System.out.println("[SERVER] Accepted connection from: " + s.getRemoteSocketAddress());
-                Client c = new Client(s);
-                clients.add(c);
-                c.start();
+                Client c = new Client(s, threads);
+                onConnect(c);
+                threads.start(c);
                 System.out.println("[SERVER] Client thread started");
             }
         }
     }
 
     /**
-     * 특정 클라이언트를 제외한 모든 클라이언트에게 메시지를 전송한다.
+     * NIO 엔진으로 서버를 시작한다.
+     * 고정된 개수의 이벤트 루프 스레드가 모든 연결의 입출력을 처리한다.
+     *
+     * @param eventLoops 이벤트 루프 스레드 개수
+     * @throws IOException 채널 생성 또는 바인딩 실패 시 발생
+     */
+    public void startNio(int eventLoops) throws IOException {
+        System.out.println("[SERVER] Starting NIO engine on port " + port + " with " + eventLoops + " event loops");
+        startCluster();
+        new NioServerEngine(this, port, eventLoops).run();
+    }
+
+    /**
+     * 새로 연결된 클라이언트를 등록한다. (엔진에서 호출) 생존 확인은 JOIN에서 협상한 뒤에 시작한다.
+     *
+     * @param p 연결된 클라이언트
+     */
+    void onConnect(Peer p) {
+        clients.add(p);
+    }
+
+    /**
+     * JOIN에 생존 확인 옵션(hb)이 있으면 확인을 시작한다. 같은 연결의 두 번째 JOIN이면 이미 확인 중이다.
+     * 다른 노드에서 중계된 대리 클라이언트는 그 노드가 실제 연결을 확인하므로 제외한다.
+     */
+    private void watchIfNegotiated(Peer p, Map<String, String> options) {
+        if (heartbeat == null || p.heartbeats || p instanceof ClusterLink.RemotePeer
+                || Protocol.safeInt(options.get(Protocol.OPT_HEARTBEAT)) < 1)
+            return;
+        p.heartbeats = true;
+        heartbeat.watch(p);
+    }
+
+    /**
+     * 클라이언트로부터 수신한 메시지 한 줄을 처리한다. (엔진에서 호출)
+     *
+     * @param p    메시지를 보낸 클라이언트
+     * @param line 수신된 메시지 문자열
+     */
+    void onLine(Peer p, String line) {
+        if (config.verbose)
+            System.out.println("[SERVER Client] Received: " + line);
+        Message m = WireCodec.decodeText(line);
+        if (m != null)
+            onMessage(p, m, Frame.received(m, line, p));
+    }
+
+    /**
+     * 클라이언트로부터 수신한 바이너리 프레임을 처리한다. (엔진에서 호출)
+     *
+     * @param p     메시지를 보낸 클라이언트
+     * @param frame 길이 접두사를 포함한 프레임
+     */
+    void onFrame(Peer p, byte[] frame) {
+        Message m = WireCodec.decodeBinary(frame, WireCodec.LENGTH_PREFIX, frame.length - WireCodec.LENGTH_PREFIX);
+        if (m == null) {
+            System.out.println("[SERVER Client] Malformed binary frame from " + p.nick);
+            return;
+        }
+        if (config.verbose)
+            System.out.println("[SERVER Client] Received: " + m.type() + " (binary)");
+        onMessage(p, m, Frame.received(m, frame, p));
+    }
+
+    /**
+     * 디코딩된 메시지를 종류에 따라 처리한다.
+     * JOIN 이외의 메시지는 보낸 클라이언트가 들어가 있는 방 안에서만 처리된다.
+     *
+     * @param p     메시지를 보낸 클라이언트
+     * @param m     메시지
+     * @param frame 원본 메시지 (그대로 중계할 때 다시 인코딩하지 않기 위함)
+     */
+    private void onMessage(Peer p, Message m, Frame frame) {
+        p.lastHeard = System.nanoTime();
+        // 연결 확인은 클라이언트와 직접 연결된 이 노드에서 응답한다 (중계하지 않음)
+        if (m.type() == MessageType.PING) {
+            if (m.size() == 1)
+                p.send(Frame.of(Message.of(MessageType.PONG, m.num(0))));
+            return;
+        }
+        if (m.type() == MessageType.PONG)
+            return;
+        ClusterNode.Route proxy = p.proxy;
+        if (proxy != null && m.type() != MessageType.JOIN) {
+            proxy.forward(frame); // 다른 노드가 주인인 방: 그대로 중계
+            return;
+        }
+        if (m.type() == MessageType.JOIN) {
+            System.out.println("[SERVER Client] Detected JOIN message");
+            handleJoin(p, m);
+            return;
+        }
+        Room room = p.room;
+        if (room == null) {
+            System.out.println("[SERVER Client] Ignoring " + m.type() + " before JOIN from " + p.getRemoteAddress());
+            return;
+        }
+        switch (m.type()) {
+            case EDIT_OP:
+                handleEditOp(room, p, m, frame);
+                break;
+            case EDIT:
+                handleEdit(room, p, m, frame);
+                break;
+            case EDIT_SYNC_REQ:
+                handleSyncRequest(room, p, m);
+                break;
+            case FILE_DELETE:
+                handleFileDelete(room, p, m, frame);
+                break;
+            case FILE_RENAME:
+                handleFileRename(room, p, m, frame);
+                break;
+            // 휘발성 메시지: 보낸 사람별 빈도 제한 후 브로드캐스트
+            case CURSOR:
+            case VIEWPORT:
+            case LASER:
+                if (room.replay != null && "Professor".equals(p.role))
+                    recordPointer(room.replay, m);
+                if (throttle != null)
+                    throttle.offer(frame);
+                else
+                    room.broadcast(frame, p);
+                break;
+            // 단순 브로드캐스트 (편집/삭제/이름 변경은 문서 저장소를 갱신하므로 따로 처리한다)
+            case COMPILE_START:
+            case COMPILE_OUT:
+            case COMPILE_END:
+            case FILE_CREATE:
+                room.broadcast(frame, p);
+                break;
+            case COMPILE_REQ:
+                handleCompileReq(room, p, m);
+                break;
+            case COMPILE_RELEASE:
+                handleCompileRelease(room, p, m);
+                break;
+            case COMPILE_RUN:
+                handleCompileRun(room, p, m);
+                break;
+            case QUESTION:
+                System.out.println("[SERVER Client] Received QUESTION from " + p.nick);
+                handleQuestion(room, m, frame);
+                break;
+            case ACK:
+                if (m.size() == 1)
+                    room.acknowledge(p, m.num(0));
+                break;
+            case ROSTER:
+                room.sendRoster(p);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // 교수자의 커서/뷰포트/레이저를 강의 기록에 남긴다
+    private static void recordPointer(ReplayRecorder replay, Message m) {
+        switch (m.type()) {
+            case CURSOR:
+                if (m.size() == 4)
+                    replay.cursor(m.str(0), m.str(1), m.integer(2), m.integer(3));
+                break;
+            case VIEWPORT:
+                if (m.size() == 2)
+                    replay.viewport(m.str(0), m.integer(1));
+                break;
+            case LASER:
+                if (m.size() == 3)
+                    replay.laser(m.str(0), m.integer(1), m.integer(2));
+                break;
+            default:
+                break;
+        }
+    }
+
+    // 빈도 제한으로 잡아 두었던 휘발성 메시지를 보낸 사람의 방에 중계한다
+    private static void forwardFromSender(Frame frame) {
+        Peer sender = frame.conflationKey.sender;
+        Room room = sender.room;
+        if (room != null)
+            room.broadcast(frame, sender);
+    }
+
+    /**
+     * 이름에 해당하는 방에 클라이언트를 넣는다. 방이 없으면 만든다.
+     * 방 수가 한도(--rooms)에 이르면 비어 있는 방을 하나 정리한 뒤 만들고, 빈 방이 없으면 null을 반환한다.
+     * 빈 방 정리와 입장이 엇갈리지 않도록 같은 락 안에서 인원을 추가한다.
+     * 재접속 정보가 방의 메시지 흐름과 맞으면 놓친 메시지만 보내고 p.resumed를 true로 둔다.
      *
-     * @param line   전송할 메시지 문자열
-     * @param except 전송에서 제외할 클라이언트 (본인에게 다시 보내지 않기 위함)
+     * @param name        방 이름
+     * @param p           입장할 클라이언트
+     * @param resumeEpoch 재접속할 흐름 식별자 (없으면 0)
+     * @param resumeSeq   마지막으로 받은 순서 번호
+     * @return 방, 더 만들 수 없으면 null
+     */
+    private Room joinRoom(String name, Peer p, long resumeEpoch, long resumeSeq) {
+        synchronized (rooms) {
+            Room room = rooms.get(name);
+            if (room != null) {
+                p.resumed = room.join(p, resumeEpoch, resumeSeq);
+                return room;
+            }
+            if (rooms.size() >= config.maxRooms) {
+                Room empty = null;
+                for (Room r : rooms.values())
+                    if (r.members.isEmpty())
+                        empty = r;
+                if (empty == null)
+                    return null;
+                dropRoom(empty);
+                System.out.println("[SERVER] Room limit reached, dropped empty room: " + empty.name);
+            }
+            room = new Room(name, config, journal);
+            rooms.put(name, room);
+            p.resumed = room.join(p, 0, 0);
+            System.out.println("[SERVER] Room created: " + name);
+            return room;
+        }
+    }
+
+    // 방을 목록에서 뺀다. 저널에도 기록하여 복구 때 되살아나지 않게 하고, 강의 기록 파일을 닫는다
+    private void dropRoom(Room room) {
+        if (journal == null) {
+            rooms.remove(room.name);
+        } else {
+            journal.enter();
+            try {
+                rooms.remove(room.name);
+                journal.roomDropped(room.name);
+            } finally {
+                journal.exit();
+            }
+        }
+        if (room.replay != null)
+            room.replay.close();
+    }
+
+    /**
+     * 입장 메시지(JOIN)를 처리한다.
+     * 닉네임과 역할을 설정하고, 선택한 방(room 옵션)에 넣는다. 참여자 명단과 입장 알림은 방이 보낸다.
+     * 클라이언트가 바이너리 프로토콜을 지원하면(bin 옵션) 승인 메시지(PROTO)를 먼저 보내고 전환한다.
+     */
+    private void handleJoin(Peer p, Message m) {
+        if (m.size() >= 1) {
+            Map<String, String> options = Protocol.parseOptions(m.str(2));
+            String roomName = options.getOrDefault(Protocol.OPT_ROOM, Protocol.DEFAULT_ROOM);
+            if (!Protocol.isValidRoom(roomName))
+                roomName = Protocol.DEFAULT_ROOM;
+            watchIfNegotiated(p, options);
+            if (p.room != null)
+                leaveRoom(p);
+            if (p.proxy != null) {
+                p.proxy.close();
+                p.proxy = null;
+            }
+            // 대리 클라이언트(RemotePeer)는 이미 주인 노드에 도착한 것이므로 다시 중계하지 않는다
+            if (cluster != null && !(p instanceof ClusterLink.RemotePeer)) {
+                String owner = cluster.ownerOf(roomName);
+                if (!owner.equals(cluster.selfId)) {
+                    joinRemote(p, m, options, roomName, owner);
+                    return;
+                }
+            }
+            p.nick = m.str(0);
+            if (m.size() >= 2) {
+                p.role = m.str(1);
+            }
+            // 전환 승인은 방의 메시지(RESUME, 놓친 메시지)보다 먼저 큐에 들어가야 한다
+            if (Protocol.safeInt(options.get(Protocol.OPT_BINARY)) >= Protocol.BINARY_VERSION) {
+                p.send(Frame.switchToBinary(Protocol.PROTO + Protocol.SEPARATOR + Protocol.MODE_BINARY
+                        + Protocol.SEPARATOR + Protocol.BINARY_VERSION));
+                p.binary = true;
+            }
+            p.versionedSync = Protocol.safeInt(options.get(Protocol.OPT_SYNC)) >= 1;
+            p.rosterUpdates = Protocol.safeInt(options.get(Protocol.OPT_ROSTER)) >= 1;
+            long[] resume = parseResume(options.get(Protocol.OPT_RESUME));
+            Room room = joinRoom(roomName, p, resume[0], resume[1]);
+            if (room == null) {
+                p.send(Protocol.INFO + Protocol.SEPARATOR + "Server is full: too many rooms");
+                p.evict("room limit reached");
+                return;
+            }
+
+            p.send(Protocol.INFO + Protocol.SEPARATOR + "Welcome " + p.nick);
+            System.out.println("[SERVER] Client connected: " + p.nick + " (" + p.role + ") from "
+                    + p.getRemoteAddress() + " room=" + room.name + (p.binary ? " [binary]" : "")
+                    + (p.resumed ? " [resumed]" : ""));
+
+            // 참여자 명단(ROSTER 또는 구버전용 ROLE_INFO)과 입장 알림은 방에 넣을 때(Room.join) 보냈다
+            p.room = room;
+
+            // 현재 열려 있는 문서들의 최신 내용을 새 접속자에게 전송 (재접속이면 놓친 메시지로 충분하다)
+            if (!p.resumed) {
+                List<Frame> snapshots = room.documents.snapshots(p.versionedSync);
+                System.out.println("[SERVER] Sending " + snapshots.size() + " document snapshots to " + p.nick);
+                for (Frame f : snapshots)
+                    p.send(f);
+            }
+
+            // 교수자가 없는 동안 받은 질문을 전달
+            if ("Professor".equals(p.role))
+                deliverQuestions(room);
+        }
+    }
+
+    // JOIN의 재접속 옵션("흐름:번호")을 {흐름, 번호}로 바꾼다. 없거나 잘못되었으면 {0, 0}
+    private static long[] parseResume(String value) {
+        int colon = value == null ? -1 : value.indexOf(':');
+        if (colon < 0)
+            return new long[2];
+        return new long[] { Protocol.safeLong(value.substring(0, colon)), Protocol.safeLong(value.substring(colon + 1)) };
+    }
+
+    /**
+     * 다른 노드가 주인인 방으로 클라이언트를 중계한다.
+     * 프로토콜 협상(PROTO)은 클라이언트와 연결된 이 노드에서 하고, 주인 노드에는 방 옵션만 담은 JOIN을 보낸다.
+     * 환영 메시지, 접속자 목록, 문서 스냅샷은 주인 노드가 보낸다.
      */
-    private void broadcast(String line, Client except) {
-        synchronized (clients) {
-            for (Client c : clients)
-                if (c != except)
-                    c.send(line);
+    private void joinRemote(Peer p, Message m, Map<String, String> options, String roomName, String owner) {
+        p.nick = m.str(0);
+        if (m.size() >= 2)
+            p.role = m.str(1);
+        // 주인 노드의 응답보다 전환 승인이 먼저 큐에 들어가야 한다
+        if (Protocol.safeInt(options.get(Protocol.OPT_BINARY)) >= Protocol.BINARY_VERSION) {
+            p.send(Frame.switchToBinary(Protocol.PROTO + Protocol.SEPARATOR + Protocol.MODE_BINARY
+                    + Protocol.SEPARATOR + Protocol.BINARY_VERSION));
+            p.binary = true;
         }
+        String joinOptions = Protocol.OPT_ROOM + "=" + roomName;
+        for (String key : FORWARDED_OPTIONS)
+            if (options.containsKey(key))
+                joinOptions += "," + key + "=" + options.get(key);
+        Message join = Message.of(MessageType.JOIN, p.nick, p.role, joinOptions);
+        // 링크는 연결 스레드에서 열린다: 그동안 받은 메시지는 경로에 모였다가 JOIN 뒤에 전달된다
+        p.proxy = cluster.open(owner, p, join,
+                () -> System.out.println("[SERVER] Client connected: " + p.nick + " (" + p.role + ") from "
+                        + p.getRemoteAddress() + " room=" + roomName + " via node " + owner + (p.binary ? " [binary]" : "")),
+                e -> {
+                    System.out.println("[CLUSTER] Cannot reach node " + owner + " for room " + roomName + ": "
+                            + e.getMessage());
+                    p.send(Protocol.INFO + Protocol.SEPARATOR + "Room server unavailable: " + roomName);
+                    p.evict("owner node " + owner + " unreachable");
+                });
     }
 
     /**
-     * 개별 클라이언트와의 통신을 담당하는 내부 스레드 클래스.
+     * 문서 전체 스냅샷(EDIT)을 처리한다.
+     * 저장소의 내용을 교체하고, 버전이 붙은 스냅샷(EDIT_SYNC)을 다른 클라이언트들에게 브로드캐스트한다.
+     * 버전 동기화를 협상하지 않은 구버전 클라이언트에게는 받은 EDIT를 그대로 중계한다.
+     * 보낸 쪽에는 새 버전 번호(EDIT_ACK)만 알려준다.
      */
-    private class Client extends Thread {
+    private void handleEdit(Room room, Peer p, Message m, Frame frame) {
+        if (m.size() != 2)
+            return;
+        String path = m.str(0);
+        room.sequenced(() -> {
+            long version = room.documents.putSnapshot(path, m.str(1));
+            p.send(Protocol.EDIT_ACK + Protocol.SEPARATOR + path + Protocol.SEPARATOR + version);
+            room.broadcast(room.documents.syncFrame(path), frame, c -> c.versionedSync, p);
+        });
+    }
+
+    /**
+     * 증분 편집(EDIT_OP)을 처리한다.
+     * 보낸 쪽의 기준 버전이 서버와 같으면 연산을 그대로 다른 클라이언트들에게 전달하고,
+     * 다르면 문서를 건드리지 않고 보낸 쪽에만 전체 스냅샷을 보내 서버 버전에서 다시 시작하게 한다.
+     * 연산을 모르는 구버전 클라이언트에게는 적용 후의 문서 전체(EDIT)를 보낸다.
+     * 적용, 확인(EDIT_ACK), 중계를 방의 순서 락 안에서 한 번에 하므로, 같은 문서에 동시에 온 연산도
+     * 적용된 순서대로 전달되어 받는 쪽에서 기준 버전이 어긋나지 않는다.
+     */
+    private void handleEditOp(Room room, Peer p, Message m, Frame frame) {
+        if (m.size() != 5)
+            return;
+        String path = m.str(0);
+        room.sequenced(() -> {
+            DocumentStore.OpResult r = room.documents.applyOp(path, m.num(1), m.integer(2), m.integer(3), m.str(4));
+            if (r == null) {
+                // 서버가 모르는 문서(미공유 또는 제거됨): 편집자에게 전체 내용을 요청한다
+                p.send(Protocol.EDIT_SYNC_REQ + Protocol.SEPARATOR + path);
+            } else if (r.mismatch) {
+                System.out.println("[SERVER] Version mismatch on " + path + " from " + p.nick + ", resyncing sender");
+                Frame sync = room.documents.syncFrame(path);
+                if (sync != null)
+                    p.send(sync);
+            } else {
+                p.send(Protocol.EDIT_ACK + Protocol.SEPARATOR + path + Protocol.SEPARATOR + r.version);
+                Frame legacy = room.anyMember(c -> !c.versionedSync) ? room.documents.editFrame(path) : null;
+                room.broadcast(frame, legacy, c -> c.versionedSync, p);
+            }
+        });
+    }
+
+    /**
+     * 전체 스냅샷 요청(EDIT_SYNC_REQ)에 응답한다.
+     */
+    private void handleSyncRequest(Room room, Peer p, Message m) {
+        if (m.size() != 1)
+            return;
+        Frame sync = room.documents.syncFrame(m.str(0));
+        if (sync != null)
+            p.send(sync);
+    }
+
+    /**
+     * 파일 삭제(FILE_DELETE)를 처리한다. 저장소에서 문서를 제거하고 브로드캐스트한다.
+     */
+    private void handleFileDelete(Room room, Peer p, Message m, Frame frame) {
+        if (m.size() >= 1)
+            room.documents.remove(m.str(0));
+        room.broadcast(frame, p);
+    }
+
+    /**
+     * 파일 이름 변경(FILE_RENAME)을 처리한다. 저장소의 문서 경로를 바꾸고 브로드캐스트한다.
+     */
+    private void handleFileRename(Room room, Peer p, Message m, Frame frame) {
+        if (m.size() >= 2)
+            room.documents.rename(m.str(0), m.str(1));
+        room.broadcast(frame, p);
+    }
+
+    /**
+     * 컴파일 권한 요청(COMPILE_REQ)을 처리한다.
+     * 다른 사람이 락을 가지고 있으면 거부하고, 비어 있거나 임대 기간이 지났으면 승인한다.
+     */
+    private void handleCompileReq(Room room, Peer p, Message m) {
+        if (m.size() == 2) {
+            String fpath = m.str(0);
+            String reqNick = m.str(1);
+            String holder = room.compileLocks.acquire(fpath, reqNick);
+            if (holder == null) {
+                String granted = Protocol.COMPILE_GRANTED + Protocol.SEPARATOR + fpath + Protocol.SEPARATOR + reqNick;
+                p.send(granted);
+                room.broadcast(Frame.of(granted), p);
+            } else {
+                p.send(Protocol.COMPILE_DENIED + Protocol.SEPARATOR + fpath + Protocol.SEPARATOR
+                        + holder);
+            }
+        }
+    }
+
+    /**
+     * 컴파일 권한 반납(COMPILE_RELEASE)을 처리한다.
+     * 요청자가 현재 락 소유자인 경우에만 해제한다.
+     */
+    private void handleCompileRelease(Room room, Peer p, Message m) {
+        if (m.size() == 2) {
+            String fpath = m.str(0);
+            String reqNick = m.str(1);
+            if (room.compileLocks.release(fpath, reqNick)) {
+                room.broadcast(Frame.of(Protocol.COMPILE_RELEASE + Protocol.SEPARATOR + fpath
+                        + Protocol.SEPARATOR + reqNick), p);
+            }
+        }
+    }
+
+    /**
+     * 서버 컴파일 요청(COMPILE_RUN)을 처리한다. 결과는 CompileService가 비동기로 보낸다.
+     * 두 번째 필드가 1이면 컴파일에 성공한 뒤 작업자 JVM에서 실행한다.
+     */
+    private void handleCompileRun(Room room, Peer p, Message m) {
+        if (m.size() != 1 && m.size() != 2)
+            return;
+        if (compiler == null) {
+            p.send(OutputBatcher.line(m.str(0), "이 서버는 서버 컴파일을 지원하지 않습니다."));
+            p.send(Frame.of(Message.of(MessageType.COMPILE_END, m.str(0), CompileService.EXIT_UNAVAILABLE)));
+            return;
+        }
+        compiler.submit(room, p, m.str(0), m.size() == 2 && m.num(1) != 0);
+    }
+
+    /**
+     * 학생의 질문을 같은 방의 교수자에게 전달한다.
+     * 방에 교수자가 없으면 보관했다가 교수자가 들어올 때 전달한다.
+     */
+    private void handleQuestion(Room room, Message m, Frame frame) {
+        System.out.println("[SERVER] Routing question to professors: " + frame.line());
+        boolean sent = false;
+        for (Peer c : room.members) {
+            // Professor role인 클라이언트에게만 전송
+            if ("Professor".equals(c.role)) {
+                c.send(frame);
+                sent = true;
+                System.out.println("[SERVER] Question sent to: " + c.nick);
+            }
+        }
+        if (!sent && m.size() >= 2) {
+            room.queueQuestion(m.str(0), m.str(1));
+            System.out.println("[SERVER] No professor in room " + room.name + ", question queued");
+            // 확인과 보관 사이에 교수자가 들어왔을 수 있다
+            deliverQuestions(room);
+        }
+    }
+
+    // 보관한 질문을 방에 있는 교수자들에게 보낸다 (교수자가 없으면 그대로 둔다)
+    private static void deliverQuestions(Room room) {
+        List<Peer> professors = new ArrayList<>();
+        for (Peer c : room.members)
+            if ("Professor".equals(c.role))
+                professors.add(c);
+        if (professors.isEmpty())
+            return;
+        List<String[]> questions = room.takeQuestions();
+        if (questions.isEmpty())
+            return;
+        for (String[] q : questions) {
+            Frame f = Frame.of(Message.of(MessageType.QUESTION, q[0], q[1]));
+            for (Peer c : professors)
+                c.send(f);
+        }
+        System.out.println("[SERVER] Delivered " + questions.size() + " queued question(s) in room " + room.name);
+    }
+
+    /**
+     * 클라이언트를 방에서 내보낸다.
+     * 그 닉네임이 방을 떠났으면(퇴장 알림은 Room.leave가 보낸다) 획득했던 컴파일 락을 모두 해제하고 같은 방의 클라이언트들에게 알린다.
+     * 같은 닉네임으로 다시 들어온 연결이 이미 방에 있으면 락은 그 연결의 것이므로 그대로 둔다.
+     */
+    private void leaveRoom(Peer p) {
+        Room room = p.room;
+        if (room == null)
+            return;
+        boolean left = room.leave(p);
+        p.room = null;
+        if (compiler != null)
+            compiler.cancel(p);
+        if (p.nick == null || !left)
+            return;
+        for (String f : room.compileLocks.releaseAll(p.nick))
+            room.broadcast(Frame.of(Protocol.COMPILE_RELEASE + Protocol.SEPARATOR + f + Protocol.SEPARATOR + p.nick), p);
+    }
+
+    /**
+     * 클라이언트 연결 종료 시 리소스를 정리한다. (엔진에서 호출)
+     * 방에서 내보내고(컴파일 락 해제, 퇴장 알림) 목록에서 제거한다.
+     *
+     * @param p 연결이 종료된 클라이언트
+     */
+    void onDisconnect(Peer p) {
+        p.disconnected = true;
+        ClusterNode.Route proxy = p.proxy;
+        if (proxy != null) {
+            proxy.close();
+            p.proxy = null;
+        }
+        leaveRoom(p);
+        clients.remove(p);
+        if (throttle != null)
+            throttle.forget(p);
+        System.out.println("[SERVER] Client disconnected: " + p.nick + " from " + p.getRemoteAddress());
+        p.close();
+    }
+
+    /**
+     * 개별 클라이언트와의 통신을 담당하는 내부 클래스.
+     * 플랫폼 스레드 또는 가상 스레드에서 실행되며, 수신 스레드와 별도로 송신 큐를 비우는 writer 스레드를 가진다.
+     */
+    private class Client extends Peer implements Runnable {
+        private static final int WRITE_BATCH = 256;
+
         private final Socket socket;
-        private BufferedReader in;
-        private BufferedWriter out;
-        private String nick = "?";
-        private String role = "Student";
+        private final Thread.Builder threads;
+        private OutputStream out;
+        private boolean binaryOut = false; // writer 스레드 전용: 지금까지 쓴 Frame 중 전환 승인이 있었는지
 
-        Client(Socket socket) {
+        Client(Socket socket, Thread.Builder threads) {
+            super(config);
             this.socket = socket;
+            this.threads = threads;
         }
 
         @Override
@@ -84,30 +751,24 @@ public class CollabServer {
             System.out.println("[SERVER Client] Thread started for " + socket.getRemoteSocketAddress());
             try (
                     InputStream is = socket.getInputStream();
-                    InputStreamReader isr = new InputStreamReader(is, StandardCharsets.UTF_8);
-                    BufferedReader br = new BufferedReader(isr);
-                    OutputStream os = socket.getOutputStream();
-                    OutputStreamWriter osw = new OutputStreamWriter(os, StandardCharsets.UTF_8);
-                    BufferedWriter bw = new BufferedWriter(osw)) {
-                in = br;
-                out = bw;
+                    OutputStream os = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024)) {
+                WireReader in = new WireReader(is, 64 * 1024);
+                out = os;
+                threads.start(this::writeLoop);
 
                 System.out.println("[SERVER Client] Waiting for messages...");
-                String line;
-                while ((line = in.readLine()) != null) {
-                    System.out.println("[SERVER Client] Received: " + line);
-                    if (line.startsWith(Protocol.JOIN + Protocol.SEPARATOR)) {
-                        System.out.println("[SERVER Client] Detected JOIN message");
-                        handleJoin(line);
-                    } else if (isBroadcastMessage(line)) {
-                        broadcast(line, this);
-                    } else if (line.startsWith(Protocol.COMPILE_REQ + Protocol.SEPARATOR)) {
-                        handleCompileReq(line);
-                    } else if (line.startsWith(Protocol.COMPILE_RELEASE + Protocol.SEPARATOR)) {
-                        handleCompileRelease(line);
-                    } else if (line.startsWith(Protocol.QUESTION + Protocol.SEPARATOR)) {
-                        System.out.println("[SERVER Client] Received QUESTION from " + nick);
-                        handleQuestion(line);
+                // JOIN에서 바이너리로 전환되면 같은 버퍼에서 이어서 프레임 단위로 읽는다
+                while (true) {
+                    if (binary) {
+                        byte[] frame = in.readFrame();
+                        if (frame == null)
+                            break;
+                        onFrame(this, frame);
+                    } else {
+                        String line = in.readLine();
+                        if (line == null)
+                            break;
+                        onLine(this, line);
                     }
                 }
                 System.out.println("[SERVER Client] readLine() returned null, connection closed");
@@ -116,165 +777,86 @@ public class CollabServer {
                 e.printStackTrace();
             } finally {
                 System.out.println("[SERVER Client] Cleanup for " + nick);
-                cleanup();
+                onDisconnect(this);
             }
         }
 
         /**
-         * 입장 메시지(JOIN)를 처리한다.
-         * 닉네임과 역할을 설정하고, 다른 클라이언트들에게 알린다.
+         * 송신 큐에 쌓인 메시지를 모아서 쓰고, 한 번에 flush한다.
+         * 메시지는 이미 인코딩되어 있으므로 바이트를 그대로 복사만 한다.
+         * 큐가 닫히거나 쓰기 오류가 나면 종료한다.
          */
-        private void handleJoin(String line) {
-            String[] parts = line.split(Protocol.DELIMITER, 3);
-            if (parts.length >= 2) {
-                nick = parts[1];
-                if (parts.length == 3) {
-                    role = parts[2];
-                }
-                send(Protocol.INFO + Protocol.SEPARATOR + "Welcome " + nick);
-                System.out.println("[SERVER] Client connected: " + nick + " (" + role + ") from "
-                        + socket.getRemoteSocketAddress());
-
-                // 새 접속자의 정보를 모두에게 알림
-                String newUserRoleInfo = Protocol.ROLE_INFO + Protocol.SEPARATOR + nick + Protocol.SEPARATOR + role;
-                System.out.println("[SERVER] Broadcasting new user ROLE_INFO: " + newUserRoleInfo);
-                broadcast(newUserRoleInfo, null);
-
-                // 기존 접속자들의 정보를 새 접속자에게 전송
-                synchronized (clients) {
-                    for (Client c : clients) {
-                        if (c != this) {
-                            String existingRoleInfo = Protocol.ROLE_INFO + Protocol.SEPARATOR + c.nick
-                                    + Protocol.SEPARATOR + c.role;
-                            System.out.println("[SERVER] Sending existing user to " + nick + ": " + existingRoleInfo);
-                            send(existingRoleInfo);
-                        }
+        private void writeLoop() {
+            List<Frame> batch = new ArrayList<>();
+            try {
+                while (outbound.drainTo(batch, WRITE_BATCH) >= 0) {
+                    for (Frame f : batch) {
+                        byte[] bytes = f.bytes(binaryOut);
+                        if (bytes != null)
+                            out.write(bytes);
+                        if (f.switchesToBinary)
+                            binaryOut = true;
                     }
+                    out.flush();
+                    batch.clear();
                 }
+            } catch (IOException e) {
+                close();
             }
         }
 
-        /**
-         * 단순 브로드캐스트가 필요한 메시지인지 확인한다.
-         * (편집, 커서, 파일 시스템 이벤트 등)
-         */
-        private boolean isBroadcastMessage(String line) {
-            return line.startsWith(Protocol.EDIT + Protocol.SEPARATOR)
-                    || line.startsWith(Protocol.CURSOR + Protocol.SEPARATOR)
-                    || line.startsWith(Protocol.COMPILE_START + Protocol.SEPARATOR)
-                    || line.startsWith(Protocol.COMPILE_OUT + Protocol.SEPARATOR)
-                    || line.startsWith(Protocol.COMPILE_END + Protocol.SEPARATOR)
-                    || line.startsWith(Protocol.FILE_CREATE + Protocol.SEPARATOR)
-                    || line.startsWith(Protocol.FILE_DELETE + Protocol.SEPARATOR)
-                    || line.startsWith(Protocol.FILE_RENAME + Protocol.SEPARATOR)
-                    || line.startsWith(Protocol.VIEWPORT + Protocol.SEPARATOR)
-                    || line.startsWith(Protocol.LASER + Protocol.SEPARATOR);
-        }
-
-        /**
-         * 컴파일 권한 요청(COMPILE_REQ)을 처리한다.
-         * 이미 락이 걸려있으면 거부하고, 없으면 승인한다.
-         */
-        private void handleCompileReq(String line) {
-            String[] p = line.split(Protocol.DELIMITER, 3);
-            if (p.length == 3) {
-                String fpath = p[1];
-                String reqNick = p[2];
-                String holder = compileLocks.get(fpath);
-                if (holder == null) {
-                    compileLocks.put(fpath, reqNick);
-                    send(Protocol.COMPILE_GRANTED + Protocol.SEPARATOR + fpath + Protocol.SEPARATOR
-                            + reqNick);
-                    broadcast(Protocol.COMPILE_GRANTED + Protocol.SEPARATOR + fpath + Protocol.SEPARATOR
-                            + reqNick, this);
-                } else {
-                    send(Protocol.COMPILE_DENIED + Protocol.SEPARATOR + fpath + Protocol.SEPARATOR
-                            + holder);
-                }
-            }
-        }
-
-        /**
-         * 컴파일 권한 반납(COMPILE_RELEASE)을 처리한다.
-         * 요청자가 현재 락 소유자인 경우에만 해제한다.
-         */
-        private void handleCompileRelease(String line) {
-            String[] p = line.split(Protocol.DELIMITER, 3);
-            if (p.length == 3) {
-                String fpath = p[1];
-                String reqNick = p[2];
-                String holder = compileLocks.get(fpath);
-                if (holder != null && holder.equals(reqNick)) {
-                    compileLocks.remove(fpath);
-                    broadcast(Protocol.COMPILE_RELEASE + Protocol.SEPARATOR + fpath + Protocol.SEPARATOR
-                            + reqNick, this);
-                }
-            }
+        @Override
+        void onOutboundReady() {
+            // writer 스레드가 큐의 Condition에서 대기하므로 별도 작업이 필요 없다
         }
 
-        /**
-         * 학생의 질문을 교수자에게 전달한다.
-         */
-        private void handleQuestion(String line) {
-            System.out.println("[SERVER] Routing question to professors: " + line);
-            synchronized (clients) {
-                for (Client c : clients) {
-                    // Professor role인 클라이언트에게만 전송
-                    if ("Professor".equals(c.role)) {
-                        c.send(line);
-                        System.out.println("[SERVER] Question sent to: " + c.nick);
-                    }
-                }
-            }
+        @Override
+        void evict(String reason) {
+            System.out.println("[SERVER] Evicting " + nick + " (" + getRemoteAddress() + "): " + reason);
+            // 소켓을 닫으면 수신 루프가 종료되며 onDisconnect가 호출된다
+            close();
         }
 
-        /**
-         * 클라이언트 연결 종료 시 리소스를 정리한다.
-         * 획득했던 컴파일 락을 모두 해제하고 목록에서 제거한다.
-         */
-        private void cleanup() {
-            List<String> toRelease = new ArrayList<>();
-            synchronized (compileLocks) {
-                for (Map.Entry<String, String> e : compileLocks.entrySet()) {
-                    if (Objects.equals(e.getValue(), nick))
-                        toRelease.add(e.getKey());
-                }
-                for (String f : toRelease)
-                    compileLocks.remove(f);
-            }
-            for (String f : toRelease)
-                broadcast(Protocol.COMPILE_RELEASE + Protocol.SEPARATOR + f + Protocol.SEPARATOR + nick, this);
-
-            clients.remove(this);
-            System.out.println("[SERVER] Client disconnected: " + nick + " from " + socket.getRemoteSocketAddress());
+        @Override
+        void close() {
+            outbound.close();
             try {
                 socket.close();
             } catch (IOException ignored) {
             }
         }
 
-        void send(String s) {
-            try {
-                out.write(s);
-                out.write('\n');
-                out.flush();
-            } catch (IOException ignored) {
-            }
+        @Override
+        SocketAddress getRemoteAddress() {
+            return socket.getRemoteSocketAddress();
         }
     }
 
     /**
      * 서버 프로그램 진입점.
-     * 포트 번호를 인자로 받아 서버를 시작한다.
+     * 포트 번호와 옵션을 인자로 받아 서버를 시작한다.
      *
-     * @param args 커맨드 라인 인자 (포트 번호)
+     * @param args 커맨드 라인 인자 (포트 번호, 옵션)
      * @throws Exception 실행 중 예외 발생 시
      */
     public static void main(String[] args) throws Exception {
-        if (args.length != 1) {
-            System.out.println("사용법: java ide.server.CollabServer <port>\n예:     java ide.server.CollabServer 6000");
+        ServerConfig cfg;
+        try {
+            cfg = ServerConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(ServerConfig.usage());
             return;
         }
-        new CollabServer(Integer.parseInt(args[0])).start();
+        CollabServer server = new CollabServer(cfg);
+        switch (cfg.engine) {
+            case NIO:
+                server.startNio(cfg.eventLoops);
+                break;
+            case VIRTUAL:
+                server.startVirtual();
+                break;
+            default:
+                server.start();
+        }
     }
 }
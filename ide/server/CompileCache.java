@@ -0,0 +1,152 @@
+package ide.server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 컴파일 결과(성공 여부, 진단 메시지, 클래스 파일)를 소스 내용의 해시로 보관하는 캐시.
+ *
+ * 학생들이 교수자의 예제를 고치지 않고 그대로 컴파일하면 소스가 같으므로 컴파일러를 다시 부르지 않고 이전 결과를 돌려준다.
+ * 키는 컴파일 옵션과 모든 소스 파일의 (파일 이름, 내용)을 이름 순으로 이어 붙인 SHA-256이며,
+ * 방이나 폴더가 달라도 내용이 같으면 같은 결과를 공유한다.
+ * 메모리는 총 바이트 수(클래스 파일 + 진단 메시지)로 제한되며, 넘으면 가장 오랫동안 사용되지 않은 결과부터 제거한다.
+ */
+final class CompileCache {
+    // 항목 하나의 고정 비용 추정치 (키, 맵 항목, 리스트 등)
+    private static final long ENTRY_OVERHEAD = 256;
+
+    private final long maxBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    // 접근 순서(access-order) LinkedHashMap: 첫 항목이 가장 오래 사용되지 않은 결과
+    private final LinkedHashMap<String, CompileService.Result> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * CompileCache 생성자.
+     *
+     * @param maxBytes 보관할 최대 총 바이트 수
+     */
+    CompileCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 컴파일 입력의 캐시 키를 만든다.
+     *
+     * @param options 컴파일 옵션
+     * @param sources 가상 경로 -> 소스 내용
+     * @return 키 (SHA-256, Base64)
+     */
+    static String key(List<String> options, Map<String, String> sources) {
+        List<String[]> files = new ArrayList<>(sources.size());
+        for (Map.Entry<String, String> e : sources.entrySet())
+            files.add(new String[] { fileName(e.getKey()), e.getValue() });
+        files.sort((a, b) -> a[0].compareTo(b[0]));
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (String o : options)
+                update(md, o);
+            for (String[] f : files) {
+                update(md, f[0]);
+                update(md, f[1]);
+            }
+            return Base64.getEncoder().encodeToString(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 길이를 앞에 붙여 ("ab","c")와 ("a","bc")가 같은 해시가 되지 않게 한다
+    private static void update(MessageDigest md, String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        md.update((byte) (b.length >>> 24));
+        md.update((byte) (b.length >>> 16));
+        md.update((byte) (b.length >>> 8));
+        md.update((byte) b.length);
+        md.update(b);
+    }
+
+    // 경로가 아닌 파일 이름만 키에 넣는다 (컴파일 결과는 파일 이름에만 의존한다)
+    private static String fileName(String path) {
+        return path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+    }
+
+    /**
+     * 캐시된 결과를 찾는다.
+     *
+     * @param key 캐시 키
+     * @return 결과, 없으면 null
+     */
+    CompileService.Result get(String key) {
+        lock.lock();
+        try {
+            CompileService.Result r = entries.get(key);
+            if (r != null)
+                hits++;
+            else
+                misses++;
+            return r;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 결과를 보관한다. 한도를 넘으면 오래된 결과부터 제거한다.
+     * 혼자서 한도를 넘는 결과는 보관하지 않는다.
+     *
+     * @param key    캐시 키
+     * @param result 컴파일 결과
+     */
+    void put(String key, CompileService.Result result) {
+        long size = sizeOf(result);
+        if (size > maxBytes)
+            return;
+        lock.lock();
+        try {
+            CompileService.Result old = entries.put(key, result);
+            if (old != null)
+                totalBytes -= sizeOf(old);
+            totalBytes += size;
+            Iterator<Map.Entry<String, CompileService.Result>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, CompileService.Result> e = it.next();
+                if (e.getKey().equals(key))
+                    continue;
+                totalBytes -= sizeOf(e.getValue());
+                it.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long sizeOf(CompileService.Result r) {
+        long size = ENTRY_OVERHEAD;
+        for (byte[] b : r.classes.values())
+            size += b.length + 64;
+        for (String d : r.diagnostics)
+            size += 2L * d.length() + 48;
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return entries.size() + " entries, " + (totalBytes / 1024) + " KB, hits=" + hits + " misses=" + misses;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package ide.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 한 방의 파일별 컴파일 락을 관리하는 클래스.
+ *
+ * 락 획득과 해제는 ConcurrentHashMap의 원자적 연산(compute)으로 처리되므로 두 요청이 동시에 승인되는 일이 없고,
+ * 서로 다른 파일의 요청은 서로를 기다리지 않는다.
+ * 소유자별 역색인을 두어 연결이 끊긴 클라이언트의 락은 방 전체가 아니라 그 클라이언트가 가진 락만 훑어서 해제한다.
+ * 락에는 임대 기간(lease)이 있어, 반납하지 못하고 멈춘 클라이언트의 락은 기간이 지나면 풀린다.
+ * 소유자가 같은 파일을 다시 요청하면 임대 기간이 연장된다.
+ * 세션 저널이 있으면 소유자가 바뀔 때마다 같은 원자적 연산 안에서 저널에 기록한다. (연장은 기록하지 않는다)
+ */
+final class CompileLockService {
+
+    /** 만료되어 풀린 락 하나 */
+    static final class Released {
+        final String path;
+        final String holder;
+
+        Released(String path, String holder) {
+            this.path = path;
+            this.holder = holder;
+        }
+    }
+
+    private static final class Lease {
+        final String holder;
+        final long expiresAt; // System.nanoTime 기준
+
+        Lease(String holder, long expiresAt) {
+            this.holder = holder;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long leaseNanos;
+    // absolutePath -> 임대
+    private final Map<String, Lease> locks = new ConcurrentHashMap<>();
+    // 소유자 닉네임 -> 가진 락의 경로 (locks의 해당 경로 연산 안에서만 갱신된다)
+    private final Map<String, Set<String>> byHolder = new ConcurrentHashMap<>();
+    // 세션 저널과 방 이름 (저널을 쓰지 않으면 null)
+    private final SessionJournal journal;
+    private final String room;
+
+    /**
+     * CompileLockService 생성자.
+     *
+     * @param leaseNanos 락 임대 기간 (0 이하이면 반납하거나 연결이 끊길 때까지 유지)
+     */
+    CompileLockService(long leaseNanos) {
+        this(leaseNanos, null, null);
+    }
+
+    /**
+     * 락 변경을 세션 저널에 기록하는 CompileLockService 생성자.
+     *
+     * @param leaseNanos 락 임대 기간 (0 이하이면 반납하거나 연결이 끊길 때까지 유지)
+     * @param journal    세션 저널 (null이면 기록하지 않음)
+     * @param room       방 이름
+     */
+    CompileLockService(long leaseNanos, SessionJournal journal, String room) {
+        this.leaseNanos = leaseNanos;
+        this.journal = journal;
+        this.room = room;
+    }
+
+    /**
+     * 락을 요청한다. 비어 있거나 임대 기간이 지났으면 요청자에게 주고, 요청자가 이미 가지고 있으면 기간을 연장한다.
+     *
+     * @param path   파일 경로
+     * @param holder 요청자 닉네임
+     * @return 승인되었으면 null, 아니면 현재 소유자 닉네임
+     */
+    String acquire(String path, String holder) {
+        long now = System.nanoTime();
+        enter();
+        try {
+            Lease result = locks.compute(path, (k, cur) -> {
+                if (cur != null && !cur.holder.equals(holder) && !expired(cur, now))
+                    return cur;
+                if (cur == null || !cur.holder.equals(holder)) {
+                    index(holder, k);
+                    if (journal != null)
+                        journal.lockAcquired(room, k, holder);
+                }
+                if (cur != null && !cur.holder.equals(holder))
+                    unindex(cur.holder, k);
+                return new Lease(holder, now + leaseNanos);
+            });
+            return result.holder.equals(holder) ? null : result.holder;
+        } finally {
+            exit();
+        }
+    }
+
+    /**
+     * 락을 반납한다. 요청자가 현재 소유자인 경우에만 해제된다.
+     *
+     * @param path   파일 경로
+     * @param holder 요청자 닉네임
+     * @return 해제되었으면 true
+     */
+    boolean release(String path, String holder) {
+        boolean[] released = new boolean[1];
+        enter();
+        try {
+            locks.computeIfPresent(path, (k, cur) -> {
+                if (!cur.holder.equals(holder))
+                    return cur;
+                unindex(holder, k);
+                if (journal != null)
+                    journal.lockReleased(room, k);
+                released[0] = true;
+                return null;
+            });
+        } finally {
+            exit();
+        }
+        return released[0];
+    }
+
+    /**
+     * 소유자가 가진 락을 모두 해제한다. 비용은 방의 전체 락 수가 아니라 소유자가 가진 락 수에 비례한다.
+     *
+     * @param holder 소유자 닉네임
+     * @return 해제된 파일 경로 목록
+     */
+    List<String> releaseAll(String holder) {
+        Set<String> paths = byHolder.get(holder);
+        if (paths == null)
+            return Collections.emptyList();
+        List<String> released = new ArrayList<>(paths.size());
+        for (String path : new ArrayList<>(paths))
+            if (release(path, holder))
+                released.add(path);
+        return released;
+    }
+
+    /**
+     * 임대 기간이 지난 락을 해제한다. (서버의 타이머에서 주기적으로 호출)
+     *
+     * @return 해제된 락 목록
+     */
+    List<Released> expire() {
+        if (leaseNanos <= 0 || locks.isEmpty())
+            return Collections.emptyList();
+        long now = System.nanoTime();
+        List<Released> released = new ArrayList<>();
+        enter();
+        try {
+            for (String path : locks.keySet()) {
+                locks.computeIfPresent(path, (k, cur) -> {
+                    if (!expired(cur, now))
+                        return cur;
+                    unindex(cur.holder, k);
+                    if (journal != null)
+                        journal.lockReleased(room, k);
+                    released.add(new Released(k, cur.holder));
+                    return null;
+                });
+            }
+        } finally {
+            exit();
+        }
+        return released;
+    }
+
+    /**
+     * 저널에서 읽은 락을 새 임대 기간으로 건다. (복구 중에만 호출, 저널에 다시 기록하지 않는다)
+     *
+     * @param path   파일 경로
+     * @param holder 소유자 닉네임
+     */
+    void restore(String path, String holder) {
+        Lease old = locks.put(path, new Lease(holder, System.nanoTime() + leaseNanos));
+        if (old != null)
+            unindex(old.holder, path);
+        index(holder, path);
+    }
+
+    /**
+     * 소유자와 관계없이 락을 푼다. (복구 중 해제 기록을 재생할 때 호출)
+     *
+     * @param path 파일 경로
+     */
+    void forceRelease(String path) {
+        Lease old = locks.remove(path);
+        if (old != null)
+            unindex(old.holder, path);
+    }
+
+    /**
+     * 저널 스냅샷에 담을 락 목록을 반환한다.
+     *
+     * @return 파일 경로 -> 소유자 닉네임
+     */
+    Map<String, String> save() {
+        Map<String, String> holders = new HashMap<>();
+        for (Map.Entry<String, Lease> e : locks.entrySet())
+            holders.put(e.getKey(), e.getValue().holder);
+        return holders;
+    }
+
+    /** @return 현재 걸려 있는 락 수 */
+    int size() {
+        return locks.size();
+    }
+
+    private void enter() {
+        if (journal != null)
+            journal.enter();
+    }
+
+    private void exit() {
+        if (journal != null)
+            journal.exit();
+    }
+
+    private boolean expired(Lease lease, long now) {
+        return leaseNanos > 0 && now - lease.expiresAt >= 0;
+    }
+
+    // 빈 집합을 지우는 unindex와 엇갈리지 않도록 소유자 항목 단위로 원자적으로 갱신한다
+    private void index(String holder, String path) {
+        byHolder.compute(holder, (h, paths) -> {
+            if (paths == null)
+                paths = ConcurrentHashMap.newKeySet();
+            paths.add(path);
+            return paths;
+        });
+    }
+
+    private void unindex(String holder, String path) {
+        byHolder.computeIfPresent(holder, (h, paths) -> {
+            paths.remove(path);
+            return paths.isEmpty() ? null : paths;
+        });
+    }
+}
@@ -0,0 +1,419 @@
+package ide.server;
+
+import ide.net.Message;
+import ide.net.MessageType;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 방에 공유된 문서를 서버 프로세스 안에서 컴파일하는 서비스.
+ *
+ * 클라이언트가 매번 javac 프로세스를 띄우면 JVM 시작 비용(수백 ms~수 초)을 컴파일마다 치르게 된다.
+ * 이 서비스는 javax.tools.JavaCompiler를 서버 안에 상주시키고, 소스와 클래스 파일을 모두 메모리에서 다룬다.
+ * 컴파일 스레드마다 표준 파일 관리자(JDK 모듈 색인을 캐시한다)를 재사용하고, 시작 시 한 번씩 미리 컴파일해 두므로
+ * 강의 중 여러 학생이 동시에 컴파일해도 JIT가 데워진 컴파일러로 처리된다.
+ * 진단 메시지는 javac가 보고하는 대로 OutputBatcher에 모아 짧은 간격으로 COMPILE_OUT 프레임에 묶어 보낸다.
+ * 요청자가 교수자이면 방 전체가 결과를 본다 (강의 시연).
+ * 같은 소스의 결과는 CompileCache에서 바로 돌려주고, 같은 소스가 이미 컴파일 중이면 그 결과를 함께 받는다.
+ * 실행 요청이면 컴파일에 성공한 클래스를 RunService에 넘겨 작업자 JVM에서 실행한다.
+ * 컴파일할 요청은 JobScheduler에서 사용자별로 공정하게 꺼내며, 기다리는 요청자에게는 순번과 예상 대기 시간을 알린다.
+ */
+final class CompileService {
+    /** 컴파일 성공 */
+    static final int EXIT_OK = 0;
+    /** 컴파일 오류 */
+    static final int EXIT_ERROR = 1;
+    /** 컴파일하지 못함 (문서 없음, 서버 혼잡, 컴파일러 없음) */
+    static final int EXIT_UNAVAILABLE = 2;
+
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int MAX_QUEUED_PER_USER = 2;
+    private static final long INITIAL_ESTIMATE_MS = 200;
+    // 진단 메시지는 -Xmaxerrs/-Xmaxwarns로 이미 제한되지만, 아주 긴 메시지에 대비해 바이트로도 제한한다
+    private static final long OUTPUT_CAP_BYTES = 64 * 1024;
+    private static final List<String> OPTIONS = List.of("-proc:none", "-Xmaxerrs", "50", "-Xmaxwarns", "50",
+            "-encoding", "UTF-8");
+
+    /** 컴파일 결과 */
+    static final class Result {
+        final boolean success;
+        // 보고된 순서대로의 진단 메시지
+        final List<String> diagnostics;
+        // 클래스 이름 -> 클래스 파일
+        final Map<String, byte[]> classes;
+
+        Result(boolean success, List<String> diagnostics, Map<String, byte[]> classes) {
+            this.success = success;
+            this.diagnostics = diagnostics;
+            this.classes = classes;
+        }
+    }
+
+    // 대기 중인 컴파일 요청 하나
+    private static final class Job {
+        final Peer requester;
+        final String path;
+        final Map<String, String> sources;
+        final String key;
+        final CompletableFuture<Result> mine;
+        final boolean execute;
+        final Consumer<Frame> out;
+
+        Job(Peer requester, String path, Map<String, String> sources, String key, CompletableFuture<Result> mine,
+                boolean execute, Consumer<Frame> out) {
+            this.requester = requester;
+            this.path = path;
+            this.sources = sources;
+            this.key = key;
+            this.mine = mine;
+            this.execute = execute;
+            this.out = out;
+        }
+    }
+
+    private final JavaCompiler compiler;
+    private final ServerConfig config;
+    // 출력 묶음을 시간에 맞춰 보내는 타이머
+    private final ScheduledExecutorService timer;
+    // 컴파일 결과 캐시 (--compile-cache=0 이면 null)
+    private final CompileCache cache;
+    // 프로그램 실행 (--runners=0 이면 null)
+    private final RunService runner;
+    // 캐시 키 -> 진행 중인 컴파일 (같은 소스의 요청이 동시에 들어오면 한 번만 컴파일한다)
+    private final Map<String, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+    private final JobScheduler<Job> queue;
+    private final List<Thread> compileThreads = new ArrayList<>();
+    // 파일 관리자는 스레드 안전하지 않으므로 컴파일 스레드마다 하나씩 만들어 재사용한다
+    private final ThreadLocal<StandardJavaFileManager> fileManagers;
+
+    /**
+     * CompileService 생성자. 컴파일 스레드를 만들고 컴파일러를 미리 데운다.
+     *
+     * @param config 컴파일 스레드 수, 사용자별 동시 처리 수, 캐시 크기, 출력 묶음 설정을 담은 서버 설정
+     * @param runner 컴파일 후 실행을 맡을 서비스 (null이면 실행하지 않음)
+     */
+    CompileService(ServerConfig config, RunService runner) {
+        int threads = config.compileThreads;
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        this.config = config;
+        this.cache = config.compileCacheMb > 0 ? new CompileCache(config.compileCacheMb * 1024 * 1024) : null;
+        this.runner = runner;
+        this.queue = new JobScheduler<>("compile", threads, config.jobsPerUser, MAX_QUEUED_PER_USER, QUEUE_CAPACITY,
+                INITIAL_ESTIMATE_MS);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "collab-compile-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.fileManagers = ThreadLocal.withInitial(
+                () -> compiler.getStandardFileManager(null, Locale.getDefault(), StandardCharsets.UTF_8));
+        if (compiler == null) {
+            System.out.println("[SERVER] javax.tools compiler not found (running on a JRE?); server compile disabled");
+            return;
+        }
+        long start = System.nanoTime();
+        AtomicInteger warmed = new AtomicInteger();
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> {
+                compile(Map.of("/Warmup.java", "class Warmup { int f(int x) { return x * 2; } }"), d -> {
+                });
+                if (warmed.incrementAndGet() == threads)
+                    System.out.println("[SERVER] Compiler warmed up on " + threads + " thread(s) in "
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+                compileLoop();
+            }, "collab-compile-" + (i + 1));
+            t.setDaemon(true);
+            compileThreads.add(t);
+            t.start();
+        }
+    }
+
+    /**
+     * 문서를 비동기로 컴파일하고 결과를 COMPILE_START/OUT/END로 보낸다.
+     * 같은 폴더의 다른 소스 문서도 함께 컴파일한다.
+     *
+     * @param room      문서가 있는 방
+     * @param requester 요청한 클라이언트
+     * @param path      컴파일할 문서의 가상 경로
+     * @param execute   컴파일에 성공하면 이어서 실행할지 여부
+     */
+    void submit(Room room, Peer requester, String path, boolean execute) {
+        boolean toRoom = "Professor".equals(requester.role);
+        Consumer<Frame> out = f -> {
+            if (toRoom)
+                room.broadcast(f, null);
+            else
+                requester.send(f);
+        };
+        if (compiler == null) {
+            reject(out, path, "서버에서 컴파일러를 사용할 수 없습니다 (JDK가 아닌 JRE로 실행 중).");
+            return;
+        }
+        Map<String, String> sources = room.documents.siblings(path);
+        if (sources == null) {
+            // 서버가 모르는 문서: 편집자에게 내용을 요청하고, 받은 뒤 다시 컴파일하도록 안내한다
+            requester.send(Frame.of(Message.of(MessageType.EDIT_SYNC_REQ, path)));
+            reject(out, path, "서버에 공유되지 않은 문서입니다. 잠시 후 다시 컴파일하세요.");
+            return;
+        }
+        String key = cache != null ? CompileCache.key(OPTIONS, sources) : null;
+        CompletableFuture<Result> mine = new CompletableFuture<>();
+        if (key != null) {
+            Result cached = cache.get(key);
+            if (cached != null) {
+                replay(out, requester, path, sources.size(), cached, false, execute);
+                return;
+            }
+            CompletableFuture<Result> running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                running.thenAccept(r -> replay(out, requester, path, sources.size(), r, true, execute));
+                return;
+            }
+        }
+        String refused = queue.submit(requester.nick, "Professor".equals(requester.role), path,
+                new Job(requester, path, sources, key, mine, execute, out), requester::send);
+        if (refused != null) {
+            if (key != null)
+                inFlight.remove(key, mine);
+            mine.complete(null);
+            reject(out, path, refused);
+        }
+    }
+
+    // 컴파일 스레드: 대기열에서 요청을 하나씩 꺼내 컴파일한다
+    private void compileLoop() {
+        while (true) {
+            JobScheduler.Ticket<Job> ticket;
+            try {
+                ticket = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Job job = ticket.payload;
+            Result r = null;
+            try {
+                r = run(job.out, job.requester, job.path, job.sources, job.execute);
+                if (job.key != null)
+                    cache.put(job.key, r);
+            } finally {
+                if (job.key != null)
+                    inFlight.remove(job.key, job.mine);
+                job.mine.complete(r);
+                queue.done(ticket);
+            }
+        }
+    }
+
+    private Result run(Consumer<Frame> out, Peer requester, String path, Map<String, String> sources,
+            boolean execute) {
+        long start = System.nanoTime();
+        out.accept(Frame.of(Message.of(MessageType.COMPILE_START, path, requester.nick)));
+        OutputBatcher batch = batcher(out, path);
+        Result r = compile(sources, batch::addLine);
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        finish(out, batch, requester, path, r, sources.size() + "개 파일, " + ms + " ms", execute);
+        System.out.println("[SERVER] Compiled " + path + " for " + requester.nick + " (" + sources.size() + " files, "
+                + (r.success ? "ok" : "errors") + ", " + ms + " ms)");
+        return r;
+    }
+
+    // 컴파일러를 부르지 않고 이전 결과의 진단 메시지를 그대로 보낸다
+    private void replay(Consumer<Frame> out, Peer requester, String path, int files, Result r, boolean shared,
+            boolean execute) {
+        if (r == null) {
+            reject(out, path, "컴파일 요청이 많아 처리하지 못했습니다. 잠시 후 다시 시도하세요.");
+            return;
+        }
+        out.accept(Frame.of(Message.of(MessageType.COMPILE_START, path, requester.nick)));
+        OutputBatcher batch = batcher(out, path);
+        for (String line : r.diagnostics)
+            batch.addLine(line);
+        finish(out, batch, requester, path, r, files + "개 파일, " + (shared ? "동시 요청 공유" : "캐시"), execute);
+        System.out.println("[SERVER] Compiled " + path + " for " + requester.nick + " (" + (shared ? "shared" : "cached")
+                + ", " + (r.success ? "ok" : "errors") + "; cache " + cache + ")");
+    }
+
+    // 컴파일 결과 요약을 보내고, 실행 요청이면 실행을 예약한다 (COMPILE_END는 실행이 끝난 뒤 RunService가 보낸다)
+    private void finish(Consumer<Frame> out, OutputBatcher batch, Peer requester, String path, Result r,
+            String summary, boolean execute) {
+        batch.addLine((r.success ? "컴파일 성공: " : "컴파일 실패: ") + summary);
+        batch.close();
+        if (execute && r.success) {
+            if (runner != null)
+                runner.submit(requester, path, r, out);
+            else
+                reject(out, path, "이 서버는 프로그램 실행을 지원하지 않습니다.");
+            return;
+        }
+        out.accept(Frame.of(Message.of(MessageType.COMPILE_END, path, r.success ? EXIT_OK : EXIT_ERROR)));
+    }
+
+    private OutputBatcher batcher(Consumer<Frame> out, String path) {
+        return new OutputBatcher(out, path, config.outputBatchMs, config.outputBatchKb * 1024, OUTPUT_CAP_BYTES,
+                timer);
+    }
+
+    private static void reject(Consumer<Frame> out, String path, String reason) {
+        out.accept(OutputBatcher.line(path, reason));
+        out.accept(Frame.of(Message.of(MessageType.COMPILE_END, path, EXIT_UNAVAILABLE)));
+    }
+
+    /**
+     * 소스를 메모리에서 컴파일한다. 컴파일 스레드에서 호출해야 한다.
+     *
+     * @param sources     가상 경로 -> 소스 내용
+     * @param diagnostics 진단 메시지를 한 줄씩 받을 함수 (javac가 보고하는 즉시 호출된다)
+     * @return 컴파일 결과
+     */
+    Result compile(Map<String, String> sources, Consumer<String> diagnostics) {
+        List<JavaFileObject> units = new ArrayList<>(sources.size());
+        for (Map.Entry<String, String> e : sources.entrySet())
+            units.add(new Source(e.getKey(), e.getValue()));
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        List<String> reported = new ArrayList<>();
+        JavaFileManager fm = new MemoryFileManager(fileManagers.get(), classes);
+        DiagnosticListener<JavaFileObject> listener = d -> {
+            String line = format(d);
+            reported.add(line);
+            diagnostics.accept(line);
+        };
+        boolean ok;
+        try {
+            ok = compiler.getTask(null, fm, listener, OPTIONS, null, units).call();
+        } catch (RuntimeException e) {
+            diagnostics.accept("컴파일러 오류: " + e);
+            return new Result(false, reported, classes);
+        }
+        return new Result(ok, reported, classes);
+    }
+
+    // javac 명령줄과 같은 형식: Main.java:3: error: ';' expected
+    private static String format(Diagnostic<? extends JavaFileObject> d) {
+        StringBuilder sb = new StringBuilder();
+        if (d.getSource() != null)
+            sb.append(d.getSource().getName()).append(':').append(d.getLineNumber()).append(": ");
+        sb.append(d.getKind().toString().toLowerCase(Locale.ROOT).replace('_', ' ')).append(": ")
+                .append(d.getMessage(Locale.getDefault()));
+        return sb.toString();
+    }
+
+    /**
+     * 연결이 끊긴 클라이언트의 대기 중인 실행을 취소한다.
+     * (대기 중인 컴파일은 같은 소스를 기다리는 다른 요청자가 있을 수 있으므로 그대로 처리한다)
+     *
+     * @param requester 연결이 끊긴 클라이언트
+     */
+    void cancel(Peer requester) {
+        if (runner != null)
+            runner.cancel(requester);
+    }
+
+    /**
+     * 대기 중인 컴파일을 멈추고 스레드를 정리한다.
+     */
+    void shutdown() {
+        for (Thread t : compileThreads)
+            t.interrupt();
+        timer.shutdownNow();
+    }
+
+    // 문서 내용을 그대로 돌려주는 소스 파일. 이름은 가상 경로의 파일 이름 (public 클래스 이름 검사에 쓰인다)
+    private static final class Source extends SimpleJavaFileObject {
+        private final String name;
+        private final String text;
+
+        Source(String path, String text) {
+            super(uriOf(path), Kind.SOURCE);
+            this.name = path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+            this.text = text;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return text;
+        }
+
+        private static URI uriOf(String path) {
+            String file = path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+            try {
+                return new URI("mem", null, "/" + file, null);
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException(path, e);
+            }
+        }
+    }
+
+    // 컴파일 결과를 디스크 대신 메모리에 쓰는 클래스 파일
+    private static final class ClassOutput extends SimpleJavaFileObject {
+        private final String className;
+        private final Map<String, byte[]> sink;
+
+        ClassOutput(String className, Map<String, byte[]> sink) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+            this.sink = sink;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    sink.put(className, toByteArray());
+                }
+            };
+        }
+    }
+
+    // 표준 파일 관리자(JDK 클래스 검색)를 공유하면서 출력만 작업별 맵으로 돌린다
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+        private final Map<String, byte[]> classes;
+
+        MemoryFileManager(JavaFileManager standard, Map<String, byte[]> classes) {
+            super(standard);
+            this.classes = classes;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                FileObject sibling) {
+            return new ClassOutput(className, classes);
+        }
+
+        @Override
+        public void close() {
+            // 표준 파일 관리자는 스레드가 계속 재사용하므로 닫지 않는다
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package ide.server;
+
+import ide.net.Message;
+import ide.net.MessageType;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 서버가 보관하는 공유 문서 저장소.
+ *
+ * 가상 경로별로 문서의 현재 내용과 버전 번호를 보관하며, 서버가 문서 상태의 기준(authoritative)이 된다.
+ * 클라이언트가 보낸 증분 편집(EDIT_OP)은 여기에 적용되어 버전이 하나씩 올라간다.
+ * 강의 도중 접속한 학생이나 버전이 어긋난 클라이언트에게는 전체 스냅샷(EDIT_SYNC)을 보내며,
+ * 스냅샷 Frame은 문서가 바뀔 때까지 캐시되어 재접속이 몰려도 다시 인코딩하지 않는다.
+ *
+ * 메모리는 문서 수와 총 글자 수로 제한되며, 한도를 넘으면 가장 오랫동안 사용되지 않은(LRU) 문서부터 제거한다.
+ * 세션 저널이 있으면 모든 변경(LRU 제거 포함)을 락 안에서 저널에 기록하므로, 저널의 순서가 적용 순서와 같다.
+ * 강의 기록기도 같은 방식으로 변경을 받는다. (LRU 제거는 강의 내용이 아니므로 기록하지 않는다)
+ */
+public class DocumentStore {
+    private final int maxDocuments;
+    private final long maxChars;
+    private final ReentrantLock lock = new ReentrantLock();
+    // 접근 순서(access-order) LinkedHashMap: 첫 항목이 가장 오래 사용되지 않은 문서
+    private final LinkedHashMap<String, Document> documents = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalChars = 0;
+    // 세션 저널과 이 저장소가 속한 방 이름 (저널을 쓰지 않으면 null)
+    private final SessionJournal journal;
+    // 강의 기록기 (기록하지 않으면 null)
+    private final ReplayRecorder replay;
+    private final String room;
+
+    /**
+     * 증분 편집 적용 결과.
+     */
+    public static class OpResult {
+        /** 적용 후 문서 버전 */
+        public final long version;
+        /** 보낸 쪽의 기준 버전이 서버 버전과 달라 적용하지 않았는지 여부 (true면 보낸 쪽을 전체 스냅샷으로 재동기화) */
+        public final boolean mismatch;
+
+        OpResult(long version, boolean mismatch) {
+            this.version = version;
+            this.mismatch = mismatch;
+        }
+    }
+
+    /** 저널 스냅샷에 담는 문서 하나 */
+    static final class Saved {
+        final String path;
+        final long version;
+        final String text;
+
+        Saved(String path, long version, String text) {
+            this.path = path;
+            this.version = version;
+            this.text = text;
+        }
+    }
+
+    private static class Document {
+        final StringBuilder text;
+        long version;
+        Frame syncFrame; // 캐시된 EDIT_SYNC 메시지 (내용이 바뀌면 null)
+        Frame editFrame; // 캐시된 EDIT 메시지 (구버전 클라이언트용, 내용이 바뀌면 null)
+
+        Document(String text, long version) {
+            this.text = new StringBuilder(text);
+            this.version = version;
+        }
+    }
+
+    /**
+     * DocumentStore 생성자.
+     *
+     * @param maxDocuments 보관할 최대 문서 수
+     * @param maxChars     보관할 최대 총 글자 수
+     */
+    public DocumentStore(int maxDocuments, long maxChars) {
+        this(maxDocuments, maxChars, null, null, null);
+    }
+
+    /**
+     * 변경을 세션 저널과 강의 기록에 남기는 DocumentStore 생성자.
+     *
+     * @param maxDocuments 보관할 최대 문서 수
+     * @param maxChars     보관할 최대 총 글자 수
+     * @param journal      세션 저널 (null이면 기록하지 않음)
+     * @param replay       강의 기록기 (null이면 기록하지 않음)
+     * @param room         저장소가 속한 방 이름
+     */
+    DocumentStore(int maxDocuments, long maxChars, SessionJournal journal, ReplayRecorder replay, String room) {
+        this.maxDocuments = maxDocuments;
+        this.maxChars = maxChars;
+        this.journal = journal;
+        this.replay = replay;
+        this.room = room;
+    }
+
+    // 변경 시작: 저널 스냅샷과 엇갈리지 않도록 저널 구간에 먼저 들어간 뒤 락을 잡는다
+    private void lockForWrite() {
+        if (journal != null)
+            journal.enter();
+        lock.lock();
+    }
+
+    private void unlockForWrite() {
+        lock.unlock();
+        if (journal != null)
+            journal.exit();
+    }
+
+    /**
+     * 문서 전체 내용을 교체한다. (EDIT 스냅샷 수신 시)
+     *
+     * @param path 가상 경로
+     * @param text 문서 전체 내용
+     * @return 교체 후 문서 버전
+     */
+    public long putSnapshot(String path, String text) {
+        lockForWrite();
+        try {
+            Document doc = documents.get(path);
+            if (doc == null) {
+                doc = new Document(text, 1);
+                documents.put(path, doc);
+            } else {
+                totalChars -= doc.text.length();
+                doc.text.setLength(0);
+                doc.text.append(text);
+                doc.version++;
+                doc.syncFrame = null;
+                doc.editFrame = null;
+            }
+            totalChars += doc.text.length();
+            if (journal != null)
+                journal.docPut(room, path, doc.version, text);
+            if (replay != null)
+                replay.docPut(path, text);
+            evictIfNeeded(path);
+            return doc.version;
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    /**
+     * 증분 편집 연산을 문서에 적용한다.
+     * 기준 버전이 다르거나 범위가 문서를 벗어나면 적용하지 않고 불일치로 표시한다.
+     * (그 사이의 연산에 맞춰 위치를 변환하지 않으므로, 그대로 적용하면 기준 문서가 망가진다)
+     *
+     * @param path         가상 경로
+     * @param baseVersion  보낸 쪽이 알고 있던 문서 버전
+     * @param offset       편집 위치
+     * @param removeLength 삭제할 글자 수
+     * @param insert       삽입할 문자열
+     * @return 적용 결과 (불일치이면 현재 버전), 문서가 저장소에 없으면 null
+     */
+    public OpResult applyOp(String path, long baseVersion, int offset, int removeLength, String insert) {
+        lockForWrite();
+        try {
+            Document doc = documents.get(path);
+            if (doc == null)
+                return null;
+            int len = doc.text.length();
+            if (baseVersion != doc.version || offset < 0 || removeLength < 0 || offset > len
+                    || removeLength > len - offset)
+                return new OpResult(doc.version, true);
+            int end = offset + removeLength;
+            doc.text.replace(offset, end, insert);
+            doc.version++;
+            doc.syncFrame = null;
+            doc.editFrame = null;
+            totalChars += insert.length() - removeLength;
+            if (journal != null)
+                journal.docOp(room, path, doc.version, offset, end, insert);
+            if (replay != null)
+                replay.docOp(path, offset, end, insert);
+            evictIfNeeded(path);
+            return new OpResult(doc.version, false);
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    /**
+     * 문서의 전체 스냅샷 메시지(EDIT_SYNC)를 반환한다.
+     *
+     * @param path 가상 경로
+     * @return 스냅샷 Frame, 문서가 없으면 null
+     */
+    public Frame syncFrame(String path) {
+        lock.lock();
+        try {
+            Document doc = documents.get(path);
+            return doc == null ? null : syncFrameOf(path, doc);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Frame syncFrameOf(String path, Document doc) {
+        if (doc.syncFrame == null)
+            doc.syncFrame = Frame.of(Message.of(MessageType.EDIT_SYNC, path, doc.version, doc.text.toString()));
+        return doc.syncFrame;
+    }
+
+    /**
+     * 문서 전체를 버전 없는 편집 메시지(EDIT)로 반환한다. (버전 동기화를 협상하지 않은 구버전 클라이언트용)
+     *
+     * @param path 가상 경로
+     * @return EDIT Frame, 문서가 없으면 null
+     */
+    public Frame editFrame(String path) {
+        lock.lock();
+        try {
+            Document doc = documents.get(path);
+            return doc == null ? null : editFrameOf(path, doc);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Frame editFrameOf(String path, Document doc) {
+        if (doc.editFrame == null)
+            doc.editFrame = Frame.of(Message.of(MessageType.EDIT, path, doc.text.toString()));
+        return doc.editFrame;
+    }
+
+    private void evictIfNeeded(String keep) {
+        if (journal != null && journal.recovering())
+            return; // 재생 중에는 저널에 기록된 제거만 따른다
+        Iterator<Map.Entry<String, Document>> it = documents.entrySet().iterator();
+        while ((documents.size() > maxDocuments || totalChars > maxChars) && it.hasNext()) {
+            Map.Entry<String, Document> e = it.next();
+            if (e.getKey().equals(keep))
+                continue; // 방금 갱신한 문서는 남긴다
+            totalChars -= e.getValue().text.length();
+            it.remove();
+            if (journal != null)
+                journal.docRemove(room, e.getKey());
+            System.out.println("[SERVER] Document evicted (LRU): " + e.getKey());
+        }
+    }
+
+    /**
+     * 문서를 제거한다. 폴더가 삭제된 경우 하위 문서도 함께 제거한다.
+     *
+     * @param path 삭제된 경로
+     */
+    public void remove(String path) {
+        lockForWrite();
+        try {
+            Iterator<Map.Entry<String, Document>> it = documents.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Document> e = it.next();
+                if (isSameOrUnder(e.getKey(), path)) {
+                    totalChars -= e.getValue().text.length();
+                    it.remove();
+                }
+            }
+            if (journal != null)
+                journal.docRemove(room, path);
+            if (replay != null)
+                replay.docRemove(path);
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    /**
+     * 문서(또는 폴더 하위 문서들)의 경로를 변경한다. 내용과 버전은 유지된다.
+     *
+     * @param oldPath 변경 전 경로
+     * @param newPath 변경 후 경로
+     */
+    public void rename(String oldPath, String newPath) {
+        lockForWrite();
+        try {
+            List<Map.Entry<String, Document>> moved = new ArrayList<>();
+            Iterator<Map.Entry<String, Document>> it = documents.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Document> e = it.next();
+                if (isSameOrUnder(e.getKey(), oldPath)) {
+                    moved.add(e);
+                    it.remove();
+                }
+            }
+            for (Map.Entry<String, Document> e : moved) {
+                Document doc = e.getValue();
+                doc.syncFrame = null; // 스냅샷에 경로가 들어 있으므로 다시 만든다
+                doc.editFrame = null;
+                documents.put(newPath + e.getKey().substring(oldPath.length()), doc);
+            }
+            if (journal != null)
+                journal.docRename(room, oldPath, newPath);
+            if (replay != null)
+                replay.docRename(oldPath, newPath);
+        } finally {
+            unlockForWrite();
+        }
+    }
+
+    /**
+     * 저널에서 읽은 문서를 버전 그대로 넣는다. (복구 중에만 호출, 저널에 다시 기록하지 않는다)
+     * 강의 기록에는 복구된 문서가 기록의 시작 내용이 되도록 남긴다.
+     *
+     * @param path    가상 경로
+     * @param version 문서 버전
+     * @param text    문서 전체 내용
+     */
+    void restore(String path, long version, String text) {
+        lock.lock();
+        try {
+            Document old = documents.put(path, new Document(text, version));
+            if (old != null)
+                totalChars -= old.text.length();
+            totalChars += text.length();
+            if (replay != null)
+                replay.docPut(path, text);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 저널 스냅샷에 담을 모든 문서를 반환한다. (오래 사용되지 않은 순, 복구하면 LRU 순서도 이어진다)
+     *
+     * @return 문서 목록
+     */
+    List<Saved> save() {
+        lock.lock();
+        try {
+            List<Saved> saved = new ArrayList<>(documents.size());
+            for (Map.Entry<String, Document> e : documents.entrySet())
+                saved.add(new Saved(e.getKey(), e.getValue().version, e.getValue().text.toString()));
+            return saved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 현재 보관 중인 모든 문서의 스냅샷 메시지를 반환한다. (오래 사용되지 않은 순)
+     * 접근 순서는 바꾸지 않으므로, 신규 접속자에게 보내는 것만으로 문서가 "최근 사용"이 되지는 않는다.
+     *
+     * @param versioned 버전이 붙은 스냅샷(EDIT_SYNC)이면 true, 구버전 클라이언트용 EDIT이면 false
+     * @return 스냅샷 목록
+     */
+    public List<Frame> snapshots(boolean versioned) {
+        lock.lock();
+        try {
+            List<Frame> frames = new ArrayList<>(documents.size());
+            for (Map.Entry<String, Document> e : documents.entrySet())
+                frames.add(versioned ? syncFrameOf(e.getKey(), e.getValue()) : editFrameOf(e.getKey(), e.getValue()));
+            return frames;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 문서와 같은 폴더에 있는, 확장자가 같은 문서들의 내용을 반환한다. (서버 컴파일의 입력)
+     * 접근 순서는 요청한 문서만 갱신한다.
+     *
+     * @param path 기준 문서의 가상 경로
+     * @return 가상 경로 -> 내용 (기준 문서가 첫 항목), 기준 문서가 저장소에 없으면 null
+     */
+    public Map<String, String> siblings(String path) {
+        int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        String dir = path.substring(0, slash + 1);
+        int dot = path.lastIndexOf('.');
+        String ext = dot > slash ? path.substring(dot) : "";
+        lock.lock();
+        try {
+            Document self = documents.get(path);
+            if (self == null)
+                return null;
+            Map<String, String> texts = new LinkedHashMap<>();
+            texts.put(path, self.text.toString());
+            for (Map.Entry<String, Document> e : documents.entrySet()) {
+                String p = e.getKey();
+                if (!p.equals(path) && p.startsWith(dir) && p.endsWith(ext)
+                        && p.indexOf('/', dir.length()) < 0 && p.indexOf('\\', dir.length()) < 0)
+                    texts.put(p, e.getValue().text.toString());
+            }
+            return texts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean isSameOrUnder(String path, String base) {
+        return path.equals(base) || path.startsWith(base + "/") || path.startsWith(base + "\\");
+    }
+}
@@ -0,0 +1,109 @@
+package ide.server;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 휘발성 메시지(CURSOR/LASER/VIEWPORT)의 중계 빈도를 보낸 사람, 종류, 경로별로 제한하는 클래스.
+ *
+ * 마우스 이벤트마다 오는 레이저 메시지를 모두 중계하지 않고, 간격(1/rate초) 안에 들어온 메시지는
+ * 가장 최신 것 하나만 잡아 두었다가 간격이 지나면 중계한다.
+ * 마지막 위치는 항상 전달되므로 움직임이 멈춘 뒤 원격 화면이 이전 위치에 머무르지 않는다.
+ * 상태는 보낸 사람별로 묶어 두므로, 연결이 끊겼을 때 그 사람의 상태만 바로 지울 수 있다.
+ */
+class EphemeralThrottle {
+    private final long intervalNanos;
+    private final Consumer<Frame> forward;
+    // 보낸 사람 -> (병합 키 -> 상태)
+    private final Map<Peer, Map<Frame.ConflationKey, State>> states = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+    private final AtomicLong throttled = new AtomicLong();
+
+    // 키 하나의 상태. 자신의 모니터로 보호된다.
+    private static final class State {
+        long lastSent;
+        Frame held;         // 간격이 지나면 보낼 최신 메시지
+        boolean scheduled;  // held를 보낼 작업이 예약되어 있는지
+    }
+
+    /**
+     * EphemeralThrottle 생성자.
+     *
+     * @param ratePerSecond 키 하나당 초당 최대 중계 횟수
+     * @param forward       중계할 메시지를 실제로 브로드캐스트하는 함수 (어느 스레드에서든 호출될 수 있다)
+     */
+    EphemeralThrottle(int ratePerSecond, Consumer<Frame> forward) {
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        this.forward = forward;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "collab-throttle");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 휘발성 메시지를 중계한다. 간격이 지났으면 바로 보내고, 아니면 최신 메시지로 잡아 두었다가 나중에 보낸다.
+     *
+     * @param frame 병합 키가 있는 메시지
+     */
+    void offer(Frame frame) {
+        Map<Frame.ConflationKey, State> bySender = states.computeIfAbsent(frame.conflationKey.sender,
+                p -> new ConcurrentHashMap<>());
+        State s = bySender.computeIfAbsent(frame.conflationKey, k -> new State());
+        long now = System.nanoTime();
+        synchronized (s) {
+            if (s.scheduled || now - s.lastSent < intervalNanos) {
+                if (s.held != null)
+                    throttled.incrementAndGet();
+                s.held = frame;
+                if (!s.scheduled) {
+                    s.scheduled = true;
+                    long delay = intervalNanos - (now - s.lastSent);
+                    timer.schedule(() -> flush(s), delay, TimeUnit.NANOSECONDS);
+                }
+                return;
+            }
+            s.lastSent = now;
+        }
+        forward.accept(frame);
+    }
+
+    private void flush(State s) {
+        Frame f;
+        synchronized (s) {
+            f = s.held;
+            s.held = null;
+            s.scheduled = false;
+            s.lastSent = System.nanoTime();
+        }
+        if (f != null)
+            forward.accept(f);
+    }
+
+    /**
+     * 연결이 끊긴 클라이언트의 상태를 정리한다. 잡아 두었던 메시지는 버린다.
+     *
+     * @param p 연결이 끊긴 클라이언트
+     */
+    void forget(Peer p) {
+        Map<Frame.ConflationKey, State> bySender = states.remove(p);
+        if (bySender == null)
+            return;
+        for (State s : bySender.values()) {
+            synchronized (s) {
+                s.held = null;
+            }
+        }
+    }
+
+    /** @return 지금까지 더 새 메시지로 대체되어 중계되지 않은 메시지 수 */
+    long throttledCount() {
+        return throttled.get();
+    }
+}
@@ -0,0 +1,261 @@
+package ide.server;
+
+import ide.net.Message;
+import ide.net.MessageType;
+import ide.net.Protocol;
+import ide.net.WireCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * 송신할 메시지 하나와 그 인코딩 결과를 함께 담는 객체.
+ *
+ * 브로드캐스트 시 메시지를 형식별로 한 번만 인코딩하고, 같은 Frame을 모든 수신자의 송신 큐에 넣는다.
+ * 텍스트(한 줄 + '\n')와 바이너리(길이 접두사 프레임) 인코딩은 처음 필요할 때 만들어져 캐시되며,
+ * 각 수신자는 읽기 전용 버퍼의 복제본(duplicate)만 만들어 쓰므로 인코딩과 바이트 배열 복사가 반복되지 않는다.
+ * 수신한 원본(한 줄 또는 바이너리 프레임)으로 만든 Frame은 그 형식의 인코딩을 다시 하지 않는다.
+ * 클라이언트가 보낸 휘발성 메시지는 병합 키(보낸 사람, 종류, 경로)를 가지며, 송신 큐와 전송 빈도 제한에서
+ * 같은 키의 이전 메시지를 대체하는 데 쓰인다.
+ * 방 순서 번호가 붙은 Frame(sequenced)은 SEQ 메시지와 원래 메시지를 이어 붙여 한 번에 인코딩하므로,
+ * 두 메시지 사이에 다른 메시지가 끼어들지 않는다.
+ */
+public final class Frame {
+    // 캐시는 여러 writer 스레드가 동시에 채울 수 있지만 결과가 같으므로 경쟁해도 무방하다
+    private volatile Message message;
+    private volatile String line;
+    private volatile Encoded text;   // line + '\n'
+    private volatile Encoded binary; // 길이 접두사 포함
+    final boolean ephemeral;
+    // 프로토콜 전환 승인 메시지: 항상 텍스트로 쓰이며, writer는 이 Frame 이후부터 바이너리로 쓴다
+    final boolean switchesToBinary;
+    // 같은 키의 이전 Frame을 대체할 수 있으면 병합 키, 아니면 null
+    final ConflationKey conflationKey;
+    // 방 순서 번호 (없으면 0)와 번호를 붙인 원래 메시지
+    final long seq;
+    private final Frame payload;
+
+    /**
+     * 휘발성 메시지의 병합 키. 같은 사람이 같은 경로에 보낸 같은 종류의 메시지는 최신 것만 의미가 있다.
+     */
+    static final class ConflationKey {
+        final Peer sender;
+        final MessageType type;
+        final String path;
+
+        ConflationKey(Peer sender, MessageType type, String path) {
+            this.sender = sender;
+            this.type = type;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ConflationKey))
+                return false;
+            ConflationKey k = (ConflationKey) o;
+            return sender == k.sender && type == k.type && Objects.equals(path, k.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(sender) * 31 + type.ordinal()) * 31 + Objects.hashCode(path);
+        }
+    }
+
+    // 인코딩된 바이트와 이를 감싼 읽기 전용 공유 버퍼
+    private static final class Encoded {
+        final byte[] bytes;
+        final ByteBuffer shared;
+
+        Encoded(byte[] bytes) {
+            this.bytes = bytes;
+            this.shared = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        }
+    }
+
+    private Frame(Message message, String line, byte[] binaryFrame, boolean switchesToBinary, Peer sender) {
+        this.message = message;
+        this.line = line;
+        this.binary = binaryFrame == null ? null : new Encoded(binaryFrame);
+        this.switchesToBinary = switchesToBinary;
+        this.ephemeral = message != null ? message.type().isEphemeral() : Protocol.isEphemeral(line);
+        this.conflationKey = ephemeral && sender != null && message != null
+                ? new ConflationKey(sender, message.type(), message.str(0)) : null;
+        this.seq = 0;
+        this.payload = null;
+    }
+
+    private Frame(Frame payload, long seq) {
+        this.switchesToBinary = false;
+        this.ephemeral = false;
+        this.conflationKey = null;
+        this.seq = seq;
+        this.payload = payload;
+    }
+
+    /**
+     * 메시지 한 줄로 Frame을 만든다.
+     *
+     * @param line 메시지 문자열 (개행 문자 제외)
+     * @return Frame
+     */
+    public static Frame of(String line) {
+        return new Frame(null, line, null, false, null);
+    }
+
+    /**
+     * 메시지 객체로 Frame을 만든다.
+     *
+     * @param message 메시지
+     * @return Frame
+     */
+    public static Frame of(Message message) {
+        return new Frame(message, null, null, false, null);
+    }
+
+    /**
+     * 텍스트로 수신한 메시지로 Frame을 만든다. 텍스트 수신자에게는 원본 줄이 그대로 전달된다.
+     *
+     * @param message 디코딩된 메시지
+     * @param line    원본 줄
+     * @param sender  보낸 클라이언트 (휘발성 메시지의 병합 키에 쓰인다)
+     * @return Frame
+     */
+    static Frame received(Message message, String line, Peer sender) {
+        return new Frame(message, line, null, false, sender);
+    }
+
+    /**
+     * 바이너리로 수신한 메시지로 Frame을 만든다. 바이너리 수신자에게는 원본 프레임이 그대로 전달된다.
+     *
+     * @param message 디코딩된 메시지
+     * @param frame   길이 접두사를 포함한 원본 프레임
+     * @param sender  보낸 클라이언트 (휘발성 메시지의 병합 키에 쓰인다)
+     * @return Frame
+     */
+    static Frame received(Message message, byte[] frame, Peer sender) {
+        return new Frame(message, null, frame, false, sender);
+    }
+
+    /**
+     * 바이너리 프로토콜 전환 승인 Frame을 만든다.
+     * 이 Frame은 텍스트로 쓰이고, 같은 송신 큐에서 그 뒤에 오는 Frame은 모두 바이너리로 쓰인다.
+     * 따라서 전환 이전에 큐에 들어간 메시지도 순서대로 텍스트로 전달된다.
+     *
+     * @param line 메시지 문자열
+     * @return Frame
+     */
+    static Frame switchToBinary(String line) {
+        return new Frame(null, line, null, true, null);
+    }
+
+    /**
+     * 방 순서 번호를 붙인 Frame을 만든다. 앞에 SEQ 메시지가 붙어 인코딩된다.
+     *
+     * @param payload 방에 보낼 신뢰성 메시지
+     * @param seq     방 순서 번호 (1부터)
+     * @return Frame
+     */
+    static Frame sequenced(Frame payload, long seq) {
+        return new Frame(payload, seq);
+    }
+
+    /**
+     * 원본 메시지 문자열을 반환한다.
+     *
+     * @return 메시지 문자열 (개행 문자 제외)
+     */
+    public String line() {
+        if (payload != null)
+            return payload.line();
+        String l = line;
+        if (l == null)
+            line = l = WireCodec.encodeText(message);
+        return l;
+    }
+
+    /**
+     * 디코딩된 메시지를 반환한다.
+     *
+     * @return 메시지, 알 수 없는 종류의 텍스트 메시지이면 null
+     */
+    public Message message() {
+        if (payload != null)
+            return payload.message();
+        Message m = message;
+        if (m == null)
+            message = m = WireCodec.decodeText(line);
+        return m;
+    }
+
+    /**
+     * 이 Frame을 쓰기 위한 독립적인 읽기 전용 버퍼를 반환한다.
+     * 내용은 공유하고 position/limit만 수신자별로 따로 가진다.
+     *
+     * @param binaryMode 수신자가 바이너리 프로토콜을 사용하는지 여부
+     * @return 읽기 전용 버퍼, 해당 형식으로 인코딩할 수 없으면 null
+     */
+    public ByteBuffer buffer(boolean binaryMode) {
+        Encoded e = encoded(binaryMode);
+        return e == null ? null : e.shared.duplicate();
+    }
+
+    /**
+     * 인코딩된 바이트 배열을 반환한다. 스트림 기반 writer 전용이며, 내용을 수정해서는 안 된다.
+     *
+     * @param binaryMode 수신자가 바이너리 프로토콜을 사용하는지 여부
+     * @return 인코딩된 바이트 배열, 해당 형식으로 인코딩할 수 없으면 null
+     */
+    byte[] bytes(boolean binaryMode) {
+        Encoded e = encoded(binaryMode);
+        return e == null ? null : e.bytes;
+    }
+
+    private Encoded encoded(boolean binaryMode) {
+        if (payload != null)
+            return sequencedEncoded(binaryMode);
+        if (binaryMode && !switchesToBinary) {
+            Encoded b = binary;
+            if (b == null) {
+                Message m = message();
+                if (m == null)
+                    return null;
+                binary = b = new Encoded(WireCodec.encodeBinary(m));
+            }
+            return b;
+        }
+        Encoded t = text;
+        if (t == null) {
+            byte[] body = line().getBytes(StandardCharsets.UTF_8);
+            byte[] bytes = new byte[body.length + 1];
+            System.arraycopy(body, 0, bytes, 0, body.length);
+            bytes[body.length] = '\n';
+            text = t = new Encoded(bytes);
+        }
+        return t;
+    }
+
+    // SEQ 메시지 + 원래 메시지
+    private Encoded sequencedEncoded(boolean binaryMode) {
+        Encoded e = binaryMode ? binary : text;
+        if (e != null)
+            return e;
+        byte[] body = payload.bytes(binaryMode);
+        if (body == null)
+            return null;
+        Message seqMessage = Message.of(MessageType.SEQ, seq);
+        byte[] head = binaryMode ? WireCodec.encodeBinary(seqMessage)
+                : (WireCodec.encodeText(seqMessage) + "\n").getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[head.length + body.length];
+        System.arraycopy(head, 0, bytes, 0, head.length);
+        System.arraycopy(body, 0, bytes, head.length, body.length);
+        e = new Encoded(bytes);
+        if (binaryMode)
+            binary = e;
+        else
+            text = e;
+        return e;
+    }
+}
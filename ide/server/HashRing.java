@@ -0,0 +1,56 @@
+package ide.server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 방 이름을 클러스터 노드에 배정하는 일관된 해싱(consistent hashing) 링.
+ *
+ * 노드마다 여러 개의 가상 노드를 링 위에 두고, 방 이름의 해시에서 시계 방향으로 처음 만나는 노드가 방의 주인이 된다.
+ * 노드가 추가되거나 빠져도 그 노드 주변의 방만 주인이 바뀐다.
+ * 모든 노드가 같은 노드 목록으로 링을 만들므로 별도의 합의 없이 같은 결과를 얻는다.
+ */
+final class HashRing {
+    private static final int VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * HashRing 생성자.
+     *
+     * @param nodeIds 클러스터의 모든 노드 ID
+     */
+    HashRing(Collection<String> nodeIds) {
+        for (String id : nodeIds)
+            for (int i = 0; i < VIRTUAL_NODES; i++)
+                ring.put(hash(id + "#" + i), id);
+    }
+
+    /**
+     * 방의 주인 노드를 찾는다.
+     *
+     * @param room 방 이름
+     * @return 노드 ID
+     */
+    String ownerOf(String room) {
+        Map.Entry<Long, String> e = ring.ceilingEntry(hash(room));
+        return e != null ? e.getValue() : ring.firstEntry().getValue();
+    }
+
+    // MD5 앞 8바이트: 노드 ID가 비슷해도 링 위에 고르게 퍼진다
+    private static long hash(String key) {
+        try {
+            byte[] d = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++)
+                h = (h << 8) | (d[i] & 0xFF);
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ide.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 모든 연결의 생존 여부를 연결마다 스레드나 타이머를 두지 않고 확인하는 해시 타이머 휠.
+ *
+ * 연결은 다음에 확인할 시각이 속한 칸(slot)에 들어 있고, 휠 스레드는 1초마다 그 시각의 칸만 꺼내 확인한다.
+ * 따라서 한 번의 확인 비용은 전체 연결 수가 아니라 그 시각에 확인할 연결 수에 비례한다.
+ * 마지막으로 메시지를 받은 뒤 ping 간격이 지나면 PING을 보내고, idle 한도가 지나도록 아무것도 받지 못하면
+ * 죽은 연결로 보고 정리를 요청한다. (노트북 덮개를 닫았거나 NAT 항목이 사라지면 수신 대기가 끝나지 않는다)
+ * 다음 확인 시각은 항상 지금부터 idle 한도 안이므로, 휠을 그보다 크게 잡아 바퀴 수를 셀 필요가 없다.
+ * 연결이 끊긴 클라이언트는 따로 빼지 않고 그 칸을 확인할 때 버린다.
+ */
+final class HeartbeatWheel {
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long pingNanos;
+    private final long idleNanos;
+    private final Consumer<Peer> ping;
+    private final Consumer<Peer> reap;
+    private final List<Queue<Peer>> slots;
+    private final long origin = System.nanoTime();
+    // 휠 스레드가 마지막으로 확인한 칸의 시각 (origin부터 센 tick 수)
+    private volatile long current = 0;
+
+    /**
+     * HeartbeatWheel 생성자. 휠 스레드를 시작한다.
+     *
+     * @param pingSec 아무것도 받지 못했을 때 PING을 보내는 간격 (초, 1 이상)
+     * @param idleSec 아무것도 받지 못하면 연결을 정리하는 시간 (초, pingSec보다 커야 한다)
+     * @param ping    PING을 보내는 동작
+     * @param reap    응답이 없는 연결을 정리하는 동작
+     */
+    HeartbeatWheel(int pingSec, int idleSec, Consumer<Peer> ping, Consumer<Peer> reap) {
+        this.pingNanos = TimeUnit.SECONDS.toNanos(pingSec);
+        this.idleNanos = TimeUnit.SECONDS.toNanos(idleSec);
+        this.ping = ping;
+        this.reap = reap;
+        this.slots = new ArrayList<>(idleSec + 2);
+        for (int i = 0; i < idleSec + 2; i++)
+            slots.add(new ConcurrentLinkedQueue<>());
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "collab-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 새 연결의 생존 확인을 시작한다. 어느 스레드에서든 호출할 수 있다.
+     *
+     * @param p 연결된 클라이언트
+     */
+    void watch(Peer p) {
+        p.lastHeard = System.nanoTime();
+        schedule(p, p.lastHeard + pingNanos);
+    }
+
+    // 시각이 지난 칸을 모두 확인한다 (스레드가 늦게 깨어났으면 밀린 칸까지)
+    private void tick() {
+        long now = System.nanoTime();
+        long target = (now - origin) / TICK_NANOS;
+        for (long t = current + 1; t <= target; t++) {
+            current = t;
+            Queue<Peer> slot = slots.get((int) (t % slots.size()));
+            for (int n = slot.size(); n > 0; n--) {
+                Peer p = slot.poll();
+                if (p == null)
+                    break;
+                check(p, now);
+            }
+        }
+    }
+
+    private void check(Peer p, long now) {
+        if (p.disconnected)
+            return;
+        long heard = p.lastHeard;
+        long idle = now - heard;
+        if (idle >= idleNanos) {
+            try {
+                reap.accept(p);
+            } catch (RuntimeException e) {
+                System.out.println("[SERVER] Heartbeat reap failed for " + p.nick + ": " + e.getMessage());
+            }
+            return;
+        }
+        if (idle >= pingNanos) {
+            ping.accept(p);
+            schedule(p, Math.min(heard + idleNanos, now + pingNanos));
+        } else {
+            schedule(p, heard + pingNanos);
+        }
+    }
+
+    // 주어진 시각이 속한 칸에 넣는다. 이미 지난 칸이면 바로 다음 칸에 넣는다
+    private void schedule(Peer p, long deadline) {
+        long t = Math.max((deadline - origin + TICK_NANOS - 1) / TICK_NANOS, current + 1);
+        slots.get((int) (t % slots.size())).add(p);
+    }
+}
@@ -0,0 +1,265 @@
+package ide.server;
+
+import ide.net.Message;
+import ide.net.MessageType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 컴파일/실행 작업을 사용자 사이에 공정하게 나누어 주는 대기열.
+ *
+ * 작업 스레드(컴파일 스레드, 실행 스레드)는 take()로 다음 작업을 받고 끝나면 done()을 부른다.
+ * 순서는 다음 규칙으로 정한다.
+ * <ul>
+ * <li>교수자의 작업은 항상 학생의 작업보다 먼저 꺼낸다 (강의 시연이 밀리지 않도록).</li>
+ * <li>같은 등급 안에서는 가중 공정 큐(WFQ, self-clocked)로 고른다. 작업마다 가상 완료 시각
+ * max(가상 시각, 그 사용자의 직전 완료 시각) + 예상 비용을 붙이고 가장 이른 작업부터 꺼낸다.
+ * 가상 시각은 마지막으로 꺼낸 작업의 가상 완료 시각이다.
+ * 예상 비용은 그 사용자의 작업이 실제로 걸린 시간의 이동 평균이므로, 작업 수가 아니라 작업자 시간을 나누어 갖는다.
+ * (오래 걸리는 프로그램을 반복 실행하는 학생은 짧은 컴파일을 하는 학생보다 뒤로 밀린다)</li>
+ * <li>한 사용자가 동시에 실행할 수 있는 작업 수와 대기시킬 수 있는 작업 수에는 한도가 있다.</li>
+ * </ul>
+ * 대기 중인 작업의 요청자에게는 순번과 예상 대기 시간을 COMPILE_QUEUED로 알린다.
+ * 알림은 락 안에서 송신 큐에 넣으므로, 작업이 꺼낸 뒤 보내는 COMPILE_START보다 늦게 도착하지 않는다.
+ *
+ * @param <T> 작업 내용
+ */
+final class JobScheduler<T> {
+    /** 같은 작업의 순번 알림 사이의 최소 간격 (첫 알림은 바로 보낸다) */
+    private static final long NOTIFY_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    // 서비스 시간 이동 평균의 가중치
+    private static final double ALPHA = 0.2;
+
+    /** 대기열에 들어간 작업 하나 */
+    static final class Ticket<T> {
+        final String user;
+        final String path;
+        final T payload;
+        private final boolean priority;
+        private final Consumer<Frame> notify;
+        private final long seq;
+        private final double finish;
+        private final double cost;
+        private int position = -1;
+        private long notifiedAt;
+        private long startedAt;
+
+        Ticket(String user, String path, T payload, boolean priority, Consumer<Frame> notify, long seq,
+                double finish, double cost) {
+            this.user = user;
+            this.path = path;
+            this.payload = payload;
+            this.priority = priority;
+            this.notify = notify;
+            this.seq = seq;
+            this.finish = finish;
+            this.cost = cost;
+        }
+    }
+
+    // 사용자 하나의 상태
+    private static final class Flow {
+        int running;
+        int queued;
+        double lastFinish;
+        double avgNanos; // 0이면 아직 측정값 없음
+    }
+
+    private final String name;
+    private final int workers;
+    private final int maxRunningPerUser;
+    private final int maxQueuedPerUser;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    // 꺼낼 순서: 교수자 먼저, 그다음 가상 완료 시각, 같으면 들어온 순서
+    private final TreeSet<Ticket<T>> pending = new TreeSet<>(Comparator
+            .comparing((Ticket<T> t) -> !t.priority)
+            .thenComparingDouble(t -> t.finish)
+            .thenComparingLong(t -> t.seq));
+    private final List<Ticket<T>> running = new ArrayList<>();
+    private final Map<String, Flow> flows = new HashMap<>();
+    private double virtualTime = 0;
+    // 측정값이 없는 사용자의 예상 비용. 고정값이므로 처음 요청하는 사용자들끼리는 들어온 순서를 지킨다
+    private final double initialNanos;
+    private double avgNanos;
+    private long seq = 0;
+
+    /**
+     * JobScheduler 생성자.
+     *
+     * @param name              로그에 쓸 이름 ("compile", "run")
+     * @param workers           작업을 처리하는 스레드 수 (예상 대기 시간 계산에 쓰인다)
+     * @param maxRunningPerUser 한 사용자가 동시에 처리받을 수 있는 작업 수
+     * @param maxQueuedPerUser  한 사용자가 대기시킬 수 있는 작업 수
+     * @param capacity          전체 대기 작업 수 한도
+     * @param initialEstimateMs 측정값이 없을 때 쓰는 작업 하나의 예상 시간
+     */
+    JobScheduler(String name, int workers, int maxRunningPerUser, int maxQueuedPerUser, int capacity,
+            long initialEstimateMs) {
+        this.name = name;
+        this.workers = Math.max(1, workers);
+        this.maxRunningPerUser = Math.max(1, maxRunningPerUser);
+        this.maxQueuedPerUser = Math.max(1, maxQueuedPerUser);
+        this.capacity = capacity;
+        this.initialNanos = TimeUnit.MILLISECONDS.toNanos(initialEstimateMs);
+        this.avgNanos = initialNanos;
+    }
+
+    /**
+     * 작업을 대기열에 넣는다.
+     *
+     * @param user     요청한 사용자 닉네임
+     * @param priority 교수자 작업이면 true (학생 작업보다 먼저 꺼낸다)
+     * @param path     작업 대상 문서의 가상 경로 (순번 알림에 쓰인다)
+     * @param payload  작업 내용
+     * @param notify   요청자에게 순번 알림을 보낼 함수
+     * @return 받아들였으면 null, 아니면 거절 사유
+     */
+    String submit(String user, boolean priority, String path, T payload, Consumer<Frame> notify) {
+        lock.lock();
+        try {
+            if (pending.size() >= capacity)
+                return "요청이 많아 처리하지 못했습니다. 잠시 후 다시 시도하세요.";
+            Flow flow = flows.computeIfAbsent(user, u -> new Flow());
+            if (flow.queued >= maxQueuedPerUser)
+                return "이미 대기 중인 요청이 있습니다. 앞의 요청이 끝난 뒤 다시 시도하세요.";
+            double cost = flow.avgNanos > 0 ? flow.avgNanos : initialNanos;
+            double finish = Math.max(virtualTime, flow.lastFinish) + cost;
+            flow.lastFinish = finish;
+            flow.queued++;
+            pending.add(new Ticket<>(user, path, payload, priority, notify, seq++, finish, cost));
+            changed.signal();
+            notifyPositions();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 처리할 수 있는 다음 작업을 꺼낸다. 동시 실행 한도에 걸린 사용자의 작업은 건너뛴다.
+     *
+     * @return 작업
+     * @throws InterruptedException 기다리는 중 인터럽트된 경우
+     */
+    Ticket<T> take() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                for (Iterator<Ticket<T>> it = pending.iterator(); it.hasNext();) {
+                    Ticket<T> t = it.next();
+                    Flow flow = flows.get(t.user);
+                    if (flow.running >= maxRunningPerUser)
+                        continue;
+                    it.remove();
+                    flow.queued--;
+                    flow.running++;
+                    virtualTime = Math.max(virtualTime, t.finish);
+                    t.startedAt = System.nanoTime();
+                    running.add(t);
+                    notifyPositions();
+                    return t;
+                }
+                changed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 작업이 끝났음을 알린다. 걸린 시간은 이후 예상 비용에 반영된다.
+     *
+     * @param t take()로 받은 작업
+     */
+    void done(Ticket<T> t) {
+        lock.lock();
+        try {
+            running.remove(t);
+            long elapsed = System.nanoTime() - t.startedAt;
+            avgNanos += ALPHA * (elapsed - avgNanos);
+            Flow flow = flows.get(t.user);
+            flow.running--;
+            flow.avgNanos = flow.avgNanos > 0 ? flow.avgNanos + ALPHA * (elapsed - flow.avgNanos) : elapsed;
+            // 한가한 사용자 중 직전 완료 시각이 가상 시각을 넘지 않는 사용자는 잊는다 (다시 오면 가상 시각부터 시작한다)
+            flows.values().removeIf(f -> f.running == 0 && f.queued == 0 && f.lastFinish <= virtualTime);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 조건에 맞는 대기 작업을 취소한다. (요청자의 연결이 끊긴 경우)
+     *
+     * @param filter 취소할 작업의 조건
+     * @return 취소된 작업 내용
+     */
+    List<T> cancel(Predicate<T> filter) {
+        lock.lock();
+        try {
+            List<T> removed = new ArrayList<>();
+            for (Iterator<Ticket<T>> it = pending.iterator(); it.hasNext();) {
+                Ticket<T> t = it.next();
+                if (!filter.test(t.payload))
+                    continue;
+                it.remove();
+                flows.get(t.user).queued--;
+                removed.add(t.payload);
+            }
+            if (!removed.isEmpty())
+                notifyPositions();
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 순번이 바뀐 대기 작업의 요청자에게 순번과 예상 대기 시간을 보낸다 (락 안에서 호출)
+    private void notifyPositions() {
+        long now = System.nanoTime();
+        double busy = 0;
+        for (Ticket<T> r : running) {
+            Flow flow = flows.get(r.user);
+            busy += Math.max(0, (flow.avgNanos > 0 ? flow.avgNanos : avgNanos) - (now - r.startedAt));
+        }
+        int position = 0;
+        for (Ticket<T> t : pending) {
+            position++;
+            // 빈 작업자가 있어 바로 꺼낼 작업에는 알리지 않는다
+            if (position + running.size() > workers && t.position != position
+                    && (t.position < 0 || now - t.notifiedAt >= NOTIFY_INTERVAL_NANOS)) {
+                t.position = position;
+                t.notifiedAt = now;
+                long etaMs = TimeUnit.NANOSECONDS.toMillis((long) (busy / workers));
+                t.notify.accept(Frame.of(Message.of(MessageType.COMPILE_QUEUED, t.path, position, etaMs)));
+            }
+            // 순서를 정하는 비용은 넣을 때 고정되지만, 대기 시간은 지금까지의 측정값으로 다시 계산한다
+            Flow flow = flows.get(t.user);
+            busy += flow.avgNanos > 0 ? flow.avgNanos : avgNanos;
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return name + ": " + running.size() + " running, " + pending.size() + " queued, avg "
+                    + TimeUnit.NANOSECONDS.toMillis((long) avgNanos) + " ms";
+        } finally {
+            lock.unlock();
+        }
+    }
+}
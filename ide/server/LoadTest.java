@@ -0,0 +1,267 @@
+package ide.server;
+
+import ide.net.Protocol;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 서버(또는 클러스터)의 중계 성능을 측정하는 부하 생성기.
+ *
+ * 방마다 교수자 한 명이 일정한 빈도로 증분 편집(EDIT_OP)을 보내고, 같은 방의 학생들이 이를 받는 데 걸린 시간을 잰다.
+ * 편집 내용에 보낸 시각(System.nanoTime)을 담으므로 모든 클라이언트가 이 프로세스 안에 있어야 한다.
+ * 여러 노드 주소를 주면 클라이언트를 노드들에 돌아가며 연결하므로, 일부 클라이언트는 방의 주인이 아닌 노드를 거쳐 중계된다.
+ * 노드 수를 늘려 가며 같은 부하로 실행하면 처리량과 지연 시간의 변화를 비교할 수 있다.
+ *
+ * 사용법: java ide.server.LoadTest host:port[,host:port...] [--rooms=N] [--students=N] [--seconds=N] [--rate=N]
+ */
+public final class LoadTest {
+    private static final String PATH = "/load.txt";
+    private static final int STAMP_CHARS = 19;
+    private static final long WARMUP_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // 지연 시간 히스토그램: 100us 단위, 마지막 칸은 그 이상 전부
+    private static final int BUCKET_MICROS = 100;
+    private static final int BUCKETS = 10_000;
+
+    private final List<InetSocketAddress> nodes;
+    private final int rooms;
+    private final int students;
+    private final int seconds;
+    private final int rate;
+
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS + 1);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder latencySumMicros = new LongAdder();
+    private volatile long measureFrom;
+    private volatile boolean running = true;
+
+    private LoadTest(List<InetSocketAddress> nodes, int rooms, int students, int seconds, int rate) {
+        this.nodes = nodes;
+        this.rooms = rooms;
+        this.students = students;
+        this.seconds = seconds;
+        this.rate = rate;
+    }
+
+    /**
+     * 부하 테스트를 실행한다.
+     *
+     * @param args 노드 주소 목록과 옵션
+     * @throws Exception 연결 실패 또는 대기 중 인터럽트 시
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: java ide.server.LoadTest host:port[,host:port...] "
+                    + "[--rooms=N] [--students=N] [--seconds=N] [--rate=N]");
+            return;
+        }
+        List<InetSocketAddress> nodes = new ArrayList<>();
+        for (String hp : args[0].split(",")) {
+            int colon = hp.lastIndexOf(':');
+            nodes.add(new InetSocketAddress(hp.substring(0, colon), Integer.parseInt(hp.substring(colon + 1))));
+        }
+        int rooms = 20, students = 10, seconds = 10, rate = 20;
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            int eq = arg.indexOf('=');
+            String key = eq < 0 ? arg : arg.substring(0, eq);
+            int value = eq < 0 ? 0 : Integer.parseInt(arg.substring(eq + 1));
+            switch (key) {
+                case "--rooms":
+                    rooms = Math.max(1, value);
+                    break;
+                case "--students":
+                    students = Math.max(1, value);
+                    break;
+                case "--seconds":
+                    seconds = Math.max(1, value);
+                    break;
+                case "--rate":
+                    rate = Math.max(1, value);
+                    break;
+                default:
+                    System.out.println("[LOAD] Unknown option: " + arg);
+                    return;
+            }
+        }
+        new LoadTest(nodes, rooms, students, seconds, rate).run();
+    }
+
+    private void run() throws Exception {
+        System.out.println("[LOAD] " + nodes.size() + " node(s), " + rooms + " rooms x (1 professor + " + students
+                + " students), " + rate + " ops/s per room, " + seconds + "s");
+        String run = Long.toString(System.currentTimeMillis() % 100_000, 36);
+        List<Socket> sockets = new ArrayList<>();
+        CountDownLatch joined = new CountDownLatch(rooms * students);
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService exec = Executors.newVirtualThreadPerTaskExecutor()) {
+            int next = 0;
+            for (int r = 0; r < rooms; r++) {
+                String room = "load-" + run + "-" + r;
+                for (int s = 0; s < students; s++) {
+                    Socket sock = connect(nodes.get(next++ % nodes.size()), "s" + r + "_" + s, "Student", room);
+                    sockets.add(sock);
+                    exec.submit(() -> student(sock, joined));
+                }
+                Socket prof = connect(nodes.get(next++ % nodes.size()), "p" + r, "Professor", room);
+                sockets.add(prof);
+                exec.submit(() -> professor(prof, start));
+            }
+            if (!joined.await(30, TimeUnit.SECONDS))
+                System.out.println("[LOAD] Warning: " + joined.getCount() + " students did not finish joining");
+            measureFrom = System.nanoTime() + WARMUP_NANOS;
+            start.countDown();
+            Thread.sleep(TimeUnit.NANOSECONDS.toMillis(WARMUP_NANOS) + seconds * 1000L);
+            running = false;
+            Thread.sleep(500); // 전송 중인 메시지가 도착할 시간
+            for (Socket s : sockets)
+                closeQuietly(s);
+        }
+        report();
+    }
+
+    private static Socket connect(InetSocketAddress addr, String nick, String role, String room) throws IOException {
+        Socket s = new Socket();
+        s.connect(addr, 5000);
+        s.setTcpNoDelay(true);
+        send(s, Protocol.JOIN + Protocol.SEPARATOR + nick + Protocol.SEPARATOR + role + Protocol.SEPARATOR
+                + Protocol.OPT_ROOM + "=" + room + "," + Protocol.OPT_SYNC + "=1,"
+                + Protocol.OPT_HEARTBEAT + "=1," + Protocol.OPT_ROSTER + "=1");
+        return s;
+    }
+
+    // 교수자: 문서를 공유한 뒤 앞의 STAMP_CHARS 글자를 보낸 시각으로 계속 바꾼다
+    private void professor(Socket s, CountDownLatch start) {
+        try {
+            BufferedReader in = reader(s);
+            send(s, Protocol.EDIT + Protocol.SEPARATOR + PATH + Protocol.SEPARATOR + encode(0));
+            long version = -1;
+            String line;
+            while (version < 0 && (line = in.readLine()) != null)
+                if (line.startsWith(Protocol.EDIT_ACK + Protocol.SEPARATOR))
+                    version = Protocol.safeLong(Protocol.parse(line)[2]);
+            // 응답(EDIT_ACK)은 읽어서 버린다: 읽지 않으면 서버의 송신 큐가 차서 연결이 끊긴다
+            Thread drain = Thread.ofVirtual().start(() -> {
+                try {
+                    while (in.readLine() != null) {
+                    }
+                } catch (IOException ignored) {
+                }
+            });
+            start.await();
+            long interval = 1_000_000_000L / rate;
+            long next = System.nanoTime();
+            while (running) {
+                long now = System.nanoTime();
+                send(s, Protocol.EDIT_OP + Protocol.SEPARATOR + PATH + Protocol.SEPARATOR + version++
+                        + Protocol.SEPARATOR + 0 + Protocol.SEPARATOR + STAMP_CHARS + Protocol.SEPARATOR + encode(now));
+                if (now >= measureFrom)
+                    sent.increment();
+                next += interval;
+                LockSupport.parkNanos(next - System.nanoTime());
+            }
+            drain.join();
+        } catch (IOException | InterruptedException e) {
+            if (running)
+                System.out.println("[LOAD] Professor connection failed: " + e.getMessage());
+        }
+    }
+
+    // 학생: 편집 연산에 담긴 시각으로 지연 시간을 기록한다
+    private void student(Socket s, CountDownLatch joined) {
+        boolean counted = false;
+        try {
+            BufferedReader in = reader(s);
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!counted && line.startsWith(Protocol.ROSTER + Protocol.SEPARATOR)) {
+                    joined.countDown();
+                    counted = true;
+                }
+                // 편집을 받기만 하므로 생존 확인에 응답하지 않으면 서버가 연결을 정리한다
+                if (line.startsWith(Protocol.PING + Protocol.SEPARATOR)) {
+                    send(s, Protocol.PONG + line.substring(Protocol.PING.length()));
+                    continue;
+                }
+                if (!line.startsWith(Protocol.EDIT_OP + Protocol.SEPARATOR))
+                    continue;
+                long receivedAt = System.nanoTime();
+                String[] parts = Protocol.parse(line);
+                long sentAt = Long.parseLong(new String(Base64.getDecoder().decode(parts[5]), StandardCharsets.UTF_8));
+                if (sentAt < measureFrom || measureFrom == 0)
+                    continue;
+                long micros = (receivedAt - sentAt) / 1000;
+                histogram.incrementAndGet((int) Math.min(BUCKETS, micros / BUCKET_MICROS));
+                latencySumMicros.add(micros);
+                delivered.increment();
+            }
+        } catch (IOException e) {
+            if (running)
+                System.out.println("[LOAD] Student connection failed: " + e.getMessage());
+        } finally {
+            if (!counted)
+                joined.countDown();
+        }
+    }
+
+    private void report() {
+        long n = delivered.sum();
+        long expected = sent.sum() * students;
+        System.out.println("[LOAD] sent=" + sent.sum() + " delivered=" + n + "/" + expected
+                + " throughput=" + (n / seconds) + " msg/s");
+        if (n == 0)
+            return;
+        System.out.println("[LOAD] latency avg=" + (latencySumMicros.sum() / n) + "us p50=" + percentile(n, 0.50)
+                + "us p99=" + percentile(n, 0.99) + "us max<=" + percentile(n, 1.0) + "us");
+    }
+
+    private long percentile(long total, double q) {
+        long rank = (long) Math.ceil(total * q);
+        long seen = 0;
+        for (int i = 0; i <= BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen >= rank)
+                return (long) (i + 1) * BUCKET_MICROS;
+        }
+        return (long) (BUCKETS + 1) * BUCKET_MICROS;
+    }
+
+    private static String encode(long stamp) {
+        String digits = String.format("%0" + STAMP_CHARS + "d", stamp);
+        return Base64.getEncoder().encodeToString(digits.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BufferedReader reader(Socket s) throws IOException {
+        return new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    private static void send(Socket s, String line) throws IOException {
+        OutputStream out = s.getOutputStream();
+        synchronized (s) {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void closeQuietly(Socket s) {
+        try {
+            s.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
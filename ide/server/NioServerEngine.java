@@ -0,0 +1,333 @@
+package ide.server;
+
+import ide.net.WireCodec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Selector 기반의 논블로킹 서버 엔진.
+ *
+ * 연결마다 스레드를 만드는 대신, 고정된 개수의 이벤트 루프 스레드가 각자의 Selector로
+ * 여러 SocketChannel의 읽기/쓰기를 처리한다. 수락(accept)은 start를 호출한 스레드에서 수행하고,
+ * 수락된 채널은 이벤트 루프에 라운드 로빈으로 분배된다.
+ * 메시지 해석과 브로드캐스트는 CollabServer의 공통 로직을 그대로 사용한다.
+ */
+public class NioServerEngine {
+    // 한 줄(메시지)의 최대 길이. 이를 넘으면 비정상 클라이언트로 보고 연결을 끊는다.
+    private static final int MAX_LINE_BYTES = 16 * 1024 * 1024;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    // 한 번의 gathering write로 내보낼 최대 Frame 수
+    private static final int GATHER_MAX = 64;
+
+    private final CollabServer server;
+    private final int port;
+    private final EventLoop[] loops;
+
+    /**
+     * NioServerEngine 생성자.
+     *
+     * @param server     메시지를 처리할 서버
+     * @param port       리스닝 포트
+     * @param eventLoops 이벤트 루프 스레드 개수
+     * @throws IOException Selector 생성 실패 시 발생
+     */
+    public NioServerEngine(CollabServer server, int port, int eventLoops) throws IOException {
+        this.server = server;
+        this.port = port;
+        this.loops = new EventLoop[eventLoops];
+        for (int i = 0; i < eventLoops; i++)
+            loops[i] = new EventLoop(i);
+    }
+
+    /**
+     * 이벤트 루프를 시작하고, 호출 스레드에서 연결 수락을 반복한다.
+     *
+     * @throws IOException 바인딩 또는 수락 실패 시 발생
+     */
+    public void run() throws IOException {
+        for (EventLoop loop : loops)
+            loop.start();
+
+        try (ServerSocketChannel ssc = ServerSocketChannel.open()) {
+            ssc.bind(new InetSocketAddress("0.0.0.0", port), 1024);
+            int next = 0;
+            while (true) {
+                SocketChannel ch = ssc.accept();
+                System.out.println("[SERVER] Accepted connection from: " + ch.getRemoteAddress());
+                ch.configureBlocking(false);
+                ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                EventLoop loop = loops[next];
+                next = (next + 1) % loops.length;
+                NioPeer peer = new NioPeer(ch, loop);
+                server.onConnect(peer);
+                loop.execute(peer::register);
+            }
+        }
+    }
+
+    /**
+     * 하나의 Selector를 소유하고 여러 채널의 입출력을 처리하는 스레드.
+     */
+    private class EventLoop extends Thread {
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+
+        EventLoop(int index) throws IOException {
+            super("collab-nio-" + index);
+            this.selector = Selector.open();
+            setDaemon(true);
+        }
+
+        /**
+         * 이벤트 루프 스레드에서 실행할 작업을 등록하고 Selector를 깨운다.
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null)
+                        task.run();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        NioPeer peer = (NioPeer) key.attachment();
+                        if (!key.isValid())
+                            continue;
+                        if (key.isReadable())
+                            peer.onReadable(readBuffer);
+                        if (key.isValid() && key.isWritable())
+                            peer.onWritable();
+                    }
+                } catch (IOException e) {
+                    System.out.println("[SERVER NIO] Selector error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * NIO 채널 하나에 대응하는 클라이언트.
+     * 수신 바이트를 줄 단위로 잘라 서버에 전달하고, 송신 큐(OutboundQueue)의 메시지는 쓰기 가능할 때 내보낸다.
+     * 대기 중인 Frame이 여러 개면 공유 버퍼들을 모아 한 번의 gathering write로 전송한다.
+     */
+    private class NioPeer extends Peer {
+        private final SocketChannel channel;
+        private final EventLoop loop;
+        private final SocketAddress remote;
+        private final AtomicBoolean writeScheduled = new AtomicBoolean(false);
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private SelectionKey key;
+        // 전송 중인 Frame 버퍼들: [pendingStart, pendingEnd) 구간이 아직 다 쓰이지 않음
+        private final Frame[] polled = new Frame[GATHER_MAX];
+        private final ByteBuffer[] pending = new ByteBuffer[GATHER_MAX];
+        private int pendingStart = 0;
+        private int pendingEnd = 0;
+        private boolean binaryOut = false; // 전환 승인 Frame을 쓴 뒤부터 바이너리로 인코딩한다
+
+        // 아직 완성되지 않은 수신 바이트 (텍스트 모드: 한 줄, 바이너리 모드: 한 프레임)
+        private byte[] lineBuf = new byte[256];
+        private int lineLen = 0;
+
+        NioPeer(SocketChannel channel, EventLoop loop) throws IOException {
+            super(server.config);
+            this.channel = channel;
+            this.loop = loop;
+            this.remote = channel.getRemoteAddress();
+        }
+
+        void register() {
+            try {
+                key = channel.register(loop.selector, SelectionKey.OP_READ, this);
+                if (outbound.depth() > 0)
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } catch (ClosedChannelException e) {
+                disconnect();
+            }
+        }
+
+        void onReadable(ByteBuffer buf) {
+            int n;
+            try {
+                buf.clear();
+                n = channel.read(buf);
+            } catch (IOException e) {
+                System.out.println("[SERVER NIO] Read error from " + remote + ": " + e.getMessage());
+                disconnect();
+                return;
+            }
+            if (n < 0) {
+                System.out.println("[SERVER NIO] Connection closed by " + remote);
+                disconnect();
+                return;
+            }
+            buf.flip();
+            while (buf.hasRemaining()) {
+                if (binary ? !readFrame(buf) : !readLine(buf))
+                    return;
+            }
+        }
+
+        // 한 줄이 완성될 때까지 바이트를 모은다. 연결을 끊었으면 false
+        private boolean readLine(ByteBuffer buf) {
+            while (buf.hasRemaining()) {
+                byte b = buf.get();
+                if (b == '\n') {
+                    int len = lineLen;
+                    if (len > 0 && lineBuf[len - 1] == '\r')
+                        len--;
+                    String line = new String(lineBuf, 0, len, StandardCharsets.UTF_8);
+                    lineLen = 0;
+                    server.onLine(this, line);
+                    // JOIN으로 바이너리 모드가 되었으면 나머지 바이트는 프레임으로 읽는다
+                    return !closed.get();
+                }
+                if (!append(b))
+                    return false;
+            }
+            return true;
+        }
+
+        // 길이 접두사 프레임이 완성될 때까지 바이트를 모은다. 연결을 끊었으면 false
+        private boolean readFrame(ByteBuffer buf) {
+            if (lineLen < WireCodec.LENGTH_PREFIX) {
+                collect(buf, WireCodec.LENGTH_PREFIX);
+                if (lineLen < WireCodec.LENGTH_PREFIX)
+                    return true;
+            }
+            int len = WireCodec.readLength(lineBuf, 0);
+            if (len <= 0 || len > WireCodec.MAX_FRAME_BYTES) {
+                System.out.println("[SERVER NIO] Invalid frame length from " + remote + ", closing");
+                disconnect();
+                return false;
+            }
+            int need = WireCodec.LENGTH_PREFIX + len;
+            collect(buf, need);
+            if (lineLen < need)
+                return true;
+            byte[] frame = Arrays.copyOf(lineBuf, need);
+            lineLen = 0;
+            server.onFrame(this, frame);
+            return !closed.get();
+        }
+
+        private void collect(ByteBuffer buf, int need) {
+            if (lineBuf.length < need)
+                lineBuf = Arrays.copyOf(lineBuf, Math.max(lineBuf.length * 2, need));
+            int n = Math.min(need - lineLen, buf.remaining());
+            buf.get(lineBuf, lineLen, n);
+            lineLen += n;
+        }
+
+        private boolean append(byte b) {
+            if (lineLen == lineBuf.length) {
+                if (lineBuf.length >= MAX_LINE_BYTES) {
+                    System.out.println("[SERVER NIO] Line too long from " + remote + ", closing");
+                    disconnect();
+                    return false;
+                }
+                lineBuf = Arrays.copyOf(lineBuf, Math.min(MAX_LINE_BYTES, lineBuf.length * 2));
+            }
+            lineBuf[lineLen++] = b;
+            return true;
+        }
+
+        void onWritable() {
+            try {
+                while (true) {
+                    if (pendingStart == pendingEnd) {
+                        int n = outbound.poll(polled, 0, GATHER_MAX);
+                        if (n == 0)
+                            break;
+                        int k = 0;
+                        for (int i = 0; i < n; i++) {
+                            ByteBuffer b = polled[i].buffer(binaryOut);
+                            if (b != null)
+                                pending[k++] = b;
+                            if (polled[i].switchesToBinary)
+                                binaryOut = true;
+                            polled[i] = null;
+                        }
+                        pendingStart = 0;
+                        pendingEnd = k;
+                    }
+                    channel.write(pending, pendingStart, pendingEnd - pendingStart);
+                    while (pendingStart < pendingEnd && !pending[pendingStart].hasRemaining())
+                        pending[pendingStart++] = null;
+                    if (pendingStart < pendingEnd)
+                        return; // 소켓 송신 버퍼가 가득 참: 다음 OP_WRITE 대기
+                }
+                key.interestOps(SelectionKey.OP_READ);
+                writeScheduled.set(false);
+                // 플래그를 내리는 사이에 들어온 메시지가 있으면 다시 쓰기 대기
+                if (outbound.depth() > 0 && writeScheduled.compareAndSet(false, true))
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } catch (IOException e) {
+                System.out.println("[SERVER NIO] Write error to " + remote + ": " + e.getMessage());
+                disconnect();
+            }
+        }
+
+        private void disconnect() {
+            if (closed.compareAndSet(false, true)) {
+                System.out.println("[SERVER Client] Cleanup for " + nick);
+                server.onDisconnect(this);
+            }
+        }
+
+        @Override
+        void onOutboundReady() {
+            if (writeScheduled.compareAndSet(false, true)) {
+                loop.execute(() -> {
+                    if (key != null && key.isValid())
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                });
+            }
+        }
+
+        @Override
+        void evict(String reason) {
+            System.out.println("[SERVER] Evicting " + nick + " (" + remote + "): " + reason);
+            loop.execute(this::disconnect);
+        }
+
+        @Override
+        void close() {
+            closed.set(true);
+            outbound.close();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        @Override
+        SocketAddress getRemoteAddress() {
+            return remote;
+        }
+    }
+}
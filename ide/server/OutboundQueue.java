@@ -0,0 +1,268 @@
+package ide.server;
+
+import ide.net.LatencyStats;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 클라이언트 하나에 대한 크기 제한 송신 큐.
+ * 메시지는 이미 인코딩된 Frame 단위로 보관되며, 여러 클라이언트의 큐가 같은 Frame을 공유한다.
+ *
+ * 브로드캐스트하는 스레드는 메시지를 큐에 넣기만 하고, 실제 소켓 쓰기는 해당 클라이언트의 writer가 수행한다.
+ * 따라서 느린 클라이언트 한 명이 다른 클라이언트로의 전송을 막지 않는다.
+ * 큐가 가득 차면 설정된 정책(Overflow)에 따라 휘발성 메시지를 버리거나 연결 종료를 요청한다.
+ *
+ * 메시지는 두 우선순위 등급(lane)으로 나뉜다. 입장, 편집, 파일, 컴파일, 질문 등 신뢰성 메시지는
+ * 휘발성 메시지(CURSOR/LASER/VIEWPORT)보다 항상 먼저 꺼내지므로, 레이저 폭주가 FILE_RENAME이나 COMPILE_GRANTED를 늦추지 않는다.
+ * 병합 키가 있는 휘발성 메시지(클라이언트가 보낸 것)는 같은 키의 메시지가 아직 전송되지 않았으면
+ * 그 자리를 새 메시지로 바꾼다(conflation). 수신자가 밀려 있어도 보낸 사람별로 최신 위치 하나만 남는다.
+ * 등급별로 큐 대기 시간(LatencyStats)을 기록한다.
+ */
+public class OutboundQueue {
+
+    /** 큐가 가득 찼을 때의 처리 정책 */
+    public enum Overflow {
+        /** 가장 오래된 휘발성 메시지(CURSOR/LASER/VIEWPORT)를 버린다. 버릴 것이 없으면 연결 종료 */
+        DROP_EPHEMERAL,
+        /** 즉시 연결 종료를 요청한다 */
+        DISCONNECT
+    }
+
+    /** offer 결과 */
+    public enum Result {
+        /** 큐에 추가됨 */
+        QUEUED,
+        /** 휘발성 메시지를 버리고 처리함 (연결은 유지) */
+        DROPPED,
+        /** 더 이상 수용할 수 없음: 호출자가 연결을 끊어야 함 */
+        REJECTED
+    }
+
+    private final int capacity;
+    private final Overflow overflow;
+    private final ArrayDeque<Slot> reliable = new ArrayDeque<>();
+    private final ArrayDeque<Slot> ephemeral = new ArrayDeque<>();
+    // 아직 전송되지 않은 병합 가능 메시지의 칸
+    private final Map<Frame.ConflationKey, Slot> pending = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private boolean closed = false;
+
+    // 게이지 (통계 출력용)
+    private volatile int depth = 0;
+    private volatile int peakDepth = 0;
+    private volatile long dropped = 0;
+    private volatile long conflated = 0;
+    /** 신뢰성 메시지의 큐 대기 시간 */
+    final LatencyStats reliableLatency = new LatencyStats();
+    /** 휘발성 메시지의 큐 대기 시간 */
+    final LatencyStats ephemeralLatency = new LatencyStats();
+
+    // 큐의 한 칸. 병합되면 frame만 새 것으로 바뀌고 대기 시작 시각은 유지된다.
+    private static final class Slot {
+        Frame frame;
+        final long enqueuedAt;
+
+        Slot(Frame frame, long enqueuedAt) {
+            this.frame = frame;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    /**
+     * OutboundQueue 생성자.
+     *
+     * @param capacity 최대 대기 메시지 수
+     * @param overflow 큐가 가득 찼을 때의 정책
+     */
+    public OutboundQueue(int capacity, Overflow overflow) {
+        this.capacity = capacity;
+        this.overflow = overflow;
+    }
+
+    /**
+     * 메시지를 큐에 추가한다. 호출 스레드를 블로킹하지 않는다.
+     *
+     * @param frame 전송할 메시지
+     * @return 처리 결과
+     */
+    public Result offer(Frame frame) {
+        lock.lock();
+        try {
+            if (closed)
+                return Result.DROPPED;
+            if (frame.conflationKey != null) {
+                Slot old = pending.get(frame.conflationKey);
+                if (old != null) {
+                    old.frame = frame;
+                    conflated++;
+                    return Result.QUEUED;
+                }
+            }
+            Result result = Result.QUEUED;
+            if (size() >= capacity) {
+                if (overflow == Overflow.DISCONNECT)
+                    return Result.REJECTED;
+                if (!dropOldestEphemeral()) {
+                    if (!frame.ephemeral)
+                        return Result.REJECTED;
+                    dropped++;
+                    return Result.DROPPED;
+                }
+                result = Result.DROPPED;
+            }
+            Slot slot = new Slot(frame, System.nanoTime());
+            if (frame.ephemeral) {
+                if (frame.conflationKey != null)
+                    pending.put(frame.conflationKey, slot);
+                ephemeral.addLast(slot);
+            } else {
+                reliable.addLast(slot);
+            }
+            updateDepth();
+            notEmpty.signal();
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int size() {
+        return reliable.size() + ephemeral.size();
+    }
+
+    private boolean dropOldestEphemeral() {
+        Slot slot = ephemeral.pollFirst();
+        if (slot == null)
+            return false;
+        if (slot.frame.conflationKey != null)
+            pending.remove(slot.frame.conflationKey, slot);
+        dropped++;
+        return true;
+    }
+
+    // 신뢰성 메시지를 먼저, 없으면 휘발성 메시지를 꺼낸다. 큐가 비었으면 null
+    private Frame pollNext(long now) {
+        Slot slot = reliable.pollFirst();
+        if (slot != null) {
+            reliableLatency.record(now - slot.enqueuedAt);
+            return slot.frame;
+        }
+        slot = ephemeral.pollFirst();
+        if (slot == null)
+            return null;
+        if (slot.frame.conflationKey != null)
+            pending.remove(slot.frame.conflationKey, slot);
+        ephemeralLatency.record(now - slot.enqueuedAt);
+        return slot.frame;
+    }
+
+    /**
+     * 대기 중인 메시지를 최대 max개까지 기다리지 않고 꺼낸다. (NIO 엔진용)
+     * 신뢰성 메시지를 모두 꺼낸 뒤에 휘발성 메시지를 꺼낸다.
+     *
+     * @param dst 꺼낸 메시지를 담을 배열
+     * @param off 배열의 시작 위치
+     * @param max 최대 개수
+     * @return 꺼낸 개수 (없으면 0)
+     */
+    public int poll(Frame[] dst, int off, int max) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            int n = 0;
+            Frame f;
+            while (n < max && (f = pollNext(now)) != null)
+                dst[off + n++] = f;
+            updateDepth();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 메시지가 들어올 때까지 기다린 뒤, 대기 중인 메시지를 최대 max개까지 꺼낸다. (writer 스레드용)
+     * 신뢰성 메시지를 모두 꺼낸 뒤에 휘발성 메시지를 꺼낸다.
+     *
+     * @param sink 꺼낸 메시지를 담을 리스트
+     * @param max  최대 개수
+     * @return 꺼낸 개수, 큐가 닫혔으면 -1
+     */
+    public int drainTo(List<Frame> sink, int max) {
+        lock.lock();
+        try {
+            while (size() == 0 && !closed) {
+                try {
+                    notEmpty.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return -1;
+                }
+            }
+            if (closed)
+                return -1;
+            long now = System.nanoTime();
+            int n = 0;
+            Frame f;
+            while (n < max && (f = pollNext(now)) != null) {
+                sink.add(f);
+                n++;
+            }
+            updateDepth();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 큐를 닫고 대기 중인 writer를 깨운다. 남은 메시지는 버려진다.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            reliable.clear();
+            ephemeral.clear();
+            pending.clear();
+            updateDepth();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateDepth() {
+        int d = size();
+        depth = d;
+        if (d > peakDepth)
+            peakDepth = d;
+    }
+
+    /** @return 현재 대기 중인 메시지 수 */
+    public int depth() {
+        return depth;
+    }
+
+    /** @return 지금까지의 최대 대기 메시지 수 */
+    public int peakDepth() {
+        return peakDepth;
+    }
+
+    /** @return 지금까지 버려진 휘발성 메시지 수 */
+    public long droppedCount() {
+        return dropped;
+    }
+
+    /** @return 지금까지 더 새 메시지로 대체되어 전송되지 않은 휘발성 메시지 수 */
+    public long conflatedCount() {
+        return conflated;
+    }
+}
@@ -0,0 +1,148 @@
+package ide.server;
+
+import ide.net.Message;
+import ide.net.MessageType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 컴파일 진단 메시지와 프로그램 출력을 모아 COMPILE_OUT 한 프레임으로 보내는 버퍼. (작업 하나에 하나)
+ *
+ * 출력을 줄마다 보내면 System.out을 반복문에서 부르는 프로그램 하나가 방 전체 클라이언트의 수신 스레드와 EDT를 채운다.
+ * 처음 쌓인 출력이 일정 시간(maxDelayMs) 머물렀거나 크기가 maxBytes를 넘으면 그때까지의 출력을 한 프레임으로 보낸다.
+ * 작업 전체의 출력은 capBytes로 제한하며, 넘으면 안내 한 줄을 보내고 나머지는 버린다.
+ * 프레임 본문은 출력된 바이트 그대로이므로 줄 중간에서 끝날 수 있고, 클라이언트는 받은 대로 이어 붙인다.
+ * 작업이 끝날 때 마지막 줄이 열려 있으면 줄바꿈을 붙여, 뒤에 오는 안내 문구가 같은 줄에 붙지 않게 한다.
+ */
+final class OutputBatcher {
+    private final Consumer<Frame> out;
+    private final String path;
+    private final long maxDelayMs;
+    private final int maxBytes;
+    private final long capBytes;
+    private final ScheduledExecutorService timer;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private ScheduledFuture<?> pendingFlush;
+    private long total = 0;
+    private boolean truncated = false;
+    private boolean lineOpen = false; // 마지막으로 보낸 출력이 줄 중간에서 끝났는지
+    private int frames = 0;
+
+    /**
+     * OutputBatcher 생성자.
+     *
+     * @param out        COMPILE_OUT을 보낼 함수
+     * @param path       작업 대상 문서의 가상 경로
+     * @param maxDelayMs 출력을 모아 두는 최대 시간
+     * @param maxBytes   프레임 하나의 최대 바이트 수
+     * @param capBytes   작업 전체의 최대 출력 바이트 수
+     * @param timer      시간이 지난 출력을 보낼 타이머
+     */
+    OutputBatcher(Consumer<Frame> out, String path, long maxDelayMs, int maxBytes, long capBytes,
+            ScheduledExecutorService timer) {
+        this.out = out;
+        this.path = path;
+        this.maxDelayMs = maxDelayMs;
+        this.maxBytes = maxBytes;
+        this.capBytes = capBytes;
+        this.timer = timer;
+    }
+
+    /**
+     * 한 줄을 추가한다. (진단 메시지처럼 줄 단위로 오는 출력)
+     *
+     * @param line 줄바꿈 없는 한 줄
+     */
+    void addLine(String line) {
+        add((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 출력 조각을 추가한다. 조각은 줄 중간에서 끝날 수 있다.
+     *
+     * @param chunk UTF-8 바이트
+     */
+    synchronized void add(byte[] chunk) {
+        if (truncated)
+            return;
+        int len = chunk.length;
+        if (total + len > capBytes) {
+            len = (int) (capBytes - total);
+            truncated = true;
+        }
+        buffer.write(chunk, 0, len);
+        total += len;
+        if (truncated) {
+            flush(true);
+            out.accept(line(path, (lineOpen ? "\n" : "") + "[출력이 " + capBytes / 1024 + "KB를 넘어 이후 출력은 생략합니다]"));
+            lineOpen = false;
+            frames++;
+        } else if (buffer.size() >= maxBytes) {
+            flush(false);
+        } else if (pendingFlush == null) {
+            pendingFlush = timer.schedule(() -> flush(false), maxDelayMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 남은 출력을 모두 보낸다. COMPILE_END를 보내기 전에 불러야 한다.
+     *
+     * @return 작업 동안 보낸 COMPILE_OUT 프레임 수
+     */
+    synchronized int close() {
+        flush(true);
+        if (lineOpen) {
+            out.accept(Frame.of(Message.of(MessageType.COMPILE_OUT, path, "\n")));
+            lineOpen = false;
+            frames++;
+        }
+        return frames;
+    }
+
+    /**
+     * 출력 묶음 밖에서 보내는 안내 한 줄을 만든다. (실행 시작/종료, 거절 사유 등)
+     *
+     * @param path 작업 대상 문서의 가상 경로
+     * @param text 줄바꿈 없는 한 줄
+     * @return 줄바꿈을 붙인 COMPILE_OUT 프레임
+     */
+    static Frame line(String path, String text) {
+        return Frame.of(Message.of(MessageType.COMPILE_OUT, path, text + "\n"));
+    }
+
+    // 모인 출력을 보낸다. all이 아니면 UTF-8 문자 경계에서 끊고 경계 뒤의 바이트는 다음 프레임으로 넘긴다
+    private synchronized void flush(boolean all) {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        byte[] b = buffer.toByteArray();
+        int end = all ? b.length : charBoundary(b);
+        buffer.reset();
+        buffer.write(b, end, b.length - end);
+        if (end == 0)
+            return;
+        out.accept(Frame.of(Message.of(MessageType.COMPILE_OUT, path, new String(b, 0, end, StandardCharsets.UTF_8))));
+        lineOpen = b[end - 1] != '\n';
+        frames++;
+    }
+
+    // 끝에 잘린 멀티바이트 문자가 있으면 그 시작 위치, 없으면 길이
+    private static int charBoundary(byte[] b) {
+        int i = b.length - 1;
+        int back = 0;
+        while (i >= 0 && back < 3 && (b[i] & 0xC0) == 0x80) {
+            i--;
+            back++;
+        }
+        if (i < 0 || (b[i] & 0x80) == 0)
+            return b.length;
+        int need = (b[i] & 0xE0) == 0xC0 ? 2 : (b[i] & 0xF0) == 0xE0 ? 3 : 4;
+        return b.length - i >= need ? b.length : i;
+    }
+}
@@ -0,0 +1,102 @@
+package ide.server;
+
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 서버에 연결된 하나의 클라이언트 연결을 추상화한 클래스.
+ *
+ * 스레드 기반 엔진과 NIO 기반 엔진이 같은 메시지 처리 로직(CollabServer)을 공유할 수 있도록
+ * 연결 방식과 무관한 상태(닉네임, 역할, 송신 큐)와 송신/종료 동작만을 정의한다.
+ * 송신은 항상 크기 제한 큐(OutboundQueue)를 거치며, 실제 쓰기는 각 엔진의 writer가 담당한다.
+ */
+public abstract class Peer {
+    volatile String nick = "?";
+    volatile String role = "Student";
+    // JOIN에서 바이너리 프로토콜을 협상했으면 true (이후 수신 데이터를 바이너리 프레임으로 읽는다)
+    volatile boolean binary = false;
+    // JOIN에서 버전이 붙은 편집 동기화(sync 옵션)를 협상했으면 true, 아니면 편집을 문서 전체(EDIT)로 받는다
+    volatile boolean versionedSync = false;
+    // JOIN으로 들어간 방 (JOIN 전이면 null)
+    volatile Room room;
+    // 다른 클러스터 노드가 주인인 방에 들어갔으면 그 노드로의 중계 경로 (아니면 null)
+    volatile ClusterNode.Route proxy;
+    // 받았다고 확인(ACK)한 방 순서 번호 (Room의 sequencing 락 안에서 갱신)
+    volatile long ackedSeq;
+    // 마지막 JOIN이 재접속으로 이어져 놓친 메시지만 받았으면 true (문서 스냅샷을 다시 보내지 않는다)
+    volatile boolean resumed;
+    // 마지막으로 메시지를 받은 시각 (nanoTime, 생존 확인용)
+    volatile long lastHeard = System.nanoTime();
+    // JOIN에서 참여자 명단(roster 옵션)을 협상했으면 true, 아니면 참여자 정보를 ROLE_INFO로 받는다
+    volatile boolean rosterUpdates = false;
+    // JOIN에서 생존 확인(hb 옵션)을 협상하여 HeartbeatWheel이 확인 중이면 true
+    volatile boolean heartbeats = false;
+    // 연결 종료 정리(onDisconnect)가 끝났으면 true (생존 확인 대상에서 빠진다)
+    volatile boolean disconnected;
+    final OutboundQueue outbound;
+    private final AtomicBoolean evicted = new AtomicBoolean(false);
+
+    /**
+     * Peer 생성자.
+     *
+     * @param config 송신 큐 크기와 넘침 정책을 담은 서버 설정
+     */
+    Peer(ServerConfig config) {
+        this.outbound = new OutboundQueue(config.queueCapacity, config.overflow);
+    }
+
+    /**
+     * 메시지 한 줄을 이 클라이언트의 송신 큐에 넣는다.
+     * 호출 스레드를 블로킹하지 않으며, 어느 스레드에서든 호출할 수 있다.
+     * 큐가 넘쳐 더 이상 수용할 수 없으면 연결 종료를 요청한다.
+     *
+     * @param line 전송할 메시지 문자열 (개행 문자 제외)
+     */
+    void send(String line) {
+        send(Frame.of(line));
+    }
+
+    /**
+     * 이미 인코딩된 메시지를 송신 큐에 넣는다.
+     * 브로드캐스트에서는 같은 Frame을 모든 수신자에게 넘겨 인코딩을 한 번만 수행한다.
+     *
+     * @param frame 전송할 메시지
+     */
+    void send(Frame frame) {
+        switch (outbound.offer(frame)) {
+            case QUEUED:
+            case DROPPED:
+                onOutboundReady();
+                break;
+            case REJECTED:
+                if (evicted.compareAndSet(false, true))
+                    evict("outbound queue overflow (depth=" + outbound.depth() + ")");
+                break;
+        }
+    }
+
+    /**
+     * 송신 큐에 메시지가 추가되었음을 엔진에 알린다.
+     */
+    abstract void onOutboundReady();
+
+    /**
+     * 더 이상 메시지를 받을 수 없는 클라이언트의 연결을 끊는다.
+     * 정리 작업(onDisconnect)은 엔진의 수신 경로에서 한 번만 수행되어야 한다.
+     *
+     * @param reason 로그에 남길 사유
+     */
+    abstract void evict(String reason);
+
+    /**
+     * 연결을 종료한다.
+     */
+    abstract void close();
+
+    /**
+     * 원격 주소를 반환한다 (로그 출력용).
+     *
+     * @return 원격 소켓 주소
+     */
+    abstract SocketAddress getRemoteAddress();
+}
@@ -0,0 +1,190 @@
+package ide.server;
+
+import ide.net.ReplayFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 방 하나의 강의 기록(replay) 파일을 쓰는 클래스. (--replay=DIR, 방마다 하나)
+ *
+ * 문서 변경(EDIT, EDIT_OP, 삭제, 이름 변경)은 DocumentStore가 락 안에서 알려 주므로 적용 순서 그대로 기록되고,
+ * 교수자의 커서/뷰포트/레이저는 서버가 받은 순서대로 기록된다.
+ * 이벤트는 메모리의 열린 블록에 모았다가 키프레임 주기(--replay-keyframe-sec)나 이벤트 수 한도가 차면
+ * 블록으로 인코딩하여 "collab-replay" 스레드에서 파일에 덧붙인다. 따라서 중계 경로는 파일 쓰기를 기다리지 않는다.
+ * 방이 정리되거나 서버가 종료되면 남은 블록과 색인을 쓰고 파일을 닫는다.
+ */
+final class ReplayRecorder {
+    /** 블록 하나의 최대 이벤트 수 (이동할 때 디코딩하는 양의 상한) */
+    static final int MAX_BLOCK_EVENTS = 4096;
+
+    // 모든 방의 파일 쓰기와 블록 주기를 처리하는 스레드 (쓰기 순서가 파일마다 유지된다)
+    private static final ScheduledExecutorService IO = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "collab-replay");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String room;
+    private final Path file;
+    private final FileChannel channel;
+    private final ReplayFile.Writer writer = new ReplayFile.Writer();
+    private final long startNanos = System.nanoTime();
+    private final long keyframeMs;
+    private final ScheduledFuture<?> ticker;
+    private boolean closed = false; // this
+    private volatile boolean failed = false;
+
+    private ReplayRecorder(String room, Path file, long keyframeMs) throws IOException {
+        this.room = room;
+        this.file = file;
+        this.keyframeMs = keyframeMs;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        byte[] header = writer.header(room, System.currentTimeMillis());
+        IO.execute(() -> write(header));
+        // 이벤트가 뜸해도 키프레임 주기마다 열린 블록을 파일에 내려 둔다
+        this.ticker = IO.scheduleWithFixedDelay(this::cutIfDue, keyframeMs, keyframeMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 방의 기록 파일을 새로 만든다. 파일 이름은 방 이름과 시작 시각이다.
+     *
+     * @param config 기록 디렉터리와 키프레임 주기를 담은 서버 설정
+     * @param room   방 이름
+     * @return 기록기, 파일을 만들 수 없으면 null (기록 없이 진행한다)
+     */
+    static ReplayRecorder open(ServerConfig config, String room) {
+        try {
+            Path dir = Paths.get(config.replayDir);
+            Files.createDirectories(dir);
+            String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+            Path file = dir.resolve(room + "-" + stamp + ReplayFile.EXTENSION);
+            for (int n = 2; Files.exists(file); n++)
+                file = dir.resolve(room + "-" + stamp + "-" + n + ReplayFile.EXTENSION);
+            ReplayRecorder r = new ReplayRecorder(room, file, TimeUnit.SECONDS.toMillis(config.replayKeyframeSec));
+            System.out.println("[SERVER] Recording room " + room + " to " + file);
+            return r;
+        } catch (IOException e) {
+            System.out.println("[SERVER] Cannot record room " + room + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    void docPut(String path, String text) {
+        record(ReplayFile.PUT, path, 0, 0, text);
+    }
+
+    void docOp(String path, int start, int end, String insert) {
+        record(ReplayFile.OP, path, start, end, insert);
+    }
+
+    void docRemove(String path) {
+        record(ReplayFile.REMOVE, path, 0, 0, null);
+    }
+
+    void docRename(String oldPath, String newPath) {
+        record(ReplayFile.RENAME, oldPath, 0, 0, newPath);
+    }
+
+    void cursor(String path, String nick, int dot, int mark) {
+        record(ReplayFile.CURSOR, path, dot, mark, nick);
+    }
+
+    void viewport(String path, int line) {
+        record(ReplayFile.VIEWPORT, path, line, 0, null);
+    }
+
+    void laser(String path, int x, int y) {
+        record(ReplayFile.LASER, path, x, y, null);
+    }
+
+    private synchronized void record(byte type, String path, int a, int b, String text) {
+        if (closed || failed)
+            return;
+        long ts = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (writer.pending() >= MAX_BLOCK_EVENTS || (writer.pending() > 0 && ts - writer.blockStart() >= keyframeMs))
+            cut();
+        writer.append(ts, type, path, a, b, text);
+    }
+
+    private synchronized void cutIfDue() {
+        long ts = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (!closed && writer.pending() > 0 && ts - writer.blockStart() >= keyframeMs)
+            cut();
+    }
+
+    // 열린 블록을 인코딩하여 쓰기 스레드에 넘긴다 (this 락 안에서 호출)
+    private void cut() {
+        byte[] block = writer.cutBlock();
+        if (block != null)
+            IO.execute(() -> write(block));
+    }
+
+    /**
+     * 남은 블록과 색인을 쓰고 파일을 닫는다. 쓰기는 기록 스레드에서 하므로 기다리지 않는다.
+     */
+    void close() {
+        byte[] block;
+        byte[] footer;
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            ticker.cancel(false);
+            block = writer.cutBlock();
+            footer = writer.footer();
+        }
+        IO.execute(() -> {
+            if (block != null)
+                write(block);
+            write(footer);
+            try {
+                channel.close();
+                System.out.println("[SERVER] Recording of room " + room + " closed: " + file.getFileName() + " ("
+                        + Files.size(file) / 1024 + " KB)");
+            } catch (IOException ignored) {
+            }
+        });
+    }
+
+    /**
+     * 앞서 넘긴 파일 쓰기가 모두 끝날 때까지 기다린다. (서버 종료 훅에서 close() 뒤에 호출, 최대 5초)
+     */
+    static void flushAll() {
+        try {
+            IO.submit(() -> {
+            }).get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.out.println("[SERVER] Recordings not closed cleanly: " + e);
+        }
+    }
+
+    // 쓰기 스레드에서만 호출
+    private void write(byte[] bytes) {
+        if (failed)
+            return;
+        try {
+            ByteBuffer b = ByteBuffer.wrap(bytes);
+            while (b.hasRemaining())
+                channel.write(b);
+        } catch (IOException e) {
+            failed = true;
+            System.out.println("[SERVER] Recording of room " + room + " stopped: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ide.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 방에 보낸 신뢰성 메시지를 순서 번호와 함께 최근 것만 보관하는 고정 크기 링 버퍼.
+ *
+ * 잠깐 연결이 끊겼던 클라이언트가 마지막으로 받은 번호를 알려 주면, 그 뒤의 메시지만 다시 보내
+ * 열린 문서 전체를 새로 받지 않고 이어서 진행할 수 있게 한다.
+ * 용량(--resume-buffer)을 넘으면 가장 오래된 메시지부터 버리고, 모든 인원이 받았다고 확인(ACK)한 메시지도 미리 버린다.
+ * 동기화는 하지 않으며, 방의 브로드캐스트 락 안에서만 사용한다.
+ */
+final class ResumeBuffer {
+    private final Frame[] frames;
+    // 메시지를 보낸 사람의 닉네임 (보낸 사람에게는 전달되지 않았으므로 재전송에서도 뺀다)
+    private final String[] senders;
+    private long first = 1; // 보관 중인 가장 오래된 번호
+    private long next = 1;  // 다음 메시지에 붙일 번호
+
+    /**
+     * ResumeBuffer 생성자.
+     *
+     * @param capacity 보관할 최대 메시지 수 (1 이상)
+     */
+    ResumeBuffer(int capacity) {
+        this.frames = new Frame[capacity];
+        this.senders = new String[capacity];
+    }
+
+    /**
+     * 메시지에 다음 번호를 붙여 보관한다. 용량이 차면 가장 오래된 메시지를 버린다.
+     *
+     * @param payload 방에 보낼 메시지
+     * @param sender  보낸 사람 닉네임 (서버가 만든 메시지이면 null)
+     * @return 번호가 붙은 Frame (수신자에게 이것을 보낸다)
+     */
+    Frame append(Frame payload, String sender) {
+        long seq = next++;
+        Frame f = Frame.sequenced(payload, seq);
+        int i = slot(seq);
+        frames[i] = f;
+        senders[i] = sender;
+        if (next - first > frames.length)
+            discardThrough(first);
+        return f;
+    }
+
+    /** @return 마지막으로 붙인 번호 (아직 없으면 0) */
+    long last() {
+        return next - 1;
+    }
+
+    /**
+     * 주어진 번호 뒤의 메시지를 모두 보관하고 있는지 확인한다.
+     *
+     * @param seq 클라이언트가 마지막으로 받은 번호
+     * @return 이어서 보낼 수 있으면 true
+     */
+    boolean covers(long seq) {
+        return seq >= first - 1 && seq <= next - 1;
+    }
+
+    /**
+     * 주어진 번호 뒤의 메시지를 번호 순으로 반환한다. 그 사람이 보낸 메시지는 뺀다.
+     *
+     * @param seq  클라이언트가 마지막으로 받은 번호 (covers가 true여야 한다)
+     * @param nick 재접속한 사람의 닉네임
+     * @return 다시 보낼 Frame 목록
+     */
+    List<Frame> since(long seq, String nick) {
+        List<Frame> missed = new ArrayList<>((int) (next - 1 - seq));
+        for (long s = seq + 1; s < next; s++) {
+            int i = slot(s);
+            if (!Objects.equals(senders[i], nick))
+                missed.add(frames[i]);
+        }
+        return missed;
+    }
+
+    /**
+     * 주어진 번호까지의 메시지를 버린다. (모두가 받았거나 더 이상 재접속을 기다리지 않는 경우)
+     *
+     * @param seq 버릴 마지막 번호
+     */
+    void discardThrough(long seq) {
+        long upTo = Math.min(seq, next - 1);
+        for (; first <= upTo; first++) {
+            int i = slot(first);
+            frames[i] = null;
+            senders[i] = null;
+        }
+    }
+
+    /** @return 보관 중인 메시지 수 */
+    int size() {
+        return (int) (next - first);
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % frames.length);
+    }
+}
@@ -0,0 +1,391 @@
+package ide.server;
+
+import ide.net.Message;
+import ide.net.MessageType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * 하나의 방(강의 채널)에 속한 상태를 담는 클래스.
+ *
+ * 클라이언트는 JOIN 때 방을 고르며, 브로드캐스트, 컴파일 락, 공유 문서는 모두 방 단위로 분리된다.
+ * 따라서 한 서버에서 여러 강의가 진행되어도 서로의 메시지를 받지 않고,
+ * 브로드캐스트 비용은 서버 전체가 아니라 방 인원에 비례한다.
+ * 방 전체에 보내는 신뢰성 메시지에는 순서 번호를 붙여 최근 것을 보관하므로(ResumeBuffer),
+ * 잠깐 끊겼다 다시 들어온 클라이언트에게는 놓친 메시지만 보낼 수 있다.
+ * 참여자 명단은 서버가 관리하며, 들어올 때 전체 명단을 한 번 보내고 이후에는 버전이 붙은 변경(ENTER/LEAVE)만 보낸다.
+ * 명단을 협상하지 않은 구버전 클라이언트에게는 예전처럼 참여자마다 ROLE_INFO를 보내고 퇴장은 알리지 않는다.
+ */
+final class Room {
+    /** 교수자가 없는 동안 보관하는 질문의 최대 수 (넘으면 오래된 질문부터 버린다) */
+    static final int MAX_PENDING_QUESTIONS = 100;
+
+    /** 저널 스냅샷에 담는 방 상태 */
+    static final class Saved {
+        final String name;
+        final List<DocumentStore.Saved> documents;
+        final Map<String, String> locks;
+        final List<String[]> questions;
+
+        Saved(String name, List<DocumentStore.Saved> documents, Map<String, String> locks, List<String[]> questions) {
+            this.name = name;
+            this.documents = documents;
+            this.locks = locks;
+            this.questions = questions;
+        }
+    }
+
+    /** 명단의 한 사람: 역할과 그 닉네임으로 들어와 있는 연결 수 */
+    private static final class Presence {
+        String role;
+        int connections;
+    }
+
+    final String name;
+    // 방 메시지 흐름의 식별자. 서버가 다시 시작되거나 방이 새로 만들어지면 바뀌므로, 이전 번호로는 재접속할 수 없다
+    final long epoch = ThreadLocalRandom.current().nextLong(1, 1L << 53);
+    // 인원 목록은 락 없이 순회할 수 있도록 동시성 컬렉션을 사용한다
+    final Set<Peer> members = ConcurrentHashMap.newKeySet();
+    // 파일별 컴파일 락 (임대 기간과 소유자별 역색인 포함)
+    final CompileLockService compileLocks;
+    // 가상 경로별 문서 내용과 버전 (늦게 들어온 클라이언트에게 전송)
+    final DocumentStore documents;
+    // 강의 기록 (--replay를 주지 않았거나 파일을 만들지 못했으면 null)
+    final ReplayRecorder replay;
+    // 교수자가 없을 때 받은 질문 {닉네임, 내용} (교수자가 들어오면 전달한다)
+    private final ArrayDeque<String[]> pendingQuestions = new ArrayDeque<>();
+    private final SessionJournal journal;
+    // 순서 번호를 붙인 최근 메시지 (--resume-buffer=0 이면 null: 번호 없이 보낸다)
+    private final ResumeBuffer history;
+    // 번호 부여, 보관, 인원별 송신 큐에 넣기를 한 번에 하여 모든 인원이 같은 순서로 받게 한다
+    // (synchronized 대신 ReentrantLock: 가상 스레드 pinning 방지)
+    private final ReentrantLock sequencing = new ReentrantLock();
+    // 재접속을 기다리는 사람: 닉네임 -> {마지막으로 확인한 번호, 기다리는 기한(nanoTime)} (sequencing 락)
+    private final Map<String, long[]> departed = new HashMap<>();
+    private final long resumeWindowNanos;
+    // 참여자 명단: 닉네임 -> 역할과 연결 수 (들어온 순). 바뀔 때마다 rosterVersion이 증가한다 (sequencing 락)
+    private final Map<String, Presence> roster = new LinkedHashMap<>();
+    private long rosterVersion = 0;
+
+    /**
+     * Room 생성자.
+     *
+     * @param name    방 이름
+     * @param config  문서 저장소 크기 제한, 컴파일 락 임대 기간, 강의 기록 설정을 담은 서버 설정
+     * @param journal 세션 저널 (null이면 방 상태를 기록하지 않음)
+     */
+    Room(String name, ServerConfig config, SessionJournal journal) {
+        this.name = name;
+        this.journal = journal;
+        this.replay = config.replayDir == null ? null : ReplayRecorder.open(config, name);
+        this.documents = new DocumentStore(config.maxDocuments, config.maxDocumentChars, journal, replay, name);
+        this.compileLocks = new CompileLockService(TimeUnit.SECONDS.toNanos(config.compileLeaseSec), journal, name);
+        this.history = config.resumeBuffer > 0 ? new ResumeBuffer(config.resumeBuffer) : null;
+        this.resumeWindowNanos = TimeUnit.SECONDS.toNanos(config.resumeSec);
+    }
+
+    /**
+     * 클라이언트를 방에 넣고 메시지 흐름 정보(RESUME)를 보낸다.
+     * 같은 흐름(epoch)의 번호를 주었고 그 뒤의 메시지를 아직 보관하고 있으면 놓친 메시지를 이어서 보낸다.
+     * 처음부터 받는 경우에는 참여자 명단(ROSTER)을 보내고, 재접속이면 놓친 명단 변경(ENTER/LEAVE)으로 충분하다.
+     * 명단을 협상하지 않은 클라이언트에게는 명단 대신 참여자마다 ROLE_INFO를 보낸다.
+     * 인원 추가와 재전송을 브로드캐스트와 같은 락 안에서 하므로, 빠지거나 두 번 받는 메시지가 없다.
+     *
+     * @param p           들어오는 클라이언트 (닉네임과 역할이 정해져 있어야 한다)
+     * @param resumeEpoch 클라이언트가 알고 있는 흐름 식별자 (처음 들어오면 0)
+     * @param resumeSeq   클라이언트가 마지막으로 받은 번호
+     * @return 놓친 메시지만 보냈으면 true, 처음부터 받아야 하면 false
+     */
+    boolean join(Peer p, long resumeEpoch, long resumeSeq) {
+        sequencing.lock();
+        try {
+            members.add(p);
+            boolean resumed = false;
+            if (history != null) {
+                departed.remove(p.nick);
+                resumed = resumeEpoch == epoch && history.covers(resumeSeq);
+                long from = resumed ? resumeSeq : history.last();
+                p.ackedSeq = from;
+                p.send(Frame.of(Message.of(MessageType.RESUME, epoch, from, resumed ? 1 : 0)));
+                if (resumed) {
+                    List<Frame> missed = history.since(resumeSeq, p.nick);
+                    for (Frame f : missed)
+                        p.send(f);
+                    System.out.println("[SERVER] " + p.nick + " resumed room " + name + " at #" + resumeSeq + ", "
+                            + missed.size() + " missed message(s)");
+                }
+            }
+            boolean announced = enter(p);
+            if (!resumed && p.rosterUpdates) {
+                p.send(rosterFrame());
+            } else if (!resumed) {
+                // 자신의 ROLE_INFO는 입장 알림으로 이미 받았다
+                for (Map.Entry<String, Presence> e : roster.entrySet())
+                    if (!announced || !e.getKey().equals(p.nick))
+                        p.send(roleInfoFrame(e.getKey(), e.getValue().role));
+            }
+            return resumed;
+        } finally {
+            sequencing.unlock();
+        }
+    }
+
+    /**
+     * 클라이언트를 방에서 뺀다. 재접속 대기 시간(--resume-sec) 동안은 그 사람이 받지 못한 메시지를 보관한다.
+     * 그 닉네임의 마지막 연결이었으면 명단에서 빼고 모든 인원에게 퇴장(LEAVE)을 알린다.
+     * (재접속한 새 연결이 들어온 뒤에 이전 연결이 정리되면 명단은 그대로 둔다)
+     *
+     * @param p 나가는 클라이언트
+     * @return 그 닉네임이 방을 떠났으면 true
+     */
+    boolean leave(Peer p) {
+        sequencing.lock();
+        try {
+            if (!members.remove(p))
+                return false;
+            if (history != null) {
+                if (resumeWindowNanos > 0)
+                    departed.put(p.nick, new long[] { p.ackedSeq, System.nanoTime() + resumeWindowNanos });
+                trim();
+            }
+            Presence entry = roster.get(p.nick);
+            if (entry == null || --entry.connections > 0)
+                return false;
+            roster.remove(p.nick);
+            rosterVersion++;
+            broadcast(Frame.of(Message.of(MessageType.LEAVE, rosterVersion, p.nick)), null, c -> c.rosterUpdates, null);
+            return true;
+        } finally {
+            sequencing.unlock();
+        }
+    }
+
+    /**
+     * 참여자 명단 전체를 다시 보낸다. (클라이언트가 명단 변경을 놓쳤다고 요청한 경우)
+     *
+     * @param p 요청한 클라이언트
+     */
+    void sendRoster(Peer p) {
+        sequencing.lock();
+        try {
+            p.send(rosterFrame());
+        } finally {
+            sequencing.unlock();
+        }
+    }
+
+    // 명단에 연결 하나를 더한다. 새 참여자이거나 역할이 바뀌었으면 모든 인원에게 알리고 true를 반환한다
+    // (구버전 클라이언트에게는 ROLE_INFO로 알린다, sequencing 락 안에서 호출)
+    private boolean enter(Peer p) {
+        Presence entry = roster.computeIfAbsent(p.nick, n -> new Presence());
+        entry.connections++;
+        if (p.role.equals(entry.role))
+            return false;
+        entry.role = p.role;
+        rosterVersion++;
+        broadcast(Frame.of(Message.of(MessageType.ENTER, rosterVersion, p.nick, p.role)),
+                roleInfoFrame(p.nick, p.role), c -> c.rosterUpdates, null);
+        return true;
+    }
+
+    private static Frame roleInfoFrame(String nick, String role) {
+        return Frame.of(Message.of(MessageType.ROLE_INFO, nick, role));
+    }
+
+    // 현재 명단을 "닉네임\t역할" 줄로 담은 ROSTER 메시지 (sequencing 락 안에서 호출)
+    private Frame rosterFrame() {
+        StringBuilder entries = new StringBuilder();
+        for (Map.Entry<String, Presence> e : roster.entrySet())
+            entries.append(e.getKey()).append('\t').append(e.getValue().role).append('\n');
+        return Frame.of(Message.of(MessageType.ROSTER, rosterVersion, entries.toString()));
+    }
+
+    /**
+     * 클라이언트가 받았다고 확인한 번호를 기록하고, 모두가 받은 메시지를 버린다.
+     *
+     * @param p   확인을 보낸 클라이언트
+     * @param seq 받은 마지막 번호
+     */
+    void acknowledge(Peer p, long seq) {
+        if (history == null)
+            return;
+        sequencing.lock();
+        try {
+            if (seq > p.ackedSeq)
+                p.ackedSeq = Math.min(seq, history.last());
+            trim();
+        } finally {
+            sequencing.unlock();
+        }
+    }
+
+    // 현재 인원과 재접속을 기다리는 사람이 모두 받은 번호까지 버린다 (sequencing 락 안에서 호출)
+    private void trim() {
+        long min = history.last();
+        for (Peer c : members)
+            min = Math.min(min, c.ackedSeq);
+        long now = System.nanoTime();
+        for (Iterator<long[]> it = departed.values().iterator(); it.hasNext();) {
+            long[] d = it.next();
+            if (now - d[1] > 0)
+                it.remove();
+            else
+                min = Math.min(min, d[0]);
+        }
+        history.discardThrough(min);
+    }
+
+
+    /**
+     * 교수자에게 전달하지 못한 질문을 보관한다.
+     *
+     * @param nick 질문한 학생 닉네임
+     * @param text 질문 내용
+     */
+    void queueQuestion(String nick, String text) {
+        if (journal != null)
+            journal.enter();
+        try {
+            synchronized (pendingQuestions) {
+                pendingQuestions.add(new String[] { nick, text });
+                if (pendingQuestions.size() > MAX_PENDING_QUESTIONS)
+                    pendingQuestions.poll();
+                if (journal != null)
+                    journal.questionQueued(name, nick, text);
+            }
+        } finally {
+            if (journal != null)
+                journal.exit();
+        }
+    }
+
+    /**
+     * 보관한 질문을 모두 꺼낸다. (교수자가 들어왔을 때)
+     *
+     * @return {닉네임, 내용} 목록 (받은 순)
+     */
+    List<String[]> takeQuestions() {
+        if (journal != null)
+            journal.enter();
+        try {
+            synchronized (pendingQuestions) {
+                if (pendingQuestions.isEmpty())
+                    return List.of();
+                List<String[]> taken = new ArrayList<>(pendingQuestions);
+                pendingQuestions.clear();
+                if (journal != null)
+                    journal.questionsDelivered(name);
+                return taken;
+            }
+        } finally {
+            if (journal != null)
+                journal.exit();
+        }
+    }
+
+    /**
+     * 저널 스냅샷에 담을 방 상태를 모은다. (저널이 모든 변경을 막은 상태에서 호출된다)
+     *
+     * @return 방 상태
+     */
+    Saved save() {
+        List<String[]> questions;
+        synchronized (pendingQuestions) {
+            questions = new ArrayList<>(pendingQuestions);
+        }
+        return new Saved(name, documents.save(), compileLocks.save(), questions);
+    }
+
+    /**
+     * 작업을 방의 순서 락 안에서 실행한다. (--resume-buffer=0 이어도 락을 잡는다)
+     * 문서 저장소에 적용하고 방에 보내는 일을 한 번에 하여, 적용한 순서와 인원이 받는 순서가 같게 한다.
+     * 락은 재진입할 수 있으므로 작업 안에서 broadcast를 호출해도 된다.
+     *
+     * @param action 실행할 작업
+     */
+    void sequenced(Runnable action) {
+        sequencing.lock();
+        try {
+            action.run();
+        } finally {
+            sequencing.unlock();
+        }
+    }
+
+    /**
+     * 방의 모든 인원(제외 대상 제외)에게 메시지를 전송한다.
+     * 메시지는 형식별로 한 번만 인코딩되어 모든 수신자의 송신 큐에 공유된다.
+     * 신뢰성 메시지에는 방 순서 번호를 붙여 보관한다. 휘발성 메시지(커서/레이저/뷰포트)는 번호 없이 바로 보낸다.
+     *
+     * @param frame  전송할 메시지
+     * @param except 전송에서 제외할 클라이언트 (null이면 모두에게)
+     */
+    void broadcast(Frame frame, Peer except) {
+        if (history == null || frame.ephemeral) {
+            for (Peer c : members)
+                if (c != except)
+                    c.send(frame);
+            return;
+        }
+        sequencing.lock();
+        try {
+            Frame f = history.append(frame, except == null ? null : except.nick);
+            for (Peer c : members)
+                if (c != except)
+                    c.send(f);
+        } finally {
+            sequencing.unlock();
+        }
+    }
+
+    /**
+     * 기능을 협상한 인원에게는 frame을, 협상하지 않은 구버전 클라이언트에게는 대체 메시지를 보낸다.
+     * 순서 번호는 frame에만 붙인다. (구버전 클라이언트는 재접속 이어받기를 하지 않는다)
+     *
+     * @param frame    기능을 지원하는 인원에게 보낼 신뢰성 메시지
+     * @param fallback 지원하지 않는 인원에게 보낼 메시지 (null이면 보내지 않는다)
+     * @param supports 인원이 기능을 지원하는지 여부
+     * @param except   전송에서 제외할 클라이언트 (null이면 모두에게)
+     */
+    void broadcast(Frame frame, Frame fallback, Predicate<Peer> supports, Peer except) {
+        sequencing.lock();
+        try {
+            Frame f = history == null ? frame : history.append(frame, except == null ? null : except.nick);
+            for (Peer c : members) {
+                if (c == except)
+                    continue;
+                if (supports.test(c))
+                    c.send(f);
+                else if (fallback != null)
+                    c.send(fallback);
+            }
+        } finally {
+            sequencing.unlock();
+        }
+    }
+
+    /**
+     * 조건에 맞는 인원이 있는지 확인한다. (구버전 클라이언트용 메시지를 만들 필요가 있는지 볼 때)
+     *
+     * @param test 조건
+     * @return 한 명이라도 맞으면 true
+     */
+    boolean anyMember(Predicate<Peer> test) {
+        for (Peer c : members)
+            if (test.test(c))
+                return true;
+        return false;
+    }
+}
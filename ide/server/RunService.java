@@ -0,0 +1,284 @@
+package ide.server;
+
+import ide.net.Message;
+import ide.net.MessageType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 컴파일된 학생 프로그램을 별도의 작업자 JVM(RunWorkerMain)에서 실행하는 서비스.
+ *
+ * 학생 코드는 서버 JVM에서 실행하지 않는다. 무한 루프, System.exit, 메모리 폭주가 중계 서버를 멈추지 못하도록
+ * 작업자 프로세스마다 힙(-Xmx), CPU 시간, 실행 시간(wall-clock) 한도를 두고, 한도를 넘은 작업자는 종료한 뒤 새로 띄운다.
+ * 작업자는 미리 띄워 두므로(pre-warm) 실행마다 JVM 시작 비용을 치르지 않는다.
+ * 실행 대기열은 JobScheduler로, 교수자의 실행이 먼저이고 학생 사이에서는 작업자 시간을 공정하게 나눈다.
+ * 따라서 한 학생이 무한 루프를 반복 제출해도 다른 학생의 실행이 밀리지 않는다.
+ * 프로그램 출력은 OutputBatcher로 묶어 COMPILE_OUT으로, 종료는 COMPILE_END로 보낸다.
+ */
+final class RunService {
+    /** 프로그램이 0이 아닌 코드로 끝났거나 한도를 넘음 */
+    static final int EXIT_RUN_FAILED = 3;
+
+    private static final int MAX_QUEUED_PER_USER = 2;
+    private static final int QUEUE_CAPACITY = 256;
+    private static final long INITIAL_ESTIMATE_MS = 1000;
+    private static final long READY_TIMEOUT_MS = 30_000;
+
+    // 실행 작업 하나
+    private static final class Job {
+        final Peer requester;
+        final String user;
+        final String path;
+        final Map<String, byte[]> classes;
+        final String mainClass;
+        final Consumer<Frame> out;
+
+        Job(Peer requester, String path, Map<String, byte[]> classes, String mainClass, Consumer<Frame> out) {
+            this.requester = requester;
+            this.user = requester.nick;
+            this.path = path;
+            this.classes = classes;
+            this.mainClass = mainClass;
+            this.out = out;
+        }
+    }
+
+    private final ServerConfig config;
+    private final JobScheduler<Job> queue;
+    private final ScheduledExecutorService timer;
+
+    /**
+     * RunService 생성자. 작업자 수만큼 실행 스레드를 만들고 각자 작업자 JVM을 미리 띄운다.
+     *
+     * @param config 작업자 수와 실행 한도를 담은 서버 설정
+     */
+    RunService(ServerConfig config) {
+        this.config = config;
+        this.queue = new JobScheduler<>("run", config.runWorkers, config.jobsPerUser, MAX_QUEUED_PER_USER,
+                QUEUE_CAPACITY, INITIAL_ESTIMATE_MS);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "collab-run-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < config.runWorkers; i++) {
+            Thread t = new Thread(this::runnerLoop, "collab-runner-" + (i + 1));
+            t.setDaemon(true);
+            t.start();
+        }
+        System.out.println("[SERVER] Run service: " + config.runWorkers + " worker JVM(s), heap "
+                + config.runHeapMb + " MB, cpu " + config.runCpuSec + "s, wall " + config.runWallSec + "s");
+    }
+
+    /**
+     * 컴파일된 프로그램의 실행을 예약한다. 결과는 COMPILE_OUT/COMPILE_END로 비동기 전송된다.
+     *
+     * @param requester 요청한 클라이언트
+     * @param path      실행할 문서의 가상 경로
+     * @param compiled  컴파일 결과
+     * @param out       출력 메시지를 보낼 함수
+     */
+    void submit(Peer requester, String path, CompileService.Result compiled, Consumer<Frame> out) {
+        String mainClass = mainClassOf(path, compiled.classes);
+        if (mainClass == null) {
+            finish(out, path, CompileService.EXIT_UNAVAILABLE, "실행할 클래스를 찾지 못했습니다.");
+            return;
+        }
+        String refused = queue.submit(requester.nick, "Professor".equals(requester.role), path,
+                new Job(requester, path, compiled.classes, mainClass, out), requester::send);
+        if (refused != null)
+            finish(out, path, CompileService.EXIT_UNAVAILABLE, refused);
+    }
+
+    /**
+     * 클라이언트의 대기 중인 실행을 취소한다. (이미 실행 중인 프로그램은 한도까지 실행된다)
+     *
+     * @param requester 연결이 끊긴 클라이언트
+     */
+    void cancel(Peer requester) {
+        int n = queue.cancel(job -> job.requester == requester).size();
+        if (n > 0)
+            System.out.println("[SERVER] Cancelled " + n + " queued run(s) for " + requester.nick);
+    }
+
+    // 파일 이름과 같은 이름의 클래스 (패키지가 있으면 패키지 포함)
+    private static String mainClassOf(String path, Map<String, byte[]> classes) {
+        String file = path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+        int dot = file.lastIndexOf('.');
+        String simple = dot > 0 ? file.substring(0, dot) : file;
+        for (String name : classes.keySet())
+            if (name.equals(simple) || name.endsWith("." + simple))
+                return name;
+        return null;
+    }
+
+    private void runnerLoop() {
+        Worker w = spawn();
+        while (true) {
+            JobScheduler.Ticket<Job> ticket;
+            try {
+                ticket = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Job job = ticket.payload;
+            boolean reusable = false;
+            try {
+                if (w == null)
+                    w = spawn();
+                if (w == null)
+                    finish(job.out, job.path, CompileService.EXIT_UNAVAILABLE, "실행 환경을 시작하지 못했습니다.");
+                else
+                    reusable = w.execute(job);
+            } finally {
+                queue.done(ticket);
+            }
+            if (w != null && !reusable) {
+                w.destroy();
+                w = spawn(); // 다음 작업을 위해 바로 새 작업자를 데워 둔다
+            }
+        }
+    }
+
+    private Worker spawn() {
+        try {
+            return new Worker();
+        } catch (IOException e) {
+            System.out.println("[SERVER] Failed to start run worker: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void finish(Consumer<Frame> out, String path, int code, String message) {
+        out.accept(OutputBatcher.line(path, message));
+        out.accept(Frame.of(Message.of(MessageType.COMPILE_END, path, code)));
+    }
+
+    // 작업자 JVM 하나
+    private final class Worker {
+        private final Process process;
+        private final Path dir;
+        private final DataOutputStream toWorker;
+        private final DataInputStream fromWorker;
+        private volatile boolean timedOut;
+
+        Worker() throws IOException {
+            dir = Files.createTempDirectory("soco-run-");
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            List<String> cmd = List.of(java, "-Xmx" + config.runHeapMb + "m", "-XX:+UseSerialGC",
+                    "-XX:TieredStopAtLevel=1", "-XX:ActiveProcessorCount=1", "-Dfile.encoding=UTF-8",
+                    "-cp", System.getProperty("java.class.path"), RunWorkerMain.class.getName(),
+                    Long.toString(config.runOutputKb * 1024L));
+            process = new ProcessBuilder(cmd).directory(dir.toFile())
+                    .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            toWorker = new DataOutputStream(new BufferedOutputStream(process.getOutputStream(), 64 * 1024));
+            fromWorker = new DataInputStream(new BufferedInputStream(process.getInputStream(), 64 * 1024));
+            ScheduledFuture<?> guard = timer.schedule(process::destroyForcibly, READY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            try {
+                if (fromWorker.readByte() != RunWorkerMain.READY)
+                    throw new IOException("unexpected handshake");
+            } catch (IOException e) {
+                destroy();
+                throw new IOException("worker did not become ready: " + e.getMessage(), e);
+            } finally {
+                guard.cancel(false);
+            }
+        }
+
+        // 작업을 실행하고 출력을 중계한다. 작업자를 계속 쓸 수 있으면 true
+        boolean execute(Job job) {
+            long start = System.nanoTime();
+            job.out.accept(OutputBatcher.line(job.path, "▶ 실행: " + job.mainClass));
+            timedOut = false;
+            ScheduledFuture<?> wall = timer.schedule(() -> {
+                timedOut = true;
+                process.destroyForcibly();
+            }, config.runWallSec, TimeUnit.SECONDS);
+            // 출력 한도는 작업자가 먼저 적용하고 안내 문구를 붙이므로, 여기서는 그 문구가 들어갈 여유를 더 둔다
+            OutputBatcher batch = new OutputBatcher(job.out, job.path, config.outputBatchMs,
+                    config.outputBatchKb * 1024, config.runOutputKb * 1024L + 1024, timer);
+            int code;
+            String reason = "";
+            boolean reusable = false;
+            try {
+                toWorker.writeInt(job.classes.size());
+                for (Map.Entry<String, byte[]> e : job.classes.entrySet()) {
+                    toWorker.writeUTF(e.getKey());
+                    toWorker.writeInt(e.getValue().length);
+                    toWorker.write(e.getValue());
+                }
+                toWorker.writeUTF(job.mainClass);
+                toWorker.writeLong(TimeUnit.SECONDS.toNanos(config.runCpuSec));
+                toWorker.flush();
+                while (true) {
+                    byte kind = fromWorker.readByte();
+                    if (kind == RunWorkerMain.EXIT) {
+                        code = fromWorker.readInt();
+                        reason = fromWorker.readUTF();
+                        reusable = fromWorker.readBoolean(); // 작업이 남긴 스레드가 있거나 한도를 넘었으면 false
+                        break;
+                    }
+                    byte[] chunk = new byte[fromWorker.readInt()];
+                    fromWorker.readFully(chunk);
+                    batch.add(chunk);
+                }
+            } catch (IOException e) {
+                // 작업자가 끝남: 시간 초과로 종료했거나 프로그램이 System.exit를 불렀다
+                code = exitValue();
+                if (timedOut)
+                    reason = "실행 시간 제한(" + config.runWallSec + "초) 초과";
+                else if (!(e instanceof EOFException))
+                    reason = "작업자 오류: " + e.getMessage();
+            } finally {
+                wall.cancel(false);
+            }
+            int frames = batch.close();
+            long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            String summary = "▶ 실행 종료: " + (reason.isEmpty() ? "종료 코드 " + code : reason) + ", " + ms + " ms";
+            finish(job.out, job.path, code == 0 && reason.isEmpty() ? CompileService.EXIT_OK : EXIT_RUN_FAILED, summary);
+            System.out.println("[SERVER] Ran " + job.mainClass + " for " + job.user + " (exit " + code + ", " + ms
+                    + " ms, " + frames + " output frames" + (reusable ? "" : ", worker recycled") + ")");
+            return reusable;
+        }
+
+        private int exitValue() {
+            try {
+                process.waitFor(2, TimeUnit.SECONDS);
+                return process.isAlive() ? -1 : process.exitValue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return -1;
+            }
+        }
+
+        void destroy() {
+            process.destroyForcibly();
+            try (Stream<Path> files = Files.walk(dir)) {
+                List<Path> all = new ArrayList<>();
+                files.forEach(all::add);
+                all.sort(Comparator.reverseOrder());
+                for (Path p : all)
+                    Files.deleteIfExists(p);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package ide.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * 학생 프로그램을 실행하는 작업자 JVM의 진입점. (서버의 RunService가 자식 프로세스로 띄운다)
+ *
+ * 표준 입력으로 작업(클래스 파일들과 main 클래스 이름)을 받아, 작업마다 새 클래스 로더로 클래스를 올려 main을 실행한다.
+ * 클래스 로더의 부모는 플랫폼 클래스 로더이므로 학생 코드는 서버 클래스를 볼 수 없고, 작업 사이에 static 상태가 남지 않는다.
+ * 프로그램의 System.out/err는 가로채어 하나의 버퍼에 쓰고(출력 순서 유지), 감시 주기마다 표준 출력(서버와의 통신 채널)으로 보낸다.
+ * println마다 채널에 쓰지 않으므로 반복문에서 출력하는 프로그램도 시스템 호출을 줄마다 하지 않는다.
+ * 작업자는 작업이 쓴 CPU 시간(프로세스 CPU 시간에서 준비를 마쳤을 때부터 있던 스레드의 몫을 뺀 값)을 감시하다가
+ * 한도를 넘으면 종료를 알리고 스스로 멈춘다. 힙은 -Xmx로 제한된다.
+ * 작업이 끝난 뒤 준비를 마쳤을 때 없던 스레드가 남아 있으면(작업 스레드 그룹 밖에서 만든 스레드, 가상 스레드를 돌리는
+ * 캐리어 스레드 포함) 다음 작업에 새지 않도록 재사용하지 않는다.
+ *
+ * 채널 형식 (DataOutputStream):
+ * 서버 -> 작업자: [클래스 수: int] ([이름: UTF][길이: int][바이트])... [main 클래스: UTF][CPU 한도 ns: long]
+ * 작업자 -> 서버: [종류: byte][...], 종류는 READY(내용 없음), STDOUT/STDERR([길이: int][바이트]),
+ * EXIT([코드: int][사유: UTF][재사용 가능: boolean])
+ */
+public final class RunWorkerMain {
+    static final byte READY = 'R';
+    static final byte STDOUT = 'O';
+    static final byte STDERR = 'E';
+    static final byte EXIT = 'X';
+    /** CPU 시간 한도 초과로 작업자가 스스로 종료할 때의 코드 */
+    static final int EXIT_CPU_LIMIT = 152;
+
+    private static final long WATCH_INTERVAL_MS = 20;
+    private static final int OUTPUT_BUFFER = 8 * 1024;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private static DataOutputStream channel;
+    private static long outputCap;
+    private static Set<Long> baselineThreads; // 준비를 마쳤을 때 살아 있던 스레드 (작업과 무관한 JVM 스레드)
+
+    private RunWorkerMain() {
+    }
+
+    /**
+     * 작업자 루프를 실행한다.
+     *
+     * @param args [0] 작업 하나의 최대 출력 바이트 수
+     * @throws IOException 서버와의 채널이 끊긴 경우
+     */
+    public static void main(String[] args) throws IOException {
+        outputCap = args.length > 0 ? Long.parseLong(args[0]) : 64 * 1024;
+        channel = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in, 64 * 1024));
+        System.setIn(new ByteArrayInputStream(new byte[0]));
+        warmUp();
+        baselineThreads = liveThreadIds();
+        synchronized (channel) {
+            channel.writeByte(READY);
+            channel.flush();
+        }
+        while (true) {
+            int count;
+            try {
+                count = in.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+            Map<String, byte[]> classes = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                classes.put(name, bytes);
+            }
+            String mainClass = in.readUTF();
+            long cpuLimitNanos = in.readLong();
+            if (!runJob(classes, mainClass, cpuLimitNanos))
+                Runtime.getRuntime().halt(0); // 작업이 남긴 스레드가 있으면 재사용하지 않는다 (서버가 새 작업자를 띄운다)
+        }
+    }
+
+    // 학생 프로그램이 처음 쓰는 공통 경로(문자열 연결, 람다, 포맷 출력)를 미리 초기화해 둔다
+    private static void warmUp() {
+        PrintStream sink = new PrintStream(OutputStream.nullOutputStream(), true, StandardCharsets.UTF_8);
+        sink.println("warm" + System.nanoTime());
+        sink.printf("%d %s %.2f%n", 1, "a", 1.5);
+        sink.println(IntStream.range(0, 100).map(x -> x * 2).boxed().toList());
+        sink.println(new java.util.Scanner("1 2").nextInt());
+        sink.println(jobCpuTime()); // 감시에 쓰는 관리 빈이 처음 만드는 스레드도 기준에 들어가게 한다
+    }
+
+    // 작업 하나를 실행하고 EXIT를 보낸다. 작업자를 계속 쓸 수 있으면 true
+    private static boolean runJob(Map<String, byte[]> classes, String mainClass, long cpuLimitNanos)
+            throws IOException {
+        PrintStream stdout = System.out;
+        PrintStream stderr = System.err;
+        // out과 err가 같은 버퍼를 쓰므로 서버에 도착하는 순서가 프로그램이 출력한 순서와 같다
+        BufferedOutputStream sink = new BufferedOutputStream(new Capture(STDOUT, new AtomicLong(outputCap)),
+                OUTPUT_BUFFER);
+        PrintStream out = new PrintStream(sink, false, StandardCharsets.UTF_8);
+        PrintStream err = new PrintStream(sink, false, StandardCharsets.UTF_8);
+        System.setOut(out);
+        System.setErr(err);
+        ThreadGroup group = new ThreadGroup("job");
+        int[] exit = { 0 };
+        Thread main = new Thread(group, () -> {
+            try {
+                Class<?> c = new MemoryClassLoader(classes).loadClass(mainClass);
+                Method m = c.getMethod("main", String[].class);
+                if (!Modifier.isStatic(m.getModifiers()))
+                    throw new NoSuchMethodException("static main");
+                m.setAccessible(true);
+                m.invoke(null, (Object) new String[0]);
+            } catch (InvocationTargetException e) {
+                printUserStackTrace(e.getCause());
+                exit[0] = 1;
+            } catch (ClassNotFoundException | NoSuchMethodException e) {
+                System.err.println("public static void main(String[] args)를 찾을 수 없습니다: " + mainClass);
+                exit[0] = 1;
+            } catch (Throwable t) {
+                t.printStackTrace();
+                exit[0] = 1;
+            }
+        }, "main");
+        long cpuStart = jobCpuTime();
+        main.start();
+        // main이 끝나도 프로그램이 만든 일반 스레드가 남아 있으면 JVM처럼 끝날 때까지 기다린다
+        while (main.isAlive() || hasLiveUserThread(group)) {
+            try {
+                main.join(WATCH_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            out.flush();
+            if (jobCpuTime() - cpuStart > cpuLimitNanos) {
+                out.flush();
+                err.flush();
+                sendExit(EXIT_CPU_LIMIT, "CPU 시간 제한(" + (cpuLimitNanos / 1_000_000_000L) + "초) 초과", false);
+                Runtime.getRuntime().halt(EXIT_CPU_LIMIT);
+            }
+        }
+        out.flush();
+        err.flush();
+        System.setOut(stdout);
+        System.setErr(stderr);
+        // 그룹 밖에서 만든 스레드나 가상 스레드의 캐리어는 그룹에 보이지 않으므로 준비 직후의 스레드 목록과 비교한다
+        boolean reusable = group.activeCount() == 0 && !hasNewThreads();
+        sendExit(exit[0], "", reusable);
+        return reusable;
+    }
+
+    // 학생 코드의 예외에서 리플렉션과 작업자 프레임을 떼어 내고 출력한다 (java 명령으로 실행한 것과 같게)
+    private static void printUserStackTrace(Throwable t) {
+        StackTraceElement[] trace = t.getStackTrace();
+        int last = trace.length - 1;
+        while (last >= 0 && !"job".equals(trace[last].getClassLoaderName()))
+            last--;
+        if (last >= 0)
+            t.setStackTrace(java.util.Arrays.copyOf(trace, last + 1));
+        System.err.print("Exception in thread \"main\" ");
+        t.printStackTrace();
+    }
+
+    private static boolean hasLiveUserThread(ThreadGroup group) {
+        Thread[] threads = new Thread[group.activeCount() + 4];
+        int n = group.enumerate(threads);
+        for (int i = 0; i < n; i++)
+            if (threads[i].isAlive() && !threads[i].isDaemon())
+                return true;
+        return false;
+    }
+
+    private static Set<Long> liveThreadIds() {
+        Set<Long> ids = new HashSet<>();
+        for (long id : THREADS.getAllThreadIds())
+            ids.add(id);
+        return ids;
+    }
+
+    // 준비를 마쳤을 때 없던 스레드가 살아 있는지 (막 끝난 스레드는 목록에서 빠지기 전이라도 세지 않는다)
+    private static boolean hasNewThreads() {
+        for (long id : THREADS.getAllThreadIds()) {
+            if (baselineThreads.contains(id))
+                continue;
+            ThreadInfo info = THREADS.getThreadInfo(id);
+            if (info != null && info.getThreadState() != Thread.State.TERMINATED)
+                return true;
+        }
+        return false;
+    }
+
+    // 작업이 쓴 CPU 시간: 프로세스 CPU 시간에서 작업 전부터 있던 스레드(감시 스레드, JVM 스레드)의 몫을 뺀다
+    private static long jobCpuTime() {
+        long total = processCpuTime();
+        if (baselineThreads == null || !THREADS.isThreadCpuTimeSupported())
+            return total;
+        for (long id : baselineThreads) {
+            long t = THREADS.getThreadCpuTime(id);
+            if (t > 0)
+                total -= t;
+        }
+        return total;
+    }
+
+    private static long processCpuTime() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean)
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+
+    private static void sendExit(int code, String reason, boolean reusable) throws IOException {
+        synchronized (channel) {
+            channel.writeByte(EXIT);
+            channel.writeInt(code);
+            channel.writeUTF(reason);
+            channel.writeBoolean(reusable);
+            channel.flush();
+        }
+    }
+
+    private static void send(byte kind, byte[] b, int off, int len) {
+        try {
+            synchronized (channel) {
+                channel.writeByte(kind);
+                channel.writeInt(len);
+                channel.write(b, off, len);
+                channel.flush();
+            }
+        } catch (IOException e) {
+            Runtime.getRuntime().halt(1); // 서버가 사라짐
+        }
+    }
+
+    // 프로그램 출력을 조각 단위로 서버에 보낸다. 작업 전체의 출력 한도를 넘으면 안내 후 버린다
+    private static final class Capture extends OutputStream {
+        private final byte kind;
+        private final AtomicLong budget;
+
+        Capture(byte kind, AtomicLong budget) {
+            this.kind = kind;
+            this.budget = budget;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            long left = budget.getAndAdd(-len);
+            if (left <= 0)
+                return;
+            if (left - len > 0) {
+                send(kind, b, off, len);
+            } else {
+                int n = cut(b, off, len, (int) left);
+                send(kind, b, off, n);
+                boolean lineEnd = n == 0 || b[off + n - 1] == '\n';
+                byte[] notice = ((lineEnd ? "" : "\n") + "[출력이 " + outputCap / 1024 + "KB를 넘어 이후 출력은 생략합니다]\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                send(STDERR, notice, 0, notice.length);
+            }
+        }
+    }
+
+    // 한도 안에서 보낼 길이. 마지막 줄바꿈까지 자르고, 줄바꿈이 없으면 UTF-8 문자 경계에서 자른다
+    private static int cut(byte[] b, int off, int len, int limit) {
+        if (limit >= len)
+            return len;
+        for (int i = limit; i > 0; i--)
+            if (b[off + i - 1] == '\n')
+                return i;
+        int i = limit;
+        while (i > 0 && (b[off + i] & 0xC0) == 0x80)
+            i--;
+        return i;
+    }
+
+    // 작업의 클래스 파일만 메모리에서 읽는 클래스 로더. 부모는 플랫폼 클래스 로더 (서버 클래스가 보이지 않는다)
+    private static final class MemoryClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        MemoryClassLoader(Map<String, byte[]> classes) {
+            super("job", ClassLoader.getPlatformClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] b = classes.get(name);
+            if (b == null)
+                throw new ClassNotFoundException(name);
+            return defineClass(name, b, 0, b.length);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package ide.server;
+
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 서버 실행 옵션을 담는 설정 클래스.
+ *
+ * 커맨드 라인 인자를 해석하여 포트 번호, 연결 처리 엔진, 송신 큐 정책 등의 옵션을 보관한다.
+ * 예: {@code java ide.server.CollabServer 6000 --engine=nio --loops=4}
+ */
+public class ServerConfig {
+
+    /** 연결 처리 방식 */
+    public enum Engine {
+        /** 연결마다 플랫폼 스레드 하나 (기존 방식) */
+        THREAD,
+        /** 연결마다 가상 스레드 하나 (Java 21+) */
+        VIRTUAL,
+        /** Selector 기반 논블로킹 이벤트 루프 */
+        NIO
+    }
+
+    int port = 6000;
+    Engine engine = Engine.THREAD;
+    int eventLoops = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    int queueCapacity = 1024;
+    OutboundQueue.Overflow overflow = OutboundQueue.Overflow.DROP_EPHEMERAL;
+    int statsIntervalSec = 0;
+    boolean verbose = false; // 받은 메시지를 모두 출력 (디버깅용)
+    int ephemeralRate = 30; // 보낸 사람/종류/경로별 휘발성 메시지 초당 최대 중계 횟수 (0이면 제한 없음)
+    int compileLeaseSec = 300; // 컴파일 락 임대 기간 (0이면 반납하거나 연결이 끊길 때까지 유지)
+    int compileThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())); // 0이면 서버 컴파일 끔
+    long compileCacheMb = 32; // 컴파일 결과 캐시 크기 (0이면 캐시하지 않음)
+    // COMPILE_OUT 묶음: 출력을 최대 이 시간(ms)/크기(KB)만큼 모아 한 프레임으로 보낸다
+    int outputBatchMs = 50;
+    int outputBatchKb = 16;
+    int jobsPerUser = 1; // 한 사용자의 컴파일/실행을 동시에 처리하는 수 (나머지는 대기열에서 기다린다)
+    // 프로그램 실행용 작업자 JVM 수와 작업 하나의 한도 (작업자 0이면 실행 끔)
+    int runWorkers = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    int runHeapMb = 128;
+    int runCpuSec = 5;
+    int runWallSec = 10;
+    int runOutputKb = 64;
+    // 클러스터 구성: 노드 ID -> 노드 간 링크 주소 (비어 있으면 단독 실행)
+    final Map<String, InetSocketAddress> clusterNodes = new LinkedHashMap<>();
+    String nodeId = null;
+    int maxRooms = 64;
+    int maxDocuments = 256; // 방마다
+    long maxDocumentChars = 64L * 1024 * 1024; // 방마다, 글자 수 기준 (--doc-mem, MB 단위로 지정)
+    // 세션 저널: 디렉터리 (null이면 끔), 디스크 동기화 주기, 세그먼트 파일 크기, 스냅샷 주기
+    String journalDir = null;
+    int journalSyncMs = 50;
+    int journalSegmentMb = 64;
+    int journalSnapshotSec = 60;
+    // 재접속: 방마다 보관하는 최근 메시지 수 (0이면 순서 번호와 재접속 끔), 끊긴 사람을 기다리는 시간
+    int resumeBuffer = 4096;
+    int resumeSec = 60;
+    // 생존 확인: 아무것도 받지 못했을 때 PING을 보내는 간격 (0이면 끔), 응답이 없는 연결을 정리하는 시간
+    int pingSec = 15;
+    int idleSec = 45;
+    // 강의 기록: 디렉터리 (null이면 끔), 키프레임(블록) 주기
+    String replayDir = null;
+    int replayKeyframeSec = 10;
+
+    /**
+     * 커맨드 라인 인자를 해석한다.
+     * 첫 번째 인자는 포트 번호이며, 나머지는 {@code --key=value} 형태의 옵션이다.
+     *
+     * @param args 커맨드 라인 인자
+     * @return 해석된 설정
+     * @throws IllegalArgumentException 알 수 없는 옵션이나 잘못된 값이 주어진 경우
+     */
+    public static ServerConfig parse(String[] args) {
+        if (args.length < 1)
+            throw new IllegalArgumentException("포트 번호가 필요합니다.");
+        ServerConfig cfg = new ServerConfig();
+        cfg.port = Integer.parseInt(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            int eq = arg.indexOf('=');
+            String key = eq < 0 ? arg : arg.substring(0, eq);
+            String value = eq < 0 ? "" : arg.substring(eq + 1);
+            switch (key) {
+                case "--engine":
+                    cfg.engine = Engine.valueOf(value.toUpperCase());
+                    break;
+                case "--loops":
+                    cfg.eventLoops = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--queue":
+                    cfg.queueCapacity = Math.max(16, Integer.parseInt(value));
+                    break;
+                case "--overflow":
+                    cfg.overflow = "disconnect".equalsIgnoreCase(value) ? OutboundQueue.Overflow.DISCONNECT
+                            : OutboundQueue.Overflow.DROP_EPHEMERAL;
+                    break;
+                case "--rooms":
+                    cfg.maxRooms = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--docs":
+                    cfg.maxDocuments = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--doc-mem":
+                    cfg.maxDocumentChars = Math.max(1, Long.parseLong(value)) * 1024 * 1024;
+                    break;
+                case "--ephemeral-hz":
+                    cfg.ephemeralRate = Math.max(0, Integer.parseInt(value));
+                    break;
+                case "--compile-lease":
+                    cfg.compileLeaseSec = Math.max(0, Integer.parseInt(value));
+                    break;
+                case "--compilers":
+                    cfg.compileThreads = Math.max(0, Integer.parseInt(value));
+                    break;
+                case "--compile-cache":
+                    cfg.compileCacheMb = Math.max(0, Long.parseLong(value));
+                    break;
+                case "--out-batch-ms":
+                    cfg.outputBatchMs = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--out-batch-kb":
+                    cfg.outputBatchKb = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--jobs-per-user":
+                    cfg.jobsPerUser = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--runners":
+                    cfg.runWorkers = Math.max(0, Integer.parseInt(value));
+                    break;
+                case "--run-heap":
+                    cfg.runHeapMb = Math.max(16, Integer.parseInt(value));
+                    break;
+                case "--run-cpu":
+                    cfg.runCpuSec = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--run-wall":
+                    cfg.runWallSec = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--run-output":
+                    cfg.runOutputKb = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--cluster":
+                    for (String node : value.split(",")) {
+                        int at = node.indexOf('@');
+                        int colon = node.lastIndexOf(':');
+                        if (at <= 0 || colon < at)
+                            throw new IllegalArgumentException("클러스터 노드 형식은 id@host:port 입니다: " + node);
+                        cfg.clusterNodes.put(node.substring(0, at), InetSocketAddress.createUnresolved(
+                                node.substring(at + 1, colon), Integer.parseInt(node.substring(colon + 1))));
+                    }
+                    break;
+                case "--node":
+                    cfg.nodeId = value;
+                    break;
+                case "--journal":
+                    cfg.journalDir = value.isEmpty() ? null : value;
+                    break;
+                case "--journal-sync-ms":
+                    cfg.journalSyncMs = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--journal-segment-mb":
+                    cfg.journalSegmentMb = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--journal-snapshot-sec":
+                    cfg.journalSnapshotSec = Math.max(0, Integer.parseInt(value));
+                    break;
+                case "--resume-buffer":
+                    cfg.resumeBuffer = Math.max(0, Integer.parseInt(value));
+                    break;
+                case "--resume-sec":
+                    cfg.resumeSec = Math.max(0, Integer.parseInt(value));
+                    break;
+                case "--ping-sec":
+                    cfg.pingSec = Math.max(0, Integer.parseInt(value));
+                    break;
+                case "--idle-sec":
+                    cfg.idleSec = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--replay":
+                    cfg.replayDir = value.isEmpty() ? null : value;
+                    break;
+                case "--replay-keyframe-sec":
+                    cfg.replayKeyframeSec = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--stats":
+                    cfg.statsIntervalSec = Math.max(0, Integer.parseInt(value));
+                    break;
+                case "--verbose":
+                    cfg.verbose = value.isEmpty() || Boolean.parseBoolean(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("알 수 없는 옵션: " + arg);
+            }
+        }
+        if (!cfg.clusterNodes.isEmpty() && !cfg.clusterNodes.containsKey(cfg.nodeId))
+            throw new IllegalArgumentException("--node 값은 --cluster 목록에 있는 노드 ID여야 합니다: " + cfg.nodeId);
+        if (cfg.pingSec > 0 && cfg.idleSec <= cfg.pingSec)
+            throw new IllegalArgumentException("--idle-sec 값은 --ping-sec보다 커야 합니다: " + cfg.idleSec);
+        return cfg;
+    }
+
+    /**
+     * 사용법 문자열을 반환한다.
+     *
+     * @return 사용법 안내 문자열
+     */
+    public static String usage() {
+        return "사용법: java ide.server.CollabServer <port> [--engine=thread|virtual|nio] [--loops=N]\n"
+                + "                [--queue=N] [--overflow=drop|disconnect] [--stats=SEC] [--verbose]\n"
+                + "                [--rooms=N] [--docs=N] [--doc-mem=MB] [--ephemeral-hz=N]\n"
+                + "                [--compile-lease=SEC] [--compilers=N] [--compile-cache=MB] [--jobs-per-user=N]\n"
+                + "                [--runners=N] [--run-heap=MB] [--run-cpu=SEC] [--run-wall=SEC] [--run-output=KB]\n"
+                + "                [--out-batch-ms=MS] [--out-batch-kb=KB]\n"
+                + "                [--journal=DIR] [--journal-sync-ms=MS] [--journal-segment-mb=MB] [--journal-snapshot-sec=SEC]\n"
+                + "                [--resume-buffer=N] [--resume-sec=SEC] [--ping-sec=SEC] [--idle-sec=SEC]\n"
+                + "                [--replay=DIR] [--replay-keyframe-sec=SEC]\n"
+                + "                [--cluster=id@host:port,... --node=id]\n"
+                + "예:     java ide.server.CollabServer 6000\n"
+                + "        java ide.server.CollabServer 6000 --engine=virtual\n"
+                + "        java ide.server.CollabServer 6000 --engine=nio --loops=4\n"
+                + "        java ide.server.CollabServer 6000 --journal=journal\n"
+                + "        java ide.server.CollabServer 6000 --cluster=a@127.0.0.1:7000,b@127.0.0.1:7001 --node=a";
+    }
+}
@@ -0,0 +1,80 @@
+package ide.server;
+
+import ide.net.LatencyStats;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 서버 상태(클라이언트별 송신 큐 게이지)를 주기적으로 로그로 출력하는 클래스.
+ *
+ * 전체 연결 수와 큐 깊이 합계, 그리고 큐가 가장 깊은 클라이언트 몇 명의 상세 수치를 출력하여
+ * 느린 클라이언트(slow consumer)를 찾는 데 사용한다.
+ * 우선순위 등급별(신뢰성/휘발성) 큐 대기 시간은 출력 구간마다 모든 클라이언트를 합산하여 출력한다.
+ */
+public class ServerStats extends Thread {
+    private static final int TOP_N = 10;
+
+    private final Collection<Peer> clients;
+    private final long intervalMillis;
+    private final LongSupplier throttled;
+
+    /**
+     * ServerStats 생성자.
+     *
+     * @param clients     관찰할 클라이언트 집합 (동시 접근 가능한 컬렉션)
+     * @param intervalSec 출력 주기 (초)
+     * @param throttled   빈도 제한으로 중계되지 않은 휘발성 메시지 수
+     */
+    public ServerStats(Collection<Peer> clients, int intervalSec, LongSupplier throttled) {
+        super("collab-stats");
+        this.clients = clients;
+        this.intervalMillis = intervalSec * 1000L;
+        this.throttled = throttled;
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            report();
+        }
+    }
+
+    private void report() {
+        List<Peer> snapshot = new ArrayList<>(clients);
+        long totalDepth = 0;
+        long totalDropped = 0;
+        long totalConflated = 0;
+        LatencyStats reliable = new LatencyStats();
+        LatencyStats ephemeral = new LatencyStats();
+        for (Peer p : snapshot) {
+            p.outbound.reliableLatency.drainTo(reliable);
+            p.outbound.ephemeralLatency.drainTo(ephemeral);
+            totalDepth += p.outbound.depth();
+            totalDropped += p.outbound.droppedCount();
+            totalConflated += p.outbound.conflatedCount();
+        }
+        System.out.println("[STATS] clients=" + snapshot.size() + " queued=" + totalDepth
+                + " dropped=" + totalDropped + " conflated=" + totalConflated
+                + " throttled=" + throttled.getAsLong());
+        System.out.println("[STATS] queue latency: reliable " + reliable + ", ephemeral " + ephemeral);
+
+        snapshot.sort((a, b) -> Integer.compare(b.outbound.depth(), a.outbound.depth()));
+        for (int i = 0; i < Math.min(TOP_N, snapshot.size()); i++) {
+            Peer p = snapshot.get(i);
+            if (p.outbound.depth() == 0 && p.outbound.droppedCount() == 0)
+                break;
+            System.out.println("[STATS]   " + p.nick + " depth=" + p.outbound.depth()
+                    + " peak=" + p.outbound.peakDepth() + " dropped=" + p.outbound.droppedCount()
+                    + " conflated=" + p.outbound.conflatedCount());
+        }
+    }
+}
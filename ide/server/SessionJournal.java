@@ -0,0 +1,625 @@
+package ide.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 방의 공유 상태(문서, 컴파일 락, 교수자에게 아직 전달하지 못한 질문)를 디스크에 남기는 선행 기록(write-ahead) 저널.
+ *
+ * 상태가 바뀔 때마다 변경 내용을 메모리 매핑된 세그먼트 파일(journal-N.log)에 덧붙인다.
+ * 덧붙이기는 매핑된 메모리에 복사하는 것뿐이고, 디스크 동기화(force)는 별도 스레드가 --journal-sync-ms마다 모아서 한다(group commit).
+ * 따라서 편집 중계 경로는 fsync를 기다리지 않는다. 서버 프로세스가 죽어도 매핑된 페이지는 운영체제에 남으므로 기록은 보존되며,
+ * 운영체제까지 멈춘 경우에는 마지막 동기화 이후의 기록만 잃는다.
+ *
+ * 주기적으로(--journal-snapshot-sec) 모든 방의 상태를 스냅샷(snapshot-N.bin)으로 쓰고 그 이전의 세그먼트를 지운다.
+ * 스냅샷 N은 세그먼트 N이 시작될 때의 상태이다. 상태를 바꾸는 쪽은 gate의 읽기 락을, 스냅샷은 쓰기 락을 잡으므로
+ * 스냅샷은 어떤 변경의 중간도 담지 않는다.
+ * 서버가 다시 시작되면 가장 최근 스냅샷을 읽고 그 뒤의 세그먼트를 순서대로 재생한다.
+ * 마지막 기록이 쓰다 만 것이면(길이 0 또는 CRC 불일치) 그 앞까지만 재생한다.
+ *
+ * 레코드 형식: [길이: int][CRC32: int][종류: byte][필드...], 문자열 필드는 [UTF-8 길이: int][바이트]
+ */
+final class SessionJournal {
+    private static final long SEGMENT_MAGIC = 0x534F434F4A4E4C31L; // "SOCOJNL1"
+    private static final long SNAPSHOT_MAGIC = 0x534F434F534E5031L; // "SOCOSNP1"
+    private static final int SEGMENT_HEADER = 8;
+    private static final int RECORD_HEADER = 8;
+
+    private static final byte DOC_PUT = 1;
+    private static final byte DOC_OP = 2;
+    private static final byte DOC_REMOVE = 3;
+    private static final byte DOC_RENAME = 4;
+    private static final byte LOCK = 5;
+    private static final byte UNLOCK = 6;
+    private static final byte QUESTION = 7;
+    private static final byte QUESTIONS_DELIVERED = 8;
+    private static final byte ROOM_DROP = 9;
+
+    // 세그먼트 파일 하나 (매핑된 영역 전체를 쓴다)
+    private static final class Segment {
+        final long number;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int position = SEGMENT_HEADER;
+        int synced = 0;
+
+        Segment(long number, FileChannel channel, MappedByteBuffer buffer) {
+            this.number = number;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    // 레코드를 만드는 버퍼 (스레드마다 하나)
+    private static final class Encoder {
+        byte[] bytes = new byte[256];
+        int size;
+
+        Encoder start(byte type) {
+            size = RECORD_HEADER;
+            return putByte(type);
+        }
+
+        Encoder putByte(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+            return this;
+        }
+
+        Encoder putInt(int v) {
+            ensure(4);
+            bytes[size++] = (byte) (v >>> 24);
+            bytes[size++] = (byte) (v >>> 16);
+            bytes[size++] = (byte) (v >>> 8);
+            bytes[size++] = (byte) v;
+            return this;
+        }
+
+        Encoder putLong(long v) {
+            return putInt((int) (v >>> 32)).putInt((int) v);
+        }
+
+        Encoder putString(String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            putInt(b.length);
+            ensure(b.length);
+            System.arraycopy(b, 0, bytes, size, b.length);
+            size += b.length;
+            return this;
+        }
+
+        private void ensure(int n) {
+            if (size + n > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + n));
+        }
+    }
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final Supplier<Collection<Room>> rooms;
+    // 상태 변경(읽기 락)과 스냅샷(쓰기 락) 사이의 경계
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+    private final CRC32 crc = new CRC32(); // appendLock 안에서만 사용
+    private final ScheduledExecutorService timer;
+    private Segment segment; // appendLock
+    // 가득 차서 닫았지만 아직 동기화하지 않은 세그먼트 (appendLock)
+    private final List<Segment> retired = new ArrayList<>();
+    private long records = 0; // appendLock
+    private long recordsAtSnapshot = 0; // appendLock
+    private volatile boolean recovering = true;
+
+    /**
+     * SessionJournal 생성자. 디렉터리를 만들고 동기화/스냅샷 타이머를 준비한다. 쓰기는 recover() 뒤에 시작된다.
+     *
+     * @param config 저널 디렉터리, 세그먼트 크기, 동기화와 스냅샷 주기를 담은 서버 설정
+     * @param rooms  스냅샷을 쓸 때 현재 방 목록을 돌려주는 함수
+     * @throws IOException 디렉터리를 만들 수 없는 경우
+     */
+    SessionJournal(ServerConfig config, Supplier<Collection<Room>> rooms) throws IOException {
+        this.dir = Paths.get(config.journalDir);
+        this.segmentBytes = config.journalSegmentMb * 1024L * 1024L;
+        this.rooms = rooms;
+        Files.createDirectories(dir);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "collab-journal");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::sync, config.journalSyncMs, config.journalSyncMs, TimeUnit.MILLISECONDS);
+        if (config.journalSnapshotSec > 0)
+            timer.scheduleWithFixedDelay(this::snapshotQuietly, config.journalSnapshotSec, config.journalSnapshotSec,
+                    TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::sync, "collab-journal-flush"));
+    }
+
+    // === 상태 변경 구간 (DocumentStore, CompileLockService, Room이 변경 전후로 부른다) ===
+
+    /** 상태 변경을 시작한다. 변경 대상의 락보다 먼저 잡아야 한다. */
+    void enter() {
+        gate.readLock().lock();
+    }
+
+    /** 상태 변경을 끝낸다. */
+    void exit() {
+        gate.readLock().unlock();
+    }
+
+    /** @return 재생 중이면 true (재생 중의 변경은 다시 기록하지 않고, 문서 저장소는 LRU 제거를 하지 않는다) */
+    boolean recovering() {
+        return recovering;
+    }
+
+    // === 기록 (변경 대상의 락 안에서 부르므로 같은 대상의 기록 순서는 변경 순서와 같다) ===
+
+    void docPut(String room, String path, long version, String text) {
+        append(encoders.get().start(DOC_PUT).putString(room).putString(path).putLong(version).putString(text));
+    }
+
+    void docOp(String room, String path, long version, int start, int end, String insert) {
+        append(encoders.get().start(DOC_OP).putString(room).putString(path).putLong(version).putInt(start).putInt(end)
+                .putString(insert));
+    }
+
+    void docRemove(String room, String path) {
+        append(encoders.get().start(DOC_REMOVE).putString(room).putString(path));
+    }
+
+    void docRename(String room, String oldPath, String newPath) {
+        append(encoders.get().start(DOC_RENAME).putString(room).putString(oldPath).putString(newPath));
+    }
+
+    void lockAcquired(String room, String path, String holder) {
+        append(encoders.get().start(LOCK).putString(room).putString(path).putString(holder));
+    }
+
+    void lockReleased(String room, String path) {
+        append(encoders.get().start(UNLOCK).putString(room).putString(path));
+    }
+
+    void questionQueued(String room, String nick, String text) {
+        append(encoders.get().start(QUESTION).putString(room).putString(nick).putString(text));
+    }
+
+    void questionsDelivered(String room) {
+        append(encoders.get().start(QUESTIONS_DELIVERED).putString(room));
+    }
+
+    void roomDropped(String room) {
+        append(encoders.get().start(ROOM_DROP).putString(room));
+    }
+
+    private void append(Encoder e) {
+        if (recovering)
+            return;
+        int length = e.size - RECORD_HEADER;
+        appendLock.lock();
+        try {
+            if (segment == null || segment.position + e.size > segment.buffer.capacity())
+                roll(e.size);
+            crc.reset();
+            crc.update(e.bytes, RECORD_HEADER, length);
+            MappedByteBuffer b = segment.buffer;
+            int at = segment.position;
+            // 본문을 먼저 쓰고 길이를 마지막에 써서, 중간에 멈추면 읽는 쪽이 길이 0(끝)을 보게 한다
+            b.putInt(at + 4, (int) crc.getValue());
+            b.put(at + RECORD_HEADER, e.bytes, RECORD_HEADER, length);
+            b.putInt(at, length);
+            segment.position = at + e.size;
+            records++;
+        } catch (IOException ex) {
+            System.out.println("[SERVER] Journal write failed, journaling disabled: " + ex.getMessage());
+            recovering = true;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // 새 세그먼트로 넘어간다 (appendLock 안에서 호출). 이전 세그먼트는 동기화 스레드가 마저 내려쓴다
+    private void roll(int need) throws IOException {
+        long number = segment == null ? lastNumber() + 1 : segment.number + 1;
+        if (segment != null)
+            retired.add(segment);
+        long size = Math.max(segmentBytes, SEGMENT_HEADER + (long) need);
+        FileChannel ch = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buf.putLong(0, SEGMENT_MAGIC);
+        segment = new Segment(number, ch, buf);
+    }
+
+    // 마지막 동기화 이후 쓴 영역을 디스크에 내려쓴다 (group commit)
+    private void sync() {
+        List<Segment> done;
+        Segment current;
+        int upTo;
+        appendLock.lock();
+        try {
+            done = new ArrayList<>(retired);
+            retired.clear();
+            current = segment;
+            upTo = current == null ? 0 : current.position;
+        } finally {
+            appendLock.unlock();
+        }
+        for (Segment s : done) {
+            s.buffer.force();
+            close(s.channel);
+        }
+        if (current != null && upTo > current.synced) {
+            current.buffer.force(current.synced, upTo - current.synced);
+            current.synced = upTo;
+        }
+    }
+
+    // === 스냅샷 ===
+
+    private void snapshotQuietly() {
+        try {
+            snapshot(false);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("[SERVER] Journal snapshot failed: " + e);
+        }
+    }
+
+    /**
+     * 모든 방의 상태를 스냅샷으로 쓰고 이전 세그먼트와 스냅샷을 지운다. (변경이 없으면 건너뛴다)
+     *
+     * @param force 변경이 없어도 쓸지 여부
+     * @throws IOException 스냅샷을 쓰지 못한 경우
+     */
+    void snapshot(boolean force) throws IOException {
+        long start = System.nanoTime();
+        List<Room.Saved> saved = new ArrayList<>();
+        long number;
+        gate.writeLock().lock();
+        try {
+            appendLock.lock();
+            try {
+                if (!force && records == recordsAtSnapshot)
+                    return;
+                recordsAtSnapshot = records;
+                roll(0);
+                number = segment.number;
+            } finally {
+                appendLock.unlock();
+            }
+            for (Room room : rooms.get())
+                saved.add(room.save());
+        } finally {
+            gate.writeLock().unlock();
+        }
+        // 파일 쓰기는 락 밖에서 한다. 새 스냅샷이 온전히 쓰인 뒤에야 이전 기록을 지운다
+        Path tmp = dir.resolve("snapshot.tmp");
+        int documents = 0;
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(ch), 64 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeLong(SNAPSHOT_MAGIC);
+            out.writeInt(saved.size());
+            for (Room.Saved r : saved) {
+                writeString(out, r.name);
+                out.writeInt(r.documents.size());
+                for (DocumentStore.Saved d : r.documents) {
+                    writeString(out, d.path);
+                    out.writeLong(d.version);
+                    writeString(out, d.text);
+                }
+                documents += r.documents.size();
+                out.writeInt(r.locks.size());
+                for (Map.Entry<String, String> l : r.locks.entrySet()) {
+                    writeString(out, l.getKey());
+                    writeString(out, l.getValue());
+                }
+                out.writeInt(r.questions.size());
+                for (String[] q : r.questions) {
+                    writeString(out, q[0]);
+                    writeString(out, q[1]);
+                }
+            }
+            out.flush();
+            long sum = checked.getChecksum().getValue();
+            out.writeLong(sum);
+            out.flush();
+            ch.force(true);
+        }
+        Files.move(tmp, snapshotPath(number), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        deleteBefore(number);
+        System.out.println("[SERVER] Journal snapshot " + number + ": " + saved.size() + " rooms, " + documents
+                + " documents in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    // 스냅샷 number 이전의 세그먼트와 스냅샷을 지운다. (매핑이 남아 지우지 못한 파일은 다음 스냅샷 때 다시 시도한다)
+    private void deleteBefore(long number) {
+        for (Map.Entry<Long, Path> e : list("journal-", ".log").entrySet())
+            if (e.getKey() < number)
+                deleteQuietly(e.getValue());
+        for (Map.Entry<Long, Path> e : list("snapshot-", ".bin").entrySet())
+            if (e.getKey() < number)
+                deleteQuietly(e.getValue());
+    }
+
+    // === 복구 ===
+
+    /**
+     * 가장 최근 스냅샷과 그 뒤의 세그먼트를 재생해 방 상태를 되살린 뒤 기록을 시작한다.
+     * 되살린 상태가 있으면 바로 스냅샷을 써서 재생한 세그먼트를 정리한다.
+     *
+     * @param roomOf 방 이름으로 방을 찾거나 만드는 함수 (방 수 한도를 적용하지 않는다)
+     * @param drop   방을 없애는 함수
+     * @throws IOException 저널 디렉터리를 읽을 수 없는 경우
+     */
+    void recover(Function<String, Room> roomOf, Consumer<String> drop) throws IOException {
+        long start = System.nanoTime();
+        TreeMap<Long, Path> snapshots = list("snapshot-", ".bin");
+        long from = 0;
+        int restoredRooms = 0;
+        if (!snapshots.isEmpty()) {
+            from = snapshots.lastKey();
+            restoredRooms = readSnapshot(snapshots.lastEntry().getValue(), roomOf);
+        }
+        long replayed = 0;
+        boolean any = restoredRooms > 0;
+        for (Map.Entry<Long, Path> e : list("journal-", ".log").entrySet()) {
+            if (e.getKey() < from)
+                continue;
+            long n = replaySegment(e.getValue(), roomOf, drop);
+            replayed += Math.abs(n);
+            any |= n != 0;
+            if (n < 0) {
+                System.out.println("[SERVER] Journal " + e.getValue().getFileName()
+                        + " ends with a torn record; later records ignored");
+                break;
+            }
+        }
+        recovering = false;
+        if (any) {
+            System.out.println("[SERVER] Journal recovered " + restoredRooms + " rooms from snapshot " + from + " + "
+                    + replayed + " records in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+            snapshot(true);
+        } else {
+            appendLock.lock();
+            try {
+                roll(0);
+            } finally {
+                appendLock.unlock();
+            }
+        }
+    }
+
+    private int readSnapshot(Path file, Function<String, Room> roomOf) throws IOException {
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            CheckedInputStream checked = new CheckedInputStream(raw, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readLong() != SNAPSHOT_MAGIC)
+                throw new IOException("not a snapshot: " + file);
+            int roomCount = in.readInt();
+            List<Runnable> restore = new ArrayList<>();
+            for (int i = 0; i < roomCount; i++) {
+                String name = readString(in);
+                int docs = in.readInt();
+                List<DocumentStore.Saved> documents = new ArrayList<>(docs);
+                for (int j = 0; j < docs; j++)
+                    documents.add(new DocumentStore.Saved(readString(in), in.readLong(), readString(in)));
+                int locks = in.readInt();
+                List<String[]> held = new ArrayList<>(locks);
+                for (int j = 0; j < locks; j++)
+                    held.add(new String[] { readString(in), readString(in) });
+                int questions = in.readInt();
+                List<String[]> queued = new ArrayList<>(questions);
+                for (int j = 0; j < questions; j++)
+                    queued.add(new String[] { readString(in), readString(in) });
+                restore.add(() -> {
+                    Room room = roomOf.apply(name);
+                    for (DocumentStore.Saved d : documents)
+                        room.documents.restore(d.path, d.version, d.text);
+                    for (String[] l : held)
+                        room.compileLocks.restore(l[0], l[1]);
+                    for (String[] q : queued)
+                        room.queueQuestion(q[0], q[1]);
+                });
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected)
+                throw new IOException("snapshot checksum mismatch: " + file);
+            // 파일 전체를 검증한 뒤에 적용한다
+            for (Runnable r : restore)
+                r.run();
+            return roomCount;
+        }
+    }
+
+    // 세그먼트 하나를 재생한다. 재생한 레코드 수를 반환하고, 쓰다 만 레코드에서 멈췄으면 음수로 반환한다
+    private long replaySegment(Path file, Function<String, Room> roomOf, Consumer<String> drop)
+            throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (b.capacity() < SEGMENT_HEADER || b.getLong(0) != SEGMENT_MAGIC)
+                return 0;
+            long count = 0;
+            int at = SEGMENT_HEADER;
+            CRC32 check = new CRC32();
+            while (at + RECORD_HEADER <= b.capacity()) {
+                int length = b.getInt(at);
+                if (length == 0)
+                    return count;
+                if (length < 0 || at + RECORD_HEADER + length > b.capacity())
+                    return -count - 1;
+                byte[] payload = new byte[length];
+                b.get(at + RECORD_HEADER, payload);
+                check.reset();
+                check.update(payload);
+                if ((int) check.getValue() != b.getInt(at + 4))
+                    return -count - 1;
+                apply(new DataInputStream(new ByteArrayInputStream(payload)), roomOf, drop);
+                count++;
+                at += RECORD_HEADER + length;
+            }
+            return count;
+        }
+    }
+
+    private static void apply(DataInputStream in, Function<String, Room> roomOf,
+            Consumer<String> drop) throws IOException {
+        byte type = in.readByte();
+        String name = readString(in);
+        if (type == ROOM_DROP) {
+            drop.accept(name);
+            return;
+        }
+        Room room = roomOf.apply(name);
+        switch (type) {
+            case DOC_PUT:
+                room.documents.restore(readString(in), in.readLong(), readString(in));
+                break;
+            case DOC_OP: {
+                String path = readString(in);
+                long version = in.readLong();
+                int start = in.readInt();
+                int end = in.readInt();
+                DocumentStore.OpResult r = room.documents.applyOp(path, version - 1, start, end - start,
+                        readString(in));
+                if (r == null || r.version != version)
+                    System.out.println("[SERVER] Journal replay diverged on " + path + " (expected version " + version
+                            + ", got " + (r == null ? "none" : r.version) + ")");
+                break;
+            }
+            case DOC_REMOVE:
+                room.documents.remove(readString(in));
+                break;
+            case DOC_RENAME:
+                room.documents.rename(readString(in), readString(in));
+                break;
+            case LOCK:
+                room.compileLocks.restore(readString(in), readString(in));
+                break;
+            case UNLOCK:
+                room.compileLocks.forceRelease(readString(in));
+                break;
+            case QUESTION:
+                room.queueQuestion(readString(in), readString(in));
+                break;
+            case QUESTIONS_DELIVERED:
+                room.takeQuestions();
+                break;
+            default:
+                throw new IOException("unknown journal record type " + type);
+        }
+    }
+
+    // === 파일 ===
+
+    private Path segmentPath(long number) {
+        return dir.resolve(String.format("journal-%012d.log", number));
+    }
+
+    private Path snapshotPath(long number) {
+        return dir.resolve(String.format("snapshot-%012d.bin", number));
+    }
+
+    // 번호 -> 파일 (번호 순)
+    private TreeMap<Long, Path> list(String prefix, String suffix) {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> s = Files.list(dir)) {
+            s.forEach(p -> {
+                String f = p.getFileName().toString();
+                if (f.startsWith(prefix) && f.endsWith(suffix)) {
+                    try {
+                        files.put(Long.parseLong(f.substring(prefix.length(), f.length() - suffix.length())), p);
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("[SERVER] Cannot list journal directory: " + e.getMessage());
+        }
+        return files;
+    }
+
+    private long lastNumber() {
+        long last = 0;
+        TreeMap<Long, Path> segments = list("journal-", ".log");
+        TreeMap<Long, Path> snapshots = list("snapshot-", ".bin");
+        if (!segments.isEmpty())
+            last = segments.lastKey();
+        if (!snapshots.isEmpty())
+            last = Math.max(last, snapshots.lastKey());
+        return last;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0)
+            throw new EOFException("negative string length");
+        byte[] b = new byte[n];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private static void deleteQuietly(Path p) {
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void close(FileChannel ch) {
+        try {
+            ch.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public String toString() {
+        appendLock.lock();
+        try {
+            return "journal " + dir + ": segment " + (segment == null ? "-" : segment.number) + ", " + records
+                    + " records";
+        } finally {
+            appendLock.unlock();
+        }
+    }
+}
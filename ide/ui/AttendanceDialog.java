@@ -4,14 +4,21 @@ import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import ide.app.CollabActions;
+import ide.app.UserSessionManager;
+import ide.domain.Role;
 
 /**
  * 출석 체크 기능을 담당하는 다이얼로그 클래스.
  *
  * 등록된 학생 명단을 표시하고, 접속 상태에 따라 색상과 아이콘으로 시각화한다.
  * 학생이 접속하면 닉네임을 명단과 매칭하여 상태를 실시간으로 업데이트한다.
+ * 창을 열 때 한 번 전체를 채우고, 이후에는 명단 변경(입장/퇴장)이 온 학생의 행만 바꾼다.
  */
 public class AttendanceDialog extends JDialog {
 
@@ -25,6 +32,20 @@ public class AttendanceDialog extends JDialog {
     private final DefaultTableModel tableModel;
     private final JTable table;
     private final JLabel statusLabel;
+    // 학생 이름 -> 행 번호, 출석 인원 (EDT 전용)
+    private final Map<String, Integer> rowByName = new HashMap<>();
+    private int presentCount = 0;
+    private final UserSessionManager.Listener presenceListener = new UserSessionManager.Listener() {
+        @Override
+        public void userJoined(String nickname, Role role) {
+            setPresent(nickname, role == Role.STUDENT);
+        }
+
+        @Override
+        public void userLeft(String nickname) {
+            setPresent(nickname, false);
+        }
+    };
 
     /**
      * AttendanceDialog 생성자.
@@ -119,8 +140,16 @@ public class AttendanceDialog extends JDialog {
         // 배경색 설정
         getContentPane().setBackground(Color.WHITE);
 
-        // 모든 UI 초기화가 완료된 후 데이터 로드
+        // 모든 UI 초기화가 완료된 후 데이터 로드하고, 이후 명단 변경을 받는다
         refreshAttendance();
+        collabActions.addPresenceListener(presenceListener);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                collabActions.removePresenceListener(presenceListener);
+            }
+        });
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
     }
 
     /**
@@ -146,8 +175,8 @@ public class AttendanceDialog extends JDialog {
 
         // 테이블 초기화
         tableModel.setRowCount(0);
-
-        int presentCount = 0;
+        rowByName.clear();
+        presentCount = 0;
 
         // 각 학생에 대해 상태 확인
         for (int i = 0; i < STUDENT_ROSTER.length; i++) {
@@ -163,9 +192,27 @@ public class AttendanceDialog extends JDialog {
                     studentName,
                     isConnected ? "출석" : "결석"
             });
+            rowByName.put(studentName, i);
         }
 
-        // 상태 업데이트
+        updateStatus();
+    }
+
+    /**
+     * 학생 한 명의 출석 상태를 바꾼다. (명단 변경을 받았을 때)
+     * 명단에 없는 이름이거나 상태가 같으면 아무것도 하지 않는다.
+     */
+    private void setPresent(String name, boolean present) {
+        Integer row = rowByName.get(name);
+        if (row == null || "출석".equals(tableModel.getValueAt(row, 2)) == present)
+            return;
+        tableModel.setValueAt(present ? "출석" : "결석", row, 2);
+        presentCount += present ? 1 : -1;
+        System.out.println("[출석부] " + name + " -> " + (present ? "출석" : "결석"));
+        updateStatus();
+    }
+
+    private void updateStatus() {
         statusLabel.setText(String.format("총 %d명  |  출석: %d명  |  결석: %d명",
                 STUDENT_ROSTER.length, presentCount, STUDENT_ROSTER.length - presentCount));
     }
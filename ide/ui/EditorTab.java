@@ -7,6 +7,7 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Document;
 import javax.swing.text.Highlighter;
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
@@ -16,6 +17,7 @@ import java.awt.event.ActionEvent;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
@@ -57,6 +59,13 @@ public class EditorTab extends JTextArea {
     // 원격 커서 태그 관리
     private final Map<String, Object> cursorTags = new HashMap<>();
 
+    // 증분 편집 전송
+    private long docVersion = 0; // 서버 기준 문서 버전 (0이면 아직 서버와 공유되지 않음)
+    private EditOp pending = null; // 아직 전송하지 않은 편집을 하나로 합친 연산
+    private long expectedAck = -1; // 보낸 편집의 응답으로 기다리는 버전 (0이면 아무 버전, -1이면 기다리지 않음)
+    private SentOp inFlight = null; // 응답을 기다리는 연산 (연결이 끊겼다 이어지면 다시 보낸다)
+    private Runnable afterFlush = null; // 보낸 편집이 모두 반영된 뒤 실행할 작업 (컴파일 요청)
+
     /**
      * EditorTab 생성자.
      *
@@ -101,16 +110,18 @@ public class EditorTab extends JTextArea {
             markDirty(true);
         });
 
-        // 텍스트 변경 리스너 (서버 전송 트리거)
+        // 텍스트 변경 리스너 (편집 연산 기록 및 서버 전송 트리거)
         getDocument().addDocumentListener(new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent e) {
+                recordInsert(e.getOffset(), e.getLength());
                 scheduleBroadcast();
                 markDirty(true);
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
+                recordRemove(e.getOffset(), e.getLength());
                 scheduleBroadcast();
                 markDirty(true);
             }
@@ -128,9 +139,10 @@ public class EditorTab extends JTextArea {
             scheduleCursorSend();
         });
 
-        // 단축키 설정 (Ctrl+S 저장)
-        getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_S,
-                Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()), "save");
+        // 단축키 설정 (Ctrl+S 저장). 화면이 없는 환경(테스트)에서는 툴킷이 단축키 마스크를 주지 않으므로 Ctrl을 쓴다
+        int shortcut = GraphicsEnvironment.isHeadless() ? java.awt.event.InputEvent.CTRL_DOWN_MASK
+                : Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(java.awt.event.KeyEvent.VK_S, shortcut), "save");
         getActionMap().put("save", new AbstractAction() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -140,8 +152,8 @@ public class EditorTab extends JTextArea {
 
         // 디바운스 타이머 설정 (네트워크 부하 감소)
         debounce = new javax.swing.Timer(200, e -> {
-            if (!suppressBroadcast && collab.isConnected())
-                collab.sendSnapshot(getVirtualPath(), getText());
+            if (!suppressBroadcast)
+                flushOps();
         });
         debounce.setRepeats(false);
 
@@ -161,13 +173,120 @@ public class EditorTab extends JTextArea {
         if (suppressBroadcast)
             return;
         if (isKeystrokeMode.getAsBoolean()) {
-            if (collab.isConnected())
-                collab.sendSnapshot(getVirtualPath(), getText());
+            flushOps();
         } else {
             debounce.restart();
         }
     }
 
+    /**
+     * 삽입을 기록한다. 아직 보내지 않은 편집과 하나의 연산으로 합친다.
+     */
+    private void recordInsert(int offset, int length) {
+        if (suppressBroadcast)
+            return;
+        if (pending == null) {
+            pending = new EditOp(offset, 0, offset + length);
+            return;
+        }
+        pending.cover(offset, offset);
+        pending.end += length;
+    }
+
+    /**
+     * 삭제를 기록한다. 아직 보내지 않은 입력을 지우는 경우(Backspace)에는 그 입력이 줄어든다.
+     */
+    private void recordRemove(int offset, int length) {
+        if (suppressBroadcast)
+            return;
+        if (pending == null) {
+            pending = new EditOp(offset, length, offset);
+            return;
+        }
+        pending.cover(offset, offset + length);
+        pending.end -= length;
+        if (pending.removeLength == 0 && pending.end == pending.offset)
+            pending = null;
+    }
+
+    /**
+     * 기록된 편집을 서버로 전송한다.
+     * 문서마다 응답(EDIT_ACK)을 받지 않은 연산은 하나만 두고, 그동안의 편집은 합쳐 두었다가 응답이 오면 보낸다.
+     * 응답 전에 다음 연산을 보내면, 앞 연산이 거절되었을 때 뒤 연산이 엉뚱한 위치에 적용될 수 있기 때문이다.
+     * 아직 서버와 공유되지 않은 문서라면 연산 대신 전체 내용을 한 번 전송한다.
+     * 연결이 끊겨 있는 동안의 편집은 버리지 않고 합쳐 두었다가 재접속 후 보낸다. (resumeEdits)
+     */
+    private void flushOps() {
+        if (pending == null || expectedAck >= 0 || !collab.isConnected())
+            return;
+        if (!isShared()) {
+            pending = null;
+            collab.sendSnapshot(getVirtualPath(), getText());
+            return;
+        }
+        String insert;
+        try {
+            insert = getDocument().getText(pending.offset, pending.end - pending.offset);
+        } catch (BadLocationException e) {
+            pending = null;
+            collab.requestSync(getVirtualPath()); // 기록이 문서와 맞지 않으면 서버 내용을 다시 받는다
+            return;
+        }
+        inFlight = new SentOp(docVersion, pending.offset, pending.removeLength, insert);
+        pending = null;
+        expectedAck = docVersion + 1;
+        collab.sendEditOp(getVirtualPath(), inFlight.baseVersion, inFlight.offset, inFlight.removeLength,
+                inFlight.insert);
+    }
+
+    /**
+     * 서버에 다시 접속한 뒤 끊겨 있는 동안의 편집을 보낸다.
+     * 응답을 받지 못한 연산은 같은 기준 버전으로 다시 보낸다: 서버에 이미 반영되었거나 그 사이 다른 편집이 있었으면
+     * 거절되고 서버가 전체 내용(EDIT_SYNC)을 보내므로, 어느 경우든 서버와 같은 내용으로 돌아온다.
+     * 서버가 문서를 갖고 있지 않으면 전체 내용을 요청하므로(EDIT_SYNC_REQ) 그때 다시 보낸다.
+     */
+    public void resumeEdits() {
+        if (!collab.isConnected())
+            return;
+        if (inFlight != null) {
+            collab.sendEditOp(getVirtualPath(), inFlight.baseVersion, inFlight.offset, inFlight.removeLength,
+                    inFlight.insert);
+        } else if (expectedAck == 0) {
+            resendSnapshot();
+        } else {
+            flushOps();
+        }
+    }
+
+    /**
+     * 아직 보내지 않은 편집을 바로 전송하고, 서버에 모두 반영되면 작업을 실행한다.
+     * 서버와 공유되지 않은 문서이면 그때만 전체 내용을 보낸다.
+     * (서버 컴파일 요청 전에 호출한다. 공유된 문서를 전체 내용으로 덮어쓰지 않는다)
+     *
+     * @param then 편집이 반영된 뒤 실행할 작업 (연결되어 있지 않으면 바로 실행)
+     */
+    public void flushEdits(Runnable then) {
+        debounce.stop();
+        if (collab.isConnected() && !isShared()) {
+            pending = null;
+            collab.sendSnapshot(getVirtualPath(), getText());
+        } else {
+            flushOps();
+        }
+        if (expectedAck < 0 || !collab.isConnected()) {
+            then.run();
+        } else {
+            afterFlush = then;
+        }
+    }
+
+    private void runAfterFlush() {
+        Runnable r = afterFlush;
+        afterFlush = null;
+        if (r != null)
+            r.run();
+    }
+
     private void scheduleCursorSend() {
         cursorDebounce.restart();
     }
@@ -196,6 +315,84 @@ public class EditorTab extends JTextArea {
         return (file != null) ? file.getAbsolutePath() : virtualPath;
     }
 
+    /**
+     * 서버 기준 문서 버전을 설정한다. (스냅샷 수신 또는 탭 생성 시)
+     *
+     * @param version 문서 버전 (0이면 미공유)
+     */
+    public void setDocVersion(long version) {
+        this.docVersion = version;
+    }
+
+    /**
+     * 내가 보낸 편집이 서버에 반영된 버전을 기록하고, 그동안 합쳐 둔 편집을 보낸다.
+     *
+     * @param version 반영 후 문서 버전
+     * @return false면 이미 버린 편집이 서버에 반영된 것이므로 전체 스냅샷이 필요함
+     */
+    public boolean acknowledge(long version) {
+        if (expectedAck >= 0) {
+            // 기다리던 버전이 아니면 이전 연결에서 보낸 편집의 응답이다: 지금 연산은 거절되어 스냅샷이 온다
+            if (expectedAck > 0 && version != expectedAck)
+                return true;
+            expectedAck = -1;
+            inFlight = null;
+            docVersion = version;
+            flushOps();
+            if (expectedAck < 0)
+                runAfterFlush();
+            return true;
+        }
+        if (!isShared()) {
+            // 처음 보낸 전체 내용이 반영됨: 그 뒤의 편집부터 연산으로 보낸다
+            docVersion = version;
+            flushOps();
+            return true;
+        }
+        return version <= docVersion;
+    }
+
+    /**
+     * 서버가 보낸 버전이 붙은 전체 내용을 반영한다.
+     * 보내지 않은 편집과 응답을 기다리던 편집은 서버 내용에 맞지 않으므로 버린다.
+     *
+     * @param version 문서 버전
+     * @param text    문서 전체 내용
+     */
+    public void applyRemoteSnapshot(long version, String text) {
+        debounce.stop();
+        pending = null;
+        expectedAck = -1;
+        inFlight = null;
+        applyRemoteText(text);
+        docVersion = version;
+        runAfterFlush();
+    }
+
+    /**
+     * 문서 전체 내용을 서버로 다시 보낸다. (서버가 문서를 갖고 있지 않아 요청한 경우)
+     * 보내지 않은 편집은 전체 내용에 포함되므로 버린다.
+     */
+    public void resendSnapshot() {
+        if (!collab.isConnected())
+            return;
+        debounce.stop();
+        pending = null;
+        inFlight = null;
+        collab.sendSnapshot(getVirtualPath(), getText());
+        if (isShared())
+            expectedAck = 0;
+    }
+
+    /**
+     * 이 문서가 서버와 공유되어 버전을 가지고 있는지 여부를 반환한다.
+     *
+     * @return 공유된 문서이면 true
+     */
+    public boolean isShared() {
+        return docVersion > 0;
+    }
+
     public void markDirty(boolean d) {
         if (this.dirty != d) {
             this.dirty = d;
@@ -279,27 +476,80 @@ public class EditorTab extends JTextArea {
 
     /**
      * 원격에서 수신된 텍스트를 에디터에 반영한다.
+     * 문서 전체를 교체하지 않고 현재 내용과 비교하여 바뀐 구간만 remove/insertString 하므로,
+     * 큰 파일에서도 하이라이트와 화면 배치가 변경 구간에 대해서만 갱신된다.
      * 이 과정에서 발생하는 변경 이벤트가 다시 서버로 전송되지 않도록 플래그를 설정한다.
      *
      * @param text 원격 텍스트 전체
      */
     public void applyRemoteText(String text) {
+        Document doc = getDocument();
+        String current;
+        try {
+            current = doc.getText(0, doc.getLength());
+        } catch (BadLocationException e) {
+            current = getText();
+        }
+        List<TextDiff.Edit> edits = TextDiff.diff(current, text);
+        if (edits.isEmpty())
+            return;
+
         suppressBroadcast = true;
         try {
-            int caret = getCaretPosition();
             Point viewPos = null;
             if (getParent() instanceof JViewport) {
                 viewPos = ((JViewport) getParent()).getViewPosition();
             }
-            setText(text);
-            try {
-                setCaretPosition(Math.min(caret, getDocument().getLength()));
-            } catch (Exception ignored) {
+            // 편집 목록은 뒤쪽 구간부터 정렬되어 있어 앞쪽 offset이 밀리지 않는다
+            for (TextDiff.Edit edit : edits) {
+                if (edit.removeLength > 0)
+                    doc.remove(edit.offset, edit.removeLength);
+                if (!edit.insert.isEmpty())
+                    doc.insertString(edit.offset, edit.insert, null);
             }
             if (viewPos != null && getParent() instanceof JViewport) {
                 ((JViewport) getParent()).setViewPosition(viewPos);
             }
             markDirty(true);
+        } catch (BadLocationException e) {
+            setText(text); // 계산한 구간이 맞지 않으면 전체 교체로 대체
+        } finally {
+            suppressBroadcast = false;
+        }
+    }
+
+    /**
+     * 원격에서 수신된 증분 편집 연산을 문서에 적용한다.
+     * 로컬 문서 버전이 연산의 기준 버전과 다르면 적용하지 않고 false를 반환한다.
+     *
+     * @param baseVersion  연산의 기준 문서 버전
+     * @param offset       편집 위치
+     * @param removeLength 삭제할 글자 수
+     * @param insert       삽입할 문자열
+     * @return 적용 성공 여부 (false면 전체 스냅샷이 필요함)
+     */
+    public boolean applyRemoteOp(long baseVersion, int offset, int removeLength, String insert) {
+        // 아직 반영되지 않은 로컬 편집이 있으면 먼저 보낸다. 같은 버전을 기준으로 한 원격 연산이 먼저 반영되었으므로
+        // 내 연산은 거절되고 서버가 전체 내용(EDIT_SYNC)을 보내 주니, 원격 연산은 적용하지 않는다
+        flushOps();
+        if (baseVersion != docVersion)
+            return false;
+        if (expectedAck >= 0)
+            return true;
+        Document doc = getDocument();
+        if (offset < 0 || removeLength < 0 || offset + removeLength > doc.getLength())
+            return false;
+        suppressBroadcast = true;
+        try {
+            if (removeLength > 0)
+                doc.remove(offset, removeLength);
+            if (!insert.isEmpty())
+                doc.insertString(offset, insert, null);
+            docVersion = baseVersion + 1;
+            markDirty(true);
+            return true;
+        } catch (BadLocationException e) {
+            return false;
         } finally {
             suppressBroadcast = false;
         }
@@ -334,6 +584,20 @@ public class EditorTab extends JTextArea {
         repaint();
     }
 
+    /**
+     * 원격 사용자의 커서 표시를 지운다. (그 사용자가 방을 나간 경우)
+     *
+     * @param nick 사용자 닉네임
+     */
+    public void removeRemoteCursor(String nick) {
+        RemoteCursor old = remoteCursors.remove(nick);
+        if (old == null)
+            return;
+        if (old.tag != null)
+            getHighlighter().removeHighlight(old.tag);
+        repaint();
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
@@ -373,6 +637,53 @@ public class EditorTab extends JTextArea {
         repaint();
     }
 
+    /**
+     * 아직 전송하지 않은 편집을 하나로 합친 연산.
+     * 서버 문서의 offset 위치에서 removeLength 글자를 현재 문서의 [offset, end) 구간으로 교체한다.
+     */
+    private static class EditOp {
+        int offset;
+        int removeLength;
+        int end;
+
+        EditOp(int offset, int removeLength, int end) {
+            this.offset = offset;
+            this.removeLength = removeLength;
+            this.end = end;
+        }
+
+        /**
+         * 현재 문서의 [from, to) 구간이 포함되도록 넓힌다. 사이의 바뀌지 않은 글자도 교체 구간에 들어간다.
+         */
+        void cover(int from, int to) {
+            if (from < offset) {
+                removeLength += offset - from;
+                offset = from;
+            }
+            if (to > end) {
+                removeLength += to - end;
+                end = to;
+            }
+        }
+    }
+
+    /**
+     * 서버로 보내고 응답을 기다리는 연산.
+     */
+    private static class SentOp {
+        final long baseVersion;
+        final int offset;
+        final int removeLength;
+        final String insert;
+
+        SentOp(long baseVersion, int offset, int removeLength, String insert) {
+            this.baseVersion = baseVersion;
+            this.offset = offset;
+            this.removeLength = removeLength;
+            this.insert = insert;
+        }
+    }
+
     private static class RemoteCursor {
         Object tag;
         int dot, mark;
@@ -0,0 +1,322 @@
+package ide.ui;
+
+import ide.app.ReplayPlayer;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 강의 기록을 다시 보는 창.
+ *
+ * 교수자가 편집한 코드가 시간에 따라 바뀌는 모습을 커서, 스크롤, 레이저 포인터와 함께 재생한다.
+ * 타임라인을 끌어 임의 시각으로 이동할 수 있고, 1x~16x 속도로 재생한다.
+ * "교수자 따라가기"를 켜 두면 교수자가 다루던 파일과 스크롤 위치를 따라간다.
+ * 현재 시각의 모든 문서를 폴더로 내보내 그 시점의 코드를 직접 열어 볼 수 있다.
+ */
+public class ReplayDialog extends JDialog {
+    private static final int TICK_MS = 40;
+    private static final int[] SPEEDS = { 1, 2, 4, 8, 16 };
+    private static final Color CURSOR_COLOR = new Color(255, 200, 80, 120);
+
+    private final ReplayPlayer player;
+    private final JComboBox<String> fileCombo = new JComboBox<>();
+    private final JCheckBox followBox = new JCheckBox("교수자 따라가기", true);
+    private final ReplayView view = new ReplayView();
+    private final JScrollPane viewScroll = new JScrollPane(view);
+    private final JSlider slider;
+    private final JButton playButton = new JButton("▶ 재생");
+    private final JComboBox<String> speedCombo = new JComboBox<>();
+    private final JLabel timeLabel = new JLabel();
+    private final Timer timer;
+    private final SimpleDateFormat clockFormat = new SimpleDateFormat("HH:mm:ss");
+
+    private long lastTick;
+    private boolean updating = false; // 코드에서 슬라이더/콤보를 바꾸는 중 (이벤트 무시)
+    private int shownRevision = -1;
+    private String shownPath;
+    private List<String> shownPaths = List.of();
+
+    /**
+     * ReplayDialog 생성자.
+     *
+     * @param owner  부모 프레임
+     * @param player 열어 둔 강의 기록 (창을 닫으면 함께 닫는다)
+     */
+    public ReplayDialog(Frame owner, ReplayPlayer player) {
+        super(owner, "⏪ 강의 다시 보기 - " + player.getRoom() + " ("
+                + new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date(player.getStartEpochMs())) + ")", false);
+        this.player = player;
+
+        setSize(900, 700);
+        setLocationRelativeTo(owner);
+        setLayout(new BorderLayout());
+
+        // 상단: 파일 선택
+        fileCombo.addActionListener(e -> {
+            if (!updating) {
+                followBox.setSelected(false);
+                refresh();
+            }
+        });
+        followBox.addActionListener(e -> refresh());
+        JPanel top = new JPanel(new BorderLayout(8, 0));
+        top.setBorder(BorderFactory.createEmptyBorder(6, 8, 6, 8));
+        top.add(new JLabel("파일"), BorderLayout.WEST);
+        top.add(fileCombo, BorderLayout.CENTER);
+        top.add(followBox, BorderLayout.EAST);
+        add(top, BorderLayout.NORTH);
+
+        // 가운데: 코드
+        view.setEditable(false);
+        view.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 14));
+        viewScroll.setRowHeaderView(new LineNumberView(view));
+        add(viewScroll, BorderLayout.CENTER);
+
+        // 하단: 타임라인과 재생 조작
+        timer = new Timer(TICK_MS, e -> tick());
+        slider = new JSlider(0, (int) Math.min(Integer.MAX_VALUE, player.getDurationMs()), 0);
+        slider.addChangeListener(e -> {
+            if (!updating)
+                seek(slider.getValue());
+        });
+        for (int s : SPEEDS)
+            speedCombo.addItem(s + "x");
+        playButton.addActionListener(e -> setPlaying(!timer.isRunning()));
+        JButton exportButton = new JButton("현재 시점 내보내기...");
+        exportButton.addActionListener(e -> export());
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(playButton);
+        controls.add(speedCombo);
+        controls.add(timeLabel);
+        controls.add(exportButton);
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.setBorder(BorderFactory.createEmptyBorder(4, 8, 6, 8));
+        bottom.add(slider, BorderLayout.NORTH);
+        bottom.add(controls, BorderLayout.SOUTH);
+        add(bottom, BorderLayout.SOUTH);
+
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                timer.stop();
+                try {
+                    player.close();
+                } catch (IOException ignored) {
+                }
+            }
+        });
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        refresh();
+    }
+
+    private void setPlaying(boolean playing) {
+        if (playing) {
+            if (player.getPosition() >= player.getDurationMs())
+                seek(0);
+            lastTick = System.nanoTime();
+            timer.start();
+            playButton.setText("⏸ 일시정지");
+        } else {
+            timer.stop();
+            playButton.setText("▶ 재생");
+        }
+    }
+
+    // 지난 틱 이후 흐른 시간에 재생 속도를 곱한 만큼 앞으로 재생한다
+    private void tick() {
+        long now = System.nanoTime();
+        long elapsedMs = (now - lastTick) / 1_000_000L;
+        if (elapsedMs <= 0)
+            return;
+        lastTick += elapsedMs * 1_000_000L;
+        long target = Math.min(player.getDurationMs(), player.getPosition() + elapsedMs * speed());
+        try {
+            player.advanceTo(target);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        if (target >= player.getDurationMs())
+            setPlaying(false);
+        refresh();
+    }
+
+    private int speed() {
+        return SPEEDS[Math.max(0, speedCombo.getSelectedIndex())];
+    }
+
+    private void seek(long t) {
+        try {
+            player.seek(t);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        refresh();
+    }
+
+    // 재생 위치의 상태를 화면에 반영한다 (바뀐 부분만)
+    private void refresh() {
+        updating = true;
+        try {
+            List<String> paths = player.getPaths();
+            if (!paths.equals(shownPaths)) {
+                Object selected = fileCombo.getSelectedItem();
+                fileCombo.setModel(new DefaultComboBoxModel<>(paths.toArray(new String[0])));
+                fileCombo.setSelectedItem(selected);
+                shownPaths = paths;
+            }
+            String path = followBox.isSelected() && player.getFocusPath() != null ? player.getFocusPath()
+                    : (String) fileCombo.getSelectedItem();
+            if (path != null && !path.equals(fileCombo.getSelectedItem()))
+                fileCombo.setSelectedItem(path);
+
+            if (!Objects.equals(path, shownPath) || player.getRevision() != shownRevision) {
+                String text = path == null ? null : player.getText(path);
+                if (text == null)
+                    text = "";
+                if (!text.equals(view.getText())) {
+                    Point keep = viewScroll.getViewport().getViewPosition();
+                    view.setText(text);
+                    if (Objects.equals(path, shownPath))
+                        viewScroll.getViewport().setViewPosition(keep);
+                }
+                shownPath = path;
+                shownRevision = player.getRevision();
+            }
+
+            int[] cursor = player.getCursor(path);
+            view.setProfessorCursor(cursor);
+            int line = player.getViewportLine(path);
+            if (followBox.isSelected() && line > 0 && line != view.scrolledLine) {
+                try {
+                    Rectangle r = view.modelToView(view.getLineStartOffset(Math.min(line - 1, view.getLineCount() - 1)));
+                    if (r != null)
+                        viewScroll.getViewport().setViewPosition(new Point(0, r.y));
+                    view.scrolledLine = line;
+                } catch (BadLocationException ignored) {
+                }
+            }
+            view.setLaser(player.getLaser(path));
+
+            slider.setValue((int) Math.min(Integer.MAX_VALUE, player.getPosition()));
+            timeLabel.setText(format(player.getPosition()) + " / " + format(player.getDurationMs()) + "  ("
+                    + clockFormat.format(new Date(player.getStartEpochMs() + player.getPosition())) + ")");
+        } finally {
+            updating = false;
+        }
+    }
+
+    private void export() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setDialogTitle(format(player.getPosition()) + " 시점의 코드를 내보낼 폴더");
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION)
+            return;
+        File dir = chooser.getSelectedFile();
+        try {
+            int n = player.exportTo(dir);
+            JOptionPane.showMessageDialog(this, n + "개 문서를 " + dir + "에 내보냈습니다.", "내보내기 완료",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "내보내기 실패: " + e.getMessage(), "오류", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void fail(IOException e) {
+        setPlaying(false);
+        JOptionPane.showMessageDialog(this, "강의 기록을 읽을 수 없습니다: " + e.getMessage(), "오류",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
+    private static String format(long ms) {
+        long s = ms / 1000;
+        return s >= 3600 ? String.format("%d:%02d:%02d", s / 3600, s / 60 % 60, s % 60)
+                : String.format("%02d:%02d", s / 60, s % 60);
+    }
+
+    /**
+     * 교수자의 커서(선택 영역)와 레이저 포인터를 그리는 읽기 전용 코드 영역.
+     */
+    private static final class ReplayView extends JTextArea {
+        private Object cursorTag;
+        private int[] cursor;
+        private Point laser;
+        int scrolledLine = -1;
+
+        void setProfessorCursor(int[] c) {
+            if (c == null ? cursor == null && cursorTag == null : cursorTag != null && java.util.Arrays.equals(c, cursor))
+                return;
+            if (cursorTag != null)
+                getHighlighter().removeHighlight(cursorTag);
+            cursorTag = null;
+            cursor = c;
+            if (c != null) {
+                int len = getDocument().getLength();
+                int dot = Math.min(Math.max(0, c[0]), len);
+                int mark = Math.min(Math.max(0, c[1]), len);
+                try {
+                    cursorTag = getHighlighter().addHighlight(Math.min(dot, mark), Math.max(dot, mark),
+                            new DefaultHighlighter.DefaultHighlightPainter(CURSOR_COLOR));
+                } catch (BadLocationException ignored) {
+                }
+            }
+            repaint();
+        }
+
+        void setLaser(int[] p) {
+            Point next = p == null ? null : new Point(p[0], p[1]);
+            if (!Objects.equals(next, laser)) {
+                laser = next;
+                repaint();
+            }
+        }
+
+        @Override
+        public void setText(String t) {
+            cursorTag = null;
+            cursor = null;
+            getHighlighter().removeAllHighlights();
+            super.setText(t);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            // 교수자 커서 (세로선)
+            if (cursor != null) {
+                try {
+                    Rectangle r = modelToView(Math.min(Math.max(0, cursor[0]), getDocument().getLength()));
+                    if (r != null) {
+                        g.setColor(new Color(220, 120, 0));
+                        g.fillRect(r.x, r.y, 2, r.height);
+                    }
+                } catch (BadLocationException ignored) {
+                }
+            }
+        }
+
+        @Override
+        public void paintChildren(Graphics g) {
+            super.paintChildren(g);
+            // 레이저 포인터
+            if (laser != null) {
+                g.setColor(new Color(255, 0, 0, 180));
+                g.fillOval(laser.x - 5, laser.y - 5, 10, 10);
+                g.setColor(Color.WHITE);
+                g.drawOval(laser.x - 5, laser.y - 5, 10, 10);
+            }
+        }
+    }
+}
@@ -53,10 +53,11 @@ public class TabManager {
         this.isKeystrokeMode = isKeystrokeMode;
         this.onTabUpdated = onTabUpdated;
 
-        // 탭 변경 리스너: 탭을 바꿀 때마다 최신 내용을 서버로 전송 (동기화 보장)
+        // 탭 변경 리스너: 아직 서버와 공유되지 않은 문서라면 전체 내용을 한 번 전송한다.
+        // 이후의 변경은 증분 편집(EDIT_OP)으로 전송된다.
         editorTabs.addChangeListener(e -> {
             getActiveEditor().ifPresent(tab -> {
-                if (collab.isConnected())
+                if (collab.isConnected() && !tab.isShared())
                     collab.sendSnapshot(tab.getVirtualPath(), tab.getText());
             });
             if (followMeActive && collab.isConnected()) {
@@ -96,7 +97,7 @@ public class TabManager {
         }
         try {
             String text = Files.readString(file.toPath());
-            addTab(file, text, null);
+            addTab(file, text, null, 0);
         } catch (IOException ex) {
             JOptionPane.showMessageDialog(editorTabs, "파일을 열 수 없습니다: " + ex.getMessage());
         }
@@ -106,7 +107,7 @@ public class TabManager {
      * 제목 없는 새 문서를 연다.
      */
     public void openUntitled() {
-        addTab(null, "", null);
+        addTab(null, "", null, 0);
     }
 
     /**
@@ -115,9 +116,11 @@ public class TabManager {
      * @param file          파일 객체 (없으면 null)
      * @param text          초기 텍스트 내용
      * @param vPathOverride 가상 경로 강제 지정 (원격 파일 오픈 시 사용)
+     * @param version       서버 문서 버전 (로컬에서 연 문서는 0)
      */
-    private void addTab(File file, String text, String vPathOverride) {
+    private void addTab(File file, String text, String vPathOverride, long version) {
         EditorTab tab = new EditorTab(file, text, vPathOverride, collab, isKeystrokeMode, onTabUpdated);
+        tab.setDocVersion(version);
         JScrollPane sp = new JScrollPane(tab);
         sp.setRowHeaderView(new LineNumberView(tab));
 
@@ -175,13 +178,90 @@ public class TabManager {
             if (tab == null) {
                 // 원격에서 모르는 파일에 대한 편집이 오면 새 탭으로 엽니다.
                 File f = (path.startsWith("untitled:")) ? null : new File(path);
-                addTab(f, text, (f == null) ? path : null);
+                addTab(f, text, (f == null) ? path : null, 0);
             } else {
                 tab.applyRemoteText(text);
             }
         });
     }
 
+    /**
+     * 원격에서 수신된 증분 편집 연산을 반영한다.
+     * 탭이 없거나 문서 버전이 맞지 않으면 서버에 전체 스냅샷을 요청한다.
+     *
+     * @param path         파일 경로
+     * @param baseVersion  연산의 기준 문서 버전
+     * @param offset       편집 위치
+     * @param removeLength 삭제할 글자 수
+     * @param insert       삽입할 문자열
+     */
+    public void applyRemoteOp(String path, long baseVersion, int offset, int removeLength, String insert) {
+        SwingUtilities.invokeLater(() -> {
+            EditorTab tab = findTabByPath(path);
+            if (tab == null || !tab.applyRemoteOp(baseVersion, offset, removeLength, insert)) {
+                System.out.println("[TabManager] Version mismatch on " + path + ", requesting snapshot");
+                collab.requestSync(path);
+            }
+        });
+    }
+
+    /**
+     * 서버가 보낸 버전이 붙은 전체 스냅샷을 반영한다.
+     * 해당 파일이 열려있지 않다면 새로 연다.
+     *
+     * @param path    파일 경로
+     * @param version 문서 버전
+     * @param text    문서 전체 내용
+     */
+    public void applyRemoteSnapshot(String path, long version, String text) {
+        SwingUtilities.invokeLater(() -> {
+            EditorTab tab = findTabByPath(path);
+            if (tab == null) {
+                File f = (path.startsWith("untitled:")) ? null : new File(path);
+                addTab(f, text, (f == null) ? path : null, version);
+            } else {
+                tab.applyRemoteSnapshot(version, text);
+            }
+        });
+    }
+
+    /**
+     * 내가 보낸 편집이 서버에 반영된 버전을 탭에 기록한다.
+     *
+     * @param path    파일 경로
+     * @param version 반영 후 문서 버전
+     */
+    public void onEditAck(String path, long version) {
+        SwingUtilities.invokeLater(() -> {
+            EditorTab tab = findTabByPath(path);
+            if (tab != null && !tab.acknowledge(version))
+                collab.requestSync(path);
+        });
+    }
+
+    /**
+     * 서버에 다시 접속한 뒤, 연결이 끊겨 있는 동안 쌓인 편집과 응답을 받지 못한 편집을 다시 보낸다.
+     */
+    public void resumeEdits() {
+        SwingUtilities.invokeLater(() -> {
+            for (EditorTab tab : tabMap.values())
+                tab.resumeEdits();
+        });
+    }
+
+    /**
+     * 열려 있는 문서의 전체 내용을 서버로 전송한다. (서버의 요청 시)
+     *
+     * @param path 파일 경로
+     */
+    public void sendSnapshotOf(String path) {
+        SwingUtilities.invokeLater(() -> {
+            EditorTab tab = findTabByPath(path);
+            if (tab != null)
+                tab.resendSnapshot();
+        });
+    }
+
     /**
      * 원격에서 수신된 커서 위치를 반영한다.
      *
@@ -200,6 +280,18 @@ public class TabManager {
         });
     }
 
+    /**
+     * 모든 탭에서 원격 사용자의 커서 표시를 지운다.
+     *
+     * @param nick 사용자 닉네임
+     */
+    public void removeRemoteCursor(String nick) {
+        SwingUtilities.invokeLater(() -> {
+            for (EditorTab tab : tabMap.values())
+                tab.removeRemoteCursor(nick);
+        });
+    }
+
     /**
      * 현재 활성화된 탭을 닫는다.
      *
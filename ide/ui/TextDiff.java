@@ -0,0 +1,183 @@
+package ide.ui;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 두 텍스트 사이의 변경 구간을 계산하는 유틸리티 클래스.
+ *
+ * 원격 스냅샷을 에디터에 반영할 때 문서 전체를 교체(setText)하지 않고,
+ * 바뀐 구간만 Document.remove/insertString 하도록 최소한의 편집 목록을 만든다.
+ * 공통 접두사/접미사를 먼저 잘라낸 뒤, 남은 가운데 부분에 대해 줄 단위 Myers diff를 수행한다.
+ * diff는 편집 거리, 줄 수, 결과 편집 개수에 상한이 있어서, 상한을 넘으면 가운데 부분 전체를 하나의 교체로 처리한다.
+ */
+final class TextDiff {
+    // 줄 단위 diff를 시도할 최대 편집 거리 (넘으면 가운데 전체를 한 번에 교체)
+    private static final int MAX_EDIT_DISTANCE = 64;
+    // 줄 단위 diff를 시도할 최대 줄 수 (이전 + 이후)
+    private static final int MAX_LINES = 20_000;
+    // 적용할 최대 편집 개수. 편집마다 뷰가 갱신되므로 너무 많으면 하나의 교체가 더 싸다.
+    private static final int MAX_EDITS = 16;
+
+    private TextDiff() {
+    }
+
+    /**
+     * 하나의 교체 연산. offset은 변경 전 텍스트 기준 위치이다.
+     */
+    static final class Edit {
+        final int offset;
+        final int removeLength;
+        final String insert;
+
+        Edit(int offset, int removeLength, String insert) {
+            this.offset = offset;
+            this.removeLength = removeLength;
+            this.insert = insert;
+        }
+    }
+
+    /**
+     * 변경 전 텍스트를 변경 후 텍스트로 만드는 편집 목록을 계산한다.
+     * 목록은 offset 내림차순이므로, 앞에서부터 차례로 적용해도 나머지 offset이 어긋나지 않는다.
+     *
+     * @param before 변경 전 텍스트
+     * @param after  변경 후 텍스트
+     * @return 편집 목록 (같으면 빈 목록)
+     */
+    static List<Edit> diff(String before, String after) {
+        List<Edit> edits = new ArrayList<>();
+        int min = Math.min(before.length(), after.length());
+        int prefix = 0;
+        while (prefix < min && before.charAt(prefix) == after.charAt(prefix))
+            prefix++;
+        int suffix = 0;
+        while (suffix < min - prefix
+                && before.charAt(before.length() - 1 - suffix) == after.charAt(after.length() - 1 - suffix))
+            suffix++;
+
+        String oldMid = before.substring(prefix, before.length() - suffix);
+        String newMid = after.substring(prefix, after.length() - suffix);
+        if (oldMid.isEmpty() && newMid.isEmpty())
+            return edits;
+        if (oldMid.isEmpty() || newMid.isEmpty() || !diffLines(oldMid, newMid, prefix, edits)
+                || edits.size() > MAX_EDITS) {
+            edits.clear();
+            edits.add(new Edit(prefix, oldMid.length(), newMid));
+        }
+        return edits;
+    }
+
+    /**
+     * 가운데 부분을 줄 단위로 비교하여 편집 목록을 만든다.
+     *
+     * @return 상한 안에서 diff를 완료했으면 true
+     */
+    private static boolean diffLines(String oldMid, String newMid, int base, List<Edit> edits) {
+        int[] aStart = lineStarts(oldMid);
+        int[] bStart = lineStarts(newMid);
+        int n = aStart.length - 1;
+        int m = bStart.length - 1;
+        if (n + m > MAX_LINES || (n == 1 && m == 1))
+            return false;
+        String[] a = lines(oldMid, aStart);
+        String[] b = lines(newMid, bStart);
+
+        // Myers O((N+M)D) 탐색. trace[d]는 d번째 단계 직전의 V 배열
+        int max = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int off = max + 1;
+        int[] v = new int[2 * max + 3];
+        List<int[]> trace = new ArrayList<>();
+        boolean found = false;
+        for (int d = 0; d <= max && !found; d++) {
+            trace.add(v.clone());
+            for (int k = -d; k <= d; k += 2) {
+                int x = (k == -d || (k != d && v[off + k - 1] < v[off + k + 1]))
+                        ? v[off + k + 1] : v[off + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[x].equals(b[y])) {
+                    x++;
+                    y++;
+                }
+                v[off + k] = x;
+                if (x >= n && y >= m) {
+                    found = true;
+                    break;
+                }
+            }
+        }
+        if (!found)
+            return false;
+
+        // 끝에서부터 되짚으며 연속된 삭제/삽입을 하나의 교체 구간(hunk)으로 묶는다
+        int x = n, y = m;
+        int hunkA = -1, hunkB = -1; // 열린 hunk의 끝 (old/new 줄 번호)
+        for (int d = trace.size() - 1; d >= 0; d--) {
+            int[] pv = trace.get(d);
+            int k = x - y;
+            int prevK = (k == -d || (k != d && pv[off + k - 1] < pv[off + k + 1])) ? k + 1 : k - 1;
+            int prevX = pv[off + prevK];
+            int prevY = prevX - prevK;
+            if (x > prevX && y > prevY && hunkA >= 0) {
+                addHunk(oldMid, newMid, aStart, bStart, x, hunkA, y, hunkB, base, edits);
+                hunkA = -1;
+            }
+            while (x > prevX && y > prevY) {
+                x--;
+                y--;
+            }
+            if (d > 0) {
+                if (hunkA < 0) {
+                    hunkA = x;
+                    hunkB = y;
+                }
+                x = prevX;
+                y = prevY;
+            }
+        }
+        if (hunkA >= 0)
+            addHunk(oldMid, newMid, aStart, bStart, x, hunkA, y, hunkB, base, edits);
+        return true;
+    }
+
+    private static void addHunk(String oldMid, String newMid, int[] aStart, int[] bStart,
+                                int a0, int a1, int b0, int b1, int base, List<Edit> edits) {
+        int from = aStart[a0], to = aStart[a1];
+        String insert = newMid.substring(bStart[b0], bStart[b1]);
+        // 줄 안에서 실제로 바뀐 글자 구간만 남긴다
+        int min = Math.min(to - from, insert.length());
+        int p = 0;
+        while (p < min && oldMid.charAt(from + p) == insert.charAt(p))
+            p++;
+        int s = 0;
+        while (s < min - p && oldMid.charAt(to - 1 - s) == insert.charAt(insert.length() - 1 - s))
+            s++;
+        edits.add(new Edit(base + from + p, (to - from) - p - s, insert.substring(p, insert.length() - s)));
+    }
+
+    // 각 줄의 시작 위치 (마지막 원소는 전체 길이). 줄 끝의 개행은 그 줄에 포함된다.
+    private static int[] lineStarts(String s) {
+        int[] starts = new int[16];
+        int count = 0;
+        starts[count++] = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '\n' && i + 1 < s.length()) {
+                if (count == starts.length)
+                    starts = Arrays.copyOf(starts, count * 2);
+                starts[count++] = i + 1;
+            }
+        }
+        if (count == starts.length)
+            starts = Arrays.copyOf(starts, count + 1);
+        starts[count++] = s.length();
+        return Arrays.copyOf(starts, count);
+    }
+
+    private static String[] lines(String s, int[] starts) {
+        String[] lines = new String[starts.length - 1];
+        for (int i = 0; i < lines.length; i++)
+            lines[i] = s.substring(starts[i], starts[i + 1]);
+        return lines;
+    }
+}
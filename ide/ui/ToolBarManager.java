@@ -71,6 +71,14 @@ public class ToolBarManager {
         JButton btnConnect = new JButton("Connect");
         btnConnect.addActionListener(e -> promptConnectAction.run());
 
+        JButton btnCompile = new JButton("🔨 Compile");
+        btnCompile.setToolTipText("현재 파일을 서버에서 컴파일");
+        btnCompile.addActionListener(e -> actionCompileActive(false));
+
+        JButton btnRun = new JButton("▶ Run");
+        btnRun.setToolTipText("현재 파일을 서버에서 컴파일하고 실행");
+        btnRun.addActionListener(e -> actionCompileActive(true));
+
         // 기능 버튼 초기화 (기본 숨김, 권한에 따라 표시)
         btnFollowMe.setVisible(false);
         btnFollowMe.addActionListener(e -> tabManager.setFollowMe(btnFollowMe.isSelected()));
@@ -111,6 +119,8 @@ public class ToolBarManager {
         toolBar.add(btnSave);
         toolBar.addSeparator();
         toolBar.add(btnConnect);
+        toolBar.add(btnCompile);
+        toolBar.add(btnRun);
         toolBar.addSeparator();
         toolBar.add(btnFollowMe);
         toolBar.add(btnLaser);
@@ -165,6 +175,9 @@ public class ToolBarManager {
         closeTab.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_W, toolkitShortcut()));
         closeTab.addActionListener(e -> tabManager.closeActiveTab(null, null));
 
+        JMenuItem openReplay = new JMenuItem("Open Lecture Replay...");
+        openReplay.addActionListener(e -> actionOpenReplay());
+
         JMenuItem exit = new JMenuItem("Exit");
         exit.addActionListener(e -> System.exit(0));
 
@@ -184,6 +197,8 @@ public class ToolBarManager {
         file.addSeparator();
         file.add(closeTab);
         file.addSeparator();
+        file.add(openReplay);
+        file.addSeparator();
         file.add(exit);
         menuBar.add(file);
 
@@ -243,6 +258,19 @@ public class ToolBarManager {
         }
     }
 
+    /**
+     * 강의 기록(.replay) 파일을 선택하여 다시 보기 창을 연다.
+     */
+    private void actionOpenReplay() {
+        JFileChooser chooser = new JFileChooser(new File("."));
+        chooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+        chooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("Lecture replay (*.replay)", "replay"));
+        chooser.setDialogTitle("Open Lecture Replay");
+        if (chooser.showOpenDialog(parentFrame) == JFileChooser.APPROVE_OPTION) {
+            collab.openReplay(chooser.getSelectedFile());
+        }
+    }
+
     /**
      * 현재 활성화된 탭을 저장한다.
      */
@@ -277,6 +305,18 @@ public class ToolBarManager {
         });
     }
 
+    /**
+     * 현재 활성화된 탭을 서버에서 컴파일한다.
+     * 보내지 않은 편집만 먼저 전송하고, 서버에 반영된 뒤 서버에 있는 버전을 컴파일한다.
+     *
+     * @param run 컴파일에 성공하면 실행할지 여부
+     */
+    private void actionCompileActive(boolean run) {
+        tabManager.getActiveEditor().ifPresent(tab -> {
+            tab.flushEdits(() -> collab.requestCompile(tab.getVirtualPath(), run));
+        });
+    }
+
     /**
      * OS별 단축키 마스크를 반환한다. (Mac: Command, Win: Ctrl)
      */
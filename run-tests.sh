@@ -0,0 +1,20 @@
+#!/bin/bash
+# ---------------------------------------------------------
+# 사용법:
+#   ./run-tests.sh
+#
+# 기능:
+#   1) ide/ 와 test/ 아래 모든 .java 컴파일 (out-test 디렉터리)
+#   2) 테스트 실행 (실패하면 종료 코드 1)
+# ---------------------------------------------------------
+
+set -e
+
+rm -rf out-test
+mkdir -p out-test
+
+echo "[1/2] 컴파일 중..."
+javac -d out-test $(find ide test -name "*.java")
+
+echo "[2/2] 테스트 실행 중..."
+java -Djava.awt.headless=true -cp out-test ide.ui.EditorTabTest
@@ -0,0 +1,252 @@
+package ide.ui;
+
+import ide.app.CollabActions;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * EditorTab의 증분 편집 전송을 확인하는 테스트.
+ *
+ * 서버 대신 보낸 메시지를 기록하는 가짜 CollabActions를 넣고, 편집과 서버 응답(EDIT_ACK, EDIT_SYNC)을
+ * 차례로 흉내 내어 어떤 연산이 어떤 기준 버전으로 전송되는지 확인한다.
+ * 외부 라이브러리 없이 실행한다: ./run-tests.sh
+ */
+public class EditorTabTest {
+
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Throwable {
+        System.setProperty("java.awt.headless", "true");
+        run("한 번에 하나의 연산만 응답을 기다린다", EditorTabTest::oneOpInFlight);
+        run("쌓인 편집을 합친 연산은 서버 문서를 현재 내용으로 바꾼다", EditorTabTest::mergedOpMatchesText);
+        run("EDIT_SYNC를 받으면 보내지 않은 편집을 버린다", EditorTabTest::snapshotDiscardsPendingOps);
+        run("EDIT_SYNC를 받으면 디바운스 전송도 취소된다", EditorTabTest::snapshotCancelsDebounce);
+        run("버린 편집의 응답이 오면 스냅샷을 요청한다", EditorTabTest::staleAckNeedsSync);
+        run("연결이 끊긴 동안의 편집은 재접속 후 보낸다", EditorTabTest::editsSurviveOutage);
+        run("응답을 받지 못한 연산은 재접속 후 다시 보낸다", EditorTabTest::inFlightOpIsResent);
+        if (failures > 0) {
+            System.out.println(failures + " test(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All tests passed");
+    }
+
+    // --- 테스트 ---
+
+    private static void oneOpInFlight() throws Throwable {
+        FakeCollab collab = new FakeCollab();
+        EditorTab tab = newTab(collab, "class A {}", 5, true);
+
+        type(tab, 9, "x");
+        check(collab.sent.size() == 1, "first edit is sent at once: " + collab.sent);
+        check(collab.sent.get(0).equals("OP 5 9 0 x"), "first op: " + collab.sent.get(0));
+
+        type(tab, 10, "y");
+        type(tab, 11, "z");
+        check(collab.sent.size() == 1, "edits wait for the ack: " + collab.sent);
+
+        check(tab.acknowledge(6), "ack of the op in flight");
+        check(collab.sent.size() == 2, "buffered edits are sent after the ack: " + collab.sent);
+        check(collab.sent.get(1).equals("OP 6 10 0 yz"), "buffered edits are merged: " + collab.sent.get(1));
+    }
+
+    private static void mergedOpMatchesText() throws Throwable {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            FakeCollab collab = new FakeCollab();
+            String base = "public class Main {\n    int x = 1;\n}\n";
+            EditorTab tab = newTab(collab, base, 1, false);
+            onEdt(() -> {
+                try {
+                    for (int i = 0; i < 8; i++) {
+                        int len = tab.getDocument().getLength();
+                        int at = random.nextInt(len + 1);
+                        if (random.nextBoolean() || len == 0) {
+                            tab.getDocument().insertString(at, "ab\n".substring(random.nextInt(3)), null);
+                        } else {
+                            tab.getDocument().remove(at, random.nextInt(Math.min(4, len - at) + 1));
+                        }
+                    }
+                } catch (BadLocationException e) {
+                    throw new IllegalStateException(e);
+                }
+                tab.flushEdits(() -> {
+                });
+            });
+            String expected = text(tab);
+            if (expected.equals(base)) {
+                check(collab.sent.isEmpty() || collab.sent.get(0).startsWith("OP 1 "), "no-op edits: " + collab.sent);
+                continue;
+            }
+            check(collab.sent.size() == 1, "edits are sent as one op: " + collab.sent);
+            String[] op = collab.sent.get(0).split(" ", 5);
+            int offset = Integer.parseInt(op[2]);
+            int removeLength = Integer.parseInt(op[3]);
+            String applied = base.substring(0, offset) + op[4] + base.substring(offset + removeLength);
+            check(applied.equals(expected), "merged op " + collab.sent.get(0) + " gives " + applied);
+        }
+    }
+
+    private static void snapshotDiscardsPendingOps() throws Throwable {
+        FakeCollab collab = new FakeCollab();
+        EditorTab tab = newTab(collab, "hello", 3, true);
+
+        type(tab, 5, "!");  // 전송됨 (기준 버전 3)
+        type(tab, 0, ">");  // 응답을 기다리는 동안 쌓임
+        check(collab.sent.size() == 1, "second edit is buffered: " + collab.sent);
+
+        // 다른 사람의 편집이 먼저 반영되어 내 연산이 거절되고, 서버가 전체 내용을 보낸다
+        onEdt(() -> tab.applyRemoteSnapshot(4, "hello world"));
+        check(text(tab).equals("hello world"), "snapshot replaces the text: " + text(tab));
+
+        check(tab.acknowledge(4), "no op is waiting for an ack after the snapshot");
+        check(collab.sent.size() == 1, "discarded edits are never sent: " + collab.sent);
+
+        type(tab, 11, "?");
+        check(collab.sent.size() == 2, "next edit is sent: " + collab.sent);
+        check(collab.sent.get(1).equals("OP 4 11 0 ?"), "next op is based on the snapshot: " + collab.sent.get(1));
+    }
+
+    private static void snapshotCancelsDebounce() throws Throwable {
+        FakeCollab collab = new FakeCollab();
+        EditorTab tab = newTab(collab, "abc", 7, false);
+
+        type(tab, 3, "d"); // 디바운스 타이머가 시작된다
+        onEdt(() -> tab.applyRemoteSnapshot(9, "xyz"));
+        Thread.sleep(500);  // 디바운스 간격(200ms)보다 오래 기다린다
+        onEdt(() -> {
+        });
+        check(collab.sent.isEmpty(), "stale edit is not flushed after the snapshot: " + collab.sent);
+    }
+
+    private static void staleAckNeedsSync() throws Throwable {
+        FakeCollab collab = new FakeCollab();
+        EditorTab tab = newTab(collab, "abc", 2, true);
+
+        type(tab, 3, "d");
+        onEdt(() -> tab.applyRemoteSnapshot(2, "abc")); // 연산의 응답보다 먼저 온 스냅샷
+        check(!tab.acknowledge(3), "ack of a discarded op asks for a snapshot");
+    }
+
+    private static void editsSurviveOutage() throws Throwable {
+        FakeCollab collab = new FakeCollab();
+        EditorTab tab = newTab(collab, "abc", 4, true);
+
+        collab.connected = false;
+        type(tab, 3, "d");
+        type(tab, 4, "e");
+        check(collab.sent.isEmpty(), "nothing is sent while disconnected: " + collab.sent);
+
+        collab.connected = true;
+        onEdt(tab::resumeEdits);
+        check(collab.sent.equals(List.of("OP 4 3 0 de")), "edits are sent after reconnecting: " + collab.sent);
+    }
+
+    private static void inFlightOpIsResent() throws Throwable {
+        FakeCollab collab = new FakeCollab();
+        EditorTab tab = newTab(collab, "abc", 4, true);
+
+        type(tab, 0, "x"); // 보낸 뒤 응답 전에 연결이 끊긴다
+        collab.connected = false;
+        type(tab, 4, "y");
+
+        collab.connected = true;
+        onEdt(tab::resumeEdits);
+        check(collab.sent.equals(List.of("OP 4 0 0 x", "OP 4 0 0 x")), "op is resent with its base: " + collab.sent);
+
+        check(tab.acknowledge(5), "ack of the resent op");
+        check(collab.sent.size() == 3 && collab.sent.get(2).equals("OP 5 4 0 y"),
+                "edits made offline follow the ack: " + collab.sent);
+    }
+
+    // --- 도우미 ---
+
+    private static EditorTab newTab(FakeCollab collab, String text, long version, boolean keystroke)
+            throws Throwable {
+        EditorTab[] tab = new EditorTab[1];
+        onEdt(() -> {
+            tab[0] = new EditorTab(null, text, "untitled:test", collab.proxy(), () -> keystroke, t -> {
+            });
+            tab[0].setDocVersion(version);
+        });
+        return tab[0];
+    }
+
+    private static void type(EditorTab tab, int offset, String s) throws Throwable {
+        onEdt(() -> {
+            try {
+                tab.getDocument().insertString(offset, s, null);
+            } catch (BadLocationException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    private static String text(EditorTab tab) throws Throwable {
+        String[] t = new String[1];
+        onEdt(() -> t[0] = tab.getText());
+        return t[0];
+    }
+
+    private static void onEdt(Runnable r) throws Throwable {
+        try {
+            SwingUtilities.invokeAndWait(r);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface Body {
+        void run() throws Throwable;
+    }
+
+    private static void run(String name, Body body) {
+        try {
+            body.run();
+            System.out.println("[PASS] " + name);
+        } catch (Throwable t) {
+            failures++;
+            System.out.println("[FAIL] " + name + ": " + t);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition)
+            throw new AssertionError(message);
+    }
+
+    /**
+     * 서버로 보낸 편집 메시지를 기록하는 가짜 컨트롤러. connected로 연결 상태를 흉내 낸다.
+     */
+    private static class FakeCollab {
+        final List<String> sent = new ArrayList<>();
+        volatile boolean connected = true;
+
+        CollabActions proxy() {
+            return (CollabActions) Proxy.newProxyInstance(CollabActions.class.getClassLoader(),
+                    new Class<?>[] { CollabActions.class }, (self, method, a) -> {
+                        switch (method.getName()) {
+                            case "isConnected":
+                                return connected;
+                            case "sendEditOp":
+                                sent.add("OP " + a[1] + " " + a[2] + " " + a[3] + " " + a[4]);
+                                return null;
+                            case "sendSnapshot":
+                                sent.add("SNAPSHOT " + a[1]);
+                                return null;
+                            case "requestSync":
+                                sent.add("SYNC_REQ");
+                                return null;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}